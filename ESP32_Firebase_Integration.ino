@@ -201,7 +201,7 @@ void registerDeviceInFirebase() {
   json.set("device_name", DEVICE_NAME);
   json.set("is_available", true);
   json.set("current_plant_id", "");
-  json.set("last_seen", String(millis()));
+  json.set("last_seen/.sv", "timestamp");  // Hora del servidor, no millis() del ESP32
   json.set("ip_address", WiFi.localIP().toString());
   json.set("firmware_version", "1.0.0");
 
@@ -217,8 +217,9 @@ void registerDeviceInFirebase() {
 }
 
 void updateLastSeen() {
+  // Latido con la hora del servidor: la app compara contra su reloj corregido
   String path = "/devices/" + DEVICE_ID + "/last_seen";
-  Firebase.setString(firebaseData, path, String(millis()));
+  Firebase.setTimestamp(firebaseData, path);
 }
 
 void checkPlantAssignment() {
@@ -275,12 +276,12 @@ void readAndSendSensorData() {
   sensorJson.set("uv_level", uvLevel);
   sensorJson.set("water_level", waterLevel);
   sensorJson.set("pest_count", pestCount);
-  sensorJson.set("timestamp", String(millis()));
+  sensorJson.set("timestamp/.sv", "timestamp");  // Hora del servidor
 
-  // Enviar a Firebase
-  String path = "/sensor_data/" + String(millis());  // Usar timestamp como ID
+  // Enviar a la partición de este dispositivo; push genera una key única y ordenada
+  String path = "/sensor_data/" + DEVICE_ID;
 
-  if (Firebase.setJSON(firebaseData, path, sensorJson)) {
+  if (Firebase.pushJSON(firebaseData, path, sensorJson)) {
     Serial.println("Datos enviados correctamente");
     displaySensorData(temperature, soilHumidity, waterLevel);
   } else {
@@ -30,6 +30,7 @@ android {
 
     buildFeatures {
         viewBinding = true
+        buildConfig = true
     }
 
     compileOptions {
@@ -68,6 +69,9 @@ dependencies {
     // Para permisos de cámara
     implementation("com.karumi:dexter:6.2.3")
 
+    // WorkManager para el monitoreo de sensores en segundo plano
+    implementation("androidx.work:work-runtime:2.9.1")
+
     // Mantén tus dependencias de testing actuales
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
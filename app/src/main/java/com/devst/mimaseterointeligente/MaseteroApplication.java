@@ -0,0 +1,129 @@
+package com.devst.mimaseterointeligente;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.StrictMode;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devst.mimaseterointeligente.api.ApiConfig;
+import com.devst.mimaseterointeligente.database.DeltaSyncManager;
+import com.devst.mimaseterointeligente.database.FirebaseCache;
+import com.devst.mimaseterointeligente.managers.NetworkTaskCoordinator;
+import com.devst.mimaseterointeligente.services.SensorMonitorScheduler;
+
+/**
+ * Clase Application del masetero inteligente
+ *
+ * UBICACIÓN: app/src/main/java/com/devst/mimaseterointeligente/MaseteroApplication.java
+ * PROPÓSITO: Configuración global que debe ejecutarse antes de cualquier pantalla
+ *
+ * Mientras alguna pantalla está visible registra en NetworkTaskCoordinator
+ * las tareas de red periódicas comunes a todas las pantallas (revisión de
+ * sensores y sincronización incremental), así se agrupan entre sí y con las
+ * de cada pantalla (clima, dashboard) en los mismos despertares.
+ */
+public class MaseteroApplication extends Application {
+
+    private static final String MONITOR_TASK = "app_monitor";
+    private static final String DELTA_SYNC_TASK = "app_sincronizacion";
+
+    private int startedActivities = 0;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        if (BuildConfig.DEBUG) {
+            enableStrictMode();
+        }
+
+        // Persistencia de Firebase: antes de que cualquier pantalla use la base de datos
+        FirebaseCache.init();
+
+        // Monitoreo de sensores en segundo plano (se mantiene si ya estaba programado)
+        SensorMonitorScheduler.schedulePeriodic(this);
+        SensorMonitorScheduler.scheduleArchive(this);
+
+        // Tareas periódicas solo mientras la app está visible
+        registerActivityLifecycleCallbacks(visibilityCallbacks);
+    }
+
+    /**
+     * Registrar las tareas comunes al volverse visible la app
+     */
+    private void registerForegroundTasks() {
+        NetworkTaskCoordinator coordinator = NetworkTaskCoordinator.getInstance(this);
+        coordinator.register(MONITOR_TASK, ApiConfig.MONITOR_FOREGROUND_INTERVAL,
+                ApiConfig.MONITOR_FOREGROUND_TOLERANCE, () -> SensorMonitorScheduler.checkNow(this));
+        coordinator.register(DELTA_SYNC_TASK, ApiConfig.DELTA_SYNC_INTERVAL,
+                ApiConfig.DELTA_SYNC_TOLERANCE, () -> new DeltaSyncManager(this).syncIfEnabledAsync());
+    }
+
+    private void unregisterForegroundTasks() {
+        NetworkTaskCoordinator coordinator = NetworkTaskCoordinator.getInstance(this);
+        coordinator.unregister(MONITOR_TASK);
+        coordinator.unregister(DELTA_SYNC_TASK);
+    }
+
+    /**
+     * Cuenta las pantallas iniciadas: la primera registra las tareas y la
+     * última en detenerse las quita
+     */
+    private final ActivityLifecycleCallbacks visibilityCallbacks = new ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityStarted(@NonNull Activity activity) {
+            if (startedActivities++ == 0) {
+                registerForegroundTasks();
+            }
+        }
+
+        @Override
+        public void onActivityStopped(@NonNull Activity activity) {
+            if (--startedActivities == 0) {
+                unregisterForegroundTasks();
+            }
+        }
+
+        @Override
+        public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityResumed(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(@NonNull Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(@NonNull Activity activity) {
+        }
+    };
+
+    /**
+     * En builds de depuración, registrar en Logcat cualquier acceso a disco
+     * o red que quede en el hilo principal y los cursores/recursos sin cerrar.
+     */
+    private void enableStrictMode() {
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .penaltyLog()
+                .build());
+
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectLeakedSqlLiteObjects()
+                .detectLeakedClosableObjects()
+                .penaltyLog()
+                .build());
+    }
+}
@@ -8,7 +8,6 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
 import android.text.TextUtils;
-import android.util.Log;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
@@ -27,18 +26,19 @@ import androidx.core.content.FileProvider;
 
 import com.bumptech.glide.Glide;
 import com.devst.mimaseterointeligente.R;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
+import com.devst.mimaseterointeligente.database.FirebaseCache;
+import com.devst.mimaseterointeligente.managers.DeviceManager;
 import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.PlantImageStore;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 
 public class AddPlantActivity extends AppCompatActivity {
 
@@ -55,9 +55,11 @@ public class AddPlantActivity extends AppCompatActivity {
     private LinearLayout layoutDeviceSelection;
     private TextView tvSelectedDevice;
 
-    private DatabaseHelper dbHelper;
+    private AsyncDatabaseHelper dbHelper;
     private Uri selectedImageUri;
     private String currentPhotoPath;
+    // Archivo temporal donde la cámara escribe la foto
+    private String cameraPhotoPath;
 
     // Variables para dispositivo seleccionado
     private String selectedDeviceId;
@@ -106,7 +108,7 @@ public class AddPlantActivity extends AppCompatActivity {
         tvSelectedDevice = findViewById(R.id.tvSelectedDevice);
         btnSelectDevice = findViewById(R.id.btnSelectDevice);
 
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = AsyncDatabaseHelper.getInstance(this);
     }
 
     private void setupActivityResultLaunchers() {
@@ -114,21 +116,21 @@ public class AddPlantActivity extends AppCompatActivity {
         cameraLauncher = registerForActivityResult(
                 new ActivityResultContracts.StartActivityForResult(),
                 result -> {
-                    Log.d(TAG, "cameraLauncher: Resultado recibido, código: " + result.getResultCode());
+                    AppLog.d(TAG, "cameraLauncher: Resultado recibido, código: %s", result.getResultCode());
                     if (result.getResultCode() == RESULT_OK) {
-                        Log.d(TAG, "cameraLauncher: RESULT_OK, currentPhotoPath: " + currentPhotoPath);
-                        if (currentPhotoPath != null) {
-                            selectedImageUri = Uri.fromFile(new File(currentPhotoPath));
-                            Log.d(TAG, "cameraLauncher: Mostrando imagen desde: " + selectedImageUri);
+                        AppLog.d(TAG, "cameraLauncher: RESULT_OK, cameraPhotoPath: %s", cameraPhotoPath);
+                        if (cameraPhotoPath != null) {
+                            selectedImageUri = Uri.fromFile(new File(cameraPhotoPath));
+                            AppLog.d(TAG, "cameraLauncher: Mostrando imagen desde: %s", selectedImageUri);
                             displayImage(selectedImageUri);
                         } else {
-                            Log.e(TAG, "cameraLauncher: currentPhotoPath es null");
+                            AppLog.e(TAG, "cameraLauncher: cameraPhotoPath es null");
                             Toast.makeText(AddPlantActivity.this, "Error: No se guardó la ruta de la foto", Toast.LENGTH_SHORT).show();
                         }
                     } else if (result.getResultCode() == RESULT_CANCELED) {
-                        Log.d(TAG, "cameraLauncher: Usuario canceló la cámara");
+                        AppLog.d(TAG, "cameraLauncher: Usuario canceló la cámara");
                     } else {
-                        Log.e(TAG, "cameraLauncher: Código de resultado inesperado: " + result.getResultCode());
+                        AppLog.e(TAG, "cameraLauncher: Código de resultado inesperado: %s", result.getResultCode());
                     }
                 }
         );
@@ -167,7 +169,7 @@ public class AddPlantActivity extends AppCompatActivity {
                         if (selectedDeviceName != null) {
                             tvSelectedDevice.setText("Dispositivo: " + selectedDeviceName);
                             tvSelectedDevice.setTextColor(getResources().getColor(R.color.primary_green));
-                            Log.d(TAG, "Dispositivo seleccionado: " + selectedDeviceName + " (ID: " + selectedDeviceId + ")");
+                            AppLog.d(TAG, "Dispositivo seleccionado: %s (ID: %s)", selectedDeviceName, selectedDeviceId);
                         }
                     }
                 }
@@ -231,27 +233,27 @@ public class AddPlantActivity extends AppCompatActivity {
     }
 
     private void checkCameraPermissionAndOpen() {
-        Log.d(TAG, "checkCameraPermissionAndOpen: Verificando permisos de cámara");
+        AppLog.d(TAG, "checkCameraPermissionAndOpen: Verificando permisos de cámara");
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
                 == PackageManager.PERMISSION_GRANTED) {
-            Log.d(TAG, "checkCameraPermissionAndOpen: Permiso concedido, abriendo cámara");
+            AppLog.d(TAG, "checkCameraPermissionAndOpen: Permiso concedido, abriendo cámara");
             openCamera();
         } else {
-            Log.d(TAG, "checkCameraPermissionAndOpen: Solicitando permiso de cámara");
+            AppLog.d(TAG, "checkCameraPermissionAndOpen: Solicitando permiso de cámara");
             requestPermissionLauncher.launch(Manifest.permission.CAMERA);
         }
     }
 
     private void openCamera() {
-        Log.d(TAG, "openCamera: Iniciando proceso de apertura de cámara");
+        AppLog.d(TAG, "openCamera: Iniciando proceso de apertura de cámara");
         Intent takePictureIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
 
         File photoFile = null;
         try {
             photoFile = createImageFile();
-            Log.d(TAG, "openCamera: Archivo creado exitosamente: " + photoFile.getAbsolutePath());
+            AppLog.d(TAG, "openCamera: Archivo creado exitosamente: %s", photoFile.getAbsolutePath());
         } catch (IOException ex) {
-            Log.e(TAG, "openCamera: Error al crear archivo de imagen", ex);
+            AppLog.e(TAG, "openCamera: Error al crear archivo de imagen", ex);
             Toast.makeText(this, "Error al crear archivo de imagen: " + ex.getMessage(), Toast.LENGTH_LONG).show();
             return;
         }
@@ -261,22 +263,22 @@ public class AddPlantActivity extends AppCompatActivity {
                 Uri photoURI = FileProvider.getUriForFile(this,
                         "com.devst.mimaseterointeligente.fileprovider",
                         photoFile);
-                Log.d(TAG, "openCamera: URI de FileProvider obtenida: " + photoURI.toString());
+                AppLog.d(TAG, "openCamera: URI de FileProvider obtenida: %s", photoURI.toString());
                 takePictureIntent.putExtra(MediaStore.EXTRA_OUTPUT, photoURI);
 
                 // Intentar lanzar la cámara
-                Log.d(TAG, "openCamera: Lanzando cámara...");
+                AppLog.d(TAG, "openCamera: Lanzando cámara...");
                 cameraLauncher.launch(takePictureIntent);
 
             } catch (IllegalArgumentException e) {
-                Log.e(TAG, "openCamera: Error al obtener URI del FileProvider", e);
+                AppLog.e(TAG, "openCamera: Error al obtener URI del FileProvider", e);
                 Toast.makeText(this, "Error al configurar la cámara: " + e.getMessage(), Toast.LENGTH_LONG).show();
             } catch (Exception e) {
-                Log.e(TAG, "openCamera: Error inesperado al abrir cámara", e);
+                AppLog.e(TAG, "openCamera: Error inesperado al abrir cámara", e);
                 Toast.makeText(this, "No se pudo abrir la cámara. Asegúrate de tener una aplicación de cámara instalada.", Toast.LENGTH_LONG).show();
             }
         } else {
-            Log.e(TAG, "openCamera: photoFile es null después de la creación");
+            AppLog.e(TAG, "openCamera: photoFile es null después de la creación");
             Toast.makeText(this, "Error: No se pudo crear el archivo de imagen", Toast.LENGTH_SHORT).show();
         }
     }
@@ -290,87 +292,50 @@ public class AddPlantActivity extends AppCompatActivity {
         String imageFileName = "PLANT_" + System.currentTimeMillis();
         File storageDir = getExternalFilesDir(null);
         File image = File.createTempFile(imageFileName, ".jpg", storageDir);
-        currentPhotoPath = image.getAbsolutePath();
+        cameraPhotoPath = image.getAbsolutePath();
         return image;
     }
 
     private void displayImage(Uri imageUri) {
-        // Si la imagen viene de la galería (content://), copiarla al almacenamiento interno
-        if (imageUri.getScheme() != null && imageUri.getScheme().equals("content")) {
-            try {
-                String savedPath = copyImageToInternalStorage(imageUri);
-                if (savedPath != null) {
-                    currentPhotoPath = savedPath;
-                    selectedImageUri = Uri.fromFile(new File(savedPath));
-                    imageUri = selectedImageUri; // Actualizar imageUri para usar en Glide
-                }
-            } catch (IOException e) {
-                Toast.makeText(this, "Error al guardar la imagen", Toast.LENGTH_SHORT).show();
-                e.printStackTrace();
-                return;
-            }
-        } else {
-            // Si viene de la cámara o es una ruta file://, actualizar selectedImageUri
-            selectedImageUri = imageUri;
-        }
-
+        // Vista previa inmediata; Glide la reduce al tamaño de la vista
         Glide.with(this)
-                .load(imageUri)
-                .centerCrop()
-                .into(ivPlantImage);
+        .load(imageUri)
+        .centerCrop()
+        .into(ivPlantImage);
 
         // Ocultar el overlay una vez que se selecciona una imagen
         layoutImageOverlay.setVisibility(View.GONE);
-    }
 
-    /**
-     * Copia una imagen desde una URI a un archivo en el almacenamiento interno
-     * @param sourceUri URI de la imagen original
-     * @return Ruta absoluta del archivo copiado
-     * @throws IOException si ocurre un error al copiar
-     */
-    private String copyImageToInternalStorage(Uri sourceUri) throws IOException {
-        // Crear archivo de destino
-        String imageFileName = "PLANT_" + System.currentTimeMillis() + ".jpg";
-        File storageDir = getExternalFilesDir(null);
-        File destinationFile = new File(storageDir, imageFileName);
-
-        // Copiar el contenido
-        InputStream inputStream = null;
-        OutputStream outputStream = null;
-
-        try {
-            inputStream = getContentResolver().openInputStream(sourceUri);
-            if (inputStream == null) {
-                throw new IOException("No se pudo abrir la imagen de origen");
+        // Copiar el original y generar sus variantes en segundo plano
+        btnSavePlant.setEnabled(false);
+        PlantImageStore.importImage(this, imageUri, new PlantImageStore.Callback() {
+            @Override
+            public void onImageSaved(String originalPath) {
+                deleteCameraTempFile();
+                if (isFinishing() || isDestroyed()) return;
+
+                currentPhotoPath = originalPath;
+                selectedImageUri = Uri.fromFile(new File(originalPath));
+                btnSavePlant.setEnabled(true);
             }
 
-            outputStream = new FileOutputStream(destinationFile);
+            @Override
+            public void onError(Exception e) {
+                if (isFinishing() || isDestroyed()) return;
 
-            // Copiar bytes
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+                Toast.makeText(AddPlantActivity.this, "Error al guardar la imagen", Toast.LENGTH_SHORT).show();
+                btnSavePlant.setEnabled(true);
             }
+        });
+    }
 
-            return destinationFile.getAbsolutePath();
-
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (outputStream != null) {
-                try {
-                    outputStream.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
+    /**
+     * Eliminar la foto temporal de la cámara una vez importada al almacén
+     */
+    private void deleteCameraTempFile() {
+        if (cameraPhotoPath != null) {
+            new File(cameraPhotoPath).delete();
+            cameraPhotoPath = null;
         }
     }
 
@@ -429,7 +394,7 @@ public class AddPlantActivity extends AppCompatActivity {
                 return;
             }
             plant.setDeviceId(selectedDeviceId);
-            Log.d(TAG, "Planta conectada a dispositivo: " + selectedDeviceId);
+            AppLog.d(TAG, "Planta conectada a dispositivo: %s", selectedDeviceId);
         } else {
             plant.setDeviceId(null);
         }
@@ -440,18 +405,62 @@ public class AddPlantActivity extends AppCompatActivity {
         }
 
         // Guardar en la base de datos
-        long plantId = dbHelper.createPlant(plant);
+        dbHelper.createPlant(plant, plantId -> {
+            if (isFinishing() || isDestroyed()) return;
+
+            if (plantId > 0) {
+                if (plant.isConnected()) {
+                    claimDevice(plant, plantId);
+                } else {
+                    finishWithPlant(plantId, "Planta guardada exitosamente");
+                }
+            } else {
+                Toast.makeText(this, "Error al guardar la planta", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
 
-        if (plantId > 0) {
-            Toast.makeText(this, "Planta guardada exitosamente", Toast.LENGTH_SHORT).show();
+    /**
+     * Reclamar el dispositivo seleccionado para la planta recién guardada.
+     * Si otro usuario lo reclamó antes, la planta queda guardada sin dispositivo.
+     * Sin conexión la asignación queda en cola y se confirma al reconectar.
+     */
+    private void claimDevice(Plant plant, long plantId) {
+        DeviceManager.getInstance().assignPlantToDevice(plant.getDeviceId(), String.valueOf(plantId),
+            new DeviceManager.AssignmentCallback() {
+                @Override
+                public void onSuccess() {
+                    if (isFinishing() || isDestroyed()) return;
+                    finishWithPlant(plantId, "Planta guardada y conectada al dispositivo");
+                }
 
-            // Retornar a la actividad anterior
-            Intent resultIntent = new Intent();
-            resultIntent.putExtra("plant_id", plantId);
-            setResult(RESULT_OK, resultIntent);
-            finish();
-        } else {
-            Toast.makeText(this, "Error al guardar la planta", Toast.LENGTH_SHORT).show();
+                @Override
+                public void onError(String error) {
+                    AppLog.e(TAG, "No se pudo asignar el dispositivo: %s", error);
+                    plant.setId((int) plantId);
+                    plant.setConnected(false);
+                    plant.setDeviceId(null);
+                    dbHelper.updatePlant(plant, ignored -> {
+                        if (isFinishing() || isDestroyed()) return;
+                        finishWithPlant(plantId, "Planta guardada, pero el dispositivo no está disponible: " + error);
+                    });
+                }
+            });
+
+        if (!FirebaseCache.isConnected()) {
+            // No esperar al servidor: la transacción se reintenta al recuperar la conexión
+            finishWithPlant(plantId, "Planta guardada. El dispositivo se asignará al recuperar la conexión");
         }
     }
+
+    /**
+     * Retornar a la actividad anterior con la planta guardada
+     */
+    private void finishWithPlant(long plantId, String message) {
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+        Intent resultIntent = new Intent();
+        resultIntent.putExtra("plant_id", plantId);
+        setResult(RESULT_OK, resultIntent);
+        finish();
+    }
 }
\ No newline at end of file
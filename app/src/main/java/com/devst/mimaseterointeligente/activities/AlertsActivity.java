@@ -12,9 +12,10 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.devst.mimaseterointeligente.R;
 import com.devst.mimaseterointeligente.adapters.AlertsAdapter;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
 import com.devst.mimaseterointeligente.models.Alert;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,7 +25,7 @@ public class AlertsActivity extends AppCompatActivity {
 
     private RecyclerView recyclerViewAlerts;
     private AlertsAdapter alertsAdapter;
-    private DatabaseHelper dbHelper;
+    private AsyncDatabaseHelper dbHelper;
     private TextView tvEmptyState;
     private ImageView btnBack;
 
@@ -45,10 +46,24 @@ public class AlertsActivity extends AppCompatActivity {
         tvEmptyState = findViewById(R.id.tvEmptyState);
         btnBack = findViewById(R.id.btnBack);
 
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = AsyncDatabaseHelper.getInstance(this);
 
-        // Configurar RecyclerView
+        // Configurar RecyclerView con un único adapter que se actualiza por diff
         recyclerViewAlerts.setLayoutManager(new LinearLayoutManager(this));
+        alertsAdapter = new AlertsAdapter(this, new ArrayList<>(), new AlertsAdapter.OnAlertClickListener() {
+            @Override
+            public void onAlertClick(Alert alert) {
+                // Marcar alerta como leída
+                handleAlertClick(alert);
+            }
+
+            @Override
+            public void onAlertDismiss(Alert alert) {
+                // Marcar como leída y eliminar de la vista
+                handleAlertDismiss(alert);
+            }
+        });
+        recyclerViewAlerts.setAdapter(alertsAdapter);
 
         // Configurar botón de retroceso
         btnBack.setOnClickListener(v -> finish());
@@ -58,38 +73,37 @@ public class AlertsActivity extends AppCompatActivity {
      * Cargar alertas desde la base de datos
      */
     private void loadAlerts() {
-        try {
-            List<Alert> alerts = dbHelper.getAllAlerts();
-
-            if (alerts == null || alerts.isEmpty()) {
-                // Mostrar estado vacío
-                recyclerViewAlerts.setVisibility(View.GONE);
-                tvEmptyState.setVisibility(View.VISIBLE);
-            } else {
-                // Mostrar alertas
-                recyclerViewAlerts.setVisibility(View.VISIBLE);
-                tvEmptyState.setVisibility(View.GONE);
-
-                alertsAdapter = new AlertsAdapter(this, alerts, new AlertsAdapter.OnAlertClickListener() {
-                    @Override
-                    public void onAlertClick(Alert alert) {
-                        // Marcar alerta como leída
-                        handleAlertClick(alert);
-                    }
-
-                    @Override
-                    public void onAlertDismiss(Alert alert) {
-                        // Marcar como leída y eliminar de la vista
-                        handleAlertDismiss(alert);
-                    }
-                });
-
-                recyclerViewAlerts.setAdapter(alertsAdapter);
+        dbHelper.getAllAlerts(new AsyncDatabaseHelper.Callback<List<Alert>>() {
+            @Override
+            public void onResult(List<Alert> alerts) {
+                if (isFinishing() || isDestroyed()) return;
+                showAlerts(alerts);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error al cargar alertas", Toast.LENGTH_SHORT).show();
+
+            @Override
+            public void onError(Exception e) {
+                e.printStackTrace();
+                if (!isFinishing() && !isDestroyed()) {
+                    Toast.makeText(AlertsActivity.this, "Error al cargar alertas", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
+
+    /**
+     * Mostrar las alertas obtenidas de la base de datos
+     */
+    private void showAlerts(List<Alert> alerts) {
+        if (alerts == null || alerts.isEmpty()) {
+            // Mostrar estado vacío
+            recyclerViewAlerts.setVisibility(View.GONE);
+            tvEmptyState.setVisibility(View.VISIBLE);
+        } else {
+            // Mostrar alertas; el adapter solo vuelve a enlazar las que cambiaron
+            recyclerViewAlerts.setVisibility(View.VISIBLE);
+            tvEmptyState.setVisibility(View.GONE);
         }
+        alertsAdapter.updateAlerts(alerts != null ? alerts : new ArrayList<>());
     }
 
     /**
@@ -97,14 +111,9 @@ public class AlertsActivity extends AppCompatActivity {
      */
     private void handleAlertClick(Alert alert) {
         if (!alert.isRead()) {
-            // Marcar como leída
-            dbHelper.markAlertAsRead(alert.getId());
-            alert.setRead(true);
-
-            // Actualizar el adapter
-            if (alertsAdapter != null) {
-                alertsAdapter.notifyDataSetChanged();
-            }
+            // Marcar como leída y recargar; el diff solo actualiza esta tarjeta
+            dbHelper.markAlertAsRead(alert.getId(), null);
+            loadAlerts();
         }
 
         Toast.makeText(this, "Alerta: " + alert.getTitle(), Toast.LENGTH_SHORT).show();
@@ -114,8 +123,9 @@ public class AlertsActivity extends AppCompatActivity {
      * Manejar eliminación de alerta
      */
     private void handleAlertDismiss(Alert alert) {
-        // Marcar como leída
-        dbHelper.markAlertAsRead(alert.getId());
+        // Marcar como leída; el ejecutor de BD es secuencial, así que la
+        // recarga siguiente ya ve la alerta actualizada
+        dbHelper.markAlertAsRead(alert.getId(), null);
 
         // Recargar alertas
         loadAlerts();
@@ -2,34 +2,46 @@ package com.devst.mimaseterointeligente.activities;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.devst.mimaseterointeligente.R;
 import com.devst.mimaseterointeligente.adapters.DeviceAdapter;
+import com.devst.mimaseterointeligente.database.FirebaseCache;
+import com.devst.mimaseterointeligente.managers.DevicePresenceManager;
 import com.devst.mimaseterointeligente.models.Device;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Activity para seleccionar un dispositivo ESP32 disponible desde Firebase.
  * Los dispositivos se auto-registran en Firebase cuando se encienden.
+ *
+ * Solo se escuchan los dispositivos disponibles (filtro en el servidor) y por
+ * eventos de hijo: cada cambio actualiza un único dispositivo, y los latidos
+ * que no cambian nada visible no actualizan la lista. Los listeners se
+ * registran en onStart y se quitan en onStop.
  */
-public class DeviceSelectionActivity extends AppCompatActivity implements DeviceAdapter.OnDeviceClickListener {
+public class DeviceSelectionActivity extends AppCompatActivity
+        implements DeviceAdapter.OnDeviceClickListener, DevicePresenceManager.PresenceListener {
 
     private static final String TAG = "DeviceSelection";
     public static final String EXTRA_SELECTED_DEVICE_ID = "selected_device_id";
@@ -40,8 +52,11 @@ public class DeviceSelectionActivity extends AppCompatActivity implements Device
     private ProgressBar progressBar;
     private TextView tvEmpty;
 
-    private DatabaseReference devicesRef;
-    private List<Device> deviceList;
+    private Query availableDevicesQuery;
+    private final Map<String, Device> devices = new LinkedHashMap<>();
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private boolean publishScheduled = false;
+    private boolean listening = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -51,13 +66,33 @@ public class DeviceSelectionActivity extends AppCompatActivity implements Device
         // Inicializar vistas
         initializeViews();
 
-        // Configurar Firebase
-        devicesRef = FirebaseDatabase.getInstance().getReference("devices");
+        // Configurar Firebase: solo dispositivos disponibles (requiere .indexOn is_available).
+        // La consulta se mantiene sincronizada en caché, así la lista aparece sin esperar a la red
+        availableDevicesQuery = FirebaseCache.availableDevicesQuery();
+    }
 
-        // Cargar dispositivos
+    @Override
+    protected void onStart() {
+        super.onStart();
+        DevicePresenceManager.getInstance().addListener(this);
         loadDevices();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        DevicePresenceManager.getInstance().removeListener(this);
+        stopListening();
+    }
+
+    /**
+     * Un dispositivo cambió de online/offline: actualizar solo su tarjeta
+     */
+    @Override
+    public void onPresenceChanged(String deviceId, boolean online) {
+        deviceAdapter.notifyPresenceChanged(deviceId);
+    }
+
     /**
      * Inicializar vistas
      */
@@ -67,58 +102,142 @@ public class DeviceSelectionActivity extends AppCompatActivity implements Device
         tvEmpty = findViewById(R.id.tvEmpty);
 
         // Configurar RecyclerView
-        deviceList = new ArrayList<>();
-        deviceAdapter = new DeviceAdapter(deviceList, this);
+        deviceAdapter = new DeviceAdapter(this);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(deviceAdapter);
     }
 
     /**
-     * Cargar dispositivos desde Firebase
+     * Escuchar dispositivos disponibles en Firebase
      */
     private void loadDevices() {
+        if (listening) {
+            return;
+        }
+        listening = true;
         showLoading();
 
-        devicesRef.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                deviceList.clear();
-
-                if (!snapshot.exists() || snapshot.getChildrenCount() == 0) {
-                    showEmpty();
-                    return;
-                }
-
-                for (DataSnapshot deviceSnapshot : snapshot.getChildren()) {
-                    try {
-                        Device device = deviceSnapshot.getValue(Device.class);
-                        if (device != null) {
-                            deviceList.add(device);
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error al parsear dispositivo: " + e.getMessage());
-                    }
-                }
-
-                if (deviceList.isEmpty()) {
-                    showEmpty();
-                } else {
-                    showDevices();
-                }
-
-                deviceAdapter.notifyDataSetChanged();
+        availableDevicesQuery.addChildEventListener(devicesListener);
+        // Los eventos de valor llegan después de los de hijo de la misma consulta
+        // (sin volver a descargar): marca el fin de la carga inicial
+        availableDevicesQuery.addListenerForSingleValueEvent(initialLoadListener);
+    }
+
+    /**
+     * Quitar listeners; al volver a onStart la lista se reconstruye
+     */
+    private void stopListening() {
+        if (!listening) {
+            return;
+        }
+        listening = false;
+        availableDevicesQuery.removeEventListener(devicesListener);
+        availableDevicesQuery.removeEventListener(initialLoadListener);
+        uiHandler.removeCallbacks(publishRunnable);
+        publishScheduled = false;
+        devices.clear();
+    }
+
+    private final ChildEventListener devicesListener = new ChildEventListener() {
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            Device device = parseDevice(snapshot);
+            if (device != null) {
+                devices.put(snapshot.getKey(), device);
+                schedulePublish();
+            }
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            Device device = parseDevice(snapshot);
+            if (device == null) {
+                return;
+            }
+            Device previous = devices.put(snapshot.getKey(), device);
+            // Un latido (solo last_seen) no cambia la tarjeta: no se toca la lista
+            if (previous == null || DeviceAdapter.hasVisibleChanges(previous, device)) {
+                schedulePublish();
             }
+        }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                hideLoading();
-                Log.e(TAG, "Error al cargar dispositivos: " + error.getMessage());
-                Toast.makeText(DeviceSelectionActivity.this,
-                    "Error al cargar dispositivos: " + error.getMessage(),
-                    Toast.LENGTH_SHORT).show();
-                showEmpty();
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            // Dejó de estar disponible (asignado) o se eliminó
+            if (devices.remove(snapshot.getKey()) != null) {
+                schedulePublish();
             }
-        });
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            // El orden lo define el mapa local
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            hideLoading();
+            AppLog.e(TAG, "Error al cargar dispositivos: %s", error.getMessage());
+            Toast.makeText(DeviceSelectionActivity.this,
+                "Error al cargar dispositivos: " + error.getMessage(),
+                Toast.LENGTH_SHORT).show();
+            showEmpty();
+        }
+    };
+
+    private final ValueEventListener initialLoadListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            // Publicar ya la carga inicial (o mostrar vacío si no hay dispositivos)
+            uiHandler.removeCallbacks(publishRunnable);
+            publishScheduled = false;
+            publishDevices();
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            // El error se informa en el ChildEventListener
+        }
+    };
+
+    private final Runnable publishRunnable = () -> {
+        publishScheduled = false;
+        publishDevices();
+    };
+
+    /**
+     * Agrupar los eventos de un mismo ciclo (ej: la carga inicial) en una sola publicación
+     */
+    private void schedulePublish() {
+        if (!publishScheduled) {
+            publishScheduled = true;
+            uiHandler.post(publishRunnable);
+        }
+    }
+
+    /**
+     * Enviar una copia de la lista al adapter; el diff se calcula en segundo plano
+     */
+    private void publishDevices() {
+        if (isFinishing() || isDestroyed()) {
+            return;
+        }
+        if (devices.isEmpty()) {
+            showEmpty();
+        } else {
+            showDevices();
+        }
+        deviceAdapter.submitList(new ArrayList<>(devices.values()));
+    }
+
+    @Nullable
+    private Device parseDevice(DataSnapshot snapshot) {
+        try {
+            return Device.fromSnapshot(snapshot);
+        } catch (Exception e) {
+            AppLog.e(TAG, "Error al parsear dispositivo: %s", e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -133,7 +252,7 @@ public class DeviceSelectionActivity extends AppCompatActivity implements Device
         }
 
         // Verificar que esté online
-        if (!device.isOnline()) {
+        if (!DevicePresenceManager.getInstance().isOnline(device.getDeviceId())) {
             Toast.makeText(this,
                 "Este dispositivo está offline. Enciéndelo y vuelve a intentar.",
                 Toast.LENGTH_LONG).show();
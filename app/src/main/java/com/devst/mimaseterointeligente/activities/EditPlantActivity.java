@@ -24,8 +24,12 @@ import androidx.core.content.FileProvider;
 
 import com.bumptech.glide.Glide;
 import com.devst.mimaseterointeligente.R;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
+import com.devst.mimaseterointeligente.database.FirebaseCache;
+import com.devst.mimaseterointeligente.managers.DeviceManager;
 import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.PlantImageStore;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.switchmaterial.SwitchMaterial;
@@ -33,13 +37,12 @@ import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 
 public class EditPlantActivity extends AppCompatActivity {
 
+    private static final String TAG = "EditPlantActivity";
+
     private ImageButton btnBack, btnDelete;
     private ImageView ivPlantImage;
     private LinearLayout layoutImageOverlay;
@@ -50,11 +53,13 @@ public class EditPlantActivity extends AppCompatActivity {
     private SwitchMaterial switchConnected;
     private MaterialButton btnSavePlant;
     
-    private DatabaseHelper dbHelper;
+    private AsyncDatabaseHelper dbHelper;
     private Plant currentPlant;
     private int plantId;
     private Uri selectedImageUri;
     private String currentPhotoPath;
+    // Archivo temporal donde la cámara escribe la foto
+    private String cameraPhotoPath;
     
     // Tipos de plantas predefinidos
     private final String[] plantTypes = {
@@ -105,7 +110,7 @@ public class EditPlantActivity extends AppCompatActivity {
         switchConnected = findViewById(R.id.switchConnected);
         btnSavePlant = findViewById(R.id.btnSavePlant);
         
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = AsyncDatabaseHelper.getInstance(this);
     }
 
     private void setupActivityResultLaunchers() {
@@ -114,8 +119,8 @@ public class EditPlantActivity extends AppCompatActivity {
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() == RESULT_OK) {
-                    if (currentPhotoPath != null) {
-                        selectedImageUri = Uri.fromFile(new File(currentPhotoPath));
+                    if (cameraPhotoPath != null) {
+                        selectedImageUri = Uri.fromFile(new File(cameraPhotoPath));
                         displayImage(selectedImageUri);
                     }
                 }
@@ -167,8 +172,14 @@ public class EditPlantActivity extends AppCompatActivity {
     }
 
     private void loadPlantData() {
-        currentPlant = dbHelper.getPlantById(plantId);
-        
+        dbHelper.getPlantById(plantId, plant -> {
+            if (isFinishing() || isDestroyed()) return;
+            currentPlant = plant;
+            displayPlantData();
+        });
+    }
+
+    private void displayPlantData() {
         if (currentPlant == null) {
             Toast.makeText(this, "Error: Planta no encontrada", Toast.LENGTH_SHORT).show();
             finish();
@@ -182,39 +193,24 @@ public class EditPlantActivity extends AppCompatActivity {
         etScientificName.setText(currentPlant.getScientificName());
         switchConnected.setChecked(currentPlant.isConnected());
 
-        // Cargar imagen si existe
+        // Cargar imagen si existe (variante principal, no el original completo)
         if (currentPlant.getImageUrl() != null && !currentPlant.getImageUrl().isEmpty()) {
-            try {
-                // Guardar la ruta actual para no perderla
-                currentPhotoPath = currentPlant.getImageUrl();
-
-                // Determinar el tipo de fuente de imagen
-                Object imageSource;
-                if (currentPlant.getImageUrl().startsWith("/")) {
-                    // Es una ruta de archivo local
-                    imageSource = new java.io.File(currentPlant.getImageUrl());
-                } else if (currentPlant.getImageUrl().startsWith("file://")) {
-                    // Es una URI de archivo
-                    imageSource = android.net.Uri.parse(currentPlant.getImageUrl());
-                } else if (currentPlant.getImageUrl().startsWith("content://")) {
-                    // Es una URI de contenido
-                    imageSource = android.net.Uri.parse(currentPlant.getImageUrl());
-                } else {
-                    // Formato desconocido, usar imagen por defecto
-                    ivPlantImage.setImageResource(R.drawable.ic_plant_placeholder);
-                    return;
-                }
+            // Guardar la ruta actual para no perderla
+            currentPhotoPath = currentPlant.getImageUrl();
 
-                Glide.with(this)
-                    .load(imageSource)
-                    .centerCrop()
-                    .placeholder(R.drawable.ic_plant_placeholder)
-                    .error(R.drawable.ic_plant_placeholder)
-                    .into(ivPlantImage);
-            } catch (Exception e) {
-                // Si hay cualquier error, usar imagen por defecto
+            Object imageSource = PlantImageStore.getHeroSource(currentPlant.getImageUrl());
+            if (imageSource == null) {
+                // Formato desconocido, usar imagen por defecto
                 ivPlantImage.setImageResource(R.drawable.ic_plant_placeholder);
+                return;
             }
+
+            Glide.with(this)
+                .load(imageSource)
+                .centerCrop()
+                .placeholder(R.drawable.ic_plant_placeholder)
+                .error(R.drawable.ic_plant_placeholder)
+                .into(ivPlantImage);
         }
     }
 
@@ -271,84 +267,47 @@ public class EditPlantActivity extends AppCompatActivity {
         String imageFileName = "PLANT_" + System.currentTimeMillis();
         File storageDir = getExternalFilesDir(null);
         File image = File.createTempFile(imageFileName, ".jpg", storageDir);
-        currentPhotoPath = image.getAbsolutePath();
+        cameraPhotoPath = image.getAbsolutePath();
         return image;
     }
 
     private void displayImage(Uri imageUri) {
-        // Si la imagen viene de la galería (content://), copiarla al almacenamiento interno
-        if (imageUri.getScheme() != null && imageUri.getScheme().equals("content")) {
-            try {
-                String savedPath = copyImageToInternalStorage(imageUri);
-                if (savedPath != null) {
-                    currentPhotoPath = savedPath;
-                    selectedImageUri = Uri.fromFile(new File(savedPath));
-                    imageUri = selectedImageUri; // Actualizar imageUri para usar en Glide
-                }
-            } catch (IOException e) {
-                Toast.makeText(this, "Error al guardar la imagen", Toast.LENGTH_SHORT).show();
-                e.printStackTrace();
-                return;
-            }
-        } else {
-            // Si viene de la cámara o es una ruta file://, actualizar selectedImageUri
-            selectedImageUri = imageUri;
-        }
-
+        // Vista previa inmediata; Glide la reduce al tamaño de la vista
         Glide.with(this)
             .load(imageUri)
             .centerCrop()
             .into(ivPlantImage);
-    }
-
-    /**
-     * Copia una imagen desde una URI a un archivo en el almacenamiento interno
-     * @param sourceUri URI de la imagen original
-     * @return Ruta absoluta del archivo copiado
-     * @throws IOException si ocurre un error al copiar
-     */
-    private String copyImageToInternalStorage(Uri sourceUri) throws IOException {
-        // Crear archivo de destino
-        String imageFileName = "PLANT_" + System.currentTimeMillis() + ".jpg";
-        File storageDir = getExternalFilesDir(null);
-        File destinationFile = new File(storageDir, imageFileName);
 
-        // Copiar el contenido
-        InputStream inputStream = null;
-        OutputStream outputStream = null;
-
-        try {
-            inputStream = getContentResolver().openInputStream(sourceUri);
-            if (inputStream == null) {
-                throw new IOException("No se pudo abrir la imagen de origen");
+        // Copiar el original y generar sus variantes en segundo plano
+        btnSavePlant.setEnabled(false);
+        PlantImageStore.importImage(this, imageUri, new PlantImageStore.Callback() {
+            @Override
+            public void onImageSaved(String originalPath) {
+                deleteCameraTempFile();
+                if (isFinishing() || isDestroyed()) return;
+
+                currentPhotoPath = originalPath;
+                selectedImageUri = Uri.fromFile(new File(originalPath));
+                btnSavePlant.setEnabled(true);
             }
 
-            outputStream = new FileOutputStream(destinationFile);
+            @Override
+            public void onError(Exception e) {
+                if (isFinishing() || isDestroyed()) return;
 
-            // Copiar bytes
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+                Toast.makeText(EditPlantActivity.this, "Error al guardar la imagen", Toast.LENGTH_SHORT).show();
+                btnSavePlant.setEnabled(true);
             }
+        });
+    }
 
-            return destinationFile.getAbsolutePath();
-
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (outputStream != null) {
-                try {
-                    outputStream.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
+    /**
+     * Eliminar la foto temporal de la cámara una vez importada al almacén
+     */
+    private void deleteCameraTempFile() {
+        if (cameraPhotoPath != null) {
+            new File(cameraPhotoPath).delete();
+            cameraPhotoPath = null;
         }
     }
 
@@ -381,12 +340,20 @@ public class EditPlantActivity extends AppCompatActivity {
             return;
         }
 
+        // Al desconectar, liberar también el dispositivo asignado
+        String deviceId = currentPlant.getDeviceId();
+        boolean disconnectDevice = currentPlant.isConnected() && !isConnected
+                && deviceId != null && !deviceId.isEmpty();
+
         // Actualizar el objeto Plant
         currentPlant.setName(plantName);
         currentPlant.setType(plantType);
         currentPlant.setSpecies(species);
         currentPlant.setScientificName(scientificName);
         currentPlant.setConnected(isConnected);
+        if (disconnectDevice) {
+            currentPlant.setDeviceId(null);
+        }
 
         // Actualizar la ruta de la imagen si se cambió
         if (currentPhotoPath != null) {
@@ -394,17 +361,60 @@ public class EditPlantActivity extends AppCompatActivity {
         }
 
         // Actualizar en la base de datos
-        int rowsAffected = dbHelper.updatePlant(currentPlant);
+        dbHelper.updatePlant(currentPlant, rowsAffected -> {
+            if (isFinishing() || isDestroyed()) return;
 
-        if (rowsAffected > 0) {
-            Toast.makeText(this, "Planta actualizada exitosamente", Toast.LENGTH_SHORT).show();
-            setResult(RESULT_OK);
-            finish();
-        } else {
-            Toast.makeText(this, "Error al actualizar la planta", Toast.LENGTH_SHORT).show();
+            if (rowsAffected > 0) {
+                if (disconnectDevice) {
+                    releaseDevice(deviceId);
+                } else {
+                    finishUpdated("Planta actualizada exitosamente");
+                }
+            } else {
+                Toast.makeText(this, "Error al actualizar la planta", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Liberar el dispositivo de la planta recién desconectada (igual que la
+     * asignación en AddPlantActivity). Si el servidor lo rechaza, la planta
+     * vuelve a quedar conectada para no diferir de Firebase.
+     * Sin conexión la liberación queda en cola y se confirma al reconectar.
+     */
+    private void releaseDevice(String deviceId) {
+        DeviceManager.getInstance().unassignPlantFromDevice(deviceId, String.valueOf(plantId),
+            new DeviceManager.UnassignmentCallback() {
+                @Override
+                public void onSuccess() {
+                    if (isFinishing() || isDestroyed()) return;
+                    finishUpdated("Planta actualizada y desconectada del dispositivo");
+                }
+
+                @Override
+                public void onError(String error) {
+                    AppLog.e(TAG, "No se pudo liberar el dispositivo: %s", error);
+                    currentPlant.setConnected(true);
+                    currentPlant.setDeviceId(deviceId);
+                    dbHelper.updatePlant(currentPlant, ignored -> {
+                        if (isFinishing() || isDestroyed()) return;
+                        finishUpdated("Planta actualizada, pero no se pudo desconectar el dispositivo: " + error);
+                    });
+                }
+            });
+
+        if (!FirebaseCache.isConnected()) {
+            // No esperar al servidor: la transacción se reintenta al recuperar la conexión
+            finishUpdated("Planta actualizada. El dispositivo se liberará al recuperar la conexión");
         }
     }
 
+    private void finishUpdated(String message) {
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+        setResult(RESULT_OK);
+        finish();
+    }
+
     private void showDeleteConfirmationDialog() {
         new AlertDialog.Builder(this)
             .setTitle("Eliminar planta")
@@ -415,9 +425,17 @@ public class EditPlantActivity extends AppCompatActivity {
     }
 
     private void handleDeletePlant() {
-        dbHelper.deletePlant(plantId);
-        Toast.makeText(this, "Planta eliminada", Toast.LENGTH_SHORT).show();
-        setResult(RESULT_OK);
-        finish();
+        // Liberar el dispositivo para que otra planta pueda usarlo
+        if (currentPlant != null && currentPlant.getDeviceId() != null && !currentPlant.getDeviceId().isEmpty()) {
+            DeviceManager.getInstance().unassignPlantFromDevice(currentPlant.getDeviceId(),
+                String.valueOf(plantId), null);
+        }
+
+        dbHelper.deletePlant(plantId, ignored -> {
+            if (isFinishing() || isDestroyed()) return;
+            Toast.makeText(this, "Planta eliminada", Toast.LENGTH_SHORT).show();
+            setResult(RESULT_OK);
+            finish();
+        });
     }
 }
@@ -13,7 +13,8 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.devst.mimaseterointeligente.R;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
+import com.devst.mimaseterointeligente.database.FirebaseCache;
 import com.devst.mimaseterointeligente.models.User;
 import com.devst.mimaseterointeligente.utils.PasswordUtils;
 import com.devst.mimaseterointeligente.utils.SessionManager;
@@ -33,7 +34,7 @@ public class EditProfileActivity extends AppCompatActivity {
     private Button btnDeleteAccount;
     private ImageView btnBack;
 
-    private DatabaseHelper dbHelper;
+    private AsyncDatabaseHelper dbHelper;
     private SessionManager sessionManager;
     private User currentUser;
 
@@ -60,7 +61,7 @@ public class EditProfileActivity extends AppCompatActivity {
         btnDeleteAccount = findViewById(R.id.btnDeleteAccount);
         btnBack = findViewById(R.id.btnBack);
 
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = AsyncDatabaseHelper.getInstance(this);
         sessionManager = new SessionManager(this);
 
         // Configurar listeners
@@ -75,22 +76,31 @@ public class EditProfileActivity extends AppCompatActivity {
      * Cargar datos del usuario
      */
     private void loadUserData() {
-        try {
-            currentUser = dbHelper.getUserByEmail(sessionManager.getUserEmail());
-
-            if (currentUser != null) {
-                etName.setText(currentUser.getName());
-                etEmail.setText(currentUser.getEmail());
+        dbHelper.getUserByEmail(sessionManager.getUserEmail(), new AsyncDatabaseHelper.Callback<User>() {
+            @Override
+            public void onResult(User user) {
+                if (isFinishing() || isDestroyed()) return;
+                currentUser = user;
+
+                if (currentUser != null) {
+                    etName.setText(currentUser.getName());
+                    etEmail.setText(currentUser.getEmail());
+
+                    // TODO: Cargar imagen de perfil si existe
+                    if (currentUser.getProfileImage() != null && !currentUser.getProfileImage().isEmpty()) {
+                        // Glide.with(this).load(currentUser.getProfileImage()).into(ivProfileImage);
+                    }
+                }
+            }
 
-                // TODO: Cargar imagen de perfil si existe
-                if (currentUser.getProfileImage() != null && !currentUser.getProfileImage().isEmpty()) {
-                    // Glide.with(this).load(currentUser.getProfileImage()).into(ivProfileImage);
+            @Override
+            public void onError(Exception e) {
+                e.printStackTrace();
+                if (!isFinishing() && !isDestroyed()) {
+                    Toast.makeText(EditProfileActivity.this, "Error al cargar datos del usuario", Toast.LENGTH_SHORT).show();
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error al cargar datos del usuario", Toast.LENGTH_SHORT).show();
-        }
+        });
     }
 
     /**
@@ -119,36 +129,57 @@ public class EditProfileActivity extends AppCompatActivity {
             return;
         }
 
-        // Verificar si el correo ya existe (si cambió)
-        if (!newEmail.equals(currentUser.getEmail())) {
-            User existingUser = dbHelper.getUserByEmail(newEmail);
-            if (existingUser != null) {
-                etEmail.setError("Este correo ya está en uso");
-                etEmail.requestFocus();
-                return;
-            }
+        if (currentUser == null) {
+            // Los datos del usuario aún no terminan de cargar
+            return;
         }
 
-        try {
-            // Actualizar usuario
-            currentUser.setName(newName);
-            currentUser.setEmail(newEmail);
-
-            int result = dbHelper.updateUser(currentUser);
+        // Verificar si el correo ya existe (si cambió) y actualizar en segundo plano.
+        // Devuelve null si el correo ya está en uso. Se edita una copia: currentUser
+        // solo se reemplaza si la actualización se guardó.
+        boolean emailChanged = !newEmail.equals(currentUser.getEmail());
+        User updatedUser = new User(currentUser);
+        btnSaveChanges.setEnabled(false);
+        dbHelper.execute(db -> {
+            if (emailChanged && db.getUserByEmail(newEmail) != null) {
+                return null;
+            }
 
-            if (result > 0) {
-                // Actualizar sesión
-                sessionManager.saveUserEmail(newEmail);
+            // Actualizar usuario
+            updatedUser.setName(newName);
+            updatedUser.setEmail(newEmail);
+            return db.updateUser(updatedUser);
+        }, new AsyncDatabaseHelper.Callback<Integer>() {
+            @Override
+            public void onResult(Integer result) {
+                if (isFinishing() || isDestroyed()) return;
+                btnSaveChanges.setEnabled(true);
+
+                if (result == null) {
+                    etEmail.setError("Este correo ya está en uso");
+                    etEmail.requestFocus();
+                } else if (result > 0) {
+                    currentUser = updatedUser;
+
+                    // Actualizar sesión
+                    sessionManager.saveUserEmail(newEmail);
+
+                    Toast.makeText(EditProfileActivity.this, "Perfil actualizado exitosamente", Toast.LENGTH_SHORT).show();
+                    finish();
+                } else {
+                    Toast.makeText(EditProfileActivity.this, "Error al actualizar el perfil", Toast.LENGTH_SHORT).show();
+                }
+            }
 
-                Toast.makeText(this, "Perfil actualizado exitosamente", Toast.LENGTH_SHORT).show();
-                finish();
-            } else {
-                Toast.makeText(this, "Error al actualizar el perfil", Toast.LENGTH_SHORT).show();
+            @Override
+            public void onError(Exception e) {
+                e.printStackTrace();
+                if (!isFinishing() && !isDestroyed()) {
+                    btnSaveChanges.setEnabled(true);
+                    Toast.makeText(EditProfileActivity.this, "Error al actualizar el perfil", Toast.LENGTH_SHORT).show();
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error al actualizar el perfil", Toast.LENGTH_SHORT).show();
-        }
+        });
     }
 
     /**
@@ -177,36 +208,54 @@ public class EditProfileActivity extends AppCompatActivity {
             return;
         }
 
-        try {
-            // Verificar contraseña actual
-            String hashedCurrentPassword = PasswordUtils.hashPassword(currentPassword);
+        if (currentUser == null) {
+            // Los datos del usuario aún no terminan de cargar
+            return;
+        }
 
-            if (!hashedCurrentPassword.equals(currentUser.getPassword())) {
-                etCurrentPassword.setError("Contraseña actual incorrecta");
-                etCurrentPassword.requestFocus();
-                return;
+        // Verificar la contraseña actual y guardar la nueva en segundo plano.
+        // Devuelve null si la contraseña actual no coincide.
+        User updatedUser = new User(currentUser);
+        btnChangePassword.setEnabled(false);
+        dbHelper.execute(db -> {
+            String hashedCurrentPassword = PasswordUtils.hashPassword(currentPassword);
+            if (!hashedCurrentPassword.equals(updatedUser.getPassword())) {
+                return null;
             }
 
             // Hash de la nueva contraseña
-            String hashedNewPassword = PasswordUtils.hashPassword(newPassword);
-
-            // Actualizar contraseña
-            currentUser.setPassword(hashedNewPassword);
-            int result = dbHelper.updateUser(currentUser);
-
-            if (result > 0) {
-                Toast.makeText(this, "Contraseña actualizada exitosamente", Toast.LENGTH_SHORT).show();
+            updatedUser.setPassword(PasswordUtils.hashPassword(newPassword));
+            return db.updateUser(updatedUser);
+        }, new AsyncDatabaseHelper.Callback<Integer>() {
+            @Override
+            public void onResult(Integer result) {
+                if (isFinishing() || isDestroyed()) return;
+                btnChangePassword.setEnabled(true);
+
+                if (result == null) {
+                    etCurrentPassword.setError("Contraseña actual incorrecta");
+                    etCurrentPassword.requestFocus();
+                } else if (result > 0) {
+                    currentUser = updatedUser;
+                    Toast.makeText(EditProfileActivity.this, "Contraseña actualizada exitosamente", Toast.LENGTH_SHORT).show();
+
+                    // Limpiar campos
+                    etCurrentPassword.setText("");
+                    etNewPassword.setText("");
+                } else {
+                    Toast.makeText(EditProfileActivity.this, "Error al actualizar la contraseña", Toast.LENGTH_SHORT).show();
+                }
+            }
 
-                // Limpiar campos
-                etCurrentPassword.setText("");
-                etNewPassword.setText("");
-            } else {
-                Toast.makeText(this, "Error al actualizar la contraseña", Toast.LENGTH_SHORT).show();
+            @Override
+            public void onError(Exception e) {
+                e.printStackTrace();
+                if (!isFinishing() && !isDestroyed()) {
+                    btnChangePassword.setEnabled(true);
+                    Toast.makeText(EditProfileActivity.this, "Error al actualizar la contraseña", Toast.LENGTH_SHORT).show();
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error al actualizar la contraseña", Toast.LENGTH_SHORT).show();
-        }
+        });
     }
 
     /**
@@ -244,6 +293,7 @@ public class EditProfileActivity extends AppCompatActivity {
 
             // Por ahora, solo cerrar sesión
             sessionManager.logout();
+            FirebaseCache.releaseUserData();
             Intent intent = new Intent(this, LoginActivity.class);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
             startActivity(intent);
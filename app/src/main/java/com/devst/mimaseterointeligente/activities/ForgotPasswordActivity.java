@@ -11,7 +11,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.devst.mimaseterointeligente.R;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
@@ -25,7 +25,7 @@ public class ForgotPasswordActivity extends AppCompatActivity {
     private MaterialButton btnSendCode;
     private ImageButton btnBack;
     private TextView tvBackToLogin;
-    private DatabaseHelper dbHelper;
+    private AsyncDatabaseHelper dbHelper;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,7 +42,7 @@ public class ForgotPasswordActivity extends AppCompatActivity {
         btnSendCode = findViewById(R.id.btnSendCode);
         btnBack = findViewById(R.id.btnBack);
         tvBackToLogin = findViewById(R.id.tvBackToLogin);
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = AsyncDatabaseHelper.getInstance(this);
     }
 
     private void setupListeners() {
@@ -69,27 +69,33 @@ public class ForgotPasswordActivity extends AppCompatActivity {
         }
 
         // Verificar si el email existe en la base de datos
-        if (!dbHelper.emailExists(email)) {
-            tilEmail.setError("Este correo no está registrado");
-            return;
-        }
-
-        // Generar código de verificación de 6 dígitos
-        String verificationCode = generateVerificationCode();
-
-        // En una aplicación real, aquí enviarías el código por email
-        // Para este proyecto, lo almacenaremos temporalmente
-        saveVerificationCode(email, verificationCode);
-
-        // Mostrar el código en un Toast para propósitos de desarrollo
-        Toast.makeText(this, "Código de verificación: " + verificationCode, 
-                Toast.LENGTH_LONG).show();
-
-        // Navegar a la pantalla de verificación de código
-        Intent intent = new Intent(ForgotPasswordActivity.this, VerifyCodeActivity.class);
-        intent.putExtra("email", email);
-        intent.putExtra("verification_code", verificationCode);
-        startActivity(intent);
+        btnSendCode.setEnabled(false);
+        dbHelper.emailExists(email, exists -> {
+            if (isFinishing() || isDestroyed()) return;
+            btnSendCode.setEnabled(true);
+
+            if (!exists) {
+                tilEmail.setError("Este correo no está registrado");
+                return;
+            }
+
+            // Generar código de verificación de 6 dígitos
+            String verificationCode = generateVerificationCode();
+
+            // En una aplicación real, aquí enviarías el código por email
+            // Para este proyecto, lo almacenaremos temporalmente
+            saveVerificationCode(email, verificationCode);
+
+            // Mostrar el código en un Toast para propósitos de desarrollo
+            Toast.makeText(ForgotPasswordActivity.this, "Código de verificación: " + verificationCode, 
+                    Toast.LENGTH_LONG).show();
+
+            // Navegar a la pantalla de verificación de código
+            Intent intent = new Intent(ForgotPasswordActivity.this, VerifyCodeActivity.class);
+            intent.putExtra("email", email);
+            intent.putExtra("verification_code", verificationCode);
+            startActivity(intent);
+        });
     }
 
     private String generateVerificationCode() {
@@ -4,7 +4,6 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.TextUtils;
-import android.util.Log;
 import android.util.Patterns;
 import android.view.View;
 import android.widget.Button;
@@ -17,8 +16,9 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.devst.mimaseterointeligente.R;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
 import com.devst.mimaseterointeligente.models.User;
+import com.devst.mimaseterointeligente.utils.AppLog;
 import com.devst.mimaseterointeligente.utils.PasswordUtils;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
@@ -43,7 +43,7 @@ public class LoginActivity extends AppCompatActivity {
     private SignInButton googleSignInButton;           // ✅ botón oficial
     private GoogleSignInClient googleSignInClient;     // ✅ faltaba este campo
 
-    private DatabaseHelper databaseHelper;
+    private AsyncDatabaseHelper databaseHelper;
     private SharedPreferences sharedPreferences;
 
     @Override
@@ -51,7 +51,7 @@ public class LoginActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_login);
 
-        databaseHelper = new DatabaseHelper(this);
+        databaseHelper = AsyncDatabaseHelper.getInstance(this);
         sharedPreferences = getSharedPreferences("MaseteroPrefs", MODE_PRIVATE);
 
         // (opcional) si ya hay sesión, saltar directo
@@ -104,23 +104,54 @@ public class LoginActivity extends AppCompatActivity {
         if (!validateLoginForm(email, password)) return;
 
         showLoading(true);
-        User user = databaseHelper.getUserByEmail(email);
-
-        if (user != null) {
-            String hashedPassword = PasswordUtils.hashPassword(password);
-            if (hashedPassword.equals(user.getPassword())) {
-                saveUserSession(user);
-                navigateToMainActivity();
-            } else {
-                showLoading(false);
-                Toast.makeText(this, "Contraseña incorrecta", Toast.LENGTH_SHORT).show();
-                passwordEditText.setError("Contraseña incorrecta");
+
+        // La consulta y el hash SHA-256 se hacen fuera del hilo principal
+        databaseHelper.execute(db -> {
+            LoginResult result = new LoginResult();
+            result.user = db.getUserByEmail(email);
+            if (result.user != null) {
+                String hashedPassword = PasswordUtils.hashPassword(password);
+                result.passwordMatches = hashedPassword.equals(result.user.getPassword());
             }
-        } else {
-            showLoading(false);
-            Toast.makeText(this, "Usuario no encontrado", Toast.LENGTH_SHORT).show();
-            emailEditText.setError("Email no registrado");
-        }
+            return result;
+        }, new AsyncDatabaseHelper.Callback<LoginResult>() {
+            @Override
+            public void onResult(LoginResult result) {
+                if (isFinishing() || isDestroyed()) return;
+
+                if (result.user != null) {
+                    if (result.passwordMatches) {
+                        saveUserSession(result.user);
+                        navigateToMainActivity();
+                    } else {
+                        showLoading(false);
+                        Toast.makeText(LoginActivity.this, "Contraseña incorrecta", Toast.LENGTH_SHORT).show();
+                        passwordEditText.setError("Contraseña incorrecta");
+                    }
+                } else {
+                    showLoading(false);
+                    Toast.makeText(LoginActivity.this, "Usuario no encontrado", Toast.LENGTH_SHORT).show();
+                    emailEditText.setError("Email no registrado");
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                AppLog.e(TAG, "Error al iniciar sesión: %s", e.getMessage());
+                if (!isFinishing() && !isDestroyed()) {
+                    showLoading(false);
+                    Toast.makeText(LoginActivity.this, "Error al iniciar sesión", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
+
+    /**
+     * Resultado de la verificación de credenciales
+     */
+    private static class LoginResult {
+        User user;
+        boolean passwordMatches;
     }
 
     private boolean validateLoginForm(String email, String password) {
@@ -178,26 +209,44 @@ public class LoginActivity extends AppCompatActivity {
                 String googleId = account.getId();
                 String photoUrl = account.getPhotoUrl() != null ? account.getPhotoUrl().toString() : null;
 
-                User existingUser = databaseHelper.getUserByEmail(email);
-                if (existingUser != null) {
-                    existingUser.setGoogleId(googleId);
-                    if (photoUrl != null) existingUser.setProfileImage(photoUrl);
-                    databaseHelper.updateUser(existingUser);
-                    saveUserSession(existingUser);
-                } else {
+                final String normalizedEmail = email;
+                showLoading(true);
+                databaseHelper.execute(db -> {
+                    User existingUser = db.getUserByEmail(normalizedEmail);
+                    if (existingUser != null) {
+                        existingUser.setGoogleId(googleId);
+                        if (photoUrl != null) existingUser.setProfileImage(photoUrl);
+                        db.updateUser(existingUser);
+                        return existingUser;
+                    }
                     User newUser = new User();
                     newUser.setName(name);
-                    newUser.setEmail(email);
+                    newUser.setEmail(normalizedEmail);
                     newUser.setGoogleId(googleId);
                     newUser.setProfileImage(photoUrl);
-                    long userId = databaseHelper.createUser(newUser);
+                    long userId = db.createUser(newUser);
                     newUser.setId((int) userId);
-                    saveUserSession(newUser);
-                }
-                navigateToMainActivity();
+                    return newUser;
+                }, new AsyncDatabaseHelper.Callback<User>() {
+                    @Override
+                    public void onResult(User user) {
+                        if (isFinishing() || isDestroyed()) return;
+                        saveUserSession(user);
+                        navigateToMainActivity();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        AppLog.e(TAG, "Error al guardar usuario de Google: %s", e.getMessage());
+                        if (!isFinishing() && !isDestroyed()) {
+                            showLoading(false);
+                            Toast.makeText(LoginActivity.this, "Error al iniciar sesión con Google", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
             }
         } catch (ApiException e) {
-            Log.w(TAG, "signInResult:failed code=" + e.getStatusCode());
+            AppLog.w(TAG, "signInResult:failed code=%s", e.getStatusCode());
             Toast.makeText(this, "Error al iniciar sesión con Google", Toast.LENGTH_SHORT).show();
             showLoading(false);
         }
@@ -14,6 +14,7 @@ import androidx.fragment.app.FragmentTransaction;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.navigation.NavigationBarView;
 import com.devst.mimaseterointeligente.R;
+import com.devst.mimaseterointeligente.database.FirebaseCache;
 import com.devst.mimaseterointeligente.fragments.AlertsFragment;
 import com.devst.mimaseterointeligente.fragments.HomeFragment;
 import com.devst.mimaseterointeligente.fragments.ProfileFragment;
@@ -43,6 +44,9 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
+        // Plantas del usuario disponibles sin conexión
+        FirebaseCache.keepUserPlantsSynced(sharedPreferences.getInt("userId", -1));
+
         initViews();
         initFragments();
 
@@ -133,6 +137,7 @@ public class MainActivity extends AppCompatActivity {
         // Primero, cerrar la sesión de Google. El listener se ejecutará cuando termine.
         mGoogleSignInClient.signOut().addOnCompleteListener(this, task -> {
             // Ahora que Google ha cerrado sesión, limpiamos nuestros datos locales.
+            FirebaseCache.releaseUserData();
             SharedPreferences.Editor editor = sharedPreferences.edit();
             editor.clear(); // Limpia todos los datos de SharedPreferences.
             editor.putBoolean("isLoggedIn", false); // Por seguridad, lo ponemos explícitamente a false.
@@ -0,0 +1,98 @@
+package com.devst.mimaseterointeligente.activities;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.devst.mimaseterointeligente.R;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.EventLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+import com.devst.mimaseterointeligente.utils.Tracer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Pantalla de depuración con las métricas de MetricsRegistry: p50/p99 de
+ * cada etapa del monitoreo (total y por dispositivo), contadores y ritmo de
+ * las migraciones. Se actualiza sola mientras está visible. También
+ * exporta los spans de Tracer como JSON de Chrome trace.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String TAG = "MetricsActivity";
+    private static final long REFRESH_INTERVAL_MS = 2000;
+
+    private TextView tvMetrics;
+    private final Handler refreshHandler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            showMetrics();
+            refreshHandler.postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        tvMetrics = findViewById(R.id.tvMetrics);
+        Button btnRefresh = findViewById(R.id.btnRefreshMetrics);
+        Button btnReset = findViewById(R.id.btnResetMetrics);
+        Button btnExportTrace = findViewById(R.id.btnExportTrace);
+
+        btnRefresh.setOnClickListener(v -> showMetrics());
+        btnReset.setOnClickListener(v -> {
+            MetricsRegistry.reset();
+            showMetrics();
+        });
+        btnExportTrace.setOnClickListener(v -> exportTrace());
+    }
+
+    /**
+     * Escribir la traza en un hilo de fondo y mostrar dónde quedó
+     */
+    private void exportTrace() {
+        new Thread(() -> {
+            String message;
+            try {
+                File file = Tracer.exportChromeTrace(this);
+                message = "Traza exportada: " + file.getAbsolutePath();
+                AppLog.d(TAG, message);
+            } catch (IOException e) {
+                AppLog.e(TAG, "Error al exportar traza: %s", e.getMessage());
+                message = "Error al exportar traza: " + e.getMessage();
+            }
+            String result = message;
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                Toast.makeText(this, result, Toast.LENGTH_LONG).show();
+            });
+        }).start();
+    }
+
+    private void showMetrics() {
+        tvMetrics.setText(MetricsRegistry.dump() + "\nSpans en memoria: " + Tracer.size()
+                + "\nEventos en memoria: " + EventLog.size());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refreshHandler.post(refreshRunnable);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        refreshHandler.removeCallbacks(refreshRunnable);
+    }
+}
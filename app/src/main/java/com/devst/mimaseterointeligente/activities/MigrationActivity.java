@@ -1,6 +1,7 @@
 package com.devst.mimaseterointeligente.activities;
 
 import android.app.AlertDialog;
+import android.content.Intent;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -13,14 +14,20 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.devst.mimaseterointeligente.R;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
+import com.devst.mimaseterointeligente.database.DatabaseBackup;
 import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.DeltaSyncManager;
 import com.devst.mimaseterointeligente.database.FirebaseToSQLiteMigration;
 import com.devst.mimaseterointeligente.database.SQLiteToFirebaseMigration;
+import com.devst.mimaseterointeligente.database.SensorDataShardMigration;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Activity para gestionar la migración bidireccional entre SQLite y Firebase.
@@ -44,11 +51,14 @@ public class MigrationActivity extends AppCompatActivity {
     private Button btnImportAll, btnImportUsers, btnImportPlants, btnImportSensors, btnImportAlerts;
 
     // Buttons - Advanced
-    private Button btnRefreshStats, btnClearDatabase, btnClearLogs;
+    private Button btnRefreshStats, btnDeltaSync, btnShardSensors, btnMetrics, btnClearDatabase, btnClearLogs;
+    private Button btnBackupExport, btnBackupRestore;
 
     // Migration helpers
     private SQLiteToFirebaseMigration sqliteToFirebase;
     private FirebaseToSQLiteMigration firebaseToSqlite;
+    private DeltaSyncManager deltaSync;
+    private SensorDataShardMigration shardMigration;
     private DatabaseHelper dbHelper;
 
     // Handler para UI thread
@@ -107,6 +117,11 @@ public class MigrationActivity extends AppCompatActivity {
 
         // Botones Advanced
         btnRefreshStats = findViewById(R.id.btnRefreshStats);
+        btnDeltaSync = findViewById(R.id.btnDeltaSync);
+        btnShardSensors = findViewById(R.id.btnShardSensors);
+        btnMetrics = findViewById(R.id.btnMetrics);
+        btnBackupExport = findViewById(R.id.btnBackupExport);
+        btnBackupRestore = findViewById(R.id.btnBackupRestore);
         btnClearDatabase = findViewById(R.id.btnClearDatabase);
         btnClearLogs = findViewById(R.id.btnClearLogs);
 
@@ -121,9 +136,72 @@ public class MigrationActivity extends AppCompatActivity {
      * Inicializar helpers de migración
      */
     private void initializeMigrationHelpers() {
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = DatabaseHelper.getInstance(this);
         sqliteToFirebase = new SQLiteToFirebaseMigration(this);
         firebaseToSqlite = new FirebaseToSQLiteMigration(this);
+        deltaSync = new DeltaSyncManager(this);
+        shardMigration = new SensorDataShardMigration();
+
+        // Configurar callbacks para el particionado de sensores
+        shardMigration.setCallback(new SensorDataShardMigration.ShardCallback() {
+            @Override
+            public void onProgress(String message) {
+                uiHandler.post(() -> updateStatus(message));
+            }
+
+            @Override
+            public void onComplete(int moved, int unassigned) {
+                uiHandler.post(() -> {
+                    hideProgress();
+                    addLog("=== PARTICIONADO COMPLETADO ===");
+                    addLog("Lecturas movidas: " + moved + " (" + unassigned + " sin dispositivo)");
+                    enableAllButtons();
+                    Toast.makeText(MigrationActivity.this, "Particionado completado", Toast.LENGTH_SHORT).show();
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                uiHandler.post(() -> {
+                    hideProgress();
+                    addLog("✗ Error al particionar sensores: " + error);
+                    enableAllButtons();
+                });
+            }
+        });
+
+        // Configurar callbacks para sincronización incremental
+        deltaSync.setCallback(new DeltaSyncManager.SyncCallback() {
+            @Override
+            public void onProgress(String message) {
+                uiHandler.post(() -> {
+                    updateStatus(message);
+                    addLog(message);
+                });
+            }
+
+            @Override
+            public void onComplete(DeltaSyncManager.SyncResult result) {
+                uiHandler.post(() -> {
+                    hideProgress();
+                    addLog("=== SINCRONIZACIÓN COMPLETADA ===");
+                    addLog("Descargados: " + result.pulled + " (+" + result.pulledDeletes + " borrados), " +
+                           "subidos: " + result.pushed + " (+" + result.pushedDeletes + " borrados)");
+                    refreshStats();
+                    enableAllButtons();
+                    Toast.makeText(MigrationActivity.this, "Sincronización completada", Toast.LENGTH_SHORT).show();
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                uiHandler.post(() -> {
+                    hideProgress();
+                    addLog("✗ Error en sincronización: " + error);
+                    enableAllButtons();
+                });
+            }
+        });
 
         // Configurar callbacks para SQLite -> Firebase
         sqliteToFirebase.setCallback(new SQLiteToFirebaseMigration.MigrationCallback() {
@@ -230,6 +308,11 @@ public class MigrationActivity extends AppCompatActivity {
 
         // Advanced buttons
         btnRefreshStats.setOnClickListener(v -> refreshStats());
+        btnDeltaSync.setOnClickListener(v -> syncChanges());
+        btnShardSensors.setOnClickListener(v -> shardSensorData());
+        btnMetrics.setOnClickListener(v -> startActivity(new Intent(this, MetricsActivity.class)));
+        btnBackupExport.setOnClickListener(v -> exportBackup());
+        btnBackupRestore.setOnClickListener(v -> showRestoreBackupDialog());
         btnClearDatabase.setOnClickListener(v -> showClearDatabaseDialog());
         btnClearLogs.setOnClickListener(v -> clearLogs());
     }
@@ -238,10 +321,24 @@ public class MigrationActivity extends AppCompatActivity {
      * Exportar todas las tablas
      */
     private void exportAllTables() {
+        // Si una exportación anterior quedó a medias, ofrecer reanudarla
+        AsyncDatabaseHelper.getInstance(this).execute(db -> sqliteToFirebase.hasResumableMigration(), resumable -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
+            }
+            if (resumable) {
+                showResumeDialog("Exportación incompleta", this::startExportAll);
+            } else {
+                startExportAll(false);
+            }
+        });
+    }
+
+    private void startExportAll(boolean resume) {
         showProgress();
         disableAllButtons();
-        addLog("=== INICIANDO EXPORTACIÓN COMPLETA ===");
-        sqliteToFirebase.migrateAllTables();
+        addLog(resume ? "=== REANUDANDO EXPORTACIÓN COMPLETA ===" : "=== INICIANDO EXPORTACIÓN COMPLETA ===");
+        sqliteToFirebase.migrateAllTables(resume);
     }
 
     /**
@@ -272,10 +369,37 @@ public class MigrationActivity extends AppCompatActivity {
      * Importar todas las tablas
      */
     private void importAllTables() {
+        // Si una importación anterior quedó a medias, ofrecer reanudarla
+        AsyncDatabaseHelper.getInstance(this).execute(db -> firebaseToSqlite.hasResumableImport(), resumable -> {
+            if (isFinishing() || isDestroyed()) {
+                return;
+            }
+            if (resumable) {
+                showResumeDialog("Importación incompleta", this::startImportAll);
+            } else {
+                startImportAll(false);
+            }
+        });
+    }
+
+    private void startImportAll(boolean resume) {
         showProgress();
         disableAllButtons();
-        addLog("=== INICIANDO IMPORTACIÓN COMPLETA ===");
-        firebaseToSqlite.importAllTables();
+        addLog(resume ? "=== REANUDANDO IMPORTACIÓN COMPLETA ===" : "=== INICIANDO IMPORTACIÓN COMPLETA ===");
+        firebaseToSqlite.importAllTables(resume);
+    }
+
+    /**
+     * Preguntar si continuar una migración interrumpida o empezar de cero
+     */
+    private void showResumeDialog(String title, Consumer<Boolean> start) {
+        new AlertDialog.Builder(this)
+            .setTitle(title)
+            .setMessage("La última migración no terminó. Puedes continuar desde el último bloque guardado o empezar de cero.")
+            .setPositiveButton("Reanudar", (dialog, which) -> start.accept(true))
+            .setNegativeButton("Desde cero", (dialog, which) -> start.accept(false))
+            .setNeutralButton("Cancelar", null)
+            .show();
     }
 
     /**
@@ -287,6 +411,8 @@ public class MigrationActivity extends AppCompatActivity {
         addLog("=== IMPORTANDO " + tableName.toUpperCase() + " ===");
 
         new Thread(() -> {
+            // La importación de una sola tabla siempre empieza de cero
+            firebaseToSqlite.resetCheckpoint(tableName);
             FirebaseToSQLiteMigration.MigrationResult result;
 
             switch (tableName) {
@@ -318,16 +444,111 @@ public class MigrationActivity extends AppCompatActivity {
         }).start();
     }
 
+    /**
+     * Sincronizar solo los cambios desde la última sincronización
+     */
+    private void syncChanges() {
+        showProgress();
+        disableAllButtons();
+        addLog("=== SINCRONIZANDO CAMBIOS ===");
+        deltaSync.syncAsync();
+    }
+
+    /**
+     * Mover las lecturas planas del firmware antiguo a /sensor_data/{deviceId}
+     */
+    private void shardSensorData() {
+        showProgress();
+        disableAllButtons();
+        addLog("=== PARTICIONANDO SENSORES POR DISPOSITIVO ===");
+        shardMigration.migrateAsync();
+    }
+
+    /**
+     * Crear un respaldo local completo (JSON gzip en el almacenamiento de la app)
+     */
+    private void exportBackup() {
+        File file = DatabaseBackup.defaultFile(this);
+        showProgress();
+        disableAllButtons();
+        addLog("=== CREANDO RESPALDO LOCAL ===");
+
+        AsyncDatabaseHelper.getInstance(this).exportBackup(file, new AsyncDatabaseHelper.Callback<Long>() {
+            @Override
+            public void onResult(Long rows) {
+                if (isFinishing() || isDestroyed()) return;
+                hideProgress();
+                enableAllButtons();
+                addLog("✓ Respaldo creado: " + rows + " registros (" + file.length() / 1024 + " KB)");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (isFinishing() || isDestroyed()) return;
+                hideProgress();
+                enableAllButtons();
+                addLog("✗ Error al crear respaldo: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Confirmar antes de reemplazar los datos locales por el respaldo
+     */
+    private void showRestoreBackupDialog() {
+        File file = DatabaseBackup.defaultFile(this);
+        if (!file.exists()) {
+            Toast.makeText(this, "No hay un respaldo local", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        new AlertDialog.Builder(this)
+            .setTitle("Restaurar Respaldo")
+            .setMessage("Los datos locales se reemplazarán por los del respaldo del "
+                    + new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault()).format(new Date(file.lastModified()))
+                    + ". ¿Continuar?")
+            .setPositiveButton("Restaurar", (dialog, which) -> restoreBackup(file))
+            .setNegativeButton("Cancelar", null)
+            .setIcon(android.R.drawable.ic_dialog_alert)
+            .show();
+    }
+
+    private void restoreBackup(File file) {
+        showProgress();
+        disableAllButtons();
+        addLog("=== RESTAURANDO RESPALDO LOCAL ===");
+
+        AsyncDatabaseHelper.getInstance(this).restoreBackup(file, new AsyncDatabaseHelper.Callback<Long>() {
+            @Override
+            public void onResult(Long rows) {
+                if (isFinishing() || isDestroyed()) return;
+                hideProgress();
+                enableAllButtons();
+                addLog("✓ Respaldo restaurado: " + rows + " registros");
+                refreshStats();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (isFinishing() || isDestroyed()) return;
+                hideProgress();
+                enableAllButtons();
+                addLog("✗ Error al restaurar respaldo: " + e.getMessage());
+                refreshStats();
+            }
+        });
+    }
+
     /**
      * Refrescar estadísticas
      */
     private void refreshStats() {
-        // Estadísticas SQLite
-        Map<String, Integer> sqliteStats = sqliteToFirebase.getMigrationStats();
-        tvSqliteUsers.setText("Usuarios: " + sqliteStats.getOrDefault("users", 0));
-        tvSqlitePlants.setText("Plantas: " + sqliteStats.getOrDefault("plants", 0));
-        tvSqliteSensors.setText("Sensores: " + sqliteStats.getOrDefault("sensor_data", 0));
-        tvSqliteAlerts.setText("Alertas: " + sqliteStats.getOrDefault("alerts", 0));
+        // Estadísticas SQLite (conteos en segundo plano)
+        AsyncDatabaseHelper.getInstance(this).execute(db -> sqliteToFirebase.getMigrationStats(), sqliteStats -> {
+            tvSqliteUsers.setText("Usuarios: " + sqliteStats.getOrDefault("users", 0));
+            tvSqlitePlants.setText("Plantas: " + sqliteStats.getOrDefault("plants", 0));
+            tvSqliteSensors.setText("Sensores: " + sqliteStats.getOrDefault("sensor_data", 0));
+            tvSqliteAlerts.setText("Alertas: " + sqliteStats.getOrDefault("alerts", 0));
+        });
 
         // Estadísticas Firebase
         firebaseToSqlite.getFirebaseStats(stats -> {
@@ -436,7 +657,11 @@ public class MigrationActivity extends AppCompatActivity {
         btnImportPlants.setEnabled(false);
         btnImportSensors.setEnabled(false);
         btnImportAlerts.setEnabled(false);
+        btnDeltaSync.setEnabled(false);
+        btnShardSensors.setEnabled(false);
         btnClearDatabase.setEnabled(false);
+        btnBackupExport.setEnabled(false);
+        btnBackupRestore.setEnabled(false);
     }
 
     /**
@@ -453,6 +678,10 @@ public class MigrationActivity extends AppCompatActivity {
         btnImportPlants.setEnabled(true);
         btnImportSensors.setEnabled(true);
         btnImportAlerts.setEnabled(true);
+        btnDeltaSync.setEnabled(true);
+        btnShardSensors.setEnabled(true);
         btnClearDatabase.setEnabled(true);
+        btnBackupExport.setEnabled(true);
+        btnBackupRestore.setEnabled(true);
     }
 }
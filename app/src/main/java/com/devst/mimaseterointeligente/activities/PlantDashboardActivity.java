@@ -2,44 +2,55 @@ package com.devst.mimaseterointeligente.activities;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.util.Log;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.Lifecycle;
+import androidx.work.WorkInfo;
 
 import com.bumptech.glide.Glide;
 import com.devst.mimaseterointeligente.R;
-import com.devst.mimaseterointeligente.api.RetrofitClient;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
-import com.devst.mimaseterointeligente.models.Alert;
-import com.devst.mimaseterointeligente.models.ArduinoResponse;
+import com.devst.mimaseterointeligente.api.ApiConfig;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
+import com.devst.mimaseterointeligente.database.SensorDataReader;
+import com.devst.mimaseterointeligente.managers.NetworkTaskCoordinator;
 import com.devst.mimaseterointeligente.models.Plant;
 import com.devst.mimaseterointeligente.models.SensorData;
-import com.devst.mimaseterointeligente.utils.AlertGenerator;
+import com.devst.mimaseterointeligente.models.SensorHistory;
+import com.devst.mimaseterointeligente.services.SensorMonitorScheduler;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.PlantImageStore;
 import com.devst.mimaseterointeligente.utils.SensorStatusHelper;
+import com.devst.mimaseterointeligente.views.SensorChartView;
+import com.google.android.material.chip.ChipGroup;
 
-import java.util.List;
 import java.util.Locale;
-
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.util.UUID;
 
 /**
  * Dashboard principal de monitoreo de planta
  *
  * UBICACIÓN: app/src/main/java/com/devst/mimaseterointeligente/activities/PlantDashboardActivity.java
  * PROPÓSITO: Mostrar datos en tiempo real de sensores y estado de la planta
+ *
+ * Mientras está visible pide revisiones expeditas a SensorMonitorScheduler
+ * cada SENSOR_UPDATE_INTERVAL; las lecturas y alertas las guarda y notifica
+ * SensorMonitorWorker, igual que en segundo plano.
  */
 public class PlantDashboardActivity extends AppCompatActivity {
 
     private static final String TAG = "PlantDashboard";
-    private static final long UPDATE_INTERVAL = 30000; // 30 segundos
+    private static final String SENSOR_TASK = "dashboard_sensores"; // Tarea en NetworkTaskCoordinator
+
+    // Historial: puntos por serie y rangos disponibles
+    private static final int HISTORY_MAX_POINTS = 150;
+    private static final long RANGE_24H = 24L * 60 * 60 * 1000;
+    private static final long RANGE_7D = 7 * RANGE_24H;
+    private static final long RANGE_30D = 30 * RANGE_24H;
 
     // Views
     private TextView tvPlantTitle, tvPlantName, tvScientificName;
@@ -52,15 +63,23 @@ public class PlantDashboardActivity extends AppCompatActivity {
     private TextView tvLastUpdate;
     private ImageView ivPlantImage;
     private ImageButton btnBack, btnEdit;
+    private SensorChartView chartHistory;
+    private ChipGroup chipGroupMetric, chipGroupRange;
 
     // Data
     private Plant plant;
     private int plantId;
-    private DatabaseHelper databaseHelper;
-
-    // Auto-update handler
-    private Handler updateHandler;
-    private Runnable updateRunnable;
+    private AsyncDatabaseHelper databaseHelper;
+    private SensorDataReader sensorDataReader;
+    private SensorHistory history;
+    private int selectedMetric = SensorHistory.METRIC_SOIL_HUMIDITY;
+    private long selectedRange = RANGE_24H;
+
+    // Actualización automática, agrupada con las demás tareas de red
+    private NetworkTaskCoordinator networkCoordinator;
+    private UUID lastCheckId; // Última revisión de SensorMonitorWorker ya mostrada
+    private long shownReadingTime; // Timestamp de la lectura en pantalla
+    private boolean notConnectedShown;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -68,7 +87,9 @@ public class PlantDashboardActivity extends AppCompatActivity {
         setContentView(R.layout.activity_plant_dashboard);
 
         // Inicializar base de datos
-        databaseHelper = new DatabaseHelper(this);
+        databaseHelper = AsyncDatabaseHelper.getInstance(this);
+        sensorDataReader = new SensorDataReader();
+        networkCoordinator = NetworkTaskCoordinator.getInstance(this);
 
         // Obtener ID de la planta
         plantId = getIntent().getIntExtra("plant_id", -1);
@@ -78,28 +99,40 @@ public class PlantDashboardActivity extends AppCompatActivity {
             return;
         }
 
-        // Cargar planta
-        plant = databaseHelper.getPlantById(plantId);
-        if (plant == null) {
-            Toast.makeText(this, "Error: No se pudo cargar la planta", Toast.LENGTH_SHORT).show();
-            finish();
-            return;
-        }
-
         // Inicializar views
         initViews();
 
         // Configurar botones
         setupButtons();
+        setupHistoryChart();
+        observeMonitorWork();
+
+        // La planta se carga en onResume (en segundo plano) y luego se
+        // muestran su información y los datos de sensores
+    }
 
-        // Mostrar información de la planta
-        displayPlantInfo();
+    /**
+     * Cargar planta desde la base de datos en segundo plano
+     */
+    private void loadPlant() {
+        databaseHelper.getPlantById(plantId, loadedPlant -> {
+            if (isFinishing() || isDestroyed()) return;
+
+            if (loadedPlant == null) {
+                Toast.makeText(this, "Error: No se pudo cargar la planta", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
 
-        // Cargar datos iniciales
-        loadSensorData();
+            plant = loadedPlant;
 
-        // Iniciar actualización automática
-        startAutoUpdate();
+            // Mostrar información de la planta
+            displayPlantInfo();
+
+            // Cargar datos de sensores e historial
+            loadSensorData();
+            loadHistory();
+        });
     }
 
     /**
@@ -133,6 +166,10 @@ public class PlantDashboardActivity extends AppCompatActivity {
 
         btnBack = findViewById(R.id.btnBack);
         btnEdit = findViewById(R.id.btnEdit);
+
+        chartHistory = findViewById(R.id.chartHistory);
+        chipGroupMetric = findViewById(R.id.chipGroupMetric);
+        chipGroupRange = findViewById(R.id.chipGroupRange);
     }
 
     /**
@@ -148,6 +185,92 @@ public class PlantDashboardActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Configurar selección de métrica y rango del historial
+     */
+    private void setupHistoryChart() {
+        // Cambiar de métrica solo redibuja: el historial ya trae todas las series
+        chipGroupMetric.setOnCheckedStateChangeListener((group, checkedIds) -> {
+            if (checkedIds.isEmpty()) return;
+            int id = checkedIds.get(0);
+            if (id == R.id.chipMetricTemperature) {
+                selectedMetric = SensorHistory.METRIC_TEMPERATURE;
+            } else if (id == R.id.chipMetricAmbient) {
+                selectedMetric = SensorHistory.METRIC_AMBIENT_HUMIDITY;
+            } else if (id == R.id.chipMetricUv) {
+                selectedMetric = SensorHistory.METRIC_UV_LEVEL;
+            } else if (id == R.id.chipMetricWater) {
+                selectedMetric = SensorHistory.METRIC_WATER_LEVEL;
+            } else {
+                selectedMetric = SensorHistory.METRIC_SOIL_HUMIDITY;
+            }
+            displayHistory();
+        });
+
+        // Cambiar de rango requiere una nueva consulta
+        chipGroupRange.setOnCheckedStateChangeListener((group, checkedIds) -> {
+            if (checkedIds.isEmpty()) return;
+            int id = checkedIds.get(0);
+            if (id == R.id.chipRange7d) {
+                selectedRange = RANGE_7D;
+            } else if (id == R.id.chipRange30d) {
+                selectedRange = RANGE_30D;
+            } else {
+                selectedRange = RANGE_24H;
+            }
+            loadHistory();
+        });
+    }
+
+    /**
+     * Cargar el historial del rango seleccionado (ya reducido) en segundo plano
+     */
+    private void loadHistory() {
+        long now = System.currentTimeMillis();
+        databaseHelper.getSensorHistory(plantId, now - selectedRange, now, HISTORY_MAX_POINTS,
+                loadedHistory -> {
+                    if (isFinishing() || isDestroyed()) return;
+                    history = loadedHistory;
+                    displayHistory();
+                });
+    }
+
+    /**
+     * Dibujar la serie de la métrica seleccionada
+     */
+    private void displayHistory() {
+        if (history == null) return;
+
+        int color;
+        String unit;
+        switch (selectedMetric) {
+            case SensorHistory.METRIC_TEMPERATURE:
+                color = R.color.sensor_temp;
+                unit = "°C";
+                break;
+            case SensorHistory.METRIC_AMBIENT_HUMIDITY:
+                color = R.color.sensor_humidity;
+                unit = "%";
+                break;
+            case SensorHistory.METRIC_UV_LEVEL:
+                color = R.color.sensor_sun;
+                unit = "";
+                break;
+            case SensorHistory.METRIC_WATER_LEVEL:
+                color = R.color.sensor_water;
+                unit = "%";
+                break;
+            default:
+                color = R.color.primary_green_dark;
+                unit = "%";
+                break;
+        }
+
+        chartHistory.setLineColor(ContextCompat.getColor(this, color));
+        chartHistory.setSeries(history.getSeries(selectedMetric),
+                history.getFromMillis(), history.getToMillis(), unit);
+    }
+
     /**
      * Mostrar información básica de la planta
      */
@@ -156,37 +279,16 @@ public class PlantDashboardActivity extends AppCompatActivity {
         tvPlantName.setText(plant.getName());
         tvScientificName.setText(plant.getScientificName());
 
-        // Cargar imagen de la planta usando Glide
-        if (plant.getImageUrl() != null && !plant.getImageUrl().isEmpty()) {
-            try {
-                // Determinar el tipo de fuente de imagen
-                Object imageSource;
-                if (plant.getImageUrl().startsWith("/")) {
-                    // Es una ruta de archivo local
-                    imageSource = new java.io.File(plant.getImageUrl());
-                } else if (plant.getImageUrl().startsWith("file://")) {
-                    // Es una URI de archivo
-                    imageSource = android.net.Uri.parse(plant.getImageUrl());
-                } else if (plant.getImageUrl().startsWith("content://")) {
-                    // Es una URI de contenido
-                    imageSource = android.net.Uri.parse(plant.getImageUrl());
-                } else {
-                    // Formato desconocido, usar imagen por defecto
-                    ivPlantImage.setImageResource(R.drawable.ic_plant);
-                    return;
-                }
-
-                Glide.with(this)
-                    .load(imageSource)
-                    .placeholder(R.drawable.ic_plant)
-                    .error(R.drawable.ic_plant)
-                    .centerCrop()
-                    .into(ivPlantImage);
-            } catch (Exception e) {
-                // Si hay cualquier error, usar imagen por defecto
-                ivPlantImage.setImageResource(R.drawable.ic_plant);
-                Log.e(TAG, "Error al cargar imagen de planta: " + e.getMessage());
-            }
+        // Cargar la variante principal de la imagen, reducida al tamaño de la vista
+        Object imageSource = PlantImageStore.getHeroSource(plant.getImageUrl());
+        if (imageSource != null) {
+            Glide.with(this)
+                .load(imageSource)
+                .override(getResources().getDimensionPixelSize(R.dimen.plant_hero_size))
+                .placeholder(R.drawable.ic_plant)
+                .error(R.drawable.ic_plant)
+                .centerCrop()
+                .into(ivPlantImage);
         } else {
             // Sin imagen, usar imagen por defecto
             ivPlantImage.setImageResource(R.drawable.ic_plant);
@@ -194,59 +296,77 @@ public class PlantDashboardActivity extends AppCompatActivity {
     }
 
     /**
-     * Cargar datos de sensores desde Arduino
+     * Mostrar la última lectura guardada y pedir una nueva al trabajo de
+     * monitoreo. El dashboard no consulta al Arduino: SensorMonitorWorker
+     * guarda la lectura y sus alertas, y al terminar se recarga desde SQLite.
      */
     private void loadSensorData() {
-        Log.d(TAG, "Cargando datos de sensores...");
+        if (plant == null) {
+            // La planta aún no termina de cargar
+            return;
+        }
 
-        // Verificar si la planta está conectada al masetero
+        AppLog.d(TAG, "Cargando datos de sensores de planta %d", plantId);
+
+        // Mientras tanto, lo último que se conoce
+        displayEmptyOrCachedData();
+
+        // Verificar si la planta está conectada al masetero: sin dispositivo
+        // no hay nada que revisar periódicamente
         if (!plant.isConnected()) {
-            Toast.makeText(this, "Esta planta no está conectada al masetero inteligente", Toast.LENGTH_SHORT).show();
-            displayEmptyOrCachedData();
+            stopAutoUpdate();
+            if (!notConnectedShown) {
+                notConnectedShown = true;
+                Toast.makeText(this, "Esta planta no está conectada al masetero inteligente", Toast.LENGTH_SHORT).show();
+            }
             return;
         }
 
-        // Llamada a la API del Arduino
-        RetrofitClient.getArduinoApiService().getSensorData().enqueue(new Callback<ArduinoResponse>() {
-            @Override
-            public void onResponse(Call<ArduinoResponse> call, Response<ArduinoResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    ArduinoResponse data = response.body();
-                    Log.d(TAG, "Datos recibidos: " + data.toString());
-
-                    // Verificar validez de datos
-                    if (data.isValid()) {
-                        // Guardar en base de datos
-                        saveSensorData(data);
-
-                        // Mostrar datos en UI
-                        displaySensorData(data);
-
-                        // Generar y guardar alertas
-                        generateAlerts(data);
-
-                        // Actualizar timestamp
-                        updateLastUpdateTime();
-                    } else {
-                        Log.e(TAG, "Datos de sensores inválidos");
-                        Toast.makeText(PlantDashboardActivity.this, "Datos inválidos del sensor", Toast.LENGTH_SHORT).show();
-                        displayEmptyOrCachedData();
-                    }
-                } else {
-                    Log.e(TAG, "Error en respuesta: " + response.code());
-                    Toast.makeText(PlantDashboardActivity.this, "Error al obtener datos", Toast.LENGTH_SHORT).show();
-                    displayEmptyOrCachedData();
+        requestReading();
+        // La planta se carga en segundo plano: puede llegar ya en pausa
+        if (getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.RESUMED)) {
+            // Esa revisión cuenta como ejecución: el intervalo empieza ahora
+            networkCoordinator.reportRun(SENSOR_TASK);
+            startAutoUpdate();
+        }
+    }
+
+    /**
+     * Pedir una revisión expedita de los sensores (tarea periódica del dashboard)
+     */
+    private void requestReading() {
+        if (plant == null || !plant.isConnected()) return;
+        SensorMonitorScheduler.checkNow(this);
+    }
+
+    /**
+     * Recargar la planta cuando termina una revisión de SensorMonitorWorker
+     */
+    private void observeMonitorWork() {
+        SensorMonitorScheduler.observeCheckNow(this).observe(this, infos -> {
+            for (WorkInfo info : infos) {
+                if (info.getState() == WorkInfo.State.SUCCEEDED && !info.getId().equals(lastCheckId)) {
+                    lastCheckId = info.getId();
+                    loadLatestReading();
                 }
             }
+        });
+    }
 
-            @Override
-            public void onFailure(Call<ArduinoResponse> call, Throwable t) {
-                Log.e(TAG, "Error de conexión: " + t.getMessage());
-                Toast.makeText(PlantDashboardActivity.this,
-                        "No se pudo conectar al masetero. Mostrando últimos datos guardados.",
-                        Toast.LENGTH_SHORT).show();
-                displayEmptyOrCachedData();
-            }
+    /**
+     * Mostrar la lectura más reciente que guardó el trabajo de monitoreo
+     */
+    private void loadLatestReading() {
+        if (plant == null) return;
+
+        databaseHelper.getLatestSensorData(plantId, data -> {
+            if (isFinishing() || isDestroyed() || data == null) return;
+
+            shownReadingTime = parseTime(data.getTimestamp());
+            displaySensorData(data);
+            tvLastUpdate.setText("Última actualización: " + getTimeAgo(data.getTimestamp()));
+            // Incluir la nueva lectura en el gráfico
+            loadHistory();
         });
     }
 
@@ -255,18 +375,57 @@ public class PlantDashboardActivity extends AppCompatActivity {
      */
     private void displayEmptyOrCachedData() {
         // Intentar cargar últimos datos de la base de datos
-        SensorData lastData = databaseHelper.getLatestSensorData(plantId);
+        databaseHelper.getLatestSensorData(plantId, lastData -> {
+            if (isFinishing() || isDestroyed()) return;
+
+            if (lastData != null) {
+                // Hay datos guardados, mostrarlos
+                AppLog.d(TAG, "Mostrando últimos datos guardados en DB");
+                shownReadingTime = parseTime(lastData.getTimestamp());
+                displayCachedSensorData(lastData);
+                tvLastUpdate.setText("Última actualización: " + getTimeAgo(lastData.getTimestamp()));
+            } else {
+                // No hay datos guardados, mostrar valores vacíos
+                AppLog.d(TAG, "No hay datos guardados, mostrando valores vacíos");
+                displayEmptySensorData();
+                tvLastUpdate.setText("Sin datos disponibles");
+            }
 
-        if (lastData != null) {
-            // Hay datos guardados, mostrarlos
-            Log.d(TAG, "Mostrando últimos datos guardados en DB");
-            displayCachedSensorData(lastData);
-            tvLastUpdate.setText("Última actualización: " + getTimeAgo(lastData.getTimestamp()));
-        } else {
-            // No hay datos guardados, mostrar valores vacíos
-            Log.d(TAG, "No hay datos guardados, mostrando valores vacíos");
-            displayEmptySensorData();
-            tvLastUpdate.setText("Sin datos disponibles");
+            // La última lectura que el dispositivo subió a Firebase puede ser más reciente
+            displayLatestFromFirebase();
+        });
+    }
+
+    /**
+     * Mostrar la última lectura de la partición del dispositivo en Firebase
+     * si es más reciente que la que está en pantalla (la revisión expedita
+     * puede haber terminado antes que esta consulta)
+     */
+    private void displayLatestFromFirebase() {
+        // Plantas conectadas antes de guardar device_id no tienen partición
+        if (plant == null || !plant.isConnected()
+                || plant.getDeviceId() == null || plant.getDeviceId().isEmpty()) {
+            return;
+        }
+
+        sensorDataReader.getLatest(plant.getDeviceId(), plantId, remoteData -> {
+            if (isFinishing() || isDestroyed() || remoteData == null) return;
+
+            long remoteTime = parseTime(remoteData.getTimestamp());
+            if (remoteTime > shownReadingTime) {
+                AppLog.d(TAG, "Mostrando última lectura de Firebase");
+                shownReadingTime = remoteTime;
+                displayCachedSensorData(remoteData);
+                tvLastUpdate.setText("Última actualización: " + getTimeAgo(remoteData.getTimestamp()));
+            }
+        });
+    }
+
+    private static long parseTime(String timestamp) {
+        try {
+            return Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 
@@ -349,24 +508,10 @@ public class PlantDashboardActivity extends AppCompatActivity {
         }
     }
 
-    /**
-     * Guardar datos de sensores en base de datos
-     */
-    private void saveSensorData(ArduinoResponse data) {
-        SensorData sensorData = data.toSensorData(plantId);
-        long result = databaseHelper.insertSensorData(sensorData); // <--- corregido
-
-        if (result > 0) {
-            Log.d(TAG, "Datos de sensores guardados en BD");
-        } else {
-            Log.e(TAG, "Error al guardar datos de sensores");
-        }
-    }
-
     /**
      * Mostrar datos de sensores en UI
      */
-    private void displaySensorData(ArduinoResponse data) {
+    private void displaySensorData(SensorData data) {
         // Humedad del suelo
         SensorStatusHelper.SensorStatus soilStatus =
                 SensorStatusHelper.evaluateSoilHumidity(plant, data.getSoilHumidity());
@@ -410,65 +555,27 @@ public class PlantDashboardActivity extends AppCompatActivity {
         tvPestCount.setTextColor(pestStatus.getColor());
     }
 
-    /**
-     * Generar y guardar alertas
-     */
-    private void generateAlerts(ArduinoResponse data) {
-        List<Alert> alerts = AlertGenerator.generateAlerts(plant, data);
-
-        for (Alert alert : alerts) {
-            long result = databaseHelper.createAlert(alert);// ← corregido
-            if (result > 0) {
-                Log.d(TAG, "Alerta guardada: " + alert.getTitle());
-            } else {
-                Log.e(TAG, "Error al guardar alerta: " + alert.getTitle());
-            }
-        }
-        // Mostrar notificación si hay alertas críticas
-        if (AlertGenerator.hasCriticalAlerts(alerts)) {
-            Toast.makeText(this, "¡Atención! Tu planta necesita cuidados urgentes", Toast.LENGTH_LONG).show();
-        }
-    }
-
-    /**
-     * Actualizar timestamp de última actualización
-     */
-    private void updateLastUpdateTime() {
-        String timeStr = "Última actualización: Ahora";
-        tvLastUpdate.setText(timeStr);
-    }
-
     /**
      * Iniciar actualización automática de datos
      */
     private void startAutoUpdate() {
-        updateHandler = new Handler(Looper.getMainLooper());
-        updateRunnable = new Runnable() {
-            @Override
-            public void run() {
-                loadSensorData();
-                updateHandler.postDelayed(this, UPDATE_INTERVAL);
-            }
-        };
-        updateHandler.postDelayed(updateRunnable, UPDATE_INTERVAL);
+        networkCoordinator.register(SENSOR_TASK, ApiConfig.SENSOR_UPDATE_INTERVAL,
+                ApiConfig.SENSOR_UPDATE_TOLERANCE, this::requestReading);
     }
 
     /**
      * Detener actualización automática
      */
     private void stopAutoUpdate() {
-        if (updateHandler != null && updateRunnable != null) {
-            updateHandler.removeCallbacks(updateRunnable);
-        }
+        networkCoordinator.unregister(SENSOR_TASK);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        // Recargar información de la planta
-        plant = databaseHelper.getPlantById(plantId);
-        displayPlantInfo();
-        loadSensorData();
+        // Recargar información de la planta (y luego los datos de sensores);
+        // la actualización automática empieza si la planta está conectada
+        loadPlant();
     }
 
     @Override
@@ -478,11 +585,4 @@ public class PlantDashboardActivity extends AppCompatActivity {
         stopAutoUpdate();
     }
 
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (databaseHelper != null) {
-            databaseHelper.close();
-        }
-    }
 }
\ No newline at end of file
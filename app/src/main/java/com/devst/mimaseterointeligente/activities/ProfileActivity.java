@@ -13,7 +13,8 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.devst.mimaseterointeligente.R;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
+import com.devst.mimaseterointeligente.database.FirebaseCache;
 import com.devst.mimaseterointeligente.models.User;
 import com.devst.mimaseterointeligente.utils.SessionManager;
 
@@ -30,7 +31,7 @@ public class ProfileActivity extends AppCompatActivity {
     private Button btnLogout;
     private ImageView btnBack;
 
-    private DatabaseHelper dbHelper;
+    private AsyncDatabaseHelper dbHelper;
     private SessionManager sessionManager;
     private int currentUserId;
 
@@ -55,7 +56,7 @@ public class ProfileActivity extends AppCompatActivity {
         btnLogout = findViewById(R.id.btnLogout);
         btnBack = findViewById(R.id.btnBack);
 
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = AsyncDatabaseHelper.getInstance(this);
         sessionManager = new SessionManager(this);
 
         // Obtener ID del usuario actual
@@ -71,32 +72,53 @@ public class ProfileActivity extends AppCompatActivity {
      * Cargar datos del usuario
      */
     private void loadUserData() {
-        try {
-            // Obtener usuario de la base de datos
-            User user = dbHelper.getUserByEmail(sessionManager.getUserEmail());
+        String email = sessionManager.getUserEmail();
+
+        // Usuario y contadores se consultan juntos en segundo plano
+        dbHelper.execute(db -> {
+            ProfileData data = new ProfileData();
+            data.user = db.getUserByEmail(email);
+            if (data.user != null) {
+                data.plantCount = db.getPlantsCountByUserId(currentUserId);
+                data.alertCount = db.getUnreadAlertsCount();
+            }
+            return data;
+        }, new AsyncDatabaseHelper.Callback<ProfileData>() {
+            @Override
+            public void onResult(ProfileData data) {
+                if (isFinishing() || isDestroyed() || data.user == null) return;
 
-            if (user != null) {
                 // Configurar nombre de usuario
-                tvUsername.setText(user.getName());
+                tvUsername.setText(data.user.getName());
 
                 // Cargar imagen de perfil si existe
-                if (user.getProfileImage() != null && !user.getProfileImage().isEmpty()) {
+                if (data.user.getProfileImage() != null && !data.user.getProfileImage().isEmpty()) {
                     // TODO: Cargar imagen desde URL o local
                     // Glide.with(this).load(user.getProfileImage()).into(ivProfileImage);
                 }
 
-                // Obtener contadores
-                int plantCount = dbHelper.getPlantsCountByUserId(currentUserId);
-                int alertCount = dbHelper.getUnreadAlertsCount();
-
                 // Configurar contadores
-                tvPlantCount.setText(String.valueOf(plantCount));
-                tvAlertCount.setText(String.valueOf(alertCount));
+                tvPlantCount.setText(String.valueOf(data.plantCount));
+                tvAlertCount.setText(String.valueOf(data.alertCount));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                e.printStackTrace();
+                if (!isFinishing() && !isDestroyed()) {
+                    Toast.makeText(ProfileActivity.this, "Error al cargar datos del perfil", Toast.LENGTH_SHORT).show();
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error al cargar datos del perfil", Toast.LENGTH_SHORT).show();
-        }
+        });
+    }
+
+    /**
+     * Datos del perfil obtenidos en una sola tarea de base de datos
+     */
+    private static class ProfileData {
+        User user;
+        int plantCount;
+        int alertCount;
     }
 
     /**
@@ -125,6 +147,7 @@ public class ProfileActivity extends AppCompatActivity {
     private void logout() {
         // Limpiar sesión
         sessionManager.logout();
+        FirebaseCache.releaseUserData();
 
         // Redirigir al login
         Intent intent = new Intent(this, LoginActivity.class);
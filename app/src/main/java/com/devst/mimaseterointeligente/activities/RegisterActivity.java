@@ -15,7 +15,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.devst.mimaseterointeligente.R;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
 import com.devst.mimaseterointeligente.models.User;
 import com.devst.mimaseterointeligente.utils.PasswordUtils;
 
@@ -29,7 +29,7 @@ public class RegisterActivity extends AppCompatActivity {
     private ImageButton backButton;
     private ProgressBar progressBar;
 
-    private DatabaseHelper databaseHelper;
+    private AsyncDatabaseHelper databaseHelper;
     private SharedPreferences sharedPreferences;
 
     @Override
@@ -38,7 +38,7 @@ public class RegisterActivity extends AppCompatActivity {
         setContentView(R.layout.activity_register);
 
         // Inicializar base de datos y SharedPreferences
-        databaseHelper = new DatabaseHelper(this);
+        databaseHelper = AsyncDatabaseHelper.getInstance(this);
         sharedPreferences = getSharedPreferences("MaseteroPrefs", MODE_PRIVATE);
 
         // Inicializar vistas
@@ -94,42 +94,50 @@ public class RegisterActivity extends AppCompatActivity {
         // Mostrar progress bar
         showLoading(true);
 
-        // Verificar si el email ya está registrado
-        User existingUser = databaseHelper.getUserByEmail(email);
-
-        if (existingUser != null) {
-            // Email ya registrado
-            showLoading(false);
-            Toast.makeText(this, "Este email ya está registrado", Toast.LENGTH_SHORT).show();
-            emailEditText.setError("Email ya registrado");
-            return;
-        }
-
-        // Crear nuevo usuario
-        User newUser = new User();
-        newUser.setName(name);
-        newUser.setEmail(email);
-        newUser.setPassword(PasswordUtils.hashPassword(password));
-
-        // Guardar en base de datos
-        long userId = databaseHelper.createUser(newUser);
-
-        if (userId != -1) {
-            // Registro exitoso
-            newUser.setId((int) userId);
-
-            // Guardar sesión
-            saveUserSession(newUser);
+        // Verificar email, calcular hash y guardar en segundo plano.
+        // Devuelve null si el email ya está registrado.
+        databaseHelper.execute(db -> {
+            if (db.getUserByEmail(email) != null) {
+                return null;
+            }
 
-            // Navegar a MainActivity
-            navigateToMainActivity();
+            // Crear nuevo usuario
+            User newUser = new User();
+            newUser.setName(name);
+            newUser.setEmail(email);
+            newUser.setPassword(PasswordUtils.hashPassword(password));
+            newUser.setId((int) db.createUser(newUser));
+            return newUser;
+        }, new AsyncDatabaseHelper.Callback<User>() {
+            @Override
+            public void onResult(User newUser) {
+                if (isFinishing() || isDestroyed()) return;
+
+                if (newUser == null) {
+                    // Email ya registrado
+                    showLoading(false);
+                    Toast.makeText(RegisterActivity.this, "Este email ya está registrado", Toast.LENGTH_SHORT).show();
+                    emailEditText.setError("Email ya registrado");
+                } else if (newUser.getId() != -1) {
+                    // Registro exitoso: guardar sesión y navegar a MainActivity
+                    saveUserSession(newUser);
+                    navigateToMainActivity();
+
+                    Toast.makeText(RegisterActivity.this, "Cuenta creada exitosamente", Toast.LENGTH_SHORT).show();
+                } else {
+                    // Error al crear usuario
+                    showLoading(false);
+                    Toast.makeText(RegisterActivity.this, "Error al crear la cuenta", Toast.LENGTH_SHORT).show();
+                }
+            }
 
-            Toast.makeText(this, "Cuenta creada exitosamente", Toast.LENGTH_SHORT).show();
-        } else {
-            // Error al crear usuario
-            showLoading(false);
-            Toast.makeText(this, "Error al crear la cuenta", Toast.LENGTH_SHORT).show();
-        }
+            @Override
+            public void onError(Exception e) {
+                if (isFinishing() || isDestroyed()) return;
+                showLoading(false);
+                Toast.makeText(RegisterActivity.this, "Error al crear la cuenta", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private boolean validateRegisterForm(String name, String email, String password, String confirmPassword) {
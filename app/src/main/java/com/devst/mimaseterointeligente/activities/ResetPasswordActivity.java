@@ -14,7 +14,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 
 import com.devst.mimaseterointeligente.R;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
 import com.devst.mimaseterointeligente.utils.PasswordUtils;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -29,7 +29,7 @@ public class ResetPasswordActivity extends AppCompatActivity {
     private TextView tvReqLength, tvReqUppercase, tvReqNumber;
     
     private String email;
-    private DatabaseHelper dbHelper;
+    private AsyncDatabaseHelper dbHelper;
 
     // Requisitos de contraseña
     private boolean hasMinLength = false;
@@ -60,7 +60,7 @@ public class ResetPasswordActivity extends AppCompatActivity {
         tvReqUppercase = findViewById(R.id.tvReqUppercase);
         tvReqNumber = findViewById(R.id.tvReqNumber);
         
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = AsyncDatabaseHelper.getInstance(this);
     }
 
     private void setupListeners() {
@@ -141,23 +141,27 @@ public class ResetPasswordActivity extends AppCompatActivity {
             return;
         }
 
-        // Actualizar la contraseña en la base de datos
-        String hashedPassword = PasswordUtils.hashPassword(newPassword);
-        boolean success = dbHelper.updatePassword(email, hashedPassword);
-
-        if (success) {
-            // Limpiar datos de recuperación
-            clearRecoveryData();
-            
-            // Navegar a la pantalla de éxito
-            Intent intent = new Intent(ResetPasswordActivity.this, PasswordSuccessActivity.class);
-            startActivity(intent);
-            
-            // Cerrar todas las actividades de recuperación
-            finishAffinity();
-        } else {
-            Toast.makeText(this, "Error al actualizar la contraseña", Toast.LENGTH_SHORT).show();
-        }
+        // Actualizar la contraseña en la base de datos (hash incluido) en segundo plano
+        btnResetPassword.setEnabled(false);
+        dbHelper.execute(db -> db.updatePassword(email, PasswordUtils.hashPassword(newPassword)),
+                success -> {
+                    if (isFinishing() || isDestroyed()) return;
+                    btnResetPassword.setEnabled(true);
+
+                    if (success) {
+                        // Limpiar datos de recuperación
+                        clearRecoveryData();
+
+                        // Navegar a la pantalla de éxito
+                        Intent intent = new Intent(ResetPasswordActivity.this, PasswordSuccessActivity.class);
+                        startActivity(intent);
+
+                        // Cerrar todas las actividades de recuperación
+                        finishAffinity();
+                    } else {
+                        Toast.makeText(this, "Error al actualizar la contraseña", Toast.LENGTH_SHORT).show();
+                    }
+                });
     }
 
     private void clearRecoveryData() {
@@ -3,8 +3,6 @@ package com.devst.mimaseterointeligente.activities;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.widget.ImageView;
@@ -13,15 +11,21 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.devst.mimaseterointeligente.R;
+import com.devst.mimaseterointeligente.api.ApiConfig;
+import com.devst.mimaseterointeligente.managers.StartupPrewarmer;
 
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DURATION = 2500; // ms
     private SharedPreferences sharedPreferences;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+
+        // Base de datos, plantas, clima y clientes HTTP en paralelo mientras se infla la vista
+        StartupPrewarmer prewarmer = StartupPrewarmer.getInstance(this);
+        prewarmer.start();
+
         setContentView(R.layout.activity_splash);
 
         sharedPreferences = getSharedPreferences("MaseteroPrefs", MODE_PRIVATE);
@@ -38,10 +42,12 @@ public class SplashActivity extends AppCompatActivity {
         appName.startAnimation(slideUp);
         appTagline.startAnimation(slideUp);
 
-        new Handler(Looper.getMainLooper()).postDelayed(this::checkUserSession, SPLASH_DURATION);
+        // Continuar apenas esté listo lo esencial (o al pasar la espera máxima)
+        prewarmer.whenReady(ApiConfig.STARTUP_MAX_WAIT_MS, this::checkUserSession);
     }
 
     private void checkUserSession() {
+        if (isFinishing() || isDestroyed()) return;
         boolean isLoggedIn = sharedPreferences.getBoolean("isLoggedIn", false);
         Intent intent = new Intent(this, isLoggedIn ? MainActivity.class : LoginActivity.class);
         startActivity(intent);
@@ -8,25 +8,53 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.devst.mimaseterointeligente.R;
 import com.devst.mimaseterointeligente.models.Alert;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 /**
- * Adapter para mostrar alertas en un RecyclerView
+ * Adapter para mostrar alertas en un RecyclerView.
+ * El diff entre listas se calcula en segundo plano (ListAdapter) y los
+ * cambios de estado de lectura se aplican con un payload parcial.
  */
-public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.AlertViewHolder> {
+public class AlertsAdapter extends ListAdapter<Alert, AlertsAdapter.AlertViewHolder> {
+
+    // Payloads para actualizaciones parciales (se combinan como bits)
+    private static final int PAYLOAD_READ = 1;
+    private static final int PAYLOAD_CONTENT = 1 << 1;
+
+    private static final DiffUtil.ItemCallback<Alert> DIFF_CALLBACK = new DiffUtil.ItemCallback<Alert>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Alert oldItem, @NonNull Alert newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Alert oldItem, @NonNull Alert newItem) {
+            return getChangeFlags(oldItem, newItem) == 0;
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(@NonNull Alert oldItem, @NonNull Alert newItem) {
+            return getChangeFlags(oldItem, newItem);
+        }
+    };
 
     private Context context;
-    private List<Alert> alerts;
     private OnAlertClickListener listener;
 
     public interface OnAlertClickListener {
@@ -35,27 +63,44 @@ public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.AlertViewH
     }
 
     public AlertsAdapter(Context context, List<Alert> alerts, OnAlertClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.alerts = alerts;
         this.listener = listener;
+        setHasStableIds(true);
+        updateAlerts(alerts);
     }
 
     /**
      * Constructor sin listener (para fragmentos que no necesitan manejar clicks)
      */
     public AlertsAdapter(Context context, List<Alert> alerts) {
-        this.context = context;
-        this.alerts = alerts;
-        this.listener = null;
+        this(context, alerts, null);
+    }
+
+    /**
+     * Calcular qué partes de la tarjeta cambiaron entre dos versiones de la alerta
+     */
+    private static int getChangeFlags(Alert oldItem, Alert newItem) {
+        int flags = 0;
+        if (oldItem.isRead() != newItem.isRead()) {
+            flags |= PAYLOAD_READ;
+        }
+        if (!Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                || !Objects.equals(oldItem.getMessage(), newItem.getMessage())
+                || !Objects.equals(oldItem.getSeverity(), newItem.getSeverity())
+                || !Objects.equals(oldItem.getIconType(), newItem.getIconType())
+                || !Objects.equals(oldItem.getTimestamp(), newItem.getTimestamp())) {
+            flags |= PAYLOAD_CONTENT;
+        }
+        return flags;
     }
 
     /**
-     * Actualizar la lista de alertas
+     * Actualizar la lista de alertas; el diff se calcula en segundo plano
      */
     public void updateAlerts(List<Alert> newAlerts) {
         if (newAlerts != null) {
-            this.alerts = newAlerts;
-            notifyDataSetChanged();
+            submitList(new ArrayList<>(newAlerts));
         }
     }
 
@@ -63,14 +108,57 @@ public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.AlertViewH
     @Override
     public AlertViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.item_alert, parent, false);
-        return new AlertViewHolder(view);
+        AlertViewHolder holder = new AlertViewHolder(view);
+
+        // Click en la tarjeta (se resuelve la alerta actual de la posición)
+        holder.cardView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (listener != null && position != RecyclerView.NO_POSITION) {
+                listener.onAlertClick(getItem(position));
+            }
+        });
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull AlertViewHolder holder, int position) {
-        Alert alert = alerts.get(position);
+        Alert alert = getItem(position);
+        bindContent(holder, alert);
+        bindReadState(holder, alert);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull AlertViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
 
-        // Configurar título y mensaje
+        int flags = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof Integer) {
+                flags |= (Integer) payload;
+            }
+        }
+
+        Alert alert = getItem(position);
+        if ((flags & PAYLOAD_CONTENT) != 0) {
+            bindContent(holder, alert);
+        }
+        if ((flags & PAYLOAD_READ) != 0) {
+            bindReadState(holder, alert);
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
+    }
+
+    /**
+     * Configurar título, mensaje, tiempo e ícono
+     */
+    private void bindContent(AlertViewHolder holder, Alert alert) {
         holder.tvTitle.setText(alert.getTitle());
         holder.tvMessage.setText(alert.getMessage());
 
@@ -79,8 +167,12 @@ public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.AlertViewH
 
         // Configurar ícono según el tipo de alerta
         configureIcon(holder, alert);
+    }
 
-        // Configurar estado de lectura
+    /**
+     * Configurar estado de lectura
+     */
+    private void bindReadState(AlertViewHolder holder, Alert alert) {
         if (alert.isRead()) {
             holder.cardView.setAlpha(0.6f);
             holder.ivIndicator.setVisibility(View.GONE);
@@ -88,18 +180,6 @@ public class AlertsAdapter extends RecyclerView.Adapter<AlertsAdapter.AlertViewH
             holder.cardView.setAlpha(1.0f);
             holder.ivIndicator.setVisibility(View.VISIBLE);
         }
-
-        // Click en la tarjeta
-        holder.cardView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onAlertClick(alert);
-            }
-        });
-    }
-
-    @Override
-    public int getItemCount() {
-        return alerts != null ? alerts.size() : 0;
     }
 
     /**
@@ -6,29 +6,109 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.devst.mimaseterointeligente.R;
+import com.devst.mimaseterointeligente.managers.DevicePresenceManager;
 import com.devst.mimaseterointeligente.models.Device;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
- * Adapter para mostrar lista de dispositivos ESP32 disponibles
+ * Adapter para mostrar lista de dispositivos ESP32 disponibles.
+ * Cada cambio en Firebase publica una lista nueva; el diff se calcula en
+ * segundo plano y solo se actualiza el estado de las tarjetas afectadas.
+ * El estado online se consulta en DevicePresenceManager; sus cambios llegan
+ * por notifyPresenceChanged.
  */
-public class DeviceAdapter extends RecyclerView.Adapter<DeviceAdapter.DeviceViewHolder> {
+public class DeviceAdapter extends ListAdapter<Device, DeviceAdapter.DeviceViewHolder> {
+
+    // Payloads para actualizaciones parciales (se combinan como bits)
+    private static final int PAYLOAD_NAME = 1;
+    private static final int PAYLOAD_STATUS = 1 << 1;
+
+    private static final DiffUtil.ItemCallback<Device> DIFF_CALLBACK = new DiffUtil.ItemCallback<Device>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Device oldItem, @NonNull Device newItem) {
+            return Objects.equals(oldItem.getDeviceId(), newItem.getDeviceId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Device oldItem, @NonNull Device newItem) {
+            return getChangeFlags(oldItem, newItem) == 0;
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(@NonNull Device oldItem, @NonNull Device newItem) {
+            return getChangeFlags(oldItem, newItem);
+        }
+    };
 
-    private List<Device> deviceList;
     private OnDeviceClickListener listener;
 
     public interface OnDeviceClickListener {
         void onDeviceClick(Device device);
     }
 
-    public DeviceAdapter(List<Device> deviceList, OnDeviceClickListener listener) {
-        this.deviceList = deviceList;
+    public DeviceAdapter(OnDeviceClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        // Sin IDs estables: los IDs de ESP32 son cadenas y DiffUtil ya
+        // identifica cada tarjeta por deviceId
+    }
+
+    /**
+     * Calcular qué partes de la tarjeta cambiaron entre dos versiones del dispositivo
+     */
+    private static int getChangeFlags(Device oldItem, Device newItem) {
+        int flags = 0;
+        if (!Objects.equals(oldItem.getDeviceName(), newItem.getDeviceName())) {
+            flags |= PAYLOAD_NAME;
+        }
+        if (oldItem.isAvailable() != newItem.isAvailable()) {
+            flags |= PAYLOAD_STATUS;
+        }
+        return flags;
+    }
+
+    /**
+     * Indica si el cambio de un dispositivo se ve en su tarjeta
+     * (ej: un latido que solo actualiza last_seen no cambia nada visible)
+     */
+    public static boolean hasVisibleChanges(Device oldItem, Device newItem) {
+        return getChangeFlags(oldItem, newItem) != 0;
+    }
+
+    /**
+     * Actualizar solo el estado de la tarjeta de un dispositivo que cambió de online/offline
+     */
+    public void notifyPresenceChanged(String deviceId) {
+        List<Device> devices = getCurrentList();
+        for (int i = 0; i < devices.size(); i++) {
+            if (Objects.equals(devices.get(i).getDeviceId(), deviceId)) {
+                notifyItemChanged(i, PAYLOAD_STATUS);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Texto de estado según la presencia del dispositivo
+     */
+    static String getStatusText(Device device, boolean online) {
+        if (!online) {
+            return "Offline";
+        } else if (!device.isAvailable()) {
+            return "En uso";
+        } else {
+            return "Disponible";
+        }
     }
 
     @NonNull
@@ -36,18 +116,44 @@ public class DeviceAdapter extends RecyclerView.Adapter<DeviceAdapter.DeviceView
     public DeviceViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_device, parent, false);
-        return new DeviceViewHolder(view);
+        DeviceViewHolder holder = new DeviceViewHolder(view);
+
+        // Click listener (se resuelve el dispositivo actual de la posición)
+        holder.cardView.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (listener != null && position != RecyclerView.NO_POSITION) {
+                listener.onDeviceClick(getItem(position));
+            }
+        });
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull DeviceViewHolder holder, int position) {
-        Device device = deviceList.get(position);
-        holder.bind(device, listener);
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return deviceList.size();
+    public void onBindViewHolder(@NonNull DeviceViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        int flags = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof Integer) {
+                flags |= (Integer) payload;
+            }
+        }
+
+        Device device = getItem(position);
+        if ((flags & PAYLOAD_NAME) != 0) {
+            holder.bindName(device);
+        }
+        if ((flags & PAYLOAD_STATUS) != 0) {
+            holder.bindStatus(device);
+        }
     }
 
     /**
@@ -68,32 +174,32 @@ public class DeviceAdapter extends RecyclerView.Adapter<DeviceAdapter.DeviceView
             tvStatus = itemView.findViewById(R.id.tvStatus);
         }
 
-        public void bind(Device device, OnDeviceClickListener listener) {
+        public void bind(Device device) {
+            bindName(device);
+            bindStatus(device);
+        }
+
+        void bindName(Device device) {
             tvDeviceName.setText(device.getDeviceName());
             tvDeviceId.setText("ID: " + device.getDeviceId());
+        }
 
-            // Configurar estado
-            String statusText = device.getStatusText();
-            tvStatus.setText(statusText);
+        void bindStatus(Device device) {
+            // Configurar estado (presencia en memoria, O(1))
+            boolean online = DevicePresenceManager.getInstance().isOnline(device.getDeviceId());
+            tvStatus.setText(getStatusText(device, online));
 
             // Color según estado
-            if (device.isOnline() && device.isAvailable()) {
+            if (online && device.isAvailable()) {
                 tvStatus.setTextColor(itemView.getContext().getResources().getColor(android.R.color.holo_green_dark));
                 cardView.setCardBackgroundColor(itemView.getContext().getResources().getColor(android.R.color.white));
-            } else if (!device.isOnline()) {
+            } else if (!online) {
                 tvStatus.setTextColor(itemView.getContext().getResources().getColor(android.R.color.darker_gray));
                 cardView.setCardBackgroundColor(itemView.getContext().getResources().getColor(android.R.color.background_light));
             } else {
                 tvStatus.setTextColor(itemView.getContext().getResources().getColor(android.R.color.holo_orange_dark));
                 cardView.setCardBackgroundColor(itemView.getContext().getResources().getColor(android.R.color.background_light));
             }
-
-            // Click listener
-            cardView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onDeviceClick(device);
-                }
-            });
         }
     }
 }
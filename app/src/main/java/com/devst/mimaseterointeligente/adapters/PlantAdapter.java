@@ -10,29 +10,116 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.devst.mimaseterointeligente.R;
 import com.devst.mimaseterointeligente.activities.PlantDashboardActivity;
+import com.devst.mimaseterointeligente.managers.DevicePresenceManager;
 import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.models.SensorData;
+import com.devst.mimaseterointeligente.utils.PlantImageStore;
+import com.devst.mimaseterointeligente.utils.SensorStatusHelper;
 import com.google.android.material.card.MaterialCardView;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
- * Adapter para mostrar plantas en RecyclerView
+ * Adapter para mostrar plantas en RecyclerView.
+ * Usa DiffUtil (calculado en segundo plano por ListAdapter) para volver a
+ * enlazar solo las tarjetas que cambiaron, y payloads para actualizar solo
+ * la parte modificada de cada tarjeta.
+ * Cada tarjeta muestra además un indicador de salud calculado con
+ * SensorStatusHelper a partir de la última lectura de la planta.
+ * Las plantas conectadas muestran si su dispositivo está online según
+ * DevicePresenceManager.
  */
-public class PlantAdapter extends RecyclerView.Adapter<PlantAdapter.PlantViewHolder> {
+public class PlantAdapter extends ListAdapter<PlantAdapter.PlantCard, PlantAdapter.PlantViewHolder> {
+
+    // Payloads para actualizaciones parciales (se combinan como bits)
+    private static final int PAYLOAD_NAME = 1;
+    private static final int PAYLOAD_TYPE = 1 << 1;
+    private static final int PAYLOAD_CONNECTION = 1 << 2;
+    private static final int PAYLOAD_IMAGE = 1 << 3;
+    private static final int PAYLOAD_HEALTH = 1 << 4;
+
+    private static final DiffUtil.ItemCallback<PlantCard> DIFF_CALLBACK = new DiffUtil.ItemCallback<PlantCard>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull PlantCard oldItem, @NonNull PlantCard newItem) {
+            return oldItem.plant.getId() == newItem.plant.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull PlantCard oldItem, @NonNull PlantCard newItem) {
+            return getChangeFlags(oldItem, newItem) == 0;
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(@NonNull PlantCard oldItem, @NonNull PlantCard newItem) {
+            return getChangeFlags(oldItem, newItem);
+        }
+    };
+
+    /**
+     * Elemento de la lista: planta más el estado de su última lectura (null si no hay datos)
+     */
+    public static class PlantCard {
+        final Plant plant;
+        @Nullable final SensorStatusHelper.SensorStatus health;
+
+        PlantCard(Plant plant, @Nullable SensorStatusHelper.SensorStatus health) {
+            this.plant = plant;
+            this.health = health;
+        }
+
+        public Plant getPlant() {
+            return plant;
+        }
+    }
 
     private Context context;
-    private List<Plant> plantList;
+    private final int thumbnailSize;
 
     public PlantAdapter(Context context) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.plantList = new ArrayList<>();
+        this.thumbnailSize = context.getResources().getDimensionPixelSize(R.dimen.plant_thumbnail_size);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Calcular qué partes de la tarjeta cambiaron entre dos versiones de la planta
+     */
+    private static int getChangeFlags(PlantCard oldCard, PlantCard newCard) {
+        Plant oldItem = oldCard.plant;
+        Plant newItem = newCard.plant;
+        int flags = 0;
+        if (!Objects.equals(oldItem.getName(), newItem.getName())) {
+            flags |= PAYLOAD_NAME;
+        }
+        if (!Objects.equals(oldItem.getType(), newItem.getType())) {
+            flags |= PAYLOAD_TYPE;
+        }
+        if (oldItem.isConnected() != newItem.isConnected()) {
+            flags |= PAYLOAD_CONNECTION;
+        }
+        if (!Objects.equals(oldItem.getImageUrl(), newItem.getImageUrl())) {
+            flags |= PAYLOAD_IMAGE;
+        }
+        String oldHealth = oldCard.health != null ? oldCard.health.getStatus() : null;
+        String newHealth = newCard.health != null ? newCard.health.getStatus() : null;
+        if (!Objects.equals(oldHealth, newHealth)) {
+            flags |= PAYLOAD_HEALTH;
+        }
+        return flags;
     }
 
     @NonNull
@@ -44,25 +131,73 @@ public class PlantAdapter extends RecyclerView.Adapter<PlantAdapter.PlantViewHol
 
     @Override
     public void onBindViewHolder(@NonNull PlantViewHolder holder, int position) {
-        Plant plant = plantList.get(position);
-        holder.bind(plant);
+        holder.bind(getItem(position));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PlantViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+
+        int flags = 0;
+        for (Object payload : payloads) {
+            if (payload instanceof Integer) {
+                flags |= (Integer) payload;
+            }
+        }
+        holder.bindPartial(getItem(position), flags);
     }
 
     @Override
-    public int getItemCount() {
-        return plantList.size();
+    public long getItemId(int position) {
+        return getItem(position).plant.getId();
     }
 
+    /**
+     * Publicar una nueva lista sin datos de sensores
+     */
     public void setPlants(List<Plant> plants) {
-        this.plantList.clear();
+        setPlants(plants, null);
+    }
+
+    /**
+     * Publicar una nueva lista junto con la última lectura de cada planta
+     * (obtenidas con una sola consulta); el diff se calcula en segundo plano
+     */
+    public void setPlants(List<Plant> plants, @Nullable Map<Integer, SensorData> latestReadings) {
+        List<PlantCard> cards = new ArrayList<>();
         if (plants != null) {
-            this.plantList.addAll(plants);
+            for (Plant plant : plants) {
+                SensorData reading = latestReadings != null ? latestReadings.get(plant.getId()) : null;
+                SensorStatusHelper.SensorStatus health = reading != null
+                        ? SensorStatusHelper.evaluateOverallStatus(plant, reading)
+                        : null;
+                cards.add(new PlantCard(plant, health));
+            }
+        }
+        submitList(cards);
+    }
+
+    /**
+     * Actualizar solo el indicador de conexión de las plantas del dispositivo
+     */
+    public void notifyPresenceChanged(String deviceId) {
+        List<PlantCard> cards = getCurrentList();
+        for (int i = 0; i < cards.size(); i++) {
+            if (Objects.equals(cards.get(i).plant.getDeviceId(), deviceId)) {
+                notifyItemChanged(i, PAYLOAD_CONNECTION);
+            }
         }
-        notifyDataSetChanged();
     }
 
     public List<Plant> getPlants() {
-        return plantList;
+        List<Plant> plants = new ArrayList<>();
+        for (PlantCard card : getCurrentList()) {
+            plants.add(card.plant);
+        }
+        return plants;
     }
 
     class PlantViewHolder extends RecyclerView.ViewHolder {
@@ -73,6 +208,7 @@ public class PlantAdapter extends RecyclerView.Adapter<PlantAdapter.PlantViewHol
         TextView tvPlantType;
         View viewConnectionIndicator;
         TextView tvConnectionStatus;
+        TextView tvHealthBadge;
 
         public PlantViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -82,69 +218,105 @@ public class PlantAdapter extends RecyclerView.Adapter<PlantAdapter.PlantViewHol
             tvPlantType = itemView.findViewById(R.id.tvPlantType);
             viewConnectionIndicator = itemView.findViewById(R.id.viewConnectionIndicator);
             tvConnectionStatus = itemView.findViewById(R.id.tvConnectionStatus);
+            tvHealthBadge = itemView.findViewById(R.id.tvHealthBadge);
+
+            // El listener se crea una vez y consulta la planta actual de la posición
+            cardPlant.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) return;
+
+                Intent intent = new Intent(context, PlantDashboardActivity.class);
+                intent.putExtra("plant_id", getItem(position).plant.getId());
+                context.startActivity(intent);
+            });
         }
 
-        public void bind(Plant plant) {
+        public void bind(PlantCard card) {
+            bindName(card.plant);
+            bindType(card.plant);
+            bindConnection(card.plant);
+            bindImage(card.plant);
+            bindHealth(card.health);
+        }
+
+        /**
+         * Actualizar solo las partes indicadas por los payloads
+         */
+        void bindPartial(PlantCard card, int flags) {
+            if ((flags & PAYLOAD_NAME) != 0) bindName(card.plant);
+            if ((flags & PAYLOAD_TYPE) != 0) bindType(card.plant);
+            if ((flags & PAYLOAD_CONNECTION) != 0) bindConnection(card.plant);
+            if ((flags & PAYLOAD_IMAGE) != 0) bindImage(card.plant);
+            if ((flags & PAYLOAD_HEALTH) != 0) bindHealth(card.health);
+        }
+
+        private void bindHealth(@Nullable SensorStatusHelper.SensorStatus health) {
+            if (health == null) {
+                // Sin lecturas guardadas para esta planta
+                tvHealthBadge.setVisibility(View.GONE);
+                return;
+            }
+
+            if (health.isCritical()) {
+                tvHealthBadge.setText("Crítico");
+            } else if (health.isWarning()) {
+                tvHealthBadge.setText("Atención");
+            } else {
+                tvHealthBadge.setText("Saludable");
+            }
+            tvHealthBadge.setBackgroundTintList(ColorStateList.valueOf(health.getColor()));
+            tvHealthBadge.setVisibility(View.VISIBLE);
+        }
+
+        private void bindName(Plant plant) {
             tvPlantName.setText(plant.getName());
+        }
 
+        private void bindType(Plant plant) {
             if (plant.getType() != null && !plant.getType().isEmpty()) {
                 tvPlantType.setText(plant.getType());
                 tvPlantType.setVisibility(View.VISIBLE);
             } else {
                 tvPlantType.setVisibility(View.GONE);
             }
+        }
 
+        private void bindConnection(Plant plant) {
             // Usar ContextCompat para obtener los colores de forma segura y compatible
-            if (plant.isConnected()) {
+            if (plant.isConnected()
+                    && DevicePresenceManager.getInstance().isOnline(plant.getDeviceId())) {
                 ColorStateList colorConnected = ContextCompat.getColorStateList(context, R.color.green_primary);
                 viewConnectionIndicator.setBackgroundTintList(colorConnected);
                 tvConnectionStatus.setText("Conectada");
+            } else if (plant.isConnected()) {
+                // Tiene dispositivo asignado pero no envía latidos
+                ColorStateList colorOffline = ContextCompat.getColorStateList(context, R.color.alert_warning);
+                viewConnectionIndicator.setBackgroundTintList(colorOffline);
+                tvConnectionStatus.setText("Dispositivo offline");
             } else {
                 ColorStateList colorDisconnected = ContextCompat.getColorStateList(context, R.color.text_disabled);
                 viewConnectionIndicator.setBackgroundTintList(colorDisconnected);
                 tvConnectionStatus.setText("Sin conexión");
             }
+        }
 
-            // Cargar imagen con manejo robusto de errores
-            try {
-                if (plant.getImageUrl() != null && !plant.getImageUrl().isEmpty()) {
-                    // Intentar cargar la imagen (puede ser una ruta local o una URI)
-                    Object imageSource;
-                    if (plant.getImageUrl().startsWith("/")) {
-                        // Es una ruta de archivo local
-                        imageSource = new java.io.File(plant.getImageUrl());
-                    } else if (plant.getImageUrl().startsWith("file://")) {
-                        // Es una URI de archivo
-                        imageSource = android.net.Uri.parse(plant.getImageUrl());
-                    } else if (plant.getImageUrl().startsWith("content://")) {
-                        // Es una URI de contenido (puede no funcionar si no hay permisos)
-                        imageSource = android.net.Uri.parse(plant.getImageUrl());
-                    } else {
-                        // Formato desconocido, usar imagen por defecto
-                        ivPlantIcon.setImageResource(R.drawable.ic_plant);
-                        return;
-                    }
-
-                    Glide.with(context)
-                        .load(imageSource)
-                        .placeholder(R.drawable.ic_plant)
-                        .error(R.drawable.ic_plant)
-                        .circleCrop()
-                        .into(ivPlantIcon);
-                } else {
-                    // Sin imagen, usar imagen por defecto
-                    ivPlantIcon.setImageResource(R.drawable.ic_plant);
-                }
-            } catch (Exception e) {
-                // Si hay cualquier error, usar imagen por defecto
+        private void bindImage(Plant plant) {
+            // Usar la miniatura generada al guardar; nunca decodificar el original completo
+            Object imageSource = PlantImageStore.getThumbnailSource(plant.getImageUrl());
+            if (imageSource == null) {
+                // Sin imagen o formato desconocido, usar imagen por defecto
+                Glide.with(context).clear(ivPlantIcon);
                 ivPlantIcon.setImageResource(R.drawable.ic_plant);
+                return;
             }
 
-            cardPlant.setOnClickListener(v -> {
-                Intent intent = new Intent(context, PlantDashboardActivity.class);
-                intent.putExtra("plant_id", plant.getId());
-                context.startActivity(intent);
-            });
+            Glide.with(context)
+                .load(imageSource)
+                .override(thumbnailSize)
+                .placeholder(R.drawable.ic_plant)
+                .error(R.drawable.ic_plant)
+                .circleCrop()
+                .into(ivPlantIcon);
         }
     }
 }
@@ -1,5 +1,7 @@
 package com.devst.mimaseterointeligente.api;
 
+import com.devst.mimaseterointeligente.BuildConfig;
+
 public class ApiConfig {
 
     // ==================== ARDUINO API ====================
@@ -74,9 +76,10 @@ public class ApiConfig {
     // ==================== CONFIGURACIÓN GENERAL ====================
 
     /**
-     * Habilitar logs de Retrofit (para debug)
+     * Habilitar logs de Retrofit (solo en debug: el nivel BODY arma un
+     * string con cada respuesta)
      */
-    public static final boolean ENABLE_LOGGING = true;
+    public static final boolean ENABLE_LOGGING = BuildConfig.DEBUG;
 
     /**
      * Intervalo de actualización de sensores (en milisegundos)
@@ -84,11 +87,63 @@ public class ApiConfig {
      */
     public static final long SENSOR_UPDATE_INTERVAL = 30000; // 30 segundos
 
+    /**
+     * Cuánto puede adelantarse una actualización para agruparse con otras
+     * tareas de red (ver NetworkTaskCoordinator)
+     */
+    public static final long SENSOR_UPDATE_TOLERANCE = 10000; // 10 segundos
+
+    /**
+     * Revisión de sensores mientras la app está visible en cualquier pantalla
+     * (en milisegundos). El dashboard de una planta usa SENSOR_UPDATE_INTERVAL.
+     */
+    public static final long MONITOR_FOREGROUND_INTERVAL = 300000; // 5 minutos
+    public static final long MONITOR_FOREGROUND_TOLERANCE = 120000; // Puede adelantarse 2 minutos
+
+    /**
+     * Sincronización incremental automática mientras la app está visible
+     * (en milisegundos)
+     */
+    public static final long DELTA_SYNC_INTERVAL = 900000; // 15 minutos
+    public static final long DELTA_SYNC_TOLERANCE = 300000; // Puede adelantarse 5 minutos
+
+    /**
+     * Intervalo del monitoreo en segundo plano (en minutos)
+     * 15 minutos es el mínimo que permite WorkManager para trabajo periódico
+     */
+    public static final long SENSOR_BACKGROUND_INTERVAL_MINUTES = 15;
+
+    /**
+     * Ventana flexible al final de cada intervalo en segundo plano: el sistema
+     * puede ejecutar el trabajo junto con el de otras apps (en minutos)
+     */
+    public static final long SENSOR_BACKGROUND_FLEX_MINUTES = 5;
+
+    /**
+     * Antigüedad a partir de la cual las lecturas se archivan en bloques
+     * comprimidos (en días). El gráfico las sigue mostrando.
+     */
+    public static final long SENSOR_ARCHIVE_AFTER_DAYS = 7;
+
     /**
      * Intervalo de actualización del clima (en milisegundos)
      * 1800000 ms = 30 minutos
      */
     public static final long WEATHER_UPDATE_INTERVAL = 1800000; // 30 minutos
+    public static final long WEATHER_UPDATE_TOLERANCE = 300000; // Puede adelantarse 5 minutos
+
+    /**
+     * Ubicación por defecto para el clima si el usuario no configuró otra
+     * (Santiago, Chile)
+     */
+    public static final double DEFAULT_LATITUDE = -33.4489;
+    public static final double DEFAULT_LONGITUDE = -70.6693;
+
+    /**
+     * Espera máxima del splash mientras se prepara el inicio (en milisegundos).
+     * Si la base de datos o las plantas tardan más, la app continúa igual.
+     */
+    public static final long STARTUP_MAX_WAIT_MS = 800;
 
     /**
      * Máximo de reintentos en caso de error
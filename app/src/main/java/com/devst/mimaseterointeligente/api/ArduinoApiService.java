@@ -2,8 +2,10 @@ package com.devst.mimaseterointeligente.api;
 
 import com.devst.mimaseterointeligente.models.ArduinoResponse;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.Body;
 import retrofit2.http.Query;
@@ -37,6 +39,15 @@ public interface ArduinoApiService {
     @GET("api/sensors")
     Call<ArduinoResponse> getSensorData();
 
+    /**
+     * Mismo endpoint sin convertir: el monitoreo mide por separado la
+     * descarga y el parseo del JSON (ver SensorMonitorWorker).
+     * El id de correlación de la lectura viaja en un header, así aparece en
+     * el log de OkHttp y el firmware puede registrarlo.
+     */
+    @GET("api/sensors")
+    Call<ResponseBody> getSensorDataRaw(@Header("X-Correlation-Id") String correlationId);
+
     /**
      * Obtener status del dispositivo Arduino
      *
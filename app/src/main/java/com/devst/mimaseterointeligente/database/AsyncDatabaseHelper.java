@@ -0,0 +1,232 @@
+package com.devst.mimaseterointeligente.database;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.devst.mimaseterointeligente.models.Alert;
+import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.models.SensorData;
+import com.devst.mimaseterointeligente.models.SensorHistory;
+import com.devst.mimaseterointeligente.models.User;
+import com.devst.mimaseterointeligente.utils.AppLog;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Acceso asíncrono a DatabaseHelper.
+ * Todas las consultas se ejecutan en un hilo de fondo dedicado y el resultado
+ * se entrega en el hilo principal, evitando bloquear la UI.
+ *
+ * Se usa un único hilo para que las operaciones se apliquen en el mismo orden
+ * en que se solicitan (ej: marcar alerta como leída y luego recargar la lista).
+ */
+public class AsyncDatabaseHelper {
+
+    private static final String TAG = "AsyncDatabaseHelper";
+    private static AsyncDatabaseHelper instance;
+
+    private final DatabaseHelper dbHelper;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+
+    /**
+     * Resultado de una operación entregado en el hilo principal
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Exception e) {
+            AppLog.e(TAG, "Error en operación de base de datos", e);
+        }
+    }
+
+    /**
+     * Operación a ejecutar en el hilo de base de datos
+     */
+    public interface DatabaseTask<T> {
+        T run(DatabaseHelper db) throws Exception;
+    }
+
+    private AsyncDatabaseHelper(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "masetero-db");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Obtener instancia singleton
+     */
+    public static synchronized AsyncDatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new AsyncDatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Ejecutar una operación arbitraria en el hilo de base de datos.
+     * Útil para combinar varias consultas (o trabajo de CPU como el hash de
+     * contraseñas) en una sola tarea de fondo.
+     * @param task Operación a ejecutar
+     * @param callback Callback en el hilo principal (puede ser null)
+     */
+    public <T> Future<?> execute(DatabaseTask<T> task, Callback<T> callback) {
+        return executor.submit(() -> {
+            try {
+                T result = task.run(dbHelper);
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onResult(result));
+                }
+            } catch (Exception e) {
+                AppLog.e(TAG, "Error ejecutando tarea: %s", e.getMessage());
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onError(e));
+                }
+            }
+        });
+    }
+
+    // ========== OPERACIONES DE USUARIOS ==========
+
+    public Future<?> createUser(User user, Callback<Long> callback) {
+        return execute(db -> db.createUser(user), callback);
+    }
+
+    public Future<?> getUserByEmail(String email, Callback<User> callback) {
+        return execute(db -> db.getUserByEmail(email), callback);
+    }
+
+    public Future<?> updateUser(User user, Callback<Integer> callback) {
+        return execute(db -> db.updateUser(user), callback);
+    }
+
+    public Future<?> emailExists(String email, Callback<Boolean> callback) {
+        return execute(db -> db.emailExists(email), callback);
+    }
+
+    public Future<?> updatePassword(String email, String hashedPassword, Callback<Boolean> callback) {
+        return execute(db -> db.updatePassword(email, hashedPassword), callback);
+    }
+
+    // ========== OPERACIONES DE PLANTAS ==========
+
+    public Future<?> createPlant(Plant plant, Callback<Long> callback) {
+        return execute(db -> db.createPlant(plant), callback);
+    }
+
+    public Future<?> getUserPlants(int userId, Callback<List<Plant>> callback) {
+        return execute(db -> db.getUserPlants(userId), callback);
+    }
+
+    public Future<?> getPlantsByUserId(int userId, Callback<List<Plant>> callback) {
+        return execute(db -> db.getPlantsByUserId(userId), callback);
+    }
+
+    public Future<?> getPlantsCountByUserId(int userId, Callback<Integer> callback) {
+        return execute(db -> db.getPlantsCountByUserId(userId), callback);
+    }
+
+    public Future<?> getPlantById(int plantId, Callback<Plant> callback) {
+        return execute(db -> db.getPlantById(plantId), callback);
+    }
+
+    public Future<?> getConnectedPlants(Callback<List<Plant>> callback) {
+        return execute(db -> db.getConnectedPlants(), callback);
+    }
+
+    public Future<?> updatePlant(Plant plant, Callback<Integer> callback) {
+        return execute(db -> db.updatePlant(plant), callback);
+    }
+
+    public Future<?> deletePlant(int plantId, Callback<Void> callback) {
+        return execute(db -> {
+            db.deletePlant(plantId);
+            return null;
+        }, callback);
+    }
+
+    // ========== OPERACIONES DE SENSORES ==========
+
+    public Future<?> insertSensorData(SensorData data, Callback<Long> callback) {
+        return execute(db -> db.insertSensorData(data), callback);
+    }
+
+    public Future<?> getLatestSensorData(int plantId, Callback<SensorData> callback) {
+        return execute(db -> db.getLatestSensorData(plantId), callback);
+    }
+
+    public Future<?> getSensorHistory(int plantId, long fromMillis, long toMillis, int maxPoints,
+                                      Callback<SensorHistory> callback) {
+        return execute(db -> db.getSensorHistory(plantId, fromMillis, toMillis, maxPoints), callback);
+    }
+
+    public Future<?> getLatestSensorDataByUser(int userId, Callback<Map<Integer, SensorData>> callback) {
+        return execute(db -> db.getLatestSensorDataByUser(userId), callback);
+    }
+
+    // ========== OPERACIONES DE ALERTAS ==========
+
+    public Future<?> createAlert(Alert alert, Callback<Long> callback) {
+        return execute(db -> db.createAlert(alert), callback);
+    }
+
+    public Future<?> getAllAlerts(Callback<List<Alert>> callback) {
+        return execute(db -> db.getAllAlerts(), callback);
+    }
+
+    public Future<?> getUnreadAlerts(Callback<List<Alert>> callback) {
+        return execute(db -> db.getUnreadAlerts(), callback);
+    }
+
+    public Future<?> getUnreadAlertsCount(Callback<Integer> callback) {
+        return execute(db -> db.getUnreadAlertsCount(), callback);
+    }
+
+    public Future<?> markAlertAsRead(int alertId, Callback<Void> callback) {
+        return execute(db -> {
+            db.markAlertAsRead(alertId);
+            return null;
+        }, callback);
+    }
+
+    // ========== MANTENIMIENTO ==========
+
+    public Future<?> clearAllTables(Callback<Void> callback) {
+        return execute(db -> {
+            db.clearAllTables();
+            return null;
+        }, callback);
+    }
+
+    public Future<?> getTableStats(Callback<Map<String, Integer>> callback) {
+        return execute(db -> db.getTableStats(), callback);
+    }
+
+    /**
+     * Respaldo completo en un archivo JSON gzip (ver DatabaseBackup)
+     */
+    public Future<?> exportBackup(File file, Callback<Long> callback) {
+        return execute(db -> DatabaseBackup.export(db, file), callback);
+    }
+
+    /**
+     * Reemplazar los datos locales por los de un respaldo
+     */
+    public Future<?> restoreBackup(File file, Callback<Long> callback) {
+        return execute(db -> DatabaseBackup.restore(db, file), callback);
+    }
+}
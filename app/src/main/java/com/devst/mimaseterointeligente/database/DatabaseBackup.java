@@ -0,0 +1,451 @@
+package com.devst.mimaseterointeligente.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Base64;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respaldo local de la base de datos en un archivo JSON comprimido con gzip.
+ *
+ * El archivo se escribe y se lee en streaming, tabla por tabla, con
+ * JsonWriter/JsonReader: la memoria usada no depende del tamaño de la base
+ * de datos (a lo más una página de PAGE_SIZE filas en el cursor).
+ *
+ *   {"format": "masetero-backup", "version": 1, "schema": 7, "created_at": ...,
+ *    "tables": {"users": [{"id": 1, "name": "...", ...}, ...], "plants": [...], ...}}
+ *
+ * Los valores conservan su tipo (entero, decimal, texto o null; los BLOB de
+ * sensor_blocks van en Base64). Las tablas van en orden de dependencia
+ * (usuarios → plantas → lecturas/alertas/bloques archivados).
+ */
+public class DatabaseBackup {
+
+    private static final String TAG = "DatabaseBackup";
+
+    public static final String FORMAT = "masetero-backup";
+    public static final int VERSION = 1;
+
+    private static final String BACKUP_DIR = "backups";
+    private static final String BACKUP_FILE = "masetero-backup.json.gz";
+    private static final String KEY_ID = "id";
+
+    // Tablas sincronizadas más el archivo de lecturas, que solo existe localmente
+    private static final String[] TABLES = {"users", "plants", "sensor_data", "alerts",
+            DatabaseHelper.TABLE_SENSOR_BLOCKS};
+
+    private static final int PAGE_SIZE = 500;   // Filas por consulta al exportar
+    private static final int BATCH_SIZE = 500;  // Filas por transacción al restaurar
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private DatabaseBackup() {
+    }
+
+    /**
+     * Archivo de respaldo por defecto (almacenamiento interno de la app)
+     */
+    public static File defaultFile(Context context) {
+        return new File(new File(context.getFilesDir(), BACKUP_DIR), BACKUP_FILE);
+    }
+
+    // ==================== EXPORTAR ====================
+
+    /**
+     * Escribir todas las tablas en el archivo. Se escribe en un
+     * archivo temporal y se renombra al terminar, así un respaldo a medias
+     * nunca reemplaza al anterior.
+     * @return Cantidad de filas exportadas
+     */
+    public static long export(DatabaseHelper helper, File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("No se pudo crear " + parent);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        SQLiteDatabase db = helper.getReadableDatabase();
+        long start = MetricsRegistry.start();
+        long total = 0;
+
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE)), StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("format").value(FORMAT);
+            writer.name("version").value(VERSION);
+            writer.name("schema").value(db.getVersion());
+            writer.name("created_at").value(System.currentTimeMillis());
+
+            writer.name("tables").beginObject();
+            for (String table : TABLES) {
+                writer.name(table);
+                long rows = exportTable(db, table, writer);
+                AppLog.d(TAG, "%s: %d filas exportadas", table, rows);
+                total += rows;
+            }
+            writer.endObject();
+            writer.endObject();
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("No se pudo reemplazar " + file);
+        }
+        MetricsRegistry.recordThroughput("backup.export", total, start);
+        return total;
+    }
+
+    /**
+     * Escribir una tabla como arreglo de objetos, paginando por id
+     */
+    private static long exportTable(SQLiteDatabase db, String table, JsonWriter writer) throws IOException {
+        writer.beginArray();
+        long rows = 0;
+        long lastId = Long.MIN_VALUE;
+        int count;
+        do {
+            count = 0;
+            try (Cursor cursor = db.query(table, null, KEY_ID + " > ?",
+                    new String[]{String.valueOf(lastId)}, null, null, KEY_ID, String.valueOf(PAGE_SIZE))) {
+                int idColumn = cursor.getColumnIndexOrThrow(KEY_ID);
+                while (cursor.moveToNext()) {
+                    writeRow(cursor, writer);
+                    lastId = cursor.getLong(idColumn);
+                    count++;
+                }
+            }
+            rows += count;
+        } while (count == PAGE_SIZE);
+        writer.endArray();
+        return rows;
+    }
+
+    private static void writeRow(Cursor cursor, JsonWriter writer) throws IOException {
+        writer.beginObject();
+        for (int i = 0; i < cursor.getColumnCount(); i++) {
+            writer.name(cursor.getColumnName(i));
+            switch (cursor.getType(i)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    writer.nullValue();
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    writer.value(cursor.getLong(i));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    double value = cursor.getDouble(i);
+                    // JSON no admite NaN ni infinito
+                    if (Double.isNaN(value) || Double.isInfinite(value)) {
+                        writer.nullValue();
+                    } else {
+                        writer.value(value);
+                    }
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    writer.value(Base64.encodeToString(cursor.getBlob(i), Base64.NO_WRAP));
+                    break;
+                default:
+                    writer.value(cursor.getString(i));
+                    break;
+            }
+        }
+        writer.endObject();
+    }
+
+    // ==================== RESTAURAR ====================
+
+    /**
+     * Reemplazar los datos locales por los del respaldo. El archivo se lee
+     * completo en una base de datos temporal (mismo esquema, sin triggers),
+     * así un archivo truncado o inválido no toca los datos actuales. Recién
+     * al terminar la lectura se limpian las tablas (como clearAllTables) y se
+     * copian las filas con su id original, todo en una sola transacción.
+     * Las escrituras no se registran en sync_changes: el respaldo no son
+     * cambios nuevos. Las columnas que no existen en el esquema actual se ignoran.
+     * @return Cantidad de filas restauradas
+     */
+    public static long restore(DatabaseHelper helper, File file) throws IOException {
+        long start = MetricsRegistry.start();
+        SQLiteDatabase db = helper.getWritableDatabase();
+        File stagingFile = new File(file.getPath() + ".restore.db");
+        SQLiteDatabase.deleteDatabase(stagingFile);
+        SQLiteDatabase staging = SQLiteDatabase.openOrCreateDatabase(stagingFile, null);
+        long total;
+
+        try {
+            createStagingTables(db, staging);
+            total = readBackup(staging, file);
+
+            // El respaldo se leyó completo: reemplazar los datos de una vez
+            db.beginTransaction();
+            try {
+                helper.clearAllTables();
+                helper.runWithoutChangeTracking(() -> {
+                    for (String table : TABLES) {
+                        copyTable(staging, db, table);
+                    }
+                });
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            staging.close();
+            SQLiteDatabase.deleteDatabase(stagingFile);
+        }
+
+        MetricsRegistry.recordThroughput("backup.restore", total, start);
+        return total;
+    }
+
+    /**
+     * Crear en la base temporal las tablas del respaldo con el esquema actual
+     */
+    private static void createStagingTables(SQLiteDatabase db, SQLiteDatabase staging) {
+        for (String table : TABLES) {
+            try (Cursor cursor = db.rawQuery("SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?",
+                    new String[]{table})) {
+                if (cursor.moveToFirst()) {
+                    staging.execSQL(cursor.getString(0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Leer el archivo completo en la base temporal
+     * @return Cantidad de filas leídas
+     */
+    private static long readBackup(SQLiteDatabase staging, File file) throws IOException {
+        long total = 0;
+        boolean validHeader = false;
+        boolean hasTables = false;
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new GZIPInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "format":
+                        if (!FORMAT.equals(reader.nextString())) {
+                            throw new IOException("El archivo no es un respaldo del masetero");
+                        }
+                        validHeader = true;
+                        break;
+                    case "version":
+                        int version = reader.nextInt();
+                        if (version > VERSION) {
+                            throw new IOException("Versión de respaldo no soportada: " + version);
+                        }
+                        break;
+                    case "tables":
+                        if (!validHeader) {
+                            throw new IOException("Respaldo sin encabezado");
+                        }
+                        total = restoreTables(staging, reader);
+                        hasTables = true;
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new IOException("Respaldo inválido: " + e.getMessage(), e);
+        }
+
+        // Un respaldo sin tablas dejaría la base vacía
+        if (!hasTables) {
+            throw new IOException("Respaldo sin tablas");
+        }
+        return total;
+    }
+
+    private static long restoreTables(SQLiteDatabase staging, JsonReader reader) throws IOException {
+        long total = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String table = reader.nextName();
+            if (!Arrays.asList(TABLES).contains(table)) {
+                AppLog.w(TAG, "Tabla desconocida en el respaldo: %s", table);
+                reader.skipValue();
+                continue;
+            }
+            long rows = restoreTable(staging, table, reader);
+            AppLog.d(TAG, "%s: %d filas leídas", table, rows);
+            total += rows;
+        }
+        reader.endObject();
+        return total;
+    }
+
+    /**
+     * Insertar en la base temporal las filas de una tabla, leyendo el
+     * arreglo de a BATCH_SIZE por transacción
+     */
+    private static long restoreTable(SQLiteDatabase staging, String table, JsonReader reader) throws IOException {
+        Map<String, Integer> columns = new HashMap<>();
+        Set<Integer> blobColumns = new HashSet<>();
+        long rows = 0;
+        try (SQLiteStatement insert = staging.compileStatement(insertSql(staging, table, columns, blobColumns))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                staging.beginTransaction();
+                try {
+                    for (int i = 0; i < BATCH_SIZE && reader.hasNext(); i++) {
+                        readRow(reader, insert, columns, blobColumns);
+                        insert.executeInsert();
+                        rows++;
+                    }
+                    staging.setTransactionSuccessful();
+                } finally {
+                    staging.endTransaction();
+                }
+            }
+            reader.endArray();
+        }
+        return rows;
+    }
+
+    /**
+     * INSERT con las columnas del esquema actual (los nombres del archivo no
+     * llegan al SQL). Llena la posición de cada columna y las que son BLOB.
+     */
+    private static String insertSql(SQLiteDatabase db, String table, Map<String, Integer> columns,
+                                    Set<Integer> blobColumns) {
+        StringBuilder names = new StringBuilder();
+        StringBuilder params = new StringBuilder();
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null)) {
+            int nameColumn = cursor.getColumnIndexOrThrow("name");
+            int typeColumn = cursor.getColumnIndexOrThrow("type");
+            while (cursor.moveToNext()) {
+                String column = cursor.getString(nameColumn);
+                columns.put(column, columns.size() + 1);
+                if ("BLOB".equalsIgnoreCase(cursor.getString(typeColumn))) {
+                    blobColumns.add(columns.size());
+                }
+                if (names.length() > 0) {
+                    names.append(", ");
+                    params.append(", ");
+                }
+                names.append(column);
+                params.append('?');
+            }
+        }
+        return "INSERT OR REPLACE INTO " + table + " (" + names + ") VALUES (" + params + ")";
+    }
+
+    /**
+     * Copiar una tabla de la base temporal a la real, paginando por id.
+     * Ambas tienen el mismo esquema, así que las columnas van en el mismo orden.
+     */
+    private static void copyTable(SQLiteDatabase from, SQLiteDatabase to, String table) {
+        long lastId = Long.MIN_VALUE;
+        int count;
+        try (SQLiteStatement insert = to.compileStatement(
+                insertSql(to, table, new HashMap<>(), new HashSet<>()))) {
+            do {
+                count = 0;
+                try (Cursor cursor = from.query(table, null, KEY_ID + " > ?",
+                        new String[]{String.valueOf(lastId)}, null, null, KEY_ID, String.valueOf(PAGE_SIZE))) {
+                    int idColumn = cursor.getColumnIndexOrThrow(KEY_ID);
+                    while (cursor.moveToNext()) {
+                        bindRow(cursor, insert);
+                        insert.executeInsert();
+                        lastId = cursor.getLong(idColumn);
+                        count++;
+                    }
+                }
+            } while (count == PAGE_SIZE);
+        }
+    }
+
+    private static void bindRow(Cursor cursor, SQLiteStatement insert) {
+        insert.clearBindings();
+        for (int i = 0; i < cursor.getColumnCount(); i++) {
+            switch (cursor.getType(i)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    insert.bindLong(i + 1, cursor.getLong(i));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    insert.bindDouble(i + 1, cursor.getDouble(i));
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    insert.bindBlob(i + 1, cursor.getBlob(i));
+                    break;
+                default:
+                    insert.bindString(i + 1, cursor.getString(i));
+                    break;
+            }
+        }
+    }
+
+    private static void readRow(JsonReader reader, SQLiteStatement insert, Map<String, Integer> columns,
+                                Set<Integer> blobColumns) throws IOException {
+        insert.clearBindings();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            Integer index = columns.get(reader.nextName());
+            if (index == null) {
+                reader.skipValue();
+                continue;
+            }
+            JsonToken token = reader.peek();
+            switch (token) {
+                case NULL:
+                    reader.nextNull();
+                    break;
+                case NUMBER:
+                    String number = reader.nextString();
+                    if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+                        insert.bindDouble(index, Double.parseDouble(number));
+                    } else {
+                        insert.bindLong(index, Long.parseLong(number));
+                    }
+                    break;
+                case BOOLEAN:
+                    insert.bindLong(index, reader.nextBoolean() ? 1 : 0);
+                    break;
+                case STRING:
+                    if (blobColumns.contains(index)) {
+                        insert.bindBlob(index, Base64.decode(reader.nextString(), Base64.NO_WRAP));
+                    } else {
+                        insert.bindString(index, reader.nextString());
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+}
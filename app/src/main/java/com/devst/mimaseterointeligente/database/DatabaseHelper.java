@@ -3,18 +3,31 @@ package com.devst.mimaseterointeligente.database;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
-import android.util.Log;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
 
 import com.devst.mimaseterointeligente.models.Alert;
 import com.devst.mimaseterointeligente.models.Plant;
 import com.devst.mimaseterointeligente.models.SensorData;
+import com.devst.mimaseterointeligente.models.SensorHistory;
 import com.devst.mimaseterointeligente.models.User;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.Downsampler;
 import com.devst.mimaseterointeligente.utils.PasswordUtils;
+import com.devst.mimaseterointeligente.utils.SensorBlockCodec;
+import com.devst.mimaseterointeligente.utils.Tracer;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
@@ -22,13 +35,20 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     // Información de la base de datos
     private static final String DATABASE_NAME = "MaseteroInteligente.db";
-    private static final int DATABASE_VERSION = 3; // Actualizado para incluir device_id
+    private static final int DATABASE_VERSION = 7; // v7: bloques comprimidos de lecturas archivadas
 
     // Tablas
     private static final String TABLE_USERS = "users";
     private static final String TABLE_PLANTS = "plants";
     private static final String TABLE_SENSOR_DATA = "sensor_data";
     private static final String TABLE_ALERTS = "alerts";
+    private static final String TABLE_SYNC_CHANGES = "sync_changes";
+    private static final String TABLE_SYNC_STATE = "sync_state";
+    private static final String TABLE_SYNC_SUPPRESS = "sync_suppress";
+    public static final String TABLE_SENSOR_BLOCKS = "sensor_blocks"; // Lecturas archivadas (no se sincroniza)
+
+    // Tablas cuyos cambios se registran para la sincronización incremental
+    public static final String[] SYNCED_TABLES = {"users", "plants", "sensor_data", "alerts"};
 
     // Columnas comunes
     private static final String KEY_ID = "id";
@@ -77,6 +97,24 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String KEY_IS_READ = "is_read";
     private static final String KEY_ICON_TYPE = "icon_type";
 
+    // Columnas de sincronización
+    private static final String KEY_SEQ = "seq";
+    private static final String KEY_TABLE_NAME = "table_name";
+    private static final String KEY_ROW_ID = "row_id";
+    private static final String KEY_DELETED = "deleted";
+    private static final String KEY_INSERTED = "inserted";
+    private static final String KEY_STATE_KEY = "state_key";
+    private static final String KEY_STATE_VALUE = "state_value";
+
+    // Columnas de sensor_blocks
+    private static final String KEY_START_TIME = "start_time";
+    private static final String KEY_END_TIME = "end_time";
+    private static final String KEY_POINT_COUNT = "point_count";
+    private static final String KEY_DATA = "data";
+
+    // Prefijo en sync_state de los puntos de control de migración
+    private static final String CHECKPOINT_PREFIX = "checkpoint:";
+
     // Creación de tablas SQL
     private static final String CREATE_TABLE_USERS = "CREATE TABLE " + TABLE_USERS + " ("
             + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
@@ -136,8 +174,67 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             + "FOREIGN KEY(" + KEY_PLANT_ID + ") REFERENCES " + TABLE_PLANTS + "(" + KEY_ID + ")"
             + ")";
 
-    public DatabaseHelper(Context context) {
+    // Índices: la última lectura por planta se resuelve con una búsqueda en el índice
+    private static final String CREATE_INDEX_SENSOR_PLANT_TIME = "CREATE INDEX IF NOT EXISTS idx_sensor_data_plant_time ON "
+            + TABLE_SENSOR_DATA + "(" + KEY_PLANT_ID + ", " + KEY_TIMESTAMP + ")";
+    private static final String CREATE_INDEX_PLANTS_USER = "CREATE INDEX IF NOT EXISTS idx_plants_user ON "
+            + TABLE_PLANTS + "(" + KEY_USER_ID + ")";
+
+    // Sincronización: cada insert/update/delete deja una fila en sync_changes
+    // (salvo que sync_suppress tenga filas, ej: al aplicar cambios remotos)
+    private static final String CREATE_TABLE_SYNC_CHANGES = "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_CHANGES + "("
+            + KEY_SEQ + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + KEY_TABLE_NAME + " TEXT NOT NULL,"
+            + KEY_ROW_ID + " INTEGER NOT NULL,"
+            + KEY_DELETED + " INTEGER NOT NULL DEFAULT 0,"
+            + KEY_INSERTED + " INTEGER NOT NULL DEFAULT 0"
+            + ")";
+    private static final String CREATE_INDEX_SYNC_CHANGES_ROW = "CREATE INDEX IF NOT EXISTS idx_sync_changes_row ON "
+            + TABLE_SYNC_CHANGES + "(" + KEY_TABLE_NAME + ", " + KEY_ROW_ID + ", " + KEY_SEQ + ")";
+    private static final String CREATE_TABLE_SYNC_STATE = "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_STATE + "("
+            + KEY_STATE_KEY + " TEXT PRIMARY KEY,"
+            + KEY_STATE_VALUE + " TEXT"
+            + ")";
+    private static final String CREATE_TABLE_SYNC_SUPPRESS = "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_SUPPRESS + "("
+            + KEY_ID + " INTEGER"
+            + ")";
+
+    // Archivo: un bloque por planta y hora (timestamp de inicio alineado a la hora)
+    private static final String CREATE_TABLE_SENSOR_BLOCKS = "CREATE TABLE IF NOT EXISTS " + TABLE_SENSOR_BLOCKS + "("
+            + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + KEY_PLANT_ID + " INTEGER,"
+            + KEY_START_TIME + " INTEGER NOT NULL,"
+            + KEY_END_TIME + " INTEGER NOT NULL,"
+            + KEY_POINT_COUNT + " INTEGER NOT NULL,"
+            + KEY_DATA + " BLOB NOT NULL,"
+            + "UNIQUE(" + KEY_PLANT_ID + ", " + KEY_START_TIME + "),"
+            + "FOREIGN KEY(" + KEY_PLANT_ID + ") REFERENCES " + TABLE_PLANTS + "(" + KEY_ID + ")"
+            + ")";
+
+    // Historial: por encima de maxPoints * factor lecturas se agrega por buckets antes de LTTB
+    private static final int HISTORY_ROLLUP_FACTOR = 4;
+
+    private static final long ARCHIVE_BLOCK_MS = 60 * 60 * 1000; // Un bloque por hora
+    private static final int ARCHIVE_MAX_BLOCKS = 500; // Por ejecución, para no ocupar la base de datos mucho rato
+
+    private static DatabaseHelper instance;
+
+    /**
+     * Obtener la instancia única de la base de datos.
+     * Se comparte una sola conexión entre pantallas, servicios y hilos de fondo,
+     * por lo que ningún método cierra la base de datos al terminar.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // WAL permite lecturas concurrentes mientras otro hilo escribe
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -147,7 +244,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(CREATE_TABLE_PLANTS);
         db.execSQL(CREATE_TABLE_SENSOR_DATA);
         db.execSQL(CREATE_TABLE_ALERTS);
-        Log.d(TAG, "Database tables created");
+        db.execSQL(CREATE_INDEX_SENSOR_PLANT_TIME);
+        db.execSQL(CREATE_INDEX_PLANTS_USER);
+        db.execSQL(CREATE_TABLE_SENSOR_BLOCKS);
+        createSyncTables(db);
+        AppLog.d(TAG, "Database tables created");
 
         // ✨ AÑADIR DATOS DE PRUEBA INICIALES ✨
         addInitialData(db);
@@ -155,20 +256,75 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        Log.d(TAG, "Actualizando base de datos de versión " + oldVersion + " a " + newVersion);
+        AppLog.d(TAG, "Actualizando base de datos de versión %d a %d", oldVersion, newVersion);
 
         // Migración de versión 2 a 3: Agregar columna device_id
         if (oldVersion < 3) {
             try {
                 db.execSQL("ALTER TABLE " + TABLE_PLANTS + " ADD COLUMN " + KEY_DEVICE_ID + " TEXT");
-                Log.d(TAG, "Columna device_id agregada correctamente a la tabla plants");
+                AppLog.d(TAG, "Columna device_id agregada correctamente a la tabla plants");
             } catch (Exception e) {
-                Log.e(TAG, "Error al agregar columna device_id: " + e.getMessage());
+                AppLog.e(TAG, "Error al agregar columna device_id: %s", e.getMessage());
             }
         }
 
+        // Migración de versión 3 a 4: índices para consultas por planta/usuario
+        if (oldVersion < 4) {
+            db.execSQL(CREATE_INDEX_SENSOR_PLANT_TIME);
+            db.execSQL(CREATE_INDEX_PLANTS_USER);
+            AppLog.d(TAG, "Índices de sensor_data y plants creados");
+        }
+
+        // Migración de versión 4 a 5: registro de cambios para sincronización incremental.
+        // Las filas existentes no quedan registradas: se asume que ya se hizo
+        // una exportación completa antes de empezar a sincronizar por cambios.
+        if (oldVersion < 5) {
+            createSyncTables(db);
+            AppLog.d(TAG, "Tablas y triggers de sincronización creados");
+        }
+
+        // Migración de versión 5 a 6: marcar inserciones en el registro de cambios.
+        // Desde versiones anteriores a 5 createSyncTables ya crea la columna.
+        if (oldVersion == 5) {
+            db.execSQL("ALTER TABLE " + TABLE_SYNC_CHANGES + " ADD COLUMN " + KEY_INSERTED
+                    + " INTEGER NOT NULL DEFAULT 0");
+            for (String table : SYNCED_TABLES) {
+                db.execSQL("DROP TRIGGER IF EXISTS trg_" + table + "_insert");
+            }
+            createSyncTables(db);
+            AppLog.d(TAG, "Registro de cambios actualizado con marca de inserción");
+        }
+
+        // Migración de versión 6 a 7: archivo comprimido de lecturas antiguas
+        if (oldVersion < 7) {
+            db.execSQL(CREATE_TABLE_SENSOR_BLOCKS);
+            AppLog.d(TAG, "Tabla sensor_blocks creada");
+        }
+
         // Si hay versiones futuras, manejar aquí
-        // if (oldVersion < 4) { ... }
+        // if (oldVersion < 8) { ... }
+    }
+
+    /**
+     * Crear tablas de sincronización y los triggers que registran los cambios
+     */
+    private void createSyncTables(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_SYNC_CHANGES);
+        db.execSQL(CREATE_TABLE_SYNC_STATE);
+        db.execSQL(CREATE_TABLE_SYNC_SUPPRESS);
+        db.execSQL(CREATE_INDEX_SYNC_CHANGES_ROW);
+
+        String enabled = " WHEN NOT EXISTS (SELECT 1 FROM " + TABLE_SYNC_SUPPRESS + ")";
+        for (String table : SYNCED_TABLES) {
+            String log = " BEGIN INSERT INTO " + TABLE_SYNC_CHANGES + "(" + KEY_TABLE_NAME + ", "
+                    + KEY_ROW_ID + ", " + KEY_DELETED + ", " + KEY_INSERTED + ") VALUES ('" + table + "', ";
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_" + table + "_insert AFTER INSERT ON "
+                    + table + enabled + log + "NEW." + KEY_ID + ", 0, 1); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_" + table + "_update AFTER UPDATE ON "
+                    + table + enabled + log + "NEW." + KEY_ID + ", 0, 0); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_" + table + "_delete AFTER DELETE ON "
+                    + table + enabled + log + "OLD." + KEY_ID + ", 1, 0); END");
+        }
     }
 
     /**
@@ -241,7 +397,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         alert4.put(KEY_TIMESTAMP, String.valueOf(currentTime - 5 * 60 * 60 * 1000)); // Hace 5 horas
         db.insert(TABLE_ALERTS, null, alert4);
 
-        Log.d(TAG, "Datos de prueba iniciales insertados correctamente.");
+        AppLog.d(TAG, "Datos de prueba iniciales insertados correctamente.");
     }
 
     // ... (resto de tus métodos)
@@ -262,7 +418,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(KEY_UPDATED_AT, System.currentTimeMillis());
 
         long userId = db.insert(TABLE_USERS, null, values);
-        db.close();
 
         return userId;
     }
@@ -288,8 +443,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             user.setGoogleId(cursor.getString(cursor.getColumnIndexOrThrow(KEY_GOOGLE_ID)));
             cursor.close();
         }
-
-        db.close();
         return user;
     }
 
@@ -308,7 +461,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         int result = db.update(TABLE_USERS, values, KEY_ID + "=?",
                 new String[]{String.valueOf(user.getId())});
-        db.close();
 
         return result;
     }
@@ -339,7 +491,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(KEY_UPDATED_AT, System.currentTimeMillis());
 
         long plantId = db.insert(TABLE_PLANTS, null, values);
-        db.close();
 
         return plantId;
     }
@@ -347,29 +498,19 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     // Obtener todas las plantas de un usuario
     public List<Plant> getUserPlants(int userId) {
         List<Plant> plants = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_PLANTS + " WHERE " + KEY_USER_ID + " = " + userId;
+        String selectQuery = "SELECT * FROM " + TABLE_PLANTS + " WHERE " + KEY_USER_ID + " = ?";
 
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
+        Cursor cursor = db.rawQuery(selectQuery, new String[]{String.valueOf(userId)});
 
+        // Mapeo completo (incluye parámetros óptimos usados por SensorStatusHelper)
         if (cursor.moveToFirst()) {
             do {
-                Plant plant = new Plant();
-                plant.setId(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ID)));
-                plant.setUserId(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_USER_ID)));
-                plant.setName(cursor.getString(cursor.getColumnIndexOrThrow(KEY_PLANT_NAME)));
-                plant.setType(cursor.getString(cursor.getColumnIndexOrThrow(KEY_TYPE)));
-                plant.setSpecies(cursor.getString(cursor.getColumnIndexOrThrow(KEY_SPECIES)));
-                plant.setScientificName(cursor.getString(cursor.getColumnIndexOrThrow(KEY_SCIENTIFIC_NAME)));
-                plant.setImageUrl(cursor.getString(cursor.getColumnIndexOrThrow(KEY_IMAGE_URL)));
-                plant.setConnected(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_IS_CONNECTED)) == 1);
-
-                plants.add(plant);
+                plants.add(cursorToPlant(cursor));
             } while (cursor.moveToNext());
         }
 
         cursor.close();
-        db.close();
 
         return plants;
     }
@@ -388,7 +529,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             count = cursor.getInt(0);
         }
         cursor.close();
-        db.close();
         return count;
     }
 
@@ -399,21 +539,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         Cursor cursor = db.query(TABLE_PLANTS, null, KEY_ID + "=?",
                 new String[]{String.valueOf(plantId)}, null, null, null, null);
 
+        // Mapeo completo: device_id y parámetros óptimos incluidos
         Plant plant = null;
-        if (cursor != null && cursor.moveToFirst()) {
-            plant = new Plant();
-            plant.setId(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ID)));
-            plant.setUserId(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_USER_ID)));
-            plant.setName(cursor.getString(cursor.getColumnIndexOrThrow(KEY_PLANT_NAME)));
-            plant.setType(cursor.getString(cursor.getColumnIndexOrThrow(KEY_TYPE)));
-            plant.setSpecies(cursor.getString(cursor.getColumnIndexOrThrow(KEY_SPECIES)));
-            plant.setScientificName(cursor.getString(cursor.getColumnIndexOrThrow(KEY_SCIENTIFIC_NAME)));
-            plant.setImageUrl(cursor.getString(cursor.getColumnIndexOrThrow(KEY_IMAGE_URL)));
-            plant.setConnected(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_IS_CONNECTED)) == 1);
-            cursor.close();
+        if (cursor.moveToFirst()) {
+            plant = cursorToPlant(cursor);
         }
-
-        db.close();
+        cursor.close();
         return plant;
     }
 
@@ -423,34 +554,34 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         // Eliminar alertas asociadas
         db.delete(TABLE_ALERTS, KEY_PLANT_ID + "=?", new String[]{String.valueOf(plantId)});
-        // Eliminar datos de sensores asociados
+        // Eliminar datos de sensores asociados (también los archivados)
         db.delete(TABLE_SENSOR_DATA, KEY_PLANT_ID + "=?", new String[]{String.valueOf(plantId)});
+        db.delete(TABLE_SENSOR_BLOCKS, KEY_PLANT_ID + "=?", new String[]{String.valueOf(plantId)});
         // Eliminar planta
         db.delete(TABLE_PLANTS, KEY_ID + "=?", new String[]{String.valueOf(plantId)});
-
-        db.close();
     }
 
     // ========== OPERACIONES DE DATOS DE SENSORES ==========
 
-    // Insertar datos de sensores
+    // Insertar datos de sensores (span con el id de correlación del hilo)
     public long insertSensorData(SensorData data) {
-        SQLiteDatabase db = this.getWritableDatabase();
-
-        ContentValues values = new ContentValues();
-        values.put(KEY_PLANT_ID, data.getPlantId());
-        values.put(KEY_SOIL_HUMIDITY, data.getSoilHumidity());
-        values.put(KEY_TEMPERATURE, data.getTemperature());
-        values.put(KEY_AMBIENT_HUMIDITY, data.getAmbientHumidity());
-        values.put(KEY_UV_LEVEL, data.getUvLevel());
-        values.put(KEY_WATER_LEVEL, data.getWaterLevel());
-        values.put(KEY_PEST_COUNT, data.getPestCount());
-        values.put(KEY_TIMESTAMP, data.getTimestamp());
-
-        long id = db.insert(TABLE_SENSOR_DATA, null, values);
-        db.close();
-
-        return id;
+        try (Tracer.Span span = Tracer.begin("db.insertSensorData")) {
+            SQLiteDatabase db = this.getWritableDatabase();
+
+            ContentValues values = new ContentValues();
+            values.put(KEY_PLANT_ID, data.getPlantId());
+            values.put(KEY_SOIL_HUMIDITY, data.getSoilHumidity());
+            values.put(KEY_TEMPERATURE, data.getTemperature());
+            values.put(KEY_AMBIENT_HUMIDITY, data.getAmbientHumidity());
+            values.put(KEY_UV_LEVEL, data.getUvLevel());
+            values.put(KEY_WATER_LEVEL, data.getWaterLevel());
+            values.put(KEY_PEST_COUNT, data.getPestCount());
+            values.put(KEY_TIMESTAMP, data.getTimestamp());
+
+            long id = db.insert(TABLE_SENSOR_DATA, null, values);
+
+            return id;
+        }
     }
 
     // Obtener últimos datos de sensores para una planta
@@ -463,42 +594,389 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         SensorData data = null;
         if (cursor != null && cursor.moveToFirst()) {
-            data = new SensorData();
-            data.setId(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ID)));
-            data.setPlantId(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_PLANT_ID)));
-            data.setSoilHumidity(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_SOIL_HUMIDITY)));
-            data.setTemperature(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_TEMPERATURE)));
-            data.setAmbientHumidity(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_AMBIENT_HUMIDITY)));
-            data.setUvLevel(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_UV_LEVEL)));
-            data.setWaterLevel(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_WATER_LEVEL)));
-            data.setPestCount(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_PEST_COUNT)));
-            data.setTimestamp(cursor.getString(cursor.getColumnIndexOrThrow(KEY_TIMESTAMP)));
+            data = cursorToSensorData(cursor);
             cursor.close();
         }
-
-        db.close();
         return data;
     }
 
-    // ========== OPERACIONES DE ALERTAS ==========
+    /**
+     * Obtener la última lectura de cada planta de un usuario en una sola consulta.
+     * Por cada planta se busca su fila más reciente con el índice
+     * (plant_id, timestamp), así el costo no depende del historial acumulado.
+     * @return Map plantId -> última lectura (plantas sin datos no aparecen)
+     */
+    public Map<Integer, SensorData> getLatestSensorDataByUser(int userId) {
+        Map<Integer, SensorData> latest = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
 
-    // Crear alerta
-    public long createAlert(Alert alert) {
+        String query = "SELECT s.* FROM " + TABLE_PLANTS + " p"
+                + " JOIN " + TABLE_SENSOR_DATA + " s ON s." + KEY_ID + " = ("
+                + "SELECT s2." + KEY_ID + " FROM " + TABLE_SENSOR_DATA + " s2"
+                + " WHERE s2." + KEY_PLANT_ID + " = p." + KEY_ID
+                + " ORDER BY s2." + KEY_TIMESTAMP + " DESC, s2." + KEY_ID + " DESC LIMIT 1)"
+                + " WHERE p." + KEY_USER_ID + " = ?";
+
+        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(userId)});
+        if (cursor.moveToFirst()) {
+            do {
+                SensorData data = cursorToSensorData(cursor);
+                latest.put(data.getPlantId(), data);
+            } while (cursor.moveToNext());
+        }
+        cursor.close();
+
+        return latest;
+    }
+
+    /**
+     * Obtener el historial de una planta listo para graficar.
+     * Se combinan las filas de sensor_data con los bloques archivados de
+     * sensor_blocks. Si el rango tiene pocas lecturas se leen tal cual; si no,
+     * se agrupan en buckets de tiempo (promedio: las filas en SQLite y los
+     * bloques al decodificarlos) y luego cada métrica se reduce con LTTB, de
+     * modo que el costo queda acotado aunque el historial sea muy grande.
+     * @param maxPoints Máximo de puntos por métrica
+     */
+    public SensorHistory getSensorHistory(int plantId, long fromMillis, long toMillis, int maxPoints) {
+        long start = SystemClock.elapsedRealtime();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        // Los timestamps son milisegundos guardados como texto de 13 dígitos,
+        // por lo que la comparación de texto respeta el orden y usa el índice
+        String where = KEY_PLANT_ID + " = ? AND " + KEY_TIMESTAMP + " >= ? AND " + KEY_TIMESTAMP + " <= ?";
+        String[] args = {String.valueOf(plantId), String.valueOf(fromMillis), String.valueOf(toMillis)};
+        String blockWhere = KEY_PLANT_ID + " = ? AND " + KEY_START_TIME + " <= ? AND " + KEY_END_TIME + " >= ?";
+        String[] blockArgs = {String.valueOf(plantId), String.valueOf(toMillis), String.valueOf(fromMillis)};
+
+        long rows = DatabaseUtils.queryNumEntries(db, TABLE_SENSOR_DATA, where, args);
+        long archived = DatabaseUtils.longForQuery(db, "SELECT IFNULL(SUM(" + KEY_POINT_COUNT + "), 0) FROM "
+                + TABLE_SENSOR_BLOCKS + " WHERE " + blockWhere, blockArgs);
+        int rollupBuckets = maxPoints * HISTORY_ROLLUP_FACTOR;
+        String time = "CAST(" + KEY_TIMESTAMP + " AS INTEGER)";
+        Set<Long> rowTimes = archived > 0 ? rowsInsideBlocks(db, where, args) : Collections.emptySet();
+
+        long[] timestamps;
+        float[][] values;
+        int size = 0;
+
+        if (rows + archived <= rollupBuckets) {
+            int capacity = (int) (rows + archived);
+            timestamps = new long[capacity];
+            values = new float[SensorHistory.METRIC_COUNT][capacity];
+
+            // Primero los bloques (más antiguos), luego las filas
+            Cursor blocks = db.query(TABLE_SENSOR_BLOCKS, new String[]{KEY_DATA}, blockWhere, blockArgs,
+                    null, null, KEY_START_TIME);
+            while (blocks.moveToNext()) {
+                SensorBlockCodec.Decoder decoder = new SensorBlockCodec.Decoder(blocks.getBlob(0));
+                while (decoder.next() && size < capacity) {
+                    if (decoder.timestamp < fromMillis || decoder.timestamp > toMillis) continue;
+                    if (!rowTimes.isEmpty() && rowTimes.contains(decoder.timestamp)) continue;
+                    timestamps[size] = decoder.timestamp;
+                    for (int metric = 0; metric < SensorHistory.METRIC_COUNT; metric++) {
+                        values[metric][size] = decoder.metrics[metric];
+                    }
+                    size++;
+                }
+            }
+            blocks.close();
+
+            Cursor cursor = db.rawQuery("SELECT " + time + ", " + KEY_SOIL_HUMIDITY + ", " + KEY_TEMPERATURE + ", "
+                    + KEY_AMBIENT_HUMIDITY + ", " + KEY_UV_LEVEL + ", " + KEY_WATER_LEVEL
+                    + " FROM " + TABLE_SENSOR_DATA + " WHERE " + where
+                    + " ORDER BY " + KEY_TIMESTAMP, args);
+            while (cursor.moveToNext() && size < capacity) {
+                timestamps[size] = cursor.getLong(0);
+                for (int metric = 0; metric < SensorHistory.METRIC_COUNT; metric++) {
+                    values[metric][size] = cursor.getFloat(metric + 1);
+                }
+                size++;
+            }
+            cursor.close();
+
+            // Filas importadas después de archivar su hora pueden quedar antes que un bloque
+            if (archived > 0) {
+                sortByTime(timestamps, values, size);
+            }
+        } else {
+            // Buckets de tiempo: suma y cantidad por bucket, para combinar filas y bloques
+            long bucketMillis = Math.max(1, (toMillis - fromMillis + rollupBuckets - 1) / rollupBuckets);
+            int buckets = rollupBuckets + 1;
+            long[] timeSums = new long[buckets];
+            double[][] sums = new double[SensorHistory.METRIC_COUNT][buckets];
+            int[] counts = new int[buckets];
+
+            Cursor cursor = db.rawQuery("SELECT (" + time + " - " + fromMillis + ") / " + bucketMillis
+                    + ", COUNT(*), SUM(" + time + "), SUM(" + KEY_SOIL_HUMIDITY + "), SUM(" + KEY_TEMPERATURE
+                    + "), SUM(" + KEY_AMBIENT_HUMIDITY + "), SUM(" + KEY_UV_LEVEL + "), SUM(" + KEY_WATER_LEVEL + ")"
+                    + " FROM " + TABLE_SENSOR_DATA + " WHERE " + where
+                    + " GROUP BY 1", args);
+            while (cursor.moveToNext()) {
+                int bucket = (int) cursor.getLong(0);
+                if (bucket < 0 || bucket >= buckets) continue;
+                counts[bucket] += cursor.getInt(1);
+                timeSums[bucket] += cursor.getLong(2);
+                for (int metric = 0; metric < SensorHistory.METRIC_COUNT; metric++) {
+                    sums[metric][bucket] += cursor.getDouble(metric + 3);
+                }
+            }
+            cursor.close();
+
+            Cursor blocks = db.query(TABLE_SENSOR_BLOCKS, new String[]{KEY_DATA}, blockWhere, blockArgs,
+                    null, null, KEY_START_TIME);
+            while (blocks.moveToNext()) {
+                SensorBlockCodec.Decoder decoder = new SensorBlockCodec.Decoder(blocks.getBlob(0));
+                while (decoder.next()) {
+                    if (decoder.timestamp < fromMillis || decoder.timestamp > toMillis) continue;
+                    if (!rowTimes.isEmpty() && rowTimes.contains(decoder.timestamp)) continue;
+                    int bucket = (int) ((decoder.timestamp - fromMillis) / bucketMillis);
+                    counts[bucket]++;
+                    timeSums[bucket] += decoder.timestamp;
+                    for (int metric = 0; metric < SensorHistory.METRIC_COUNT; metric++) {
+                        sums[metric][bucket] += decoder.metrics[metric];
+                    }
+                }
+            }
+            blocks.close();
+
+            // Promedio de cada bucket con lecturas
+            timestamps = new long[buckets];
+            values = new float[SensorHistory.METRIC_COUNT][buckets];
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                if (counts[bucket] == 0) continue;
+                timestamps[size] = timeSums[bucket] / counts[bucket];
+                for (int metric = 0; metric < SensorHistory.METRIC_COUNT; metric++) {
+                    values[metric][size] = (float) (sums[metric][bucket] / counts[bucket]);
+                }
+                size++;
+            }
+        }
+
+        SensorHistory history = new SensorHistory(fromMillis, toMillis);
+        int outSize = Math.min(size, Math.max(maxPoints, 3));
+        for (int metric = 0; metric < SensorHistory.METRIC_COUNT; metric++) {
+            long[] outX = new long[outSize];
+            float[] outY = new float[outSize];
+            int count = Downsampler.lttb(timestamps, values[metric], size, maxPoints, outX, outY);
+            history.setSeries(metric, new SensorHistory.Series(outX, outY, count));
+        }
+
+        AppLog.d(TAG, "getSensorHistory: %d lecturas -> %d puntos en %d ms",
+                rows + archived, outSize, SystemClock.elapsedRealtime() - start);
+        return history;
+    }
+
+    /**
+     * Timestamps de filas que caen dentro de un bloque archivado (lecturas
+     * reimportadas desde Firebase antes del siguiente archivado). Al combinar
+     * se usa la fila y se omite el punto del bloque, para no contarlo dos veces.
+     */
+    private Set<Long> rowsInsideBlocks(SQLiteDatabase db, String where, String[] args) {
+        Set<Long> times = new HashSet<>();
+        String time = "CAST(s." + KEY_TIMESTAMP + " AS INTEGER)";
+        Cursor cursor = db.rawQuery("SELECT " + time + " FROM " + TABLE_SENSOR_DATA + " s WHERE " + where
+                + " AND EXISTS (SELECT 1 FROM " + TABLE_SENSOR_BLOCKS + " b"
+                + " WHERE b." + KEY_PLANT_ID + " = s." + KEY_PLANT_ID
+                + " AND " + time + " BETWEEN b." + KEY_START_TIME + " AND b." + KEY_END_TIME + ")", args);
+        while (cursor.moveToNext()) {
+            times.add(cursor.getLong(0));
+        }
+        cursor.close();
+        return times;
+    }
+
+    /**
+     * Ordenar por timestamp los arreglos paralelos (inserción: los datos ya
+     * vienen casi ordenados)
+     */
+    private static void sortByTime(long[] timestamps, float[][] values, int size) {
+        for (int i = 1; i < size; i++) {
+            long time = timestamps[i];
+            if (time >= timestamps[i - 1]) continue;
+            float[] row = new float[values.length];
+            for (int metric = 0; metric < values.length; metric++) {
+                row[metric] = values[metric][i];
+            }
+            int j = i - 1;
+            while (j >= 0 && timestamps[j] > time) {
+                timestamps[j + 1] = timestamps[j];
+                for (int metric = 0; metric < values.length; metric++) {
+                    values[metric][j + 1] = values[metric][j];
+                }
+                j--;
+            }
+            timestamps[j + 1] = time;
+            for (int metric = 0; metric < values.length; metric++) {
+                values[metric][j + 1] = row[metric];
+            }
+        }
+    }
+
+    // ========== ARCHIVO DE LECTURAS ==========
+
+    /**
+     * Archivar las lecturas anteriores a beforeMillis en bloques comprimidos
+     * (una fila de sensor_blocks por planta y hora, ver SensorBlockCodec) y
+     * borrar las filas originales. Solo se archivan horas completas y la
+     * lectura más reciente de cada planta siempre queda en sensor_data.
+     * Si la hora ya tenía un bloque (ej: lecturas importadas después) se
+     * combinan. Las filas con cambios aún sin subir (sync_changes posterior
+     * a push_seq) no se archivan hasta que la sincronización las suba. Los
+     * borrados no se registran en sync_changes: Firebase conserva las
+     * lecturas originales.
+     * @return Cantidad de lecturas archivadas (como máximo ARCHIVE_MAX_BLOCKS horas por llamada)
+     */
+    public int archiveSensorData(long beforeMillis) {
         SQLiteDatabase db = this.getWritableDatabase();
+        long cutoff = beforeMillis - beforeMillis % ARCHIVE_BLOCK_MS;
+        String latest = "(SELECT s2." + KEY_ID + " FROM " + TABLE_SENSOR_DATA + " s2"
+                + " WHERE s2." + KEY_PLANT_ID + " = s." + KEY_PLANT_ID
+                + " ORDER BY s2." + KEY_TIMESTAMP + " DESC, s2." + KEY_ID + " DESC LIMIT 1)";
+        // push() no encontraría la fila y subiría un borrado en lugar de la lectura
+        String unsynced = "EXISTS (SELECT 1 FROM " + TABLE_SYNC_CHANGES + " c"
+                + " WHERE c." + KEY_TABLE_NAME + " = '" + TABLE_SENSOR_DATA + "' AND c." + KEY_ROW_ID + " = s." + KEY_ID
+                + " AND c." + KEY_SEQ + " > " + getPushSeq() + ")";
+        String archivable = "s." + KEY_ID + " != " + latest + " AND NOT " + unsynced;
+
+        // Horas con lecturas por archivar de cada planta
+        List<long[]> hours = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT s." + KEY_PLANT_ID + ", CAST(s." + KEY_TIMESTAMP + " AS INTEGER) / "
+                + ARCHIVE_BLOCK_MS + " FROM " + TABLE_SENSOR_DATA + " s"
+                + " WHERE s." + KEY_TIMESTAMP + " < ? AND " + archivable
+                + " GROUP BY 1, 2 LIMIT " + ARCHIVE_MAX_BLOCKS, new String[]{String.valueOf(cutoff)});
+        while (cursor.moveToNext()) {
+            hours.add(new long[]{cursor.getLong(0), cursor.getLong(1) * ARCHIVE_BLOCK_MS});
+        }
+        cursor.close();
+
+        int[] archived = {0};
+        for (long[] hour : hours) {
+            // Una transacción por bloque: no se bloquea la escritura de lecturas nuevas por mucho rato
+            runWithoutChangeTracking(() -> archived[0] += archiveHour(db, hour[0], hour[1], archivable));
+        }
+        return archived[0];
+    }
+
+    /**
+     * Codificar las lecturas de una hora (y el bloque que ya existía) en un
+     * único bloque y borrar las filas
+     */
+    private int archiveHour(SQLiteDatabase db, long plantId, long hourStart, String archivable) {
+        String where = "s." + KEY_PLANT_ID + " = ? AND s." + KEY_TIMESTAMP + " >= ? AND s." + KEY_TIMESTAMP + " < ?"
+                + " AND " + archivable;
+        String[] args = {String.valueOf(plantId), String.valueOf(hourStart), String.valueOf(hourStart + ARCHIVE_BLOCK_MS)};
+        String[] blockArgs = {String.valueOf(plantId), String.valueOf(hourStart)};
+
+        SensorBlockCodec.Decoder previous = null;
+        Cursor blockCursor = db.query(TABLE_SENSOR_BLOCKS, new String[]{KEY_DATA},
+                KEY_PLANT_ID + " = ? AND " + KEY_START_TIME + " = ?", blockArgs, null, null, null);
+        if (blockCursor.moveToFirst()) {
+            previous = new SensorBlockCodec.Decoder(blockCursor.getBlob(0));
+        }
+        blockCursor.close();
+        boolean hasPrevious = previous != null && previous.next();
+
+        // Combinar en orden de tiempo las filas con el bloque anterior
+        SensorBlockCodec.Encoder encoder = new SensorBlockCodec.Encoder();
+        float[] metrics = new float[SensorHistory.METRIC_COUNT];
+        long endTime = hourStart;
+        int rows = 0;
+        Cursor cursor = db.rawQuery("SELECT CAST(s." + KEY_TIMESTAMP + " AS INTEGER), s." + KEY_SOIL_HUMIDITY
+                + ", s." + KEY_TEMPERATURE + ", s." + KEY_AMBIENT_HUMIDITY + ", s." + KEY_UV_LEVEL
+                + ", s." + KEY_WATER_LEVEL + ", s." + KEY_PEST_COUNT
+                + " FROM " + TABLE_SENSOR_DATA + " s WHERE " + where
+                + " ORDER BY s." + KEY_TIMESTAMP + ", s." + KEY_ID, args);
+        while (cursor.moveToNext()) {
+            long timestamp = cursor.getLong(0);
+            while (hasPrevious && previous.timestamp < timestamp) {
+                encoder.add(previous.timestamp, previous.metrics, previous.pestCount);
+                hasPrevious = previous.next();
+            }
+            // La misma lectura reimportada desde Firebase: queda la fila
+            if (hasPrevious && previous.timestamp == timestamp) {
+                hasPrevious = previous.next();
+            }
+            for (int metric = 0; metric < SensorHistory.METRIC_COUNT; metric++) {
+                metrics[metric] = cursor.getFloat(metric + 1);
+            }
+            encoder.add(timestamp, metrics, cursor.getInt(6));
+            endTime = timestamp;
+            rows++;
+        }
+        cursor.close();
+        while (hasPrevious) {
+            encoder.add(previous.timestamp, previous.metrics, previous.pestCount);
+            endTime = previous.timestamp;
+            hasPrevious = previous.next();
+        }
+        if (rows == 0) return 0;
 
         ContentValues values = new ContentValues();
-        values.put(KEY_PLANT_ID, alert.getPlantId());
-        values.put(KEY_ALERT_TYPE, alert.getAlertType());
-        values.put(KEY_TITLE, alert.getTitle());
-        values.put(KEY_MESSAGE, alert.getMessage());
-        values.put(KEY_SEVERITY, alert.getSeverity());
-        values.put(KEY_IS_READ, alert.isRead() ? 1 : 0);
-        values.put(KEY_ICON_TYPE, alert.getIconType());
-        values.put(KEY_TIMESTAMP, alert.getTimestamp());
+        values.put(KEY_PLANT_ID, plantId);
+        values.put(KEY_START_TIME, hourStart);
+        values.put(KEY_END_TIME, endTime);
+        values.put(KEY_POINT_COUNT, encoder.getCount());
+        values.put(KEY_DATA, encoder.toByteArray());
+        db.insertWithOnConflict(TABLE_SENSOR_BLOCKS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+        db.execSQL("DELETE FROM " + TABLE_SENSOR_DATA + " WHERE " + KEY_ID + " IN (SELECT s." + KEY_ID
+                + " FROM " + TABLE_SENSOR_DATA + " s WHERE " + where + ")", args);
+        return rows;
+    }
+
+    /**
+     * Tamaño del archivo de lecturas
+     * @return {bloques, lecturas, bytes comprimidos}
+     */
+    public long[] getArchiveStats() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT COUNT(*), IFNULL(SUM(" + KEY_POINT_COUNT + "), 0), IFNULL(SUM(LENGTH("
+                + KEY_DATA + ")), 0) FROM " + TABLE_SENSOR_BLOCKS, null);
+        long[] stats = new long[3];
+        if (cursor.moveToFirst()) {
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] = cursor.getLong(i);
+            }
+        }
+        cursor.close();
+        return stats;
+    }
 
-        long alertId = db.insert(TABLE_ALERTS, null, values);
-        db.close();
-        return alertId;
+    private SensorData cursorToSensorData(Cursor cursor) {
+        SensorData data = new SensorData();
+        data.setId(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_ID)));
+        data.setPlantId(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_PLANT_ID)));
+        data.setSoilHumidity(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_SOIL_HUMIDITY)));
+        data.setTemperature(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_TEMPERATURE)));
+        data.setAmbientHumidity(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_AMBIENT_HUMIDITY)));
+        data.setUvLevel(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_UV_LEVEL)));
+        data.setWaterLevel(cursor.getFloat(cursor.getColumnIndexOrThrow(KEY_WATER_LEVEL)));
+        data.setPestCount(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_PEST_COUNT)));
+        data.setTimestamp(cursor.getString(cursor.getColumnIndexOrThrow(KEY_TIMESTAMP)));
+        return data;
+    }
+
+    // ========== OPERACIONES DE ALERTAS ==========
+
+    // Crear alerta (span con el id de correlación del hilo)
+    public long createAlert(Alert alert) {
+        try (Tracer.Span span = Tracer.begin("db.createAlert")) {
+            SQLiteDatabase db = this.getWritableDatabase();
+
+            ContentValues values = new ContentValues();
+            values.put(KEY_PLANT_ID, alert.getPlantId());
+            values.put(KEY_ALERT_TYPE, alert.getAlertType());
+            values.put(KEY_TITLE, alert.getTitle());
+            values.put(KEY_MESSAGE, alert.getMessage());
+            values.put(KEY_SEVERITY, alert.getSeverity());
+            values.put(KEY_IS_READ, alert.isRead() ? 1 : 0);
+            values.put(KEY_ICON_TYPE, alert.getIconType());
+            values.put(KEY_TIMESTAMP, alert.getTimestamp());
+
+            long alertId = db.insert(TABLE_ALERTS, null, values);
+            return alertId;
+        }
     }
 
     // Obtener todas las alertas
@@ -526,8 +1004,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             } while (cursor.moveToNext());
             cursor.close();
         }
-
-        db.close();
         return alerts;
     }
 
@@ -540,7 +1016,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         db.update(TABLE_ALERTS, values, KEY_ID + "=?",
                 new String[]{String.valueOf(alertId)});
-        db.close();
     }
 
     // Obtener número de alertas no leídas
@@ -555,7 +1030,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         }
 
         cursor.close();
-        db.close();
 
         return count;
     }
@@ -584,8 +1058,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             } while (cursor.moveToNext());
             cursor.close();
         }
-
-        db.close();
         return plants;
     }
 
@@ -643,8 +1115,50 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             } while (cursor.moveToNext());
             cursor.close();
         }
+        return alerts;
+    }
+
+    /**
+     * Obtener alertas no leídas con id mayor a afterId, en orden de creación
+     */
+    public List<Alert> getUnreadAlertsAfter(long afterId) {
+        return queryAlerts(KEY_IS_READ + "=0 AND " + KEY_ID + " > ?",
+                new String[]{String.valueOf(afterId)}, KEY_ID + " ASC", null);
+    }
 
-        db.close();
+    /**
+     * Obtener las alertas no leídas más recientes de una planta
+     */
+    public List<Alert> getUnreadAlertsForPlant(int plantId, int limit) {
+        return queryAlerts(KEY_IS_READ + "=0 AND " + KEY_PLANT_ID + " = ?",
+                new String[]{String.valueOf(plantId)}, KEY_ID + " DESC", String.valueOf(limit));
+    }
+
+    /**
+     * Número de alertas no leídas de una planta
+     */
+    public int getUnreadAlertsCountForPlant(int plantId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return (int) DatabaseUtils.queryNumEntries(db, TABLE_ALERTS,
+                KEY_IS_READ + " = 0 AND " + KEY_PLANT_ID + " = ?", new String[]{String.valueOf(plantId)});
+    }
+
+    /**
+     * Mayor id de alerta existente (0 si no hay alertas)
+     */
+    public long getMaxAlertId() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return DatabaseUtils.longForQuery(db, "SELECT IFNULL(MAX(" + KEY_ID + "), 0) FROM " + TABLE_ALERTS, null);
+    }
+
+    private List<Alert> queryAlerts(String selection, String[] args, String orderBy, String limit) {
+        List<Alert> alerts = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_ALERTS, null, selection, args, null, null, orderBy, limit);
+        while (cursor.moveToNext()) {
+            alerts.add(cursorToAlert(cursor));
+        }
+        cursor.close();
         return alerts;
     }
 
@@ -688,7 +1202,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         if (cursor != null) {
             cursor.close();
         }
-        db.close();
 
         return exists;
     }
@@ -712,8 +1225,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 KEY_EMAIL + "=?",
                 new String[]{email}
         );
-
-        db.close();
         return rowsAffected > 0;
     }
     public int updatePlant(Plant plant) {
@@ -735,8 +1246,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 KEY_ID + "=?",
                 new String[]{ String.valueOf(plant.getId()) }
         );
-
-        db.close();
         return rows;
     }
 
@@ -751,6 +1260,193 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     // ========== MÉTODOS AUXILIARES PARA MIGRACIÓN ==========
 
+    /**
+     * Asigna los parámetros de una fila a la sentencia compilada
+     */
+    private interface RowBinder<T> {
+        void bind(SQLiteStatement statement, T item);
+    }
+
+    /**
+     * Ejecutar un INSERT ... ON CONFLICT compilado una vez por cada elemento,
+     * todo dentro de una sola transacción.
+     * Una fila inválida (ej: restricción NOT NULL) se descarta sin abortar el lote.
+     * @return Cantidad de filas insertadas o actualizadas
+     */
+    private <T> int upsertAll(String sql, List<T> items, RowBinder<T> binder) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int written = 0;
+
+        // Con WAL, una transacción no exclusiva deja leer a las pantallas mientras tanto
+        db.beginTransactionNonExclusive();
+        SQLiteStatement statement = db.compileStatement(sql);
+        try {
+            for (T item : items) {
+                statement.clearBindings();
+                binder.bind(statement, item);
+                try {
+                    statement.executeInsert();
+                    written++;
+                } catch (SQLException e) {
+                    AppLog.e(TAG, "upsertAll: fila descartada: %s", e.getMessage());
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            statement.close();
+            db.endTransaction();
+        }
+        return written;
+    }
+
+    private static void bindText(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    // El id 0 significa "sin id": se deja que SQLite asigne uno nuevo
+    private static void bindId(SQLiteStatement statement, int index, int id) {
+        if (id > 0) {
+            statement.bindLong(index, id);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    /**
+     * Insertar o actualizar usuarios (por email) en una sola transacción
+     * @return Cantidad de usuarios escritos
+     */
+    public int upsertUsers(List<User> users) {
+        String sql = "INSERT INTO " + TABLE_USERS + " (" + KEY_NAME + ", " + KEY_EMAIL + ", "
+                + KEY_PASSWORD + ", " + KEY_PROFILE_IMAGE + ", " + KEY_GOOGLE_ID + ", "
+                + KEY_CREATED_AT + ", " + KEY_UPDATED_AT + ") VALUES (?, ?, ?, ?, ?, ?, ?)"
+                + " ON CONFLICT(" + KEY_EMAIL + ") DO UPDATE SET "
+                + KEY_NAME + " = excluded." + KEY_NAME + ", "
+                + KEY_PASSWORD + " = COALESCE(excluded." + KEY_PASSWORD + ", " + KEY_PASSWORD + "), "
+                + KEY_PROFILE_IMAGE + " = excluded." + KEY_PROFILE_IMAGE + ", "
+                + KEY_GOOGLE_ID + " = excluded." + KEY_GOOGLE_ID + ", "
+                + KEY_UPDATED_AT + " = excluded." + KEY_UPDATED_AT;
+        String now = String.valueOf(System.currentTimeMillis());
+
+        return upsertAll(sql, users, (statement, user) -> {
+            bindText(statement, 1, user.getName());
+            bindText(statement, 2, user.getEmail());
+            bindText(statement, 3, user.getPassword());
+            bindText(statement, 4, user.getProfileImage());
+            bindText(statement, 5, user.getGoogleId());
+            bindText(statement, 6, user.getCreatedAt() != null ? user.getCreatedAt() : now);
+            bindText(statement, 7, user.getUpdatedAt() != null ? user.getUpdatedAt() : now);
+        });
+    }
+
+    /**
+     * Insertar o actualizar plantas (por id) en una sola transacción
+     * @return Cantidad de plantas escritas
+     */
+    public int upsertPlants(List<Plant> plants) {
+        String[] columns = {KEY_USER_ID, KEY_PLANT_NAME, KEY_TYPE, KEY_SPECIES, KEY_SCIENTIFIC_NAME,
+                KEY_IMAGE_URL, KEY_IS_CONNECTED, KEY_DEVICE_ID, KEY_OPTIMAL_SOIL_HUM_MIN,
+                KEY_OPTIMAL_SOIL_HUM_MAX, KEY_OPTIMAL_TEMP_MIN, KEY_OPTIMAL_TEMP_MAX,
+                KEY_OPTIMAL_AMB_HUM_MIN, KEY_OPTIMAL_AMB_HUM_MAX, KEY_OPTIMAL_LIGHT, KEY_UPDATED_AT};
+        String sql = buildUpsert(TABLE_PLANTS, columns, KEY_CREATED_AT);
+        String now = String.valueOf(System.currentTimeMillis());
+
+        return upsertAll(sql, plants, (statement, plant) -> {
+            bindId(statement, 1, plant.getId());
+            statement.bindLong(2, plant.getUserId());
+            bindText(statement, 3, plant.getName());
+            bindText(statement, 4, plant.getType());
+            bindText(statement, 5, plant.getSpecies());
+            bindText(statement, 6, plant.getScientificName());
+            bindText(statement, 7, plant.getImageUrl());
+            statement.bindLong(8, plant.isConnected() ? 1 : 0);
+            bindText(statement, 9, plant.getDeviceId());
+            statement.bindDouble(10, plant.getOptimalSoilHumidityMin());
+            statement.bindDouble(11, plant.getOptimalSoilHumidityMax());
+            statement.bindDouble(12, plant.getOptimalTempMin());
+            statement.bindDouble(13, plant.getOptimalTempMax());
+            statement.bindDouble(14, plant.getOptimalAmbientHumidityMin());
+            statement.bindDouble(15, plant.getOptimalAmbientHumidityMax());
+            bindText(statement, 16, plant.getOptimalLightLevel());
+            bindText(statement, 17, now);
+            bindText(statement, 18, now);
+        });
+    }
+
+    /**
+     * Insertar o actualizar lecturas de sensores (por id) en una sola transacción.
+     * Reimportar los mismos datos no genera duplicados.
+     * @return Cantidad de lecturas escritas
+     */
+    public int upsertSensorData(List<SensorData> readings) {
+        String[] columns = {KEY_PLANT_ID, KEY_SOIL_HUMIDITY, KEY_TEMPERATURE, KEY_AMBIENT_HUMIDITY,
+                KEY_UV_LEVEL, KEY_WATER_LEVEL, KEY_PEST_COUNT, KEY_TIMESTAMP};
+        String sql = buildUpsert(TABLE_SENSOR_DATA, columns, null);
+
+        return upsertAll(sql, readings, (statement, data) -> {
+            bindId(statement, 1, data.getId());
+            statement.bindLong(2, data.getPlantId());
+            statement.bindDouble(3, data.getSoilHumidity());
+            statement.bindDouble(4, data.getTemperature());
+            statement.bindDouble(5, data.getAmbientHumidity());
+            statement.bindDouble(6, data.getUvLevel());
+            statement.bindDouble(7, data.getWaterLevel());
+            statement.bindLong(8, data.getPestCount());
+            bindText(statement, 9, data.getTimestamp());
+        });
+    }
+
+    /**
+     * Insertar o actualizar alertas (por id) en una sola transacción
+     * @return Cantidad de alertas escritas
+     */
+    public int upsertAlerts(List<Alert> alerts) {
+        String[] columns = {KEY_PLANT_ID, KEY_ALERT_TYPE, KEY_TITLE, KEY_MESSAGE, KEY_SEVERITY,
+                KEY_IS_READ, KEY_ICON_TYPE, KEY_TIMESTAMP};
+        String sql = buildUpsert(TABLE_ALERTS, columns, null);
+
+        return upsertAll(sql, alerts, (statement, alert) -> {
+            bindId(statement, 1, alert.getId());
+            statement.bindLong(2, alert.getPlantId());
+            bindText(statement, 3, alert.getAlertType());
+            bindText(statement, 4, alert.getTitle());
+            bindText(statement, 5, alert.getMessage());
+            bindText(statement, 6, alert.getSeverity());
+            statement.bindLong(7, alert.isRead() ? 1 : 0);
+            bindText(statement, 8, alert.getIconType());
+            bindText(statement, 9, alert.getTimestamp());
+        });
+    }
+
+    /**
+     * Construir "INSERT (id, columnas[, insertOnlyColumn]) ... ON CONFLICT(id) DO UPDATE".
+     * El id va en el parámetro 1, luego las columnas en orden y al final
+     * insertOnlyColumn (que no se modifica al actualizar, ej: created_at).
+     */
+    private static String buildUpsert(String table, String[] columns, String insertOnlyColumn) {
+        StringBuilder names = new StringBuilder(KEY_ID);
+        StringBuilder params = new StringBuilder("?");
+        StringBuilder updates = new StringBuilder();
+        for (String column : columns) {
+            names.append(", ").append(column);
+            params.append(", ?");
+            if (updates.length() > 0) {
+                updates.append(", ");
+            }
+            updates.append(column).append(" = excluded.").append(column);
+        }
+        if (insertOnlyColumn != null) {
+            names.append(", ").append(insertOnlyColumn);
+            params.append(", ?");
+        }
+        return "INSERT INTO " + table + " (" + names + ") VALUES (" + params + ")"
+                + " ON CONFLICT(" + KEY_ID + ") DO UPDATE SET " + updates;
+    }
+
     /**
      * Limpiar todas las tablas de la base de datos
      * PRECAUCIÓN: Esta operación elimina TODOS los datos
@@ -761,23 +1457,238 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         try {
             db.beginTransaction();
 
+            // No registrar estos borrados: la próxima sincronización no debe
+            // borrar los datos en Firebase. Se reinician las marcas de agua
+            // y los puntos de control para volver a descargar todo.
+            db.execSQL("INSERT INTO " + TABLE_SYNC_SUPPRESS + " VALUES (1)");
+
             // Eliminar en orden inverso por Foreign Keys
             db.delete(TABLE_ALERTS, null, null);
             db.delete(TABLE_SENSOR_DATA, null, null);
+            db.delete(TABLE_SENSOR_BLOCKS, null, null);
             db.delete(TABLE_PLANTS, null, null);
             db.delete(TABLE_USERS, null, null);
+            db.delete(TABLE_SYNC_CHANGES, null, null);
+            db.delete(TABLE_SYNC_STATE, KEY_STATE_KEY + " LIKE 'pull_%' OR "
+                    + KEY_STATE_KEY + " LIKE '" + CHECKPOINT_PREFIX + "%'", null);
+
+            db.execSQL("DELETE FROM " + TABLE_SYNC_SUPPRESS);
 
             db.setTransactionSuccessful();
-            Log.d(TAG, "Todas las tablas han sido limpiadas");
+            AppLog.d(TAG, "Todas las tablas han sido limpiadas");
 
         } catch (Exception e) {
-            Log.e(TAG, "Error al limpiar tablas: " + e.getMessage());
+            AppLog.e(TAG, "Error al limpiar tablas: %s", e.getMessage());
         } finally {
             db.endTransaction();
-            db.close();
         }
     }
 
+    // ========== SINCRONIZACIÓN INCREMENTAL ==========
+
+    /**
+     * Cambio local pendiente de enviar (varios cambios a la misma fila se combinan)
+     */
+    public static class SyncChange {
+        public final long seq;
+        public final String tableName;
+        public final long rowId;
+        public final boolean deleted;
+        // El primer cambio pendiente fue la inserción: la fila aún no existe en Firebase
+        public final boolean newRow;
+
+        SyncChange(long seq, String tableName, long rowId, boolean deleted, boolean newRow) {
+            this.seq = seq;
+            this.tableName = tableName;
+            this.rowId = rowId;
+            this.deleted = deleted;
+            this.newRow = newRow;
+        }
+    }
+
+    /**
+     * Obtener los cambios posteriores a afterSeq, uno por fila (el más reciente),
+     * en orden de secuencia
+     */
+    public List<SyncChange> getPendingChanges(long afterSeq, int limit) {
+        List<SyncChange> changes = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        String query = "SELECT c." + KEY_SEQ + ", c." + KEY_TABLE_NAME + ", c." + KEY_ROW_ID + ", c." + KEY_DELETED
+                + ", (SELECT c3." + KEY_INSERTED + " FROM " + TABLE_SYNC_CHANGES + " c3"
+                + " WHERE c3." + KEY_TABLE_NAME + " = c." + KEY_TABLE_NAME
+                + " AND c3." + KEY_ROW_ID + " = c." + KEY_ROW_ID
+                + " ORDER BY c3." + KEY_SEQ + " LIMIT 1)"
+                + " FROM " + TABLE_SYNC_CHANGES + " c"
+                + " WHERE c." + KEY_SEQ + " > ? AND c." + KEY_SEQ + " = ("
+                + "SELECT MAX(c2." + KEY_SEQ + ") FROM " + TABLE_SYNC_CHANGES + " c2"
+                + " WHERE c2." + KEY_TABLE_NAME + " = c." + KEY_TABLE_NAME
+                + " AND c2." + KEY_ROW_ID + " = c." + KEY_ROW_ID + ")"
+                + " ORDER BY c." + KEY_SEQ + " LIMIT " + limit;
+
+        Cursor cursor = db.rawQuery(query, new String[]{String.valueOf(afterSeq)});
+        while (cursor.moveToNext()) {
+            changes.add(new SyncChange(cursor.getLong(0), cursor.getString(1),
+                    cursor.getLong(2), cursor.getInt(3) == 1, cursor.getInt(4) == 1));
+        }
+        cursor.close();
+        return changes;
+    }
+
+    /**
+     * Eliminar del registro los cambios ya enviados. Se conservan los de filas
+     * con cambios posteriores, para saber si su primer cambio fue la inserción.
+     */
+    public void pruneSyncChanges(long upToSeq) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String seq = String.valueOf(upToSeq);
+        db.delete(TABLE_SYNC_CHANGES, KEY_SEQ + " <= ? AND NOT EXISTS (SELECT 1 FROM "
+                + TABLE_SYNC_CHANGES + " c2 WHERE c2." + KEY_TABLE_NAME + " = " + TABLE_SYNC_CHANGES + "." + KEY_TABLE_NAME
+                + " AND c2." + KEY_ROW_ID + " = " + TABLE_SYNC_CHANGES + "." + KEY_ROW_ID
+                + " AND c2." + KEY_SEQ + " > ?)", new String[]{seq, seq});
+    }
+
+    /**
+     * Leer una fila completa como Map columna -> valor (null si ya no existe)
+     */
+    public Map<String, Object> getRowForSync(String tableName, long rowId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(tableName, null, KEY_ID + " = ?",
+                new String[]{String.valueOf(rowId)}, null, null, null);
+
+        Map<String, Object> row = null;
+        if (cursor.moveToFirst()) {
+            row = new HashMap<>();
+            for (int i = 0; i < cursor.getColumnCount(); i++) {
+                switch (cursor.getType(i)) {
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        row.put(cursor.getColumnName(i), cursor.getLong(i));
+                        break;
+                    case Cursor.FIELD_TYPE_FLOAT:
+                        row.put(cursor.getColumnName(i), cursor.getDouble(i));
+                        break;
+                    case Cursor.FIELD_TYPE_NULL:
+                        break;
+                    default:
+                        row.put(cursor.getColumnName(i), cursor.getString(i));
+                        break;
+                }
+            }
+        }
+        cursor.close();
+        return row;
+    }
+
+    /**
+     * Borrar filas por id (cambios remotos); debe llamarse dentro de
+     * runWithoutChangeTracking para no reenviar el borrado
+     */
+    public int deleteRowsForSync(String tableName, List<Long> rowIds) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int deleted = 0;
+        db.beginTransactionNonExclusive();
+        try {
+            for (Long rowId : rowIds) {
+                deleted += db.delete(tableName, KEY_ID + " = ?", new String[]{String.valueOf(rowId)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return deleted;
+    }
+
+    /**
+     * Ejecutar escrituras sin registrarlas en sync_changes (ej: al aplicar
+     * cambios descargados de Firebase, para que no vuelvan a subirse).
+     * La marca en sync_suppress solo es visible dentro de esta transacción.
+     */
+    public void runWithoutChangeTracking(Runnable writes) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            db.execSQL("INSERT INTO " + TABLE_SYNC_SUPPRESS + " VALUES (1)");
+            writes.run();
+            db.execSQL("DELETE FROM " + TABLE_SYNC_SUPPRESS);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Leer un valor persistente de sincronización (marcas de agua, etc.)
+     */
+    public String getSyncState(String key) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_SYNC_STATE, new String[]{KEY_STATE_VALUE},
+                KEY_STATE_KEY + " = ?", new String[]{key}, null, null, null);
+        String value = null;
+        if (cursor.moveToFirst()) {
+            value = cursor.getString(0);
+        }
+        cursor.close();
+        return value;
+    }
+
+    /**
+     * Último seq de sync_changes ya subido a Firebase
+     */
+    private long getPushSeq() {
+        String value = getSyncState(DeltaSyncManager.STATE_PUSH_SEQ);
+        try {
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Guardar un valor persistente de sincronización
+     */
+    public void setSyncState(String key, String value) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(KEY_STATE_KEY, key);
+        values.put(KEY_STATE_VALUE, value);
+        db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Obtener el punto de control de una migración (null si no hay)
+     * @param name Nombre del punto de control (ej: "export:users")
+     */
+    public MigrationCheckpoint getMigrationCheckpoint(String name) {
+        String value = getSyncState(CHECKPOINT_PREFIX + name);
+        return value != null ? MigrationCheckpoint.fromJson(value) : null;
+    }
+
+    /**
+     * Guardar el punto de control de una migración
+     */
+    public void saveMigrationCheckpoint(String name, MigrationCheckpoint checkpoint) {
+        setSyncState(CHECKPOINT_PREFIX + name, checkpoint.toJson());
+    }
+
+    /**
+     * Eliminar los puntos de control cuyo nombre empieza con el prefijo
+     * @param prefix Prefijo (ej: "export:" o "import:users")
+     */
+    public void clearMigrationCheckpoints(String prefix) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_SYNC_STATE, KEY_STATE_KEY + " LIKE ?",
+                new String[]{CHECKPOINT_PREFIX + prefix + "%"});
+    }
+
+    /**
+     * Cantidad de cambios locales aún no enviados
+     */
+    public long getPendingChangesCount(long afterSeq) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return DatabaseUtils.queryNumEntries(db, TABLE_SYNC_CHANGES, KEY_SEQ + " > ?",
+                new String[]{String.valueOf(afterSeq)});
+    }
+
     /**
      * Obtener estadísticas de la base de datos
      * @return Map con el conteo de registros por tabla
@@ -816,84 +1727,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             cursorAlerts.close();
 
         } catch (Exception e) {
-            Log.e(TAG, "Error al obtener estadísticas: " + e.getMessage());
-        } finally {
-            db.close();
+            AppLog.e(TAG, "Error al obtener estadísticas: %s", e.getMessage());
         }
 
         return stats;
     }
 
-    /**
-     * Exportar base de datos a JSON (opcional)
-     * Útil para backup manual
-     */
-    public String exportToJSON() {
-        StringBuilder json = new StringBuilder();
-        SQLiteDatabase db = this.getReadableDatabase();
-
-        try {
-            json.append("{\n");
-
-            // Exportar cada tabla
-            String[] tables = {TABLE_USERS, TABLE_PLANTS, TABLE_SENSOR_DATA, TABLE_ALERTS};
-
-            for (int i = 0; i < tables.length; i++) {
-                String tableName = tables[i];
-                json.append("  \"").append(tableName).append("\": [\n");
-
-                Cursor cursor = db.rawQuery("SELECT * FROM " + tableName, null);
-
-                if (cursor.moveToFirst()) {
-                    do {
-                        json.append("    {");
-
-                        for (int j = 0; j < cursor.getColumnCount(); j++) {
-                            String columnName = cursor.getColumnName(j);
-                            String value = cursor.getString(j);
-
-                            json.append("\"").append(columnName).append("\": ");
-
-                            if (value == null) {
-                                json.append("null");
-                            } else {
-                                json.append("\"").append(value.replace("\"", "\\\"")).append("\"");
-                            }
-
-                            if (j < cursor.getColumnCount() - 1) {
-                                json.append(", ");
-                            }
-                        }
-
-                        json.append("}");
-
-                        if (!cursor.isLast()) {
-                            json.append(",");
-                        }
-                        json.append("\n");
-
-                    } while (cursor.moveToNext());
-                }
-
-                cursor.close();
-                json.append("  ]");
-
-                if (i < tables.length - 1) {
-                    json.append(",");
-                }
-                json.append("\n");
-            }
-
-            json.append("}\n");
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error al exportar a JSON: " + e.getMessage());
-            return null;
-        } finally {
-            db.close();
-        }
-
-        return json.toString();
-    }
-
 }
@@ -0,0 +1,420 @@
+package com.devst.mimaseterointeligente.database;
+
+import android.content.Context;
+
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Sincronización incremental entre SQLite y Firebase.
+ *
+ * En vez de recorrer tablas completas solo se mueven los cambios:
+ * - Subida: los triggers de SQLite registran cada insert/update/delete en
+ *   sync_changes; se envían en lotes con un único updateChildren multi-ruta
+ *   y se avanza la marca "push_seq".
+ * - Bajada: cada registro subido lleva sync_ts (hora del servidor) y
+ *   sync_origin; se piden solo los registros con sync_ts posterior a la
+ *   última marca descargada de cada nodo. Los borrados se publican en
+ *   /sync_deletes/{nodo}/{id}.
+ *
+ * Si una fila tiene cambios locales pendientes, el cambio local gana: no se
+ * sobrescribe al bajar y se sube a continuación.
+ * Cada lote también ajusta los contadores de /stats (ver FirebaseStats).
+ * Requiere ".indexOn": ["sync_ts"] en cada nodo (ver INTEGRATION_GUIDE.md).
+ */
+public class DeltaSyncManager {
+
+    private static final String TAG = "DeltaSyncManager";
+    private static final int TIMEOUT_SECONDS = 30;
+    private static final int PAGE_SIZE = 500; // Registros por página descargada
+    private static final int PUSH_BATCH_SIZE = 500; // Cambios por updateChildren
+
+    private static final String NODE_SYNC_DELETES = "sync_deletes";
+    private static final String FIELD_SYNC_TS = "sync_ts";
+    private static final String FIELD_SYNC_ORIGIN = "sync_origin";
+
+    private static final String STATE_CLIENT_ID = "client_id";
+    static final String STATE_PUSH_SEQ = "push_seq"; // También lo lee DatabaseHelper al archivar
+    private static final String STATE_PULL_TS = "pull_ts:";
+    private static final String STATE_PULL_KEY = "pull_key:";
+    private static final String STATE_PULL_DELETE_TS = "pull_del_ts:";
+    private static final String STATE_PULL_DELETE_KEY = "pull_del_key:";
+
+    // Evita dos sincronizaciones simultáneas (ej: botón y tarea programada)
+    private static final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final DatabaseHelper dbHelper;
+    private final DatabaseReference firebaseRef;
+    private final List<NodeSpec<?>> nodes = new ArrayList<>();
+
+    private SyncCallback callback;
+
+    /**
+     * Interface para callbacks de sincronización (se llaman desde el hilo de fondo)
+     */
+    public interface SyncCallback {
+        void onProgress(String message);
+        void onComplete(SyncResult result);
+        void onError(String error);
+    }
+
+    /**
+     * Resumen de una sincronización
+     */
+    public static class SyncResult {
+        public int pulled = 0;
+        public int pulledDeletes = 0;
+        public int pushed = 0;
+        public int pushedDeletes = 0;
+        public int skipped = 0;
+
+        @Override
+        public String toString() {
+            return "bajados " + pulled + " (+" + pulledDeletes + " borrados), subidos "
+                    + pushed + " (+" + pushedDeletes + " borrados)";
+        }
+    }
+
+    /**
+     * Nodo sincronizado: tabla/nodo, cómo leer un registro y cómo guardarlo
+     */
+    private static class NodeSpec<T> {
+        final String name;
+        final Function<DataSnapshot, T> mapper;
+        final Function<List<T>, Integer> writer;
+
+        NodeSpec(String name, Function<DataSnapshot, T> mapper, Function<List<T>, Integer> writer) {
+            this.name = name;
+            this.mapper = mapper;
+            this.writer = writer;
+        }
+    }
+
+    public DeltaSyncManager(Context context) {
+        this.dbHelper = DatabaseHelper.getInstance(context);
+        this.firebaseRef = FirebaseDatabase.getInstance().getReference();
+
+        // Orden de Foreign Keys: users -> plants -> sensor_data/alerts
+        nodes.add(new NodeSpec<>("users", FirebaseToSQLiteMigration::mapUser, dbHelper::upsertUsers));
+        nodes.add(new NodeSpec<>("plants", FirebaseToSQLiteMigration::mapPlant, dbHelper::upsertPlants));
+        nodes.add(new NodeSpec<>("sensor_data", FirebaseToSQLiteMigration::mapSensorData, dbHelper::upsertSensorData));
+        nodes.add(new NodeSpec<>("alerts", FirebaseToSQLiteMigration::mapAlert, dbHelper::upsertAlerts));
+    }
+
+    public void setCallback(SyncCallback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Sincronizar en un hilo de fondo; el resultado llega por el callback
+     */
+    public void syncAsync() {
+        new Thread(() -> {
+            try {
+                SyncResult result = sync();
+                if (callback != null) {
+                    callback.onComplete(result);
+                }
+            } catch (Exception e) {
+                AppLog.e(TAG, "Error en sincronización: %s", e.getMessage());
+                if (callback != null) {
+                    callback.onError(e.getMessage());
+                }
+            }
+        }, "masetero-sync").start();
+    }
+
+    /**
+     * Sincronización automática en un hilo de fondo (tarea periódica mientras
+     * la app está visible). Solo corre si ya hubo una sincronización manual:
+     * antes hace falta una exportación o importación completa. Si ya hay una
+     * sincronización en curso no hace nada.
+     */
+    public void syncIfEnabledAsync() {
+        new Thread(() -> {
+            if (dbHelper.getSyncState(STATE_CLIENT_ID) == null) {
+                return;
+            }
+            try {
+                SyncResult result = sync();
+                if (callback != null) {
+                    callback.onComplete(result);
+                }
+            } catch (IllegalStateException e) {
+                AppLog.d(TAG, "Sincronización automática omitida: %s", e.getMessage());
+            } catch (Exception e) {
+                AppLog.e(TAG, "Error en sincronización automática: %s", e.getMessage());
+                if (callback != null) {
+                    callback.onError(e.getMessage());
+                }
+            }
+        }, "masetero-sync").start();
+    }
+
+    /**
+     * Sincronizar ahora: primero bajar cambios remotos y luego subir los locales.
+     * Debe llamarse desde un hilo de fondo.
+     */
+    public SyncResult sync() throws Exception {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una sincronización en curso");
+        }
+        try {
+            SyncResult result = new SyncResult();
+            String clientId = getClientId();
+            long pushSeq = parseLong(dbHelper.getSyncState(STATE_PUSH_SEQ));
+
+            // Filas con cambios locales sin subir: no se sobrescriben al bajar
+            Set<String> pending = new HashSet<>();
+            for (DatabaseHelper.SyncChange change : dbHelper.getPendingChanges(pushSeq, Integer.MAX_VALUE)) {
+                pending.add(change.tableName + "/" + change.rowId);
+            }
+
+            for (NodeSpec<?> node : nodes) {
+                pullNode(node, clientId, pending, result);
+            }
+            // Borrados en orden inverso por Foreign Keys
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                pullDeletes(nodes.get(i).name, pending, result);
+            }
+
+            push(clientId, pushSeq, result);
+
+            AppLog.d(TAG, "Sincronización completa: %s", result);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Bajar los registros de un nodo con sync_ts posterior a la última marca
+     */
+    private <T> void pullNode(NodeSpec<T> node, String clientId, Set<String> pending,
+                              SyncResult result) throws Exception {
+        long lastTs = parseLong(dbHelper.getSyncState(STATE_PULL_TS + node.name));
+        String lastKey = dbHelper.getSyncState(STATE_PULL_KEY + node.name);
+
+        while (true) {
+            Query query = firebaseRef.child(node.name).orderByChild(FIELD_SYNC_TS);
+            if (lastKey != null) {
+                // startAt es inclusivo: se pide un registro extra y se omite el de la marca
+                query = query.startAt(lastTs, lastKey).limitToFirst(PAGE_SIZE + 1);
+            } else {
+                // Los registros sin sync_ts (exportación completa) quedan fuera
+                query = query.startAt(lastTs).limitToFirst(PAGE_SIZE);
+            }
+
+            DataSnapshot page = Tasks.await(query.get(), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            List<T> records = new ArrayList<>();
+            int pageCount = 0;
+            for (DataSnapshot child : page.getChildren()) {
+                Long ts = child.child(FIELD_SYNC_TS).getValue(Long.class);
+                if (ts == null || (child.getKey().equals(lastKey) && ts == lastTs)) {
+                    continue;
+                }
+                pageCount++;
+                lastTs = ts;
+                lastKey = child.getKey();
+
+                // Eco de un cambio subido por este dispositivo o fila con cambios locales
+                if (clientId.equals(child.child(FIELD_SYNC_ORIGIN).getValue(String.class))
+                        || pending.contains(node.name + "/" + child.getKey())) {
+                    result.skipped++;
+                    continue;
+                }
+
+                try {
+                    records.add(node.mapper.apply(child));
+                } catch (Exception e) {
+                    AppLog.e(TAG, "Error al leer registro de %s: %s", node.name, e.getMessage());
+                }
+            }
+
+            if (pageCount == 0) {
+                break;
+            }
+
+            // Guardar la página y la nueva marca en la misma transacción
+            final long pageTs = lastTs;
+            final String pageKey = lastKey;
+            final int[] written = {0};
+            dbHelper.runWithoutChangeTracking(() -> {
+                if (!records.isEmpty()) {
+                    written[0] = node.writer.apply(records);
+                }
+                dbHelper.setSyncState(STATE_PULL_TS + node.name, String.valueOf(pageTs));
+                dbHelper.setSyncState(STATE_PULL_KEY + node.name, pageKey);
+            });
+            result.pulled += written[0];
+
+            if (callback != null) {
+                callback.onProgress(node.name + ": " + result.pulled + " cambios descargados");
+            }
+            if (pageCount < PAGE_SIZE) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Aplicar los borrados publicados en /sync_deletes/{nodo} desde la última marca
+     */
+    private void pullDeletes(String node, Set<String> pending, SyncResult result) throws Exception {
+        long lastTs = parseLong(dbHelper.getSyncState(STATE_PULL_DELETE_TS + node));
+        String lastKey = dbHelper.getSyncState(STATE_PULL_DELETE_KEY + node);
+
+        while (true) {
+            Query query = firebaseRef.child(NODE_SYNC_DELETES).child(node).orderByValue();
+            if (lastKey != null) {
+                query = query.startAt(lastTs, lastKey).limitToFirst(PAGE_SIZE + 1);
+            } else {
+                query = query.startAt(lastTs).limitToFirst(PAGE_SIZE);
+            }
+
+            DataSnapshot page = Tasks.await(query.get(), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            List<Long> rowIds = new ArrayList<>();
+            int pageCount = 0;
+            for (DataSnapshot child : page.getChildren()) {
+                Long ts = child.getValue(Long.class);
+                if (ts == null || (child.getKey().equals(lastKey) && ts == lastTs)) {
+                    continue;
+                }
+                pageCount++;
+                lastTs = ts;
+                lastKey = child.getKey();
+
+                if (!pending.contains(node + "/" + child.getKey())) {
+                    try {
+                        rowIds.add(Long.parseLong(child.getKey()));
+                    } catch (NumberFormatException e) {
+                        AppLog.e(TAG, "Id de borrado inválido en %s: %s", node, child.getKey());
+                    }
+                }
+            }
+
+            if (pageCount == 0) {
+                break;
+            }
+
+            final long pageTs = lastTs;
+            final String pageKey = lastKey;
+            final int[] deleted = {0};
+            dbHelper.runWithoutChangeTracking(() -> {
+                deleted[0] = dbHelper.deleteRowsForSync(node, rowIds);
+                dbHelper.setSyncState(STATE_PULL_DELETE_TS + node, String.valueOf(pageTs));
+                dbHelper.setSyncState(STATE_PULL_DELETE_KEY + node, pageKey);
+            });
+            result.pulledDeletes += deleted[0];
+
+            if (pageCount < PAGE_SIZE) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Subir los cambios locales pendientes en lotes multi-ruta
+     */
+    private void push(String clientId, long pushSeq, SyncResult result) throws Exception {
+        while (true) {
+            List<DatabaseHelper.SyncChange> changes = dbHelper.getPendingChanges(pushSeq, PUSH_BATCH_SIZE);
+            if (changes.isEmpty()) {
+                break;
+            }
+
+            Map<String, Object> updates = new HashMap<>();
+            Map<String, Long> countDeltas = new HashMap<>();
+            long batchSeq = pushSeq;
+            for (DatabaseHelper.SyncChange change : changes) {
+                String path = change.tableName + "/" + change.rowId;
+                String deletePath = NODE_SYNC_DELETES + "/" + path;
+                Map<String, Object> row = change.deleted ? null
+                        : dbHelper.getRowForSync(change.tableName, change.rowId);
+
+                if (row == null) {
+                    updates.put(path, null);
+                    updates.put(deletePath, ServerValue.TIMESTAMP);
+                    result.pushedDeletes++;
+                } else {
+                    row.put(FIELD_SYNC_TS, ServerValue.TIMESTAMP);
+                    row.put(FIELD_SYNC_ORIGIN, clientId);
+                    updates.put(path, row);
+                    updates.put(deletePath, null);
+                    result.pushed++;
+                }
+                batchSeq = Math.max(batchSeq, change.seq);
+
+                // Contador del nodo: +1 si la fila aparece en Firebase, -1 si desaparece
+                long delta = (row != null ? 1 : 0) - (change.newRow ? 0 : 1);
+                if (delta != 0) {
+                    countDeltas.merge(change.tableName, delta, Long::sum);
+                }
+            }
+            for (Map.Entry<String, Long> entry : countDeltas.entrySet()) {
+                if (entry.getValue() != 0) {
+                    updates.put(FirebaseStats.path(entry.getKey()), FirebaseStats.increment(entry.getValue()));
+                }
+            }
+
+            // Todo el lote (datos y contadores) se aplica de forma atómica en Firebase
+            Tasks.await(firebaseRef.updateChildren(updates), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            pushSeq = batchSeq;
+            dbHelper.setSyncState(STATE_PUSH_SEQ, String.valueOf(pushSeq));
+            dbHelper.pruneSyncChanges(pushSeq);
+
+            if (callback != null) {
+                callback.onProgress((result.pushed + result.pushedDeletes) + " cambios locales subidos");
+            }
+        }
+    }
+
+    /**
+     * Identificador de este dispositivo para reconocer sus propios cambios
+     */
+    private String getClientId() {
+        String clientId = dbHelper.getSyncState(STATE_CLIENT_ID);
+        if (clientId == null) {
+            clientId = UUID.randomUUID().toString();
+            dbHelper.setSyncState(STATE_CLIENT_ID, clientId);
+        }
+        return clientId;
+    }
+
+    /**
+     * Cantidad de cambios locales aún no subidos
+     */
+    public long getPendingCount() {
+        return dbHelper.getPendingChangesCount(parseLong(dbHelper.getSyncState(STATE_PUSH_SEQ)));
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
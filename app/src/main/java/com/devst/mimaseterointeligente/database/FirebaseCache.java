@@ -0,0 +1,129 @@
+package com.devst.mimaseterointeligente.database;
+
+import androidx.annotation.NonNull;
+
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Caché local de Firebase Realtime Database.
+ *
+ * La persistencia en disco permite abrir las pantallas desde la caché y
+ * encola las escrituras hechas sin conexión (se envían al reconectar, aun
+ * si la app se reinicia). Solo los nodos pequeños y usados a menudo se
+ * mantienen sincronizados con keepSynced:
+ * - los dispositivos disponibles (selector de dispositivos)
+ * - las plantas del usuario y los dispositivos asignados a ellas
+ *
+ * Los nodos grandes (sensor_data, sync_deletes) nunca usan keepSynced y se
+ * leen con get(), que consulta el servidor cuando hay conexión; lo que
+ * quede en caché lo descarta el límite de CACHE_SIZE_BYTES (LRU).
+ */
+public class FirebaseCache {
+
+    private static final String TAG = "FirebaseCache";
+    private static final long CACHE_SIZE_BYTES = 10 * 1024 * 1024; // 10 MB (mínimo 1 MB, máximo 100 MB)
+
+    private static volatile boolean connected = false;
+    private static Query userPlantsQuery;
+    private static final Set<String> syncedDevices = new HashSet<>();
+
+    private FirebaseCache() {
+    }
+
+    /**
+     * Activar la persistencia. Debe llamarse una sola vez, antes de cualquier
+     * otro uso de FirebaseDatabase (MaseteroApplication.onCreate)
+     */
+    public static void init() {
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        database.setPersistenceEnabled(true);
+        database.setPersistenceCacheSizeBytes(CACHE_SIZE_BYTES);
+
+        // Selector de dispositivos: misma consulta que DeviceSelectionActivity
+        availableDevicesQuery().keepSynced(true);
+
+        database.getReference(".info/connected").addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Boolean value = snapshot.getValue(Boolean.class);
+                connected = value != null && value;
+                AppLog.d(TAG, connected ? "Conectado a Firebase" : "Sin conexión a Firebase");
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                AppLog.e(TAG, "Error al leer .info/connected: %s", error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Indica si hay conexión con el servidor de Firebase
+     */
+    public static boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Consulta de los dispositivos disponibles para asignar
+     */
+    public static Query availableDevicesQuery() {
+        return FirebaseDatabase.getInstance().getReference("devices")
+                .orderByChild("is_available")
+                .equalTo(true);
+    }
+
+    /**
+     * Mantener sincronizadas las plantas del usuario con sesión iniciada
+     */
+    public static synchronized void keepUserPlantsSynced(int userId) {
+        if (userPlantsQuery != null) {
+            userPlantsQuery.keepSynced(false);
+        }
+        userPlantsQuery = FirebaseDatabase.getInstance().getReference("plants")
+                .orderByChild("user_id")
+                .equalTo(userId);
+        userPlantsQuery.keepSynced(true);
+    }
+
+    /**
+     * Mantener sincronizados los dispositivos asignados a las plantas del
+     * usuario; los que ya no están en la lista dejan de sincronizarse
+     */
+    public static synchronized void keepDevicesSynced(Collection<String> deviceIds) {
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        List<String> removed = new ArrayList<>(syncedDevices);
+        removed.removeAll(deviceIds);
+        for (String deviceId : removed) {
+            database.getReference("devices").child(deviceId).keepSynced(false);
+            syncedDevices.remove(deviceId);
+        }
+        for (String deviceId : deviceIds) {
+            if (syncedDevices.add(deviceId)) {
+                database.getReference("devices").child(deviceId).keepSynced(true);
+            }
+        }
+    }
+
+    /**
+     * Dejar de sincronizar los datos del usuario (al cerrar sesión)
+     */
+    public static synchronized void releaseUserData() {
+        if (userPlantsQuery != null) {
+            userPlantsQuery.keepSynced(false);
+            userPlantsQuery = null;
+        }
+        keepDevicesSynced(new ArrayList<>());
+    }
+}
@@ -0,0 +1,79 @@
+package com.devst.mimaseterointeligente.database;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+
+/**
+ * Contadores de registros por nodo en /stats/{nodo}.
+ * Evitan descargar un nodo completo solo para contar sus hijos:
+ * - La sincronización incremental los ajusta con ServerValue.increment en la
+ *   misma escritura multi-ruta que los datos (exacto).
+ * - La importación completa los fija con la cantidad de keys leídas (exacto).
+ * - La exportación completa los sube al menos a la cantidad de filas locales
+ *   (cota inferior: no sabe si el nodo tenía otros registros).
+ */
+public class FirebaseStats {
+
+    private static final String TAG = "FirebaseStats";
+
+    public static final String NODE = "stats";
+
+    private FirebaseStats() {
+    }
+
+    /**
+     * Ruta del contador de un nodo, para usar en updateChildren desde la raíz
+     */
+    public static String path(String node) {
+        return NODE + "/" + node;
+    }
+
+    /**
+     * Valor para sumar delta al contador dentro de un updateChildren
+     */
+    public static Object increment(long delta) {
+        return ServerValue.increment(delta);
+    }
+
+    /**
+     * Fijar el contador de un nodo a un valor conocido
+     */
+    public static void set(DatabaseReference root, String node, long count) {
+        root.child(NODE).child(node).setValue(count)
+                .addOnFailureListener(e -> AppLog.e(TAG, "Error al guardar contador de %s: %s",
+                        node, e.getMessage()));
+    }
+
+    /**
+     * Subir el contador de un nodo al menos hasta minimum (nunca lo baja)
+     */
+    public static void raiseTo(DatabaseReference root, String node, long minimum) {
+        root.child(NODE).child(node).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                Long current = currentData.getValue(Long.class);
+                if (current == null || current < minimum) {
+                    currentData.setValue(minimum);
+                }
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(@Nullable DatabaseError error, boolean committed,
+                                   @Nullable DataSnapshot currentData) {
+                if (error != null) {
+                    AppLog.e(TAG, "Error al actualizar contador de %s: %s", node, error.getMessage());
+                }
+            }
+        });
+    }
+}
@@ -1,34 +1,41 @@
 package com.devst.mimaseterointeligente.database;
 
 import android.content.Context;
-import android.util.Log;
-
-import androidx.annotation.NonNull;
 
 import com.devst.mimaseterointeligente.models.Alert;
 import com.devst.mimaseterointeligente.models.Plant;
 import com.devst.mimaseterointeligente.models.SensorData;
 import com.devst.mimaseterointeligente.models.User;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.EventLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import com.google.firebase.database.Query;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Clase para importar datos desde Firebase Realtime Database hacia SQLite local.
  * Incluye callbacks de progreso, manejo de errores, y verificación de duplicados.
+ *
+ * Los nodos se leen por páginas y cada página se guarda con un upsert
+ * (INSERT ... ON CONFLICT) dentro de una transacción.
  */
 public class FirebaseToSQLiteMigration {
 
     private static final String TAG = "FirebaseToSQLite";
     private static final int TIMEOUT_SECONDS = 30; // Timeout para operaciones de Firebase
+    private static final int PAGE_SIZE = 500; // Registros por página leída de Firebase
+    private static final String CHECKPOINT_PREFIX = "import:"; // Puntos de control por nodo
+    private static final String[] NODES = {"users", "plants", "sensor_data", "alerts"};
 
     private DatabaseHelper dbHelper;
     private DatabaseReference firebaseRef;
@@ -43,7 +50,7 @@ public class FirebaseToSQLiteMigration {
      */
     public FirebaseToSQLiteMigration(Context context) {
         this.context = context;
-        this.dbHelper = new DatabaseHelper(context);
+        this.dbHelper = DatabaseHelper.getInstance(context);
         this.firebaseRef = FirebaseDatabase.getInstance().getReference();
     }
 
@@ -65,12 +72,25 @@ public class FirebaseToSQLiteMigration {
     }
 
     /**
-     * Importar todas las tablas desde Firebase a SQLite
+     * Importar todas las tablas desde Firebase a SQLite desde cero
      */
     public void importAllTables() {
-        Log.d(TAG, "Iniciando importación completa desde Firebase a SQLite");
+        importAllTables(false);
+    }
+
+    /**
+     * Importar todas las tablas desde Firebase a SQLite
+     * @param resume true para continuar desde los puntos de control guardados,
+     *               false para descartarlos y empezar de cero
+     */
+    public void importAllTables(boolean resume) {
+        AppLog.d(TAG, "Iniciando importación completa desde Firebase a SQLite (reanudar: %s)", resume);
 
         new Thread(() -> {
+            if (!resume) {
+                dbHelper.clearMigrationCheckpoints(CHECKPOINT_PREFIX);
+            }
+
             AtomicInteger totalRecords = new AtomicInteger(0);
             AtomicInteger totalErrors = new AtomicInteger(0);
 
@@ -99,548 +119,402 @@ public class FirebaseToSQLiteMigration {
                 callback.onComplete(totalRecords.get(), totalErrors.get());
             }
 
-            Log.d(TAG, "Importación completa finalizada: " + totalRecords.get() +
-                  " registros, " + totalErrors.get() + " errores");
+            AppLog.d(TAG, "Importación completa finalizada: %d registros, %d errores",
+                    totalRecords.get(), totalErrors.get());
         }).start();
     }
 
     /**
-     * Importar usuarios desde Firebase
+     * Indica si hay una importación completa interrumpida que se puede reanudar.
+     * Consulta SQLite: llamar desde un hilo de fondo.
      */
-    public MigrationResult importUsers() {
-        Log.d(TAG, "Importando usuarios desde Firebase");
-        MigrationResult result = new MigrationResult();
-        CountDownLatch latch = new CountDownLatch(1);
-
-        firebaseRef.child("users").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                try {
-                    int totalRecords = (int) snapshot.getChildrenCount();
-                    int currentRecord = 0;
-
-                    Log.d(TAG, "Usuarios encontrados en Firebase: " + totalRecords);
-
-                    for (DataSnapshot userSnapshot : snapshot.getChildren()) {
-                        try {
-                            // Extraer datos del usuario
-                            User user = new User();
-
-                            // ID
-                            if (userSnapshot.hasChild("id")) {
-                                user.setId(userSnapshot.child("id").getValue(Integer.class));
-                            }
-
-                            // Campos requeridos
-                            if (userSnapshot.hasChild("name")) {
-                                user.setName(userSnapshot.child("name").getValue(String.class));
-                            }
-                            if (userSnapshot.hasChild("email")) {
-                                user.setEmail(userSnapshot.child("email").getValue(String.class));
-                            }
-                            if (userSnapshot.hasChild("password")) {
-                                user.setPassword(userSnapshot.child("password").getValue(String.class));
-                            }
-
-                            // Campos opcionales
-                            if (userSnapshot.hasChild("profile_image")) {
-                                user.setProfileImage(userSnapshot.child("profile_image").getValue(String.class));
-                            }
-                            if (userSnapshot.hasChild("google_id")) {
-                                user.setGoogleId(userSnapshot.child("google_id").getValue(String.class));
-                            }
-                            if (userSnapshot.hasChild("created_at")) {
-                                user.setCreatedAt(userSnapshot.child("created_at").getValue(String.class));
-                            }
-                            if (userSnapshot.hasChild("updated_at")) {
-                                user.setUpdatedAt(userSnapshot.child("updated_at").getValue(String.class));
-                            }
-
-                            // Verificar si el usuario ya existe
-                            User existingUser = dbHelper.getUserByEmail(user.getEmail());
-
-                            if (existingUser == null) {
-                                // Insertar nuevo usuario
-                                long userId = dbHelper.createUser(user);
-                                if (userId > 0) {
-                                    result.successCount++;
-                                    Log.d(TAG, "Usuario insertado: " + user.getEmail());
-                                } else {
-                                    result.errorCount++;
-                                }
-                            } else {
-                                // Actualizar usuario existente
-                                user.setId(existingUser.getId());
-                                int updated = dbHelper.updateUser(user);
-                                if (updated > 0) {
-                                    result.successCount++;
-                                    Log.d(TAG, "Usuario actualizado: " + user.getEmail());
-                                } else {
-                                    result.errorCount++;
-                                }
-                            }
-
-                            currentRecord++;
-                            if (callback != null && currentRecord % 5 == 0) {
-                                final int current = currentRecord;
-                                callback.onProgress("users", current, totalRecords);
-                            }
-
-                        } catch (Exception e) {
-                            result.errorCount++;
-                            Log.e(TAG, "Error al importar usuario: " + e.getMessage());
-                            if (callback != null) {
-                                callback.onError("users", "Error en registro: " + e.getMessage());
-                            }
-                        }
-                    }
-
-                    if (callback != null) {
-                        callback.onTableComplete("users", result.successCount, result.errorCount);
-                    }
-
-                } finally {
-                    latch.countDown();
-                }
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Error al leer usuarios de Firebase: " + error.getMessage());
-                if (callback != null) {
-                    callback.onError("users", "Error de Firebase: " + error.getMessage());
-                }
-                latch.countDown();
-            }
-        });
-
-        try {
-            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Log.e(TAG, "Timeout al importar usuarios");
+    public boolean hasResumableImport() {
+        boolean anyStarted = false;
+        boolean allCompleted = true;
+        for (String node : NODES) {
+            MigrationCheckpoint checkpoint = dbHelper.getMigrationCheckpoint(CHECKPOINT_PREFIX + node);
+            anyStarted |= checkpoint != null;
+            allCompleted &= checkpoint != null && checkpoint.completed;
         }
+        return anyStarted && !allCompleted;
+    }
 
-        return result;
+    /**
+     * Descartar el punto de control de un nodo para importarlo desde cero
+     */
+    public void resetCheckpoint(String node) {
+        dbHelper.clearMigrationCheckpoints(CHECKPOINT_PREFIX + node);
+    }
+
+    /**
+     * Importar usuarios desde Firebase (se identifican por email)
+     */
+    public MigrationResult importUsers() {
+        AppLog.d(TAG, "Importando usuarios desde Firebase");
+        return importNode("users", FirebaseToSQLiteMigration::mapUser, dbHelper::upsertUsers);
     }
 
     /**
-     * Importar plantas desde Firebase
+     * Importar plantas desde Firebase (se conserva el id de Firebase)
      */
     public MigrationResult importPlants() {
-        Log.d(TAG, "Importando plantas desde Firebase");
-        MigrationResult result = new MigrationResult();
-        CountDownLatch latch = new CountDownLatch(1);
-
-        firebaseRef.child("plants").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                try {
-                    int totalRecords = (int) snapshot.getChildrenCount();
-                    int currentRecord = 0;
-
-                    Log.d(TAG, "Plantas encontradas en Firebase: " + totalRecords);
-
-                    for (DataSnapshot plantSnapshot : snapshot.getChildren()) {
-                        try {
-                            Plant plant = new Plant();
-
-                            // Mapear campos
-                            if (plantSnapshot.hasChild("id")) {
-                                plant.setId(plantSnapshot.child("id").getValue(Integer.class));
-                            }
-                            if (plantSnapshot.hasChild("user_id")) {
-                                plant.setUserId(plantSnapshot.child("user_id").getValue(Integer.class));
-                            }
-                            if (plantSnapshot.hasChild("plant_name")) {
-                                plant.setName(plantSnapshot.child("plant_name").getValue(String.class));
-                            }
-                            if (plantSnapshot.hasChild("type")) {
-                                plant.setType(plantSnapshot.child("type").getValue(String.class));
-                            }
-                            if (plantSnapshot.hasChild("species")) {
-                                plant.setSpecies(plantSnapshot.child("species").getValue(String.class));
-                            }
-                            if (plantSnapshot.hasChild("scientific_name")) {
-                                plant.setScientificName(plantSnapshot.child("scientific_name").getValue(String.class));
-                            }
-                            if (plantSnapshot.hasChild("image_url")) {
-                                plant.setImageUrl(plantSnapshot.child("image_url").getValue(String.class));
-                            }
-                            if (plantSnapshot.hasChild("is_connected")) {
-                                Long isConnected = plantSnapshot.child("is_connected").getValue(Long.class);
-                                plant.setConnected(isConnected != null && isConnected == 1);
-                            }
-
-                            // Parámetros óptimos
-                            if (plantSnapshot.hasChild("optimal_soil_hum_min")) {
-                                plant.setOptimalSoilHumidityMin(plantSnapshot.child("optimal_soil_hum_min").getValue(Float.class));
-                            }
-                            if (plantSnapshot.hasChild("optimal_soil_hum_max")) {
-                                plant.setOptimalSoilHumidityMax(plantSnapshot.child("optimal_soil_hum_max").getValue(Float.class));
-                            }
-                            if (plantSnapshot.hasChild("optimal_temp_min")) {
-                                plant.setOptimalTempMin(plantSnapshot.child("optimal_temp_min").getValue(Float.class));
-                            }
-                            if (plantSnapshot.hasChild("optimal_temp_max")) {
-                                plant.setOptimalTempMax(plantSnapshot.child("optimal_temp_max").getValue(Float.class));
-                            }
-                            if (plantSnapshot.hasChild("optimal_amb_hum_min")) {
-                                plant.setOptimalAmbientHumidityMin(plantSnapshot.child("optimal_amb_hum_min").getValue(Float.class));
-                            }
-                            if (plantSnapshot.hasChild("optimal_amb_hum_max")) {
-                                plant.setOptimalAmbientHumidityMax(plantSnapshot.child("optimal_amb_hum_max").getValue(Float.class));
-                            }
-                            if (plantSnapshot.hasChild("optimal_light")) {
-                                plant.setOptimalLightLevel(plantSnapshot.child("optimal_light").getValue(String.class));
-                            }
-
-                            // Verificar si existe por ID
-                            Plant existingPlant = dbHelper.getPlantById(plant.getId());
-
-                            if (existingPlant == null) {
-                                long plantId = dbHelper.createPlant(plant);
-                                if (plantId > 0) {
-                                    result.successCount++;
-                                    Log.d(TAG, "Planta insertada: " + plant.getName());
-                                } else {
-                                    result.errorCount++;
-                                }
-                            } else {
-                                int updated = dbHelper.updatePlant(plant);
-                                if (updated > 0) {
-                                    result.successCount++;
-                                    Log.d(TAG, "Planta actualizada: " + plant.getName());
-                                } else {
-                                    result.errorCount++;
-                                }
-                            }
-
-                            currentRecord++;
-                            if (callback != null && currentRecord % 5 == 0) {
-                                final int current = currentRecord;
-                                callback.onProgress("plants", current, totalRecords);
-                            }
-
-                        } catch (Exception e) {
-                            result.errorCount++;
-                            Log.e(TAG, "Error al importar planta: " + e.getMessage());
-                            if (callback != null) {
-                                callback.onError("plants", "Error en registro: " + e.getMessage());
-                            }
-                        }
-                    }
+        AppLog.d(TAG, "Importando plantas desde Firebase");
+        return importNode("plants", FirebaseToSQLiteMigration::mapPlant, dbHelper::upsertPlants);
+    }
 
-                    if (callback != null) {
-                        callback.onTableComplete("plants", result.successCount, result.errorCount);
-                    }
+    /**
+     * Importar datos de sensores desde Firebase.
+     * Solo se leen las keys numéricas (respaldo de SQLite); las particiones
+     * /sensor_data/{deviceId} del ESP32 se leen con SensorDataReader.
+     */
+    public MigrationResult importSensorData() {
+        AppLog.d(TAG, "Importando datos de sensores desde Firebase");
+        return importNode("sensor_data", SensorDataReader.LAST_ROW_KEY,
+                FirebaseToSQLiteMigration::mapSensorData, dbHelper::upsertSensorData);
+    }
 
-                } finally {
-                    latch.countDown();
-                }
-            }
+    /**
+     * Importar alertas desde Firebase
+     */
+    public MigrationResult importAlerts() {
+        AppLog.d(TAG, "Importando alertas desde Firebase");
+        return importNode("alerts", FirebaseToSQLiteMigration::mapAlert, dbHelper::upsertAlerts);
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Error al leer plantas de Firebase: " + error.getMessage());
-                if (callback != null) {
-                    callback.onError("plants", "Error de Firebase: " + error.getMessage());
-                }
-                latch.countDown();
-            }
-        });
+    /**
+     * Convierte un registro de Firebase en un modelo
+     */
+    private interface RecordMapper<T> {
+        T map(DataSnapshot snapshot);
+    }
 
-        try {
-            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Log.e(TAG, "Timeout al importar plantas");
-        }
+    /**
+     * Escribe una página de modelos en SQLite y retorna cuántos se guardaron
+     */
+    private interface PageWriter<T> {
+        int write(List<T> records);
+    }
 
-        return result;
+    /**
+     * Importar un nodo completo por páginas de PAGE_SIZE registros.
+     * Cada página se pide con orderByKey().startAt(últimaKey).limitToFirst(),
+     * se procesa en el hilo que llama (nunca en el principal) y se guarda en
+     * una sola transacción, así la memoria usada no depende del tamaño del nodo.
+     * El punto de control del nodo se guarda en la misma transacción que la
+     * página: al reanudar se continúa desde la última página guardada, y como
+     * la escritura es un upsert una página repetida no duplica registros.
+     * Debe llamarse desde un hilo de fondo.
+     */
+    private <T> MigrationResult importNode(String node, RecordMapper<T> mapper, PageWriter<T> writer) {
+        return importNode(node, null, mapper, writer);
     }
 
     /**
-     * Importar datos de sensores desde Firebase
+     * Importar un nodo hasta endKey (inclusive; null para leerlo completo)
      */
-    public MigrationResult importSensorData() {
-        Log.d(TAG, "Importando datos de sensores desde Firebase");
+    private <T> MigrationResult importNode(String node, String endKey, RecordMapper<T> mapper, PageWriter<T> writer) {
         MigrationResult result = new MigrationResult();
-        CountDownLatch latch = new CountDownLatch(1);
-
-        firebaseRef.child("sensor_data").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                try {
-                    int totalRecords = (int) snapshot.getChildrenCount();
-                    int currentRecord = 0;
-
-                    Log.d(TAG, "Datos de sensores encontrados en Firebase: " + totalRecords);
-
-                    for (DataSnapshot sensorSnapshot : snapshot.getChildren()) {
-                        try {
-                            SensorData sensorData = new SensorData();
-
-                            if (sensorSnapshot.hasChild("id")) {
-                                sensorData.setId(sensorSnapshot.child("id").getValue(Integer.class));
-                            }
-                            if (sensorSnapshot.hasChild("plant_id")) {
-                                sensorData.setPlantId(sensorSnapshot.child("plant_id").getValue(Integer.class));
-                            }
-                            if (sensorSnapshot.hasChild("soil_humidity")) {
-                                Double value = sensorSnapshot.child("soil_humidity").getValue(Double.class);
-                                sensorData.setSoilHumidity(value != null ? value.floatValue() : 0f);
-                            }
-                            if (sensorSnapshot.hasChild("temperature")) {
-                                Double value = sensorSnapshot.child("temperature").getValue(Double.class);
-                                sensorData.setTemperature(value != null ? value.floatValue() : 0f);
-                            }
-                            if (sensorSnapshot.hasChild("ambient_humidity")) {
-                                Double value = sensorSnapshot.child("ambient_humidity").getValue(Double.class);
-                                sensorData.setAmbientHumidity(value != null ? value.floatValue() : 0f);
-                            }
-                            if (sensorSnapshot.hasChild("uv_level")) {
-                                Double value = sensorSnapshot.child("uv_level").getValue(Double.class);
-                                sensorData.setUvLevel(value != null ? value.floatValue() : 0f);
-                            }
-                            if (sensorSnapshot.hasChild("water_level")) {
-                                Double value = sensorSnapshot.child("water_level").getValue(Double.class);
-                                sensorData.setWaterLevel(value != null ? value.floatValue() : 0f);
-                            }
-                            if (sensorSnapshot.hasChild("pest_count")) {
-                                sensorData.setPestCount(sensorSnapshot.child("pest_count").getValue(Integer.class));
-                            }
-                            if (sensorSnapshot.hasChild("timestamp")) {
-                                sensorData.setTimestamp(sensorSnapshot.child("timestamp").getValue(String.class));
-                            }
-
-                            // Insertar datos de sensor (siempre insertar nuevos)
-                            long id = dbHelper.insertSensorData(sensorData);
-                            if (id > 0) {
-                                result.successCount++;
-                            } else {
-                                result.errorCount++;
-                            }
-
-                            currentRecord++;
-                            if (callback != null && currentRecord % 10 == 0) {
-                                final int current = currentRecord;
-                                callback.onProgress("sensor_data", current, totalRecords);
-                            }
-
-                        } catch (Exception e) {
-                            result.errorCount++;
-                            Log.e(TAG, "Error al importar dato de sensor: " + e.getMessage());
-                            if (callback != null) {
-                                callback.onError("sensor_data", "Error en registro: " + e.getMessage());
-                            }
-                        }
-                    }
+        String checkpointName = CHECKPOINT_PREFIX + node;
+        MigrationCheckpoint checkpoint = dbHelper.getMigrationCheckpoint(checkpointName);
+        if (checkpoint == null) {
+            checkpoint = new MigrationCheckpoint();
+        }
+        result.successCount = checkpoint.successCount;
+        result.errorCount = checkpoint.errorCount;
+
+        if (checkpoint.completed) {
+            // Nodo terminado en una ejecución anterior
+            AppLog.d(TAG, "%s ya importado, se omite", node);
+            if (callback != null) {
+                callback.onTableComplete(node, result.successCount, result.errorCount);
+            }
+            return result;
+        }
+
+        String lastKey = checkpoint.lastKey;
+        int processed = checkpoint.getProcessedCount();
+        long nodeStart = MetricsRegistry.start();
+        int imported = 0;
+
+        try {
+            while (true) {
+                Query query = firebaseRef.child(node).orderByKey();
+                if (endKey != null) {
+                    query = query.endAt(endKey);
+                }
+                if (lastKey != null) {
+                    // startAt es inclusivo: se pide un registro extra y se omite la última key
+                    query = query.startAt(lastKey).limitToFirst(PAGE_SIZE + 1);
+                } else {
+                    query = query.limitToFirst(PAGE_SIZE);
+                }
 
-                    if (callback != null) {
-                        callback.onTableComplete("sensor_data", result.successCount, result.errorCount);
+                long start = MetricsRegistry.start();
+                DataSnapshot page = Tasks.await(query.get(), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                MetricsRegistry.recordSince("migration.import.fetch", start);
+
+                List<T> records = new ArrayList<>();
+                int pageCount = 0;
+                int pageErrors = 0;
+                String pageLastKey = null;
+                for (DataSnapshot child : page.getChildren()) {
+                    if (child.getKey() == null || child.getKey().equals(lastKey)) {
+                        continue;
+                    }
+                    pageLastKey = child.getKey();
+                    pageCount++;
+
+                    try {
+                        records.add(mapper.map(child));
+                    } catch (Exception e) {
+                        pageErrors++;
+                        AppLog.e(TAG, "Error al leer registro de %s: %s", node, e.getMessage());
+                        if (callback != null) {
+                            callback.onError(node, "Error en registro: " + e.getMessage());
+                        }
                     }
+                }
 
-                } finally {
-                    latch.countDown();
+                if (pageCount == 0) {
+                    markCompleted(checkpointName, checkpoint);
+                    updateStats(node, checkpoint);
+                    break;
                 }
-            }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Error al leer datos de sensores de Firebase: " + error.getMessage());
+                // Los datos vienen de Firebase: no registrarlos como cambios locales.
+                // La página y su punto de control se guardan en la misma transacción.
+                boolean hasMore = pageCount == PAGE_SIZE;
+                MigrationCheckpoint pageCheckpoint = checkpoint;
+                String pageKey = pageLastKey;
+                int mapErrors = pageErrors;
+                int[] pageWritten = {0};
+                start = MetricsRegistry.start();
+                dbHelper.runWithoutChangeTracking(() -> {
+                    if (!records.isEmpty()) {
+                        pageWritten[0] = writer.write(records);
+                    }
+                    pageCheckpoint.lastKey = pageKey;
+                    pageCheckpoint.successCount += pageWritten[0];
+                    pageCheckpoint.errorCount += mapErrors + records.size() - pageWritten[0];
+                    pageCheckpoint.completed = !hasMore;
+                    dbHelper.saveMigrationCheckpoint(checkpointName, pageCheckpoint);
+                });
+                EventLog.write(EventLog.MIGRATION_PAGE, pageWritten[0], (MetricsRegistry.start() - start) / 1_000_000);
+                MetricsRegistry.recordSince("migration.import.write", start);
+                MetricsRegistry.add("migration.import.records", pageWritten[0]);
+                imported += pageWritten[0];
+                result.successCount = checkpoint.successCount;
+                result.errorCount = checkpoint.errorCount;
+
+                processed += pageCount;
                 if (callback != null) {
-                    callback.onError("sensor_data", "Error de Firebase: " + error.getMessage());
+                    // El total no se conoce sin descargar el nodo: se estima con la página siguiente
+                    callback.onProgress(node, processed, hasMore ? processed + PAGE_SIZE : processed);
                 }
-                latch.countDown();
-            }
-        });
+                AppLog.d(TAG, "%s: página de %d registros importada", node, pageCount);
 
-        try {
-            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (!hasMore) {
+                    updateStats(node, checkpoint);
+                    break;
+                }
+                lastKey = pageLastKey;
+            }
         } catch (InterruptedException e) {
-            Log.e(TAG, "Timeout al importar datos de sensores");
+            Thread.currentThread().interrupt();
+            AppLog.e(TAG, "Importación de %s interrumpida", node);
+            if (callback != null) {
+                callback.onError(node, "Importación interrumpida");
+            }
+        } catch (Exception e) {
+            AppLog.e(TAG, "Error al leer %s de Firebase: %s", node, e.getMessage());
+            if (callback != null) {
+                callback.onError(node, "Error de Firebase: " + e.getMessage());
+            }
+        }
+
+        MetricsRegistry.recordThroughput("migration.import." + node, imported, nodeStart);
+
+        if (callback != null) {
+            callback.onTableComplete(node, result.successCount, result.errorCount);
         }
 
         return result;
     }
 
     /**
-     * Importar alertas desde Firebase
+     * Marcar un nodo como importado por completo
      */
-    public MigrationResult importAlerts() {
-        Log.d(TAG, "Importando alertas desde Firebase");
-        MigrationResult result = new MigrationResult();
-        CountDownLatch latch = new CountDownLatch(1);
-
-        firebaseRef.child("alerts").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                try {
-                    int totalRecords = (int) snapshot.getChildrenCount();
-                    int currentRecord = 0;
-
-                    Log.d(TAG, "Alertas encontradas en Firebase: " + totalRecords);
-
-                    for (DataSnapshot alertSnapshot : snapshot.getChildren()) {
-                        try {
-                            Alert alert = new Alert();
-
-                            if (alertSnapshot.hasChild("id")) {
-                                alert.setId(alertSnapshot.child("id").getValue(Integer.class));
-                            }
-                            if (alertSnapshot.hasChild("plant_id")) {
-                                alert.setPlantId(alertSnapshot.child("plant_id").getValue(Integer.class));
-                            }
-                            if (alertSnapshot.hasChild("alert_type")) {
-                                alert.setType(alertSnapshot.child("alert_type").getValue(String.class));
-                            }
-                            if (alertSnapshot.hasChild("title")) {
-                                alert.setTitle(alertSnapshot.child("title").getValue(String.class));
-                            }
-                            if (alertSnapshot.hasChild("message")) {
-                                alert.setMessage(alertSnapshot.child("message").getValue(String.class));
-                            }
-                            if (alertSnapshot.hasChild("severity")) {
-                                alert.setSeverity(alertSnapshot.child("severity").getValue(String.class));
-                            }
-                            if (alertSnapshot.hasChild("is_read")) {
-                                Long isRead = alertSnapshot.child("is_read").getValue(Long.class);
-                                alert.setRead(isRead != null && isRead == 1);
-                            }
-                            if (alertSnapshot.hasChild("icon_type")) {
-                                alert.setIconType(alertSnapshot.child("icon_type").getValue(String.class));
-                            }
-                            if (alertSnapshot.hasChild("timestamp")) {
-                                alert.setTimestamp(alertSnapshot.child("timestamp").getValue(String.class));
-                            }
-
-                            // Insertar alerta (siempre insertar nuevas)
-                            long id = dbHelper.createAlert(alert);
-                            if (id > 0) {
-                                result.successCount++;
-                            } else {
-                                result.errorCount++;
-                            }
-
-                            currentRecord++;
-                            if (callback != null && currentRecord % 10 == 0) {
-                                final int current = currentRecord;
-                                callback.onProgress("alerts", current, totalRecords);
-                            }
-
-                        } catch (Exception e) {
-                            result.errorCount++;
-                            Log.e(TAG, "Error al importar alerta: " + e.getMessage());
-                            if (callback != null) {
-                                callback.onError("alerts", "Error en registro: " + e.getMessage());
-                            }
-                        }
-                    }
+    private void markCompleted(String checkpointName, MigrationCheckpoint checkpoint) {
+        checkpoint.completed = true;
+        dbHelper.saveMigrationCheckpoint(checkpointName, checkpoint);
+    }
 
-                    if (callback != null) {
-                        callback.onTableComplete("alerts", result.successCount, result.errorCount);
-                    }
+    /**
+     * Al terminar de leer un nodo se conoce su cantidad exacta de registros:
+     * se guarda en /stats para no tener que volver a contarlos
+     */
+    private void updateStats(String node, MigrationCheckpoint checkpoint) {
+        FirebaseStats.set(firebaseRef, node, checkpoint.getProcessedCount());
+    }
 
-                } finally {
-                    latch.countDown();
-                }
-            }
+    static User mapUser(DataSnapshot snapshot) {
+        // Extraer datos del usuario
+        User user = new User();
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Error al leer alertas de Firebase: " + error.getMessage());
-                if (callback != null) {
-                    callback.onError("alerts", "Error de Firebase: " + error.getMessage());
-                }
-                latch.countDown();
-            }
-        });
+        // ID
+        if (snapshot.hasChild("id")) {
+            user.setId(snapshot.child("id").getValue(Integer.class));
+        }
 
-        try {
-            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Log.e(TAG, "Timeout al importar alertas");
+        // Campos requeridos
+        if (snapshot.hasChild("name")) {
+            user.setName(snapshot.child("name").getValue(String.class));
+        }
+        if (snapshot.hasChild("email")) {
+            user.setEmail(snapshot.child("email").getValue(String.class));
+        }
+        if (snapshot.hasChild("password")) {
+            user.setPassword(snapshot.child("password").getValue(String.class));
         }
 
-        return result;
+        // Campos opcionales
+        if (snapshot.hasChild("profile_image")) {
+            user.setProfileImage(snapshot.child("profile_image").getValue(String.class));
+        }
+        if (snapshot.hasChild("google_id")) {
+            user.setGoogleId(snapshot.child("google_id").getValue(String.class));
+        }
+        if (snapshot.hasChild("created_at")) {
+            user.setCreatedAt(snapshot.child("created_at").getValue(String.class));
+        }
+        if (snapshot.hasChild("updated_at")) {
+            user.setUpdatedAt(snapshot.child("updated_at").getValue(String.class));
+        }
+
+        return user;
     }
 
-    /**
-     * Obtener estadísticas de Firebase
-     */
-    public void getFirebaseStats(final FirebaseStatsCallback callback) {
-        final Map<String, Integer> stats = new HashMap<>();
-        final CountDownLatch latch = new CountDownLatch(4);
-
-        // Contar usuarios
-        firebaseRef.child("users").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                stats.put("users", (int) snapshot.getChildrenCount());
-                latch.countDown();
-            }
+    static Plant mapPlant(DataSnapshot snapshot) {
+        Plant plant = new Plant();
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                stats.put("users", 0);
-                latch.countDown();
-            }
-        });
+        // Mapear campos
+        if (snapshot.hasChild("id")) {
+            plant.setId(snapshot.child("id").getValue(Integer.class));
+        }
+        if (snapshot.hasChild("user_id")) {
+            plant.setUserId(snapshot.child("user_id").getValue(Integer.class));
+        }
+        if (snapshot.hasChild("plant_name")) {
+            plant.setName(snapshot.child("plant_name").getValue(String.class));
+        }
+        if (snapshot.hasChild("type")) {
+            plant.setType(snapshot.child("type").getValue(String.class));
+        }
+        if (snapshot.hasChild("species")) {
+            plant.setSpecies(snapshot.child("species").getValue(String.class));
+        }
+        if (snapshot.hasChild("scientific_name")) {
+            plant.setScientificName(snapshot.child("scientific_name").getValue(String.class));
+        }
+        if (snapshot.hasChild("image_url")) {
+            plant.setImageUrl(snapshot.child("image_url").getValue(String.class));
+        }
+        if (snapshot.hasChild("is_connected")) {
+            Long isConnected = snapshot.child("is_connected").getValue(Long.class);
+            plant.setConnected(isConnected != null && isConnected == 1);
+        }
+        if (snapshot.hasChild("device_id")) {
+            plant.setDeviceId(snapshot.child("device_id").getValue(String.class));
+        }
 
-        // Contar plantas
-        firebaseRef.child("plants").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                stats.put("plants", (int) snapshot.getChildrenCount());
-                latch.countDown();
-            }
+        // Parámetros óptimos
+        if (snapshot.hasChild("optimal_soil_hum_min")) {
+            plant.setOptimalSoilHumidityMin(snapshot.child("optimal_soil_hum_min").getValue(Float.class));
+        }
+        if (snapshot.hasChild("optimal_soil_hum_max")) {
+            plant.setOptimalSoilHumidityMax(snapshot.child("optimal_soil_hum_max").getValue(Float.class));
+        }
+        if (snapshot.hasChild("optimal_temp_min")) {
+            plant.setOptimalTempMin(snapshot.child("optimal_temp_min").getValue(Float.class));
+        }
+        if (snapshot.hasChild("optimal_temp_max")) {
+            plant.setOptimalTempMax(snapshot.child("optimal_temp_max").getValue(Float.class));
+        }
+        if (snapshot.hasChild("optimal_amb_hum_min")) {
+            plant.setOptimalAmbientHumidityMin(snapshot.child("optimal_amb_hum_min").getValue(Float.class));
+        }
+        if (snapshot.hasChild("optimal_amb_hum_max")) {
+            plant.setOptimalAmbientHumidityMax(snapshot.child("optimal_amb_hum_max").getValue(Float.class));
+        }
+        if (snapshot.hasChild("optimal_light")) {
+            plant.setOptimalLightLevel(snapshot.child("optimal_light").getValue(String.class));
+        }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                stats.put("plants", 0);
-                latch.countDown();
-            }
-        });
+        return plant;
+    }
 
-        // Contar sensor_data
-        firebaseRef.child("sensor_data").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                stats.put("sensor_data", (int) snapshot.getChildrenCount());
-                latch.countDown();
-            }
+    static SensorData mapSensorData(DataSnapshot snapshot) {
+        return SensorData.fromSnapshot(snapshot);
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                stats.put("sensor_data", 0);
-                latch.countDown();
-            }
-        });
+    static Alert mapAlert(DataSnapshot snapshot) {
+        Alert alert = new Alert();
 
-        // Contar alerts
-        firebaseRef.child("alerts").addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                stats.put("alerts", (int) snapshot.getChildrenCount());
-                latch.countDown();
-            }
+        if (snapshot.hasChild("id")) {
+            alert.setId(snapshot.child("id").getValue(Integer.class));
+        }
+        if (snapshot.hasChild("plant_id")) {
+            alert.setPlantId(snapshot.child("plant_id").getValue(Integer.class));
+        }
+        if (snapshot.hasChild("alert_type")) {
+            alert.setType(snapshot.child("alert_type").getValue(String.class));
+        }
+        if (snapshot.hasChild("title")) {
+            alert.setTitle(snapshot.child("title").getValue(String.class));
+        }
+        if (snapshot.hasChild("message")) {
+            alert.setMessage(snapshot.child("message").getValue(String.class));
+        }
+        if (snapshot.hasChild("severity")) {
+            alert.setSeverity(snapshot.child("severity").getValue(String.class));
+        }
+        if (snapshot.hasChild("is_read")) {
+            Long isRead = snapshot.child("is_read").getValue(Long.class);
+            alert.setRead(isRead != null && isRead == 1);
+        }
+        if (snapshot.hasChild("icon_type")) {
+            alert.setIconType(snapshot.child("icon_type").getValue(String.class));
+        }
+        if (snapshot.hasChild("timestamp")) {
+            alert.setTimestamp(snapshot.child("timestamp").getValue(String.class));
+        }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                stats.put("alerts", 0);
-                latch.countDown();
-            }
-        });
+        return alert;
+    }
 
-        new Thread(() -> {
-            try {
-                latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-                if (callback != null) {
-                    callback.onStatsReady(stats);
-                }
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Timeout al obtener estadísticas de Firebase");
+    /**
+     * Obtener estadísticas de Firebase.
+     * Lee solo los contadores de /stats (unos bytes) en vez de descargar cada
+     * nodo completo para contar sus hijos.
+     */
+    public void getFirebaseStats(final FirebaseStatsCallback callback) {
+        // get() consulta el servidor en vez de devolver contadores guardados en caché
+        firebaseRef.child(FirebaseStats.NODE).get().addOnCompleteListener(task -> {
+            Map<String, Integer> stats = new HashMap<>();
+            if (!task.isSuccessful()) {
+                AppLog.e(TAG, "Error al obtener estadísticas de Firebase: %s",
+                        task.getException() != null ? task.getException().getMessage() : "desconocido");
             }
-        }).start();
+            for (String node : NODES) {
+                Long count = task.isSuccessful()
+                        ? task.getResult().child(node).getValue(Long.class)
+                        : null;
+                stats.put(node, count != null ? count.intValue() : 0);
+            }
+            if (callback != null) {
+                callback.onStatsReady(stats);
+            }
+        });
     }
 
     /**
@@ -0,0 +1,60 @@
+package com.devst.mimaseterointeligente.database;
+
+import com.devst.mimaseterointeligente.utils.AppLog;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Punto de control de una migración por tabla.
+ * Se guarda en sync_state después de cada bloque confirmado para poder
+ * reanudar la migración si la app se cierra a mitad de camino.
+ *
+ * Los conteos solo incluyen bloques anteriores a lastKey, así un bloque
+ * que se repite al reanudar no se cuenta dos veces.
+ */
+public class MigrationCheckpoint {
+
+    private static final String TAG = "MigrationCheckpoint";
+
+    public String lastKey; // Último id (SQLite) o key (Firebase) confirmado
+    public int successCount = 0;
+    public int errorCount = 0;
+    public boolean completed = false;
+
+    /**
+     * Registros ya procesados antes del punto de control
+     */
+    public int getProcessedCount() {
+        return successCount + errorCount;
+    }
+
+    String toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("last_key", lastKey);
+            json.put("success", successCount);
+            json.put("errors", errorCount);
+            json.put("completed", completed);
+        } catch (JSONException e) {
+            AppLog.e(TAG, "Error al serializar punto de control: %s", e.getMessage());
+        }
+        return json.toString();
+    }
+
+    static MigrationCheckpoint fromJson(String value) {
+        MigrationCheckpoint checkpoint = new MigrationCheckpoint();
+        try {
+            JSONObject json = new JSONObject(value);
+            checkpoint.lastKey = json.has("last_key") ? json.getString("last_key") : null;
+            checkpoint.successCount = json.optInt("success", 0);
+            checkpoint.errorCount = json.optInt("errors", 0);
+            checkpoint.completed = json.optBoolean("completed", false);
+        } catch (JSONException e) {
+            // Un punto de control dañado equivale a empezar de cero
+            AppLog.e(TAG, "Punto de control inválido: %s", e.getMessage());
+            return new MigrationCheckpoint();
+        }
+        return checkpoint;
+    }
+}
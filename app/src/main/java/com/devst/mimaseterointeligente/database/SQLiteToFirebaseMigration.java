@@ -2,29 +2,44 @@ package com.devst.mimaseterointeligente.database;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
-import android.util.Log;
 
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.EventLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Clase para migrar datos desde SQLite local hacia Firebase Realtime Database.
  * Incluye callbacks de progreso, manejo de errores, y migración por lotes.
+ *
+ * Cada lote se envía como una sola escritura multi-ruta (updateChildren) y
+ * solo se cuenta como migrado cuando Firebase confirma la escritura. Se
+ * limita la cantidad de lotes en vuelo para no acumular datos en memoria.
  */
 public class
 SQLiteToFirebaseMigration {
 
     private static final String TAG = "SQLiteToFirebase";
-    private static final int BATCH_SIZE = 10; // Tamaño del lote para migración
-    private static final int MAX_RETRIES = 3; // Intentos máximos por lote
+    private static final int BATCH_SIZE = 500; // Registros por escritura multi-ruta
+    private static final int MAX_RETRIES = 3; // Reintentos máximos por lote
+    private static final int MAX_IN_FLIGHT = 4; // Lotes enviados sin confirmar
+    private static final long RETRY_BASE_DELAY_MS = 500; // Espera inicial entre reintentos
+    private static final long BATCH_TIMEOUT_SECONDS = 60; // Espera máxima por confirmación
+    private static final String CHECKPOINT_PREFIX = "export:"; // Puntos de control por tabla
+    private static final String[] TABLES = {"users", "plants", "sensor_data", "alerts"};
 
     private DatabaseHelper dbHelper;
     private DatabaseReference firebaseRef;
@@ -39,7 +54,7 @@ SQLiteToFirebaseMigration {
      */
     public SQLiteToFirebaseMigration(Context context) {
         this.context = context;
-        this.dbHelper = new DatabaseHelper(context);
+        this.dbHelper = DatabaseHelper.getInstance(context);
         this.firebaseRef = FirebaseDatabase.getInstance().getReference();
     }
 
@@ -61,12 +76,25 @@ SQLiteToFirebaseMigration {
     }
 
     /**
-     * Migrar todas las tablas de SQLite a Firebase
+     * Migrar todas las tablas de SQLite a Firebase desde cero
      */
     public void migrateAllTables() {
-        Log.d(TAG, "Iniciando migración completa de SQLite a Firebase");
+        migrateAllTables(false);
+    }
+
+    /**
+     * Migrar todas las tablas de SQLite a Firebase
+     * @param resume true para continuar desde los puntos de control guardados,
+     *               false para descartarlos y empezar de cero
+     */
+    public void migrateAllTables(boolean resume) {
+        AppLog.d(TAG, "Iniciando migración completa de SQLite a Firebase (reanudar: %s)", resume);
 
         new Thread(() -> {
+            if (!resume) {
+                dbHelper.clearMigrationCheckpoints(CHECKPOINT_PREFIX);
+            }
+
             AtomicInteger totalRecords = new AtomicInteger(0);
             AtomicInteger totalErrors = new AtomicInteger(0);
 
@@ -75,25 +103,16 @@ SQLiteToFirebaseMigration {
             totalRecords.addAndGet(usersResult.successCount);
             totalErrors.addAndGet(usersResult.errorCount);
 
-            // Esperar un poco antes de continuar
-            waitFor(1000);
-
             // Migrar plantas (dependen de users)
             MigrationResult plantsResult = migrateTable("plants", "plants");
             totalRecords.addAndGet(plantsResult.successCount);
             totalErrors.addAndGet(plantsResult.errorCount);
 
-            // Esperar un poco antes de continuar
-            waitFor(1000);
-
             // Migrar datos de sensores (dependen de plants)
             MigrationResult sensorsResult = migrateTable("sensor_data", "sensor_data");
             totalRecords.addAndGet(sensorsResult.successCount);
             totalErrors.addAndGet(sensorsResult.errorCount);
 
-            // Esperar un poco antes de continuar
-            waitFor(1000);
-
             // Migrar alertas (dependen de plants)
             MigrationResult alertsResult = migrateTable("alerts", "alerts");
             totalRecords.addAndGet(alertsResult.successCount);
@@ -104,121 +123,137 @@ SQLiteToFirebaseMigration {
                 callback.onComplete(totalRecords.get(), totalErrors.get());
             }
 
-            Log.d(TAG, "Migración completa finalizada: " + totalRecords.get() +
-                  " registros, " + totalErrors.get() + " errores");
+            AppLog.d(TAG, "Migración completa finalizada: %d registros, %d errores",
+                    totalRecords.get(), totalErrors.get());
         }).start();
     }
 
     /**
-     * Migrar una tabla específica
+     * Indica si hay una migración completa interrumpida que se puede reanudar.
+     * Consulta SQLite: llamar desde un hilo de fondo.
+     */
+    public boolean hasResumableMigration() {
+        boolean anyStarted = false;
+        boolean allCompleted = true;
+        for (String table : TABLES) {
+            MigrationCheckpoint checkpoint = dbHelper.getMigrationCheckpoint(CHECKPOINT_PREFIX + table);
+            anyStarted |= checkpoint != null;
+            allCompleted &= checkpoint != null && checkpoint.completed;
+        }
+        return anyStarted && !allCompleted;
+    }
+
+    /**
+     * Migrar una tabla específica desde cero
      * @param tableName Nombre de la tabla en SQLite
      * @param firebaseNode Nodo en Firebase
      */
     public void migrateTableAsync(String tableName, String firebaseNode) {
         new Thread(() -> {
+            dbHelper.clearMigrationCheckpoints(CHECKPOINT_PREFIX + tableName);
             migrateTable(tableName, firebaseNode);
         }).start();
     }
 
     /**
-     * Migrar una tabla específica (método síncrono interno)
+     * Migrar una tabla específica (método síncrono interno).
+     * Lee la tabla en orden de id, en lotes de BATCH_SIZE filas, y los sube en
+     * paralelo con un máximo de MAX_IN_FLIGHT lotes pendientes de confirmación.
+     * Continúa desde el punto de control de la tabla, que avanza a medida que
+     * se confirman lotes consecutivos. Como cada registro se escribe en su id,
+     * repetir un lote al reanudar no duplica datos en Firebase.
+     * Retorna cuando todos los lotes fueron confirmados o descartados.
      */
     private MigrationResult migrateTable(String tableName, String firebaseNode) {
-        Log.d(TAG, "Iniciando migración de tabla: " + tableName);
+        AppLog.d(TAG, "Iniciando migración de tabla: %s", tableName);
 
         MigrationResult result = new MigrationResult();
-        SQLiteDatabase db = null;
-        Cursor cursor = null;
-
-        try {
-            db = dbHelper.getReadableDatabase();
-            cursor = db.rawQuery("SELECT * FROM " + tableName, null);
-
-            int totalRecords = cursor.getCount();
-            Log.d(TAG, tableName + ": " + totalRecords + " registros encontrados");
+        String checkpointName = CHECKPOINT_PREFIX + tableName;
+        MigrationCheckpoint checkpoint = dbHelper.getMigrationCheckpoint(checkpointName);
+        if (checkpoint == null) {
+            checkpoint = new MigrationCheckpoint();
+        }
 
-            if (totalRecords == 0) {
-                if (callback != null) {
-                    callback.onTableComplete(tableName, 0, 0);
-                }
-                return result;
+        if (checkpoint.completed) {
+            // Tabla terminada en una ejecución anterior
+            result.successCount = checkpoint.successCount;
+            result.errorCount = checkpoint.errorCount;
+            if (callback != null) {
+                callback.onTableComplete(tableName, result.successCount, result.errorCount);
             }
+            AppLog.d(TAG, "%s ya migrada, se omite", tableName);
+            return result;
+        }
 
-            int currentRecord = 0;
+        CheckpointTracker tracker = new CheckpointTracker(checkpointName, checkpoint);
+        long tableStart = MetricsRegistry.start();
+        AtomicInteger successCount = new AtomicInteger(0);
+        AtomicInteger errorCount = new AtomicInteger(0);
+        AtomicInteger processed = new AtomicInteger(0);
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        ExecutorService uploader = Executors.newFixedThreadPool(MAX_IN_FLIGHT);
+        DatabaseReference nodeRef = firebaseRef.child(firebaseNode);
+        Cursor cursor = null;
+        boolean finished = false;
 
-            if (cursor.moveToFirst()) {
-                do {
-                    try {
-                        // Crear un Map con los datos de la fila
-                        Map<String, Object> rowData = new HashMap<>();
-
-                        // Obtener todas las columnas
-                        for (int i = 0; i < cursor.getColumnCount(); i++) {
-                            String columnName = cursor.getColumnName(i);
-
-                            // Determinar el tipo de dato
-                            int columnType = cursor.getType(i);
-
-                            switch (columnType) {
-                                case Cursor.FIELD_TYPE_INTEGER:
-                                    rowData.put(columnName, cursor.getLong(i));
-                                    break;
-                                case Cursor.FIELD_TYPE_FLOAT:
-                                    rowData.put(columnName, cursor.getDouble(i));
-                                    break;
-                                case Cursor.FIELD_TYPE_STRING:
-                                    rowData.put(columnName, cursor.getString(i));
-                                    break;
-                                case Cursor.FIELD_TYPE_NULL:
-                                    rowData.put(columnName, null);
-                                    break;
-                                default:
-                                    rowData.put(columnName, cursor.getString(i));
-                                    break;
-                            }
-                        }
-
-                        // Obtener ID para usar como key en Firebase
-                        String recordId = String.valueOf(cursor.getLong(cursor.getColumnIndex("id")));
-
-                        // Verificar si el registro ya existe en Firebase antes de insertar
-                        boolean shouldInsert = checkAndInsertToFirebase(firebaseNode, recordId, rowData);
-
-                        if (shouldInsert) {
-                            result.successCount++;
-                        } else {
-                            Log.d(TAG, tableName + ": Registro " + recordId + " ya existe, omitiendo");
-                        }
-
-                        currentRecord++;
-
-                        // Callback de progreso
-                        if (callback != null && currentRecord % 5 == 0) {
-                            final int current = currentRecord;
-                            callback.onProgress(tableName, current, totalRecords);
-                        }
-
-                    } catch (Exception e) {
-                        result.errorCount++;
-                        Log.e(TAG, "Error al migrar registro de " + tableName + ": " + e.getMessage());
-                        if (callback != null) {
-                            callback.onError(tableName, "Error en registro: " + e.getMessage());
-                        }
+        try {
+            SQLiteDatabase db = dbHelper.getReadableDatabase();
+            long lastId = checkpoint.lastKey != null ? Long.parseLong(checkpoint.lastKey) : Long.MIN_VALUE;
+            int totalRecords = (int) DatabaseUtils.queryNumEntries(db, tableName);
+            int remaining = (int) DatabaseUtils.queryNumEntries(db, tableName, "id > ?",
+                    new String[]{String.valueOf(lastId)});
+            processed.set(totalRecords - remaining);
+            AppLog.d(TAG, "%s: %d de %d registros por migrar", tableName, remaining, totalRecords);
+
+            cursor = db.rawQuery("SELECT * FROM " + tableName + " WHERE id > ? ORDER BY id",
+                    new String[]{String.valueOf(lastId)});
+            int idColumn = cursor.getColumnIndexOrThrow("id");
+            Map<String, Object> batch = new HashMap<>();
+            int batchReadErrors = 0;
+            long batchMaxId = lastId;
+
+            while (cursor.moveToNext()) {
+                batchMaxId = cursor.getLong(idColumn);
+                try {
+                    // Obtener ID para usar como key en Firebase
+                    String recordId = String.valueOf(batchMaxId);
+                    batch.put(recordId, readRow(cursor));
+                } catch (Exception e) {
+                    batchReadErrors++;
+                    errorCount.incrementAndGet();
+                    processed.incrementAndGet();
+                    AppLog.e(TAG, "Error al leer registro de %s: %s", tableName, e.getMessage());
+                    if (callback != null) {
+                        callback.onError(tableName, "Error en registro: " + e.getMessage());
                     }
+                }
 
-                } while (cursor.moveToNext());
+                if (batch.size() >= BATCH_SIZE) {
+                    submitBatch(tableName, nodeRef, batch, tracker, tracker.register(batchMaxId, batchReadErrors),
+                            uploader, inFlight, successCount, errorCount, processed, totalRecords);
+                    batch = new HashMap<>();
+                    batchReadErrors = 0;
+                }
             }
 
-            // Callback de tabla completada
-            if (callback != null) {
-                callback.onTableComplete(tableName, result.successCount, result.errorCount);
+            if (!batch.isEmpty() || batchReadErrors > 0) {
+                submitBatch(tableName, nodeRef, batch, tracker, tracker.register(batchMaxId, batchReadErrors),
+                        uploader, inFlight, successCount, errorCount, processed, totalRecords);
             }
 
-            Log.d(TAG, tableName + " completada: " + result.successCount +
-                  " exitosos, " + result.errorCount + " errores");
+            // Esperar a que se confirmen todos los lotes pendientes
+            inFlight.acquire(MAX_IN_FLIGHT);
+            inFlight.release(MAX_IN_FLIGHT);
+            finished = true;
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            AppLog.e(TAG, "Migración de %s interrumpida", tableName);
+            if (callback != null) {
+                callback.onError(tableName, "Migración interrumpida");
+            }
         } catch (Exception e) {
-            Log.e(TAG, "Error al migrar tabla " + tableName + ": " + e.getMessage());
+            AppLog.e(TAG, "Error al migrar tabla %s: %s", tableName, e.getMessage());
             if (callback != null) {
                 callback.onError(tableName, "Error general: " + e.getMessage());
             }
@@ -226,31 +261,213 @@ SQLiteToFirebaseMigration {
             if (cursor != null) {
                 cursor.close();
             }
-            if (db != null) {
-                db.close();
-            }
+            uploader.shutdown();
+        }
+
+        if (finished) {
+            tracker.finish();
+        }
+
+        MetricsRegistry.recordThroughput("migration.upload." + tableName, successCount.get(), tableStart);
+
+        // Conteo total: lo confirmado en ejecuciones anteriores más esta ejecución
+        result.successCount = tracker.baseSuccess + successCount.get();
+        result.errorCount = tracker.baseErrors + errorCount.get();
+
+        // El nodo tiene al menos los registros confirmados: actualizar /stats
+        // para que las estadísticas no tengan que descargar el nodo
+        if (result.successCount > 0) {
+            FirebaseStats.raiseTo(firebaseRef, firebaseNode, result.successCount);
         }
 
+        // Callback de tabla completada
+        if (callback != null) {
+            callback.onTableComplete(tableName, result.successCount, result.errorCount);
+        }
+
+        AppLog.d(TAG, "%s completada: %d exitosos, %d errores",
+                tableName, result.successCount, result.errorCount);
+
         return result;
     }
 
     /**
-     * Verificar si existe y insertar en Firebase
-     * @return true si se insertó, false si ya existía
+     * Avanza el punto de control de una tabla a medida que se confirman lotes.
+     * Los lotes pueden terminar en cualquier orden; el punto de control solo
+     * avanza sobre lotes consecutivos confirmados. Un lote descartado lo
+     * detiene, así la próxima ejecución lo vuelve a intentar.
      */
-    private boolean checkAndInsertToFirebase(String node, String id, Map<String, Object> data) {
-        try {
-            DatabaseReference ref = firebaseRef.child(node).child(id);
+    private class CheckpointTracker {
+        private final String name;
+        private final MigrationCheckpoint checkpoint;
+        private final TreeMap<Integer, BatchState> batches = new TreeMap<>();
+        final int baseSuccess;
+        final int baseErrors;
+        private int nextBatch = 0;
+        private boolean blocked = false;
+
+        CheckpointTracker(String name, MigrationCheckpoint checkpoint) {
+            this.name = name;
+            this.checkpoint = checkpoint;
+            this.baseSuccess = checkpoint.successCount;
+            this.baseErrors = checkpoint.errorCount;
+        }
 
-            // Insertar/actualizar directamente
-            // Firebase sobrescribirá si ya existe
-            ref.setValue(data);
+        /**
+         * Registrar un lote leído (en orden de id)
+         */
+        synchronized BatchState register(long maxId, int readErrors) {
+            BatchState state = new BatchState(nextBatch++, maxId, readErrors);
+            batches.put(state.number, state);
+            return state;
+        }
 
-            return true;
-        } catch (Exception e) {
-            Log.e(TAG, "Error al insertar en Firebase: " + e.getMessage());
-            return false;
+        /**
+         * Marcar un lote como terminado y avanzar el punto de control si corresponde
+         */
+        synchronized void complete(BatchState state, boolean uploaded, int size) {
+            state.done = true;
+            state.uploaded = uploaded;
+            state.size = size;
+
+            boolean advanced = false;
+            while (!blocked && !batches.isEmpty() && batches.firstEntry().getValue().done) {
+                BatchState first = batches.pollFirstEntry().getValue();
+                if (!first.uploaded) {
+                    blocked = true;
+                    break;
+                }
+                checkpoint.lastKey = String.valueOf(first.maxId);
+                checkpoint.successCount += first.size;
+                checkpoint.errorCount += first.readErrors;
+                advanced = true;
+            }
+            if (advanced) {
+                dbHelper.saveMigrationCheckpoint(name, checkpoint);
+            }
+        }
+
+        /**
+         * Todos los lotes terminaron: marcar la tabla como completa si ninguno se descartó
+         */
+        synchronized void finish() {
+            if (!blocked && batches.isEmpty()) {
+                checkpoint.completed = true;
+                dbHelper.saveMigrationCheckpoint(name, checkpoint);
+            }
+        }
+    }
+
+    /**
+     * Estado de un lote enviado
+     */
+    private static class BatchState {
+        final int number;
+        final long maxId;
+        final int readErrors;
+        boolean done = false;
+        boolean uploaded = false;
+        int size = 0;
+
+        BatchState(int number, long maxId, int readErrors) {
+            this.number = number;
+            this.maxId = maxId;
+            this.readErrors = readErrors;
+        }
+    }
+
+    /**
+     * Crear un Map con los datos de la fila actual del cursor
+     */
+    private Map<String, Object> readRow(Cursor cursor) {
+        Map<String, Object> rowData = new HashMap<>();
+
+        for (int i = 0; i < cursor.getColumnCount(); i++) {
+            String columnName = cursor.getColumnName(i);
+
+            // Determinar el tipo de dato
+            switch (cursor.getType(i)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    rowData.put(columnName, cursor.getLong(i));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    rowData.put(columnName, cursor.getDouble(i));
+                    break;
+                case Cursor.FIELD_TYPE_NULL:
+                    rowData.put(columnName, null);
+                    break;
+                case Cursor.FIELD_TYPE_STRING:
+                default:
+                    rowData.put(columnName, cursor.getString(i));
+                    break;
+            }
+        }
+
+        return rowData;
+    }
+
+    /**
+     * Encolar un lote para subir. Bloquea mientras haya MAX_IN_FLIGHT lotes
+     * sin confirmar, así la lectura de SQLite no se adelanta a la red.
+     */
+    private void submitBatch(String tableName, DatabaseReference nodeRef, Map<String, Object> batch,
+                             CheckpointTracker tracker, BatchState state,
+                             ExecutorService uploader, Semaphore inFlight,
+                             AtomicInteger successCount, AtomicInteger errorCount,
+                             AtomicInteger processed, int totalRecords) throws InterruptedException {
+        inFlight.acquire();
+        uploader.execute(() -> {
+            try {
+                boolean uploaded = batch.isEmpty() || uploadBatch(tableName, nodeRef, batch);
+                if (uploaded) {
+                    successCount.addAndGet(batch.size());
+                } else {
+                    errorCount.addAndGet(batch.size());
+                }
+                tracker.complete(state, uploaded, batch.size());
+
+                // Callback de progreso (por lote confirmado)
+                int current = processed.addAndGet(batch.size());
+                if (callback != null) {
+                    callback.onProgress(tableName, current, totalRecords);
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Escribir un lote con updateChildren y esperar la confirmación,
+     * reintentando con espera exponencial
+     * @return true si Firebase confirmó la escritura
+     */
+    private boolean uploadBatch(String tableName, DatabaseReference nodeRef, Map<String, Object> batch) {
+        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+            try {
+                // Cada key reemplaza el registro completo, igual que setValue por fila
+                long start = MetricsRegistry.start();
+                Tasks.await(nodeRef.updateChildren(batch), BATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                EventLog.write(EventLog.MIGRATION_PAGE, batch.size(), (MetricsRegistry.start() - start) / 1_000_000);
+                MetricsRegistry.recordSince("migration.upload.batch", start);
+                MetricsRegistry.add("migration.upload.records", batch.size());
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception e) {
+                AppLog.e(TAG, "%s: lote falló (intento %d): %s", tableName, attempt + 1, e.getMessage());
+                if (attempt == MAX_RETRIES) {
+                    if (callback != null) {
+                        callback.onError(tableName, "Lote de " + batch.size()
+                                + " registros descartado: " + e.getMessage());
+                    }
+                    return false;
+                }
+                waitFor(RETRY_BASE_DELAY_MS << attempt);
+            }
         }
+        return false;
     }
 
     /**
@@ -297,11 +514,7 @@ SQLiteToFirebaseMigration {
             stats.put("alerts", getTableCount(db, "alerts"));
 
         } catch (Exception e) {
-            Log.e(TAG, "Error al obtener estadísticas: " + e.getMessage());
-        } finally {
-            if (db != null) {
-                db.close();
-            }
+            AppLog.e(TAG, "Error al obtener estadísticas: %s", e.getMessage());
         }
 
         return stats;
@@ -318,7 +531,7 @@ SQLiteToFirebaseMigration {
                 return cursor.getInt(0);
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error al contar registros de " + tableName + ": " + e.getMessage());
+            AppLog.e(TAG, "Error al contar registros de %s: %s", tableName, e.getMessage());
         } finally {
             if (cursor != null) {
                 cursor.close();
@@ -334,7 +547,7 @@ SQLiteToFirebaseMigration {
         try {
             Thread.sleep(millis);
         } catch (InterruptedException e) {
-            Log.e(TAG, "Error en espera: " + e.getMessage());
+            AppLog.e(TAG, "Error en espera: %s", e.getMessage());
         }
     }
 
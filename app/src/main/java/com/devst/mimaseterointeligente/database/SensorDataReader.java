@@ -0,0 +1,162 @@
+package com.devst.mimaseterointeligente.database;
+
+import androidx.annotation.Nullable;
+
+import com.devst.mimaseterointeligente.models.SensorData;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lectura de las lecturas que el ESP32 sube a Firebase.
+ *
+ * Cada dispositivo escribe en su propia partición,
+ * /sensor_data/{deviceId}/{pushKey}, con timestamp = hora del servidor.
+ * Con ".indexOn": ["timestamp"] en /sensor_data/$deviceId las consultas
+ * por rango de tiempo descargan solo las lecturas pedidas de un masetero,
+ * no el historial de todos los dispositivos.
+ *
+ * El mismo nodo guarda el respaldo de la tabla sensor_data de SQLite con
+ * keys numéricas (id local); esas keys se ordenan antes que los deviceId,
+ * por eso la importación se limita a LAST_ROW_KEY.
+ *
+ * El firmware antiguo usaba millis() (32 bits sin signo) como key. Las que
+ * superan LAST_ROW_KEY Firebase las ordena como texto, junto a los deviceId:
+ * quedan entre FIRST_TEXT_MILLIS_KEY y LAST_MILLIS_KEY.
+ */
+public class SensorDataReader {
+
+    private static final String TAG = "SensorDataReader";
+
+    public static final String NODE = "sensor_data";
+    public static final String FIELD_TIMESTAMP = "timestamp";
+    public static final String UNASSIGNED_DEVICE = "unassigned"; // Lecturas antiguas sin dispositivo conocido
+    public static final String LAST_ROW_KEY = String.valueOf(Integer.MAX_VALUE); // Mayor key numérica posible
+    public static final String FIRST_TEXT_MILLIS_KEY = String.valueOf(Integer.MAX_VALUE + 1L);
+    public static final String LAST_MILLIS_KEY = String.valueOf(0xFFFFFFFFL); // millis() antes de desbordar
+    public static final int DEFAULT_LIMIT = 500;
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000;
+    // Lecturas revisadas por getLatest: el dispositivo pudo cambiar de planta hace poco
+    private static final int LATEST_SCAN_LIMIT = 50;
+
+    private final DatabaseReference sensorDataRef;
+
+    /**
+     * Resultado de una consulta de lecturas
+     */
+    public interface ReadingsCallback {
+        void onReadings(List<SensorData> readings);
+        void onError(String error);
+    }
+
+    /**
+     * Resultado de getLatest
+     */
+    public interface LatestCallback {
+        void onLatest(@Nullable SensorData data);
+    }
+
+    public SensorDataReader() {
+        this.sensorDataRef = FirebaseDatabase.getInstance().getReference(NODE);
+    }
+
+    /**
+     * Consulta de las lecturas de un dispositivo entre from y to (inclusive),
+     * limitada a las últimas limit lecturas del rango
+     */
+    public Query rangeQuery(String deviceId, long from, long to, int limit) {
+        return sensorDataRef.child(deviceId)
+                .orderByChild(FIELD_TIMESTAMP)
+                .startAt(from)
+                .endAt(to)
+                .limitToLast(limit);
+    }
+
+    /**
+     * Leer las lecturas de una planta entre from y to, ordenadas de la más
+     * antigua a la más reciente. Se filtra por plant_id porque el dispositivo
+     * pudo estar asignado antes a otra planta.
+     * Se usa get() para leer del servidor: las particiones no se guardan en
+     * la caché local (ver FirebaseCache).
+     * @param deviceId Dispositivo asignado a la planta
+     * @param plantId ID de la planta
+     * @param limit Máximo de lecturas (las más recientes del rango)
+     */
+    public void getReadings(String deviceId, int plantId, long from, long to, int limit,
+                            ReadingsCallback callback) {
+        rangeQuery(deviceId, from, to, limit).get().addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                String error = task.getException() != null ? task.getException().getMessage() : "desconocido";
+                AppLog.e(TAG, "Error al leer lecturas de %s: %s", deviceId, error);
+                if (callback != null) {
+                    callback.onError(error);
+                }
+                return;
+            }
+            if (callback != null) {
+                callback.onReadings(parseReadings(task.getResult(), plantId));
+            }
+        });
+    }
+
+    /**
+     * Leer las lecturas de las últimas 24 horas de una planta
+     */
+    public void getLastDay(String deviceId, int plantId, ReadingsCallback callback) {
+        long now = System.currentTimeMillis();
+        getReadings(deviceId, plantId, now - DAY_MS, now, DEFAULT_LIMIT, callback);
+    }
+
+    /**
+     * Leer la última lectura de una planta (null si no hay).
+     * Se revisan las últimas LATEST_SCAN_LIMIT lecturas del dispositivo: si
+     * acaba de pasar de otra planta a esta, las más recientes pueden ser
+     * todavía de la anterior.
+     */
+    public void getLatest(String deviceId, int plantId, LatestCallback callback) {
+        sensorDataRef.child(deviceId)
+                .orderByChild(FIELD_TIMESTAMP)
+                .limitToLast(LATEST_SCAN_LIMIT)
+                .get()
+                .addOnCompleteListener(task -> {
+                    SensorData latest = null;
+                    if (task.isSuccessful()) {
+                        List<SensorData> readings = parseReadings(task.getResult(), plantId);
+                        if (!readings.isEmpty()) {
+                            latest = readings.get(readings.size() - 1);
+                        }
+                    } else {
+                        AppLog.e(TAG, "Error al leer última lectura de %s: %s",
+                                deviceId, task.getException() != null ? task.getException().getMessage() : "desconocido");
+                    }
+                    if (callback != null) {
+                        callback.onLatest(latest);
+                    }
+                });
+    }
+
+    /**
+     * Convertir las lecturas de una consulta, solo las de la planta indicada
+     */
+    private static List<SensorData> parseReadings(DataSnapshot snapshot, int plantId) {
+        List<SensorData> readings = new ArrayList<>();
+        for (DataSnapshot child : snapshot.getChildren()) {
+            try {
+                SensorData data = SensorData.fromSnapshot(child);
+                if (data.getPlantId() == plantId) {
+                    data.evaluateStatuses();
+                    readings.add(data);
+                }
+            } catch (Exception e) {
+                AppLog.e(TAG, "Lectura inválida %s: %s", child.getKey(), e.getMessage());
+            }
+        }
+        return readings;
+    }
+}
@@ -0,0 +1,225 @@
+package com.devst.mimaseterointeligente.database;
+
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mueve las lecturas del firmware antiguo, guardadas planas en
+ * /sensor_data/{millis()}, a la partición de su dispositivo:
+ * /sensor_data/{deviceId}/{pushKey}.
+ *
+ * El dispositivo se obtiene de /plants/{plant_id}/device_id; las lecturas
+ * sin dispositivo conocido van a /sensor_data/unassigned. Los registros del
+ * respaldo de SQLite (tienen "id") no se tocan.
+ *
+ * Se recorren dos rangos de keys: las numéricas de 32 bits (hasta
+ * LAST_ROW_KEY) y las de millis() mayores, que Firebase ordena como texto
+ * (FIRST_TEXT_MILLIS_KEY a LAST_MILLIS_KEY). En el segundo rango solo se
+ * mueven keys formadas por dígitos; cualquier otra es una partición.
+ *
+ * Cada página se mueve con un único updateChildren multi-ruta (copia y
+ * borrado juntos), así una página fallida no deja duplicados. Como las
+ * lecturas movidas desaparecen del nodo plano, volver a ejecutar la
+ * migración continúa donde quedó.
+ */
+public class SensorDataShardMigration {
+
+    private static final String TAG = "SensorDataShards";
+    private static final int TIMEOUT_SECONDS = 30;
+    private static final int PAGE_SIZE = 500;
+
+    private final DatabaseReference firebaseRef;
+    private ShardCallback callback;
+
+    private final Map<String, String> plantDevices = new HashMap<>();
+    private int moved;
+    private int unassigned;
+
+    /**
+     * Interface para callbacks de la migración (se llaman desde el hilo de fondo)
+     */
+    public interface ShardCallback {
+        void onProgress(String message);
+        void onComplete(int moved, int unassigned);
+        void onError(String error);
+    }
+
+    public SensorDataShardMigration() {
+        this.firebaseRef = FirebaseDatabase.getInstance().getReference();
+    }
+
+    public void setCallback(ShardCallback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Ejecutar la migración en un hilo de fondo
+     */
+    public void migrateAsync() {
+        new Thread(this::migrate).start();
+    }
+
+    /**
+     * Ejecutar la migración en el hilo actual (nunca en el principal)
+     */
+    public void migrate() {
+        plantDevices.clear();
+        moved = 0;
+        unassigned = 0;
+
+        try {
+            // Keys numéricas de 32 bits: las particiones por deviceId se ordenan después
+            migrateRange(null, SensorDataReader.LAST_ROW_KEY);
+            // millis() mayores a 2^31 - 1: Firebase las ordena como texto
+            migrateRange(SensorDataReader.FIRST_TEXT_MILLIS_KEY, SensorDataReader.LAST_MILLIS_KEY);
+
+            AppLog.d(TAG, "Migración completada: %d lecturas movidas, %d sin dispositivo", moved, unassigned);
+            if (callback != null) {
+                callback.onComplete(moved, unassigned);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            AppLog.e(TAG, "Migración interrumpida");
+            if (callback != null) {
+                callback.onError("Migración interrumpida");
+            }
+        } catch (Exception e) {
+            AppLog.e(TAG, "Error al mover lecturas: %s", e.getMessage());
+            if (callback != null) {
+                callback.onError(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Mover las lecturas planas con key entre startKey (null: desde el
+     * principio) y endKey, de a PAGE_SIZE
+     */
+    private void migrateRange(String startKey, String endKey) throws Exception {
+        String lastKey = null;
+        while (true) {
+            Query query = firebaseRef.child(SensorDataReader.NODE).orderByKey().endAt(endKey);
+            if (lastKey != null) {
+                query = query.startAt(lastKey).limitToFirst(PAGE_SIZE + 1);
+            } else if (startKey != null) {
+                query = query.startAt(startKey).limitToFirst(PAGE_SIZE);
+            } else {
+                query = query.limitToFirst(PAGE_SIZE);
+            }
+
+            DataSnapshot page = Tasks.await(query.get(), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            Map<String, Object> updates = new HashMap<>();
+            int pageCount = 0;
+            String pageLastKey = null;
+            for (DataSnapshot child : page.getChildren()) {
+                if (child.getKey() == null || child.getKey().equals(lastKey)) {
+                    continue;
+                }
+                pageLastKey = child.getKey();
+                pageCount++;
+
+                if (!isLegacyReading(child)) {
+                    // Registro del respaldo de SQLite o partición de un dispositivo
+                    continue;
+                }
+
+                String deviceId = resolveDevice(child.child("plant_id").getValue(), plantDevices);
+                if (SensorDataReader.UNASSIGNED_DEVICE.equals(deviceId)) {
+                    unassigned++;
+                }
+
+                Map<String, Object> reading = new HashMap<>();
+                for (DataSnapshot field : child.getChildren()) {
+                    reading.put(field.getKey(), field.getValue());
+                }
+                // El timestamp antiguo es texto: como número se ordena junto a los nuevos
+                reading.put(SensorDataReader.FIELD_TIMESTAMP, parseTimestamp(
+                        child.child(SensorDataReader.FIELD_TIMESTAMP).getValue()));
+
+                String shardPath = SensorDataReader.NODE + "/" + deviceId;
+                String pushKey = firebaseRef.child(shardPath).push().getKey();
+                updates.put(shardPath + "/" + pushKey, reading);
+                updates.put(SensorDataReader.NODE + "/" + child.getKey(), null);
+            }
+
+            if (pageCount == 0) {
+                break;
+            }
+
+            if (!updates.isEmpty()) {
+                Tasks.await(firebaseRef.updateChildren(updates), TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                moved += updates.size() / 2;
+            }
+
+            if (callback != null) {
+                callback.onProgress("Sensores: " + moved + " lecturas movidas a su dispositivo");
+            }
+
+            if (pageCount < PAGE_SIZE) {
+                break;
+            }
+            lastKey = pageLastKey;
+        }
+    }
+
+    /**
+     * Lectura plana del firmware antiguo: key de solo dígitos (millis()) y
+     * sin "id" (que marca los registros del respaldo de SQLite)
+     */
+    private static boolean isLegacyReading(DataSnapshot child) {
+        String key = child.getKey();
+        if (key == null || key.isEmpty() || child.hasChild("id")) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Dispositivo asignado a la planta de una lectura (con caché por planta)
+     */
+    private String resolveDevice(Object plantId, Map<String, String> cache) throws Exception {
+        String key = plantId != null ? String.valueOf(plantId) : "";
+        if (key.isEmpty()) {
+            return SensorDataReader.UNASSIGNED_DEVICE;
+        }
+
+        String deviceId = cache.get(key);
+        if (deviceId == null) {
+            DataSnapshot snapshot = Tasks.await(
+                    firebaseRef.child("plants").child(key).child("device_id").get(),
+                    TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Object value = snapshot.getValue();
+            deviceId = value != null && !String.valueOf(value).isEmpty()
+                    ? String.valueOf(value)
+                    : SensorDataReader.UNASSIGNED_DEVICE;
+            cache.put(key, deviceId);
+        }
+        return deviceId;
+    }
+
+    private static Object parseTimestamp(Object value) {
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                return value;
+            }
+        }
+        return value;
+    }
+}
@@ -1,7 +1,6 @@
 package com.devst.mimaseterointeligente.fragments;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -16,13 +15,16 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.devst.mimaseterointeligente.R;
 import com.devst.mimaseterointeligente.adapters.AlertsAdapter;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
 import com.devst.mimaseterointeligente.models.Alert;
 import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.utils.AppLog;
 import com.devst.mimaseterointeligente.utils.SessionManager;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Fragmento para mostrar alertas del usuario
@@ -36,7 +38,7 @@ public class AlertsFragment extends Fragment {
     private LinearLayout layoutEmptyState;
     private TextView tvEmptyMessage;
     private AlertsAdapter alertsAdapter;
-    private DatabaseHelper dbHelper;
+    private AsyncDatabaseHelper dbHelper;
     private SessionManager sessionManager;
     private List<Alert> alertList = new ArrayList<>();
 
@@ -44,7 +46,7 @@ public class AlertsFragment extends Fragment {
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         // Inicializar el DatabaseHelper y SessionManager
-        dbHelper = new DatabaseHelper(requireContext());
+        dbHelper = AsyncDatabaseHelper.getInstance(requireContext());
         sessionManager = new SessionManager(requireContext());
         return inflater.inflate(R.layout.fragment_alerts, container, false);
     }
@@ -80,36 +82,30 @@ public class AlertsFragment extends Fragment {
      * Cargar alertas solo de las plantas del usuario actual
      */
     private void loadAlerts() {
-        try {
-            int userId = sessionManager.getUserId();
+        int userId = sessionManager.getUserId();
 
-            if (userId == -1) {
-                Log.e(TAG, "Usuario no identificado");
-                showEmptyState("No se pudo identificar el usuario");
-                return;
-            }
-
-            // Obtener todas las plantas del usuario
-            List<Plant> userPlants = dbHelper.getUserPlants(userId);
+        if (userId == -1) {
+            AppLog.e(TAG, "Usuario no identificado");
+            showEmptyState("No se pudo identificar el usuario");
+            return;
+        }
 
+        // Consultar plantas y alertas en segundo plano y filtrar allí mismo
+        dbHelper.execute(db -> {
+            List<Plant> userPlants = db.getUserPlants(userId);
             if (userPlants == null || userPlants.isEmpty()) {
-                showEmptyState("No tienes plantas registradas");
-                return;
+                return null;
             }
 
-            // Obtener todas las alertas
-            List<Alert> allAlerts = dbHelper.getAllAlerts();
-
-            // Filtrar alertas que pertenecen a plantas del usuario
-            List<Alert> userAlerts = new ArrayList<>();
-            List<Integer> plantIds = new ArrayList<>();
-
             // Extraer IDs de plantas del usuario
+            Set<Integer> plantIds = new HashSet<>();
             for (Plant plant : userPlants) {
                 plantIds.add(plant.getId());
             }
 
-            // Filtrar alertas
+            // Filtrar alertas que pertenecen a plantas del usuario
+            List<Alert> userAlerts = new ArrayList<>();
+            List<Alert> allAlerts = db.getAllAlerts();
             if (allAlerts != null) {
                 for (Alert alert : allAlerts) {
                     if (plantIds.contains(alert.getPlantId())) {
@@ -117,20 +113,30 @@ public class AlertsFragment extends Fragment {
                     }
                 }
             }
-
-            Log.d(TAG, "Alertas del usuario: " + userAlerts.size());
-
-            // Actualizar el adaptador
-            if (userAlerts.isEmpty()) {
-                showEmptyState("No tienes alertas");
-            } else {
-                showAlerts(userAlerts);
+            return userAlerts;
+        }, new AsyncDatabaseHelper.Callback<List<Alert>>() {
+            @Override
+            public void onResult(List<Alert> userAlerts) {
+                if (!isAdded() || getView() == null) return;
+
+                if (userAlerts == null) {
+                    showEmptyState("No tienes plantas registradas");
+                } else if (userAlerts.isEmpty()) {
+                    showEmptyState("No tienes alertas");
+                } else {
+                    AppLog.d(TAG, "Alertas del usuario: %d", userAlerts.size());
+                    showAlerts(userAlerts);
+                }
             }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error al cargar alertas: " + e.getMessage(), e);
-            showEmptyState("Error al cargar alertas");
-        }
+            @Override
+            public void onError(Exception e) {
+                AppLog.e(TAG, "Error al cargar alertas", e);
+                if (isAdded() && getView() != null) {
+                    showEmptyState("Error al cargar alertas");
+                }
+            }
+        });
     }
 
     /**
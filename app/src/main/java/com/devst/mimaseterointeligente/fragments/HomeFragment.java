@@ -5,7 +5,6 @@ import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -23,13 +22,23 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.devst.mimaseterointeligente.R;
 import com.devst.mimaseterointeligente.activities.AddPlantActivity;
 import com.devst.mimaseterointeligente.adapters.PlantAdapter;
+import com.devst.mimaseterointeligente.api.ApiConfig;
 import com.devst.mimaseterointeligente.api.RetrofitClient;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
+import com.devst.mimaseterointeligente.database.FirebaseCache;
+import com.devst.mimaseterointeligente.managers.DevicePresenceManager;
+import com.devst.mimaseterointeligente.managers.NetworkTaskCoordinator;
+import com.devst.mimaseterointeligente.managers.StartupPrewarmer;
 import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.models.SensorData;
 import com.devst.mimaseterointeligente.models.WeatherResponse;
+import com.devst.mimaseterointeligente.services.SensorMonitorScheduler;
+import com.devst.mimaseterointeligente.utils.AppLog;
 import com.google.android.material.card.MaterialCardView;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -45,6 +54,7 @@ public class HomeFragment extends Fragment {
 
     private static final String TAG = "HomeFragment";
     private static final int REQUEST_ADD_PLANT = 100;
+    private static final String WEATHER_TASK = "home_clima"; // Tarea en NetworkTaskCoordinator
 
     // Views
     private TextView tvTemperature;
@@ -55,7 +65,7 @@ public class HomeFragment extends Fragment {
     private MaterialCardView cardAddPlant;
 
     // Data
-    private DatabaseHelper databaseHelper;
+    private AsyncDatabaseHelper databaseHelper;
     private PlantAdapter plantAdapter;
     private int userId;
     private com.devst.mimaseterointeligente.utils.SessionManager sessionManager;
@@ -73,35 +83,34 @@ public class HomeFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        Log.d(TAG, "onViewCreated: Iniciando HomeFragment");
-
         // Inicializar vistas
         initViews(view);
 
         // Inicializar base de datos
-        databaseHelper = new DatabaseHelper(requireContext());
-        Log.d(TAG, "onViewCreated: DatabaseHelper inicializado");
+        databaseHelper = AsyncDatabaseHelper.getInstance(requireContext());
 
         // Inicializar SessionManager y obtener userId
         sessionManager = new com.devst.mimaseterointeligente.utils.SessionManager(requireContext());
         userId = sessionManager.getUserId();
-        Log.d(TAG, "onViewCreated: userId obtenido = " + userId);
+        AppLog.d(TAG, "onViewCreated: userId = %d", userId);
 
         // Configurar RecyclerView
         setupRecyclerView();
-        Log.d(TAG, "onViewCreated: RecyclerView configurado");
 
-        // Cargar datos
-        loadPlants();
-        loadWeatherData();
+        // Cargar datos (usando lo que el splash dejó precargado, si está)
+        if (!showWarmData()) {
+            loadPlants();
+        }
+        WeatherResponse warmWeather = StartupPrewarmer.getInstance(requireContext()).takeWeather();
+        if (warmWeather != null) {
+            NetworkTaskCoordinator.getInstance(requireContext()).reportRun(WEATHER_TASK);
+            updateWeatherUI(warmWeather);
+        } else {
+            loadWeatherData();
+        }
 
         // Configurar botón de añadir planta
-        cardAddPlant.setOnClickListener(v -> {
-            Log.d(TAG, "Botón añadir planta clickeado");
-            openAddPlantActivity();
-        });
-
-        Log.d(TAG, "onViewCreated: HomeFragment completamente inicializado");
+        cardAddPlant.setOnClickListener(v -> openAddPlantActivity());
     }
 
     @Override
@@ -109,6 +118,42 @@ public class HomeFragment extends Fragment {
         super.onResume();
         // Recargar plantas cada vez que el fragmento vuelve a estar visible
         loadPlants();
+        DevicePresenceManager.getInstance().addListener(presenceListener);
+        // Con la app visible, revisar los sensores sin esperar al trabajo periódico.
+        // La revisión periódica mientras se ve la registra MaseteroApplication.
+        SensorMonitorScheduler.checkNow(requireContext());
+        // Refrescar el clima mientras se ve, agrupado con las demás tareas de red
+        NetworkTaskCoordinator.getInstance(requireContext()).register(WEATHER_TASK,
+                ApiConfig.WEATHER_UPDATE_INTERVAL, ApiConfig.WEATHER_UPDATE_TOLERANCE, this::loadWeatherData);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        DevicePresenceManager.getInstance().removeListener(presenceListener);
+        NetworkTaskCoordinator.getInstance(requireContext()).unregister(WEATHER_TASK);
+    }
+
+    /**
+     * Un dispositivo cambió de online/offline: actualizar el indicador de sus plantas
+     */
+    private final DevicePresenceManager.PresenceListener presenceListener = (deviceId, online) -> {
+        if (plantAdapter != null) {
+            plantAdapter.notifyPresenceChanged(deviceId);
+        }
+    };
+
+    /**
+     * Mantener en la caché de Firebase los dispositivos de las plantas del usuario
+     */
+    private void keepDevicesSynced(List<Plant> plants) {
+        List<String> deviceIds = new ArrayList<>();
+        for (Plant plant : plants) {
+            if (plant.isConnected()) {
+                deviceIds.add(plant.getDeviceId());
+            }
+        }
+        FirebaseCache.keepDevicesSynced(deviceIds);
     }
 
     /**
@@ -123,14 +168,12 @@ public class HomeFragment extends Fragment {
         cardAddPlant = view.findViewById(R.id.cardAddPlant);
 
         // Verificar que todas las vistas se encontraron
-        if (tvTemperature == null) Log.e(TAG, "ERROR: tvTemperature es null");
-        if (tvWeatherDescription == null) Log.e(TAG, "ERROR: tvWeatherDescription es null");
-        if (ivWeatherIcon == null) Log.e(TAG, "ERROR: ivWeatherIcon es null");
-        if (rvPlants == null) Log.e(TAG, "ERROR: rvPlants es null");
-        if (layoutEmptyState == null) Log.e(TAG, "ERROR: layoutEmptyState es null");
-        if (cardAddPlant == null) Log.e(TAG, "ERROR: cardAddPlant es null");
-
-        Log.d(TAG, "initViews: Todas las vistas inicializadas correctamente");
+        if (tvTemperature == null) AppLog.e(TAG, "ERROR: tvTemperature es null");
+        if (tvWeatherDescription == null) AppLog.e(TAG, "ERROR: tvWeatherDescription es null");
+        if (ivWeatherIcon == null) AppLog.e(TAG, "ERROR: ivWeatherIcon es null");
+        if (rvPlants == null) AppLog.e(TAG, "ERROR: rvPlants es null");
+        if (layoutEmptyState == null) AppLog.e(TAG, "ERROR: layoutEmptyState es null");
+        if (cardAddPlant == null) AppLog.e(TAG, "ERROR: cardAddPlant es null");
     }
 
     /**
@@ -142,58 +185,81 @@ public class HomeFragment extends Fragment {
         rvPlants.setAdapter(plantAdapter);
     }
 
+    /**
+     * Mostrar las plantas precargadas durante el inicio
+     * @return false si no había datos precargados
+     */
+    private boolean showWarmData() {
+        StartupPrewarmer.PlantsSnapshot warm = StartupPrewarmer.getInstance(requireContext()).takePlants(userId);
+        if (warm == null) return false;
+        showPlants(warm.plants, warm.latestReadings);
+        return true;
+    }
+
+    /**
+     * Mostrar plantas en el RecyclerView con su estado de salud
+     */
+    private void showPlants(List<Plant> plants, Map<Integer, SensorData> latestReadings) {
+        if (plants != null && !plants.isEmpty()) {
+            plantAdapter.setPlants(plants, latestReadings);
+            rvPlants.setVisibility(View.VISIBLE);
+            layoutEmptyState.setVisibility(View.GONE);
+            AppLog.d(TAG, "loadPlants: %d plantas", plants.size());
+            keepDevicesSynced(plants);
+        } else {
+            // Mostrar mensaje de estado vacío
+            showEmptyState();
+        }
+        StartupPrewarmer.getInstance(requireContext()).reportHomeVisible();
+    }
+
     /**
      * Cargar plantas del usuario desde la base de datos
      */
     private void loadPlants() {
-        Log.d(TAG, "loadPlants: Iniciando carga de plantas");
-        Log.d(TAG, "loadPlants: userId = " + userId);
-
         if (userId == -1) {
-            Log.e(TAG, "loadPlants: Usuario no identificado (userId = -1)");
+            AppLog.e(TAG, "loadPlants: Usuario no identificado (userId = -1)");
             showEmptyState();
             return;
         }
 
-        try {
-            // Obtener plantas del usuario
-            Log.d(TAG, "loadPlants: Llamando a databaseHelper.getPlantsByUserId(" + userId + ")");
-            List<Plant> plants = databaseHelper.getPlantsByUserId(userId);
-            Log.d(TAG, "loadPlants: Respuesta de BD recibida. plants == null? " + (plants == null));
-
-            if (plants != null) {
-                Log.d(TAG, "loadPlants: Número de plantas obtenidas: " + plants.size());
-
-                if (!plants.isEmpty()) {
-                    // Mostrar plantas en el RecyclerView
-                    Log.d(TAG, "loadPlants: Hay plantas, actualizando adapter");
-                    plantAdapter.setPlants(plants);
-                    rvPlants.setVisibility(View.VISIBLE);
-                    layoutEmptyState.setVisibility(View.GONE);
-                    Log.d(TAG, "loadPlants: ✓ Cargadas " + plants.size() + " plantas exitosamente");
-                } else {
-                    // Mostrar mensaje de estado vacío
-                    Log.d(TAG, "loadPlants: Lista de plantas vacía");
+        // Plantas y última lectura de cada una en una sola tarea de fondo
+        databaseHelper.execute(db -> {
+            PlantsData data = new PlantsData();
+            data.plants = db.getPlantsByUserId(userId);
+            data.latestReadings = db.getLatestSensorDataByUser(userId);
+            return data;
+        }, new AsyncDatabaseHelper.Callback<PlantsData>() {
+            @Override
+            public void onResult(PlantsData data) {
+                if (!isAdded() || getView() == null) return;
+                showPlants(data.plants, data.latestReadings);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                AppLog.e(TAG, "loadPlants: ERROR al cargar plantas", e);
+                if (isAdded() && getView() != null) {
                     showEmptyState();
                 }
-            } else {
-                Log.e(TAG, "loadPlants: La lista de plantas es null");
-                showEmptyState();
             }
-        } catch (Exception e) {
-            Log.e(TAG, "loadPlants: ERROR al cargar plantas: " + e.getMessage(), e);
-            showEmptyState();
-        }
+        });
+    }
+
+    /**
+     * Resultado combinado de la carga de plantas
+     */
+    private static class PlantsData {
+        List<Plant> plants;
+        Map<Integer, SensorData> latestReadings;
     }
 
     /**
      * Mostrar estado vacío cuando no hay plantas
      */
     private void showEmptyState() {
-        Log.d(TAG, "showEmptyState: Mostrando estado vacío");
         rvPlants.setVisibility(View.GONE);
         layoutEmptyState.setVisibility(View.VISIBLE);
-        Log.d(TAG, "showEmptyState: rvPlants.visibility = GONE, layoutEmptyState.visibility = VISIBLE");
     }
 
     /**
@@ -201,8 +267,8 @@ public class HomeFragment extends Fragment {
      */
     private void loadWeatherData() {
         // Coordenadas por defecto (Santiago, Chile)
-        double latitude = -33.4489;
-        double longitude = -70.6693;
+        double latitude = ApiConfig.DEFAULT_LATITUDE;
+        double longitude = ApiConfig.DEFAULT_LONGITUDE;
 
         // Obtener ubicación desde SharedPreferences si existe
         SharedPreferences prefs = requireActivity().getSharedPreferences("MaseteroPrefs", MODE_PRIVATE);
@@ -211,7 +277,7 @@ public class HomeFragment extends Fragment {
 
         // Verificar si la API key está configurada
         if (!com.devst.mimaseterointeligente.api.ApiConfig.isWeatherApiKeyConfigured()) {
-            Log.w(TAG, "API Key del clima no está configurada");
+            AppLog.w(TAG, "API Key del clima no está configurada");
             setDefaultWeatherUI();
             return;
         }
@@ -221,6 +287,9 @@ public class HomeFragment extends Fragment {
         String units = com.devst.mimaseterointeligente.api.ApiConfig.WEATHER_UNITS;
         String lang = com.devst.mimaseterointeligente.api.ApiConfig.WEATHER_LANG;
 
+        // Reinicia el intervalo del refresco automático
+        NetworkTaskCoordinator.getInstance(requireContext()).reportRun(WEATHER_TASK);
+
         // Llamar a la API del clima con el método y parámetros correctos
         RetrofitClient.getWeatherApiService()
                 .getCurrentWeatherByCoordinates(latitude, longitude, apiKey, units, lang)
@@ -231,14 +300,14 @@ public class HomeFragment extends Fragment {
                             WeatherResponse weather = response.body();
                             updateWeatherUI(weather);
                         } else {
-                            Log.e(TAG, "Error al obtener clima: " + response.code());
+                            AppLog.e(TAG, "Error al obtener clima: %s", response.code());
                             setDefaultWeatherUI();
                         }
                     }
 
                     @Override
                     public void onFailure(Call<WeatherResponse> call, Throwable t) {
-                        Log.e(TAG, "Error de conexión al obtener clima: " + t.getMessage());
+                        AppLog.e(TAG, "Error de conexión al obtener clima: %s", t.getMessage());
                         setDefaultWeatherUI();
                     }
                 });
@@ -17,7 +17,7 @@ import androidx.fragment.app.Fragment;
 import com.devst.mimaseterointeligente.R;
 import com.devst.mimaseterointeligente.activities.EditProfileActivity;
 import com.devst.mimaseterointeligente.activities.MainActivity;
-import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
 
 public class ProfileFragment extends Fragment {
 
@@ -27,13 +27,13 @@ public class ProfileFragment extends Fragment {
     private TextView tvUserEmail;
     private TextView tvPlantsCount;
 
-    private DatabaseHelper dbHelper;
+    private AsyncDatabaseHelper dbHelper;
     private int userId;
 
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
-        dbHelper = new DatabaseHelper(requireContext());
+        dbHelper = AsyncDatabaseHelper.getInstance(requireContext());
         return inflater.inflate(R.layout.fragment_profile, container, false);
     }
 
@@ -82,8 +82,11 @@ public class ProfileFragment extends Fragment {
 
     private void loadStats() {
         if (userId != -1) {
-            int plantsCount = dbHelper.getPlantsCountByUserId(userId);
-            tvPlantsCount.setText(String.valueOf(plantsCount));
+            dbHelper.getPlantsCountByUserId(userId, plantsCount -> {
+                if (isAdded() && getView() != null) {
+                    tvPlantsCount.setText(String.valueOf(plantsCount));
+                }
+            });
         } else {
             tvPlantsCount.setText("0");
         }
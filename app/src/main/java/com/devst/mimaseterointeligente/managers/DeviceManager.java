@@ -1,14 +1,16 @@
 package com.devst.mimaseterointeligente.managers;
 
-import android.util.Log;
-
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.devst.mimaseterointeligente.utils.AppLog;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -22,13 +24,13 @@ public class DeviceManager {
     private static final String TAG = "DeviceManager";
     private static DeviceManager instance;
 
+    private DatabaseReference rootRef;
     private DatabaseReference devicesRef;
-    private DatabaseReference plantsRef;
 
     private DeviceManager() {
         FirebaseDatabase database = FirebaseDatabase.getInstance();
+        rootRef = database.getReference();
         devicesRef = database.getReference("devices");
-        plantsRef = database.getReference("plants");
     }
 
     /**
@@ -42,152 +44,253 @@ public class DeviceManager {
     }
 
     /**
-     * Asignar una planta a un dispositivo ESP32
+     * Asignar una planta a un dispositivo ESP32.
+     * El dispositivo se reclama con una transacción sobre su nodo: solo se
+     * confirma si sigue disponible en el servidor, así dos usuarios no pueden
+     * reclamar el mismo masetero. Luego una sola escritura multi-ruta
+     * actualiza la planta; el resultado se informa cuando el servidor la
+     * confirma, y si la rechaza se deshace el reclamo.
      * @param deviceId ID del dispositivo ESP32 (ej: "ESP32-A1B2C3")
      * @param plantId ID de la planta
      * @param callback Callback con resultado
      */
     public void assignPlantToDevice(String deviceId, String plantId, AssignmentCallback callback) {
-        Log.d(TAG, "Asignando planta " + plantId + " a dispositivo " + deviceId);
+        AppLog.d(TAG, "Asignando planta %s a dispositivo %s", plantId, deviceId);
+
+        devicesRef.child(deviceId).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                if (currentData.getValue() == null) {
+                    // Sin copia local: se confirma tal cual y el servidor responde con el valor real
+                    return Transaction.success(currentData);
+                }
+
+                String currentPlantId = currentData.child("current_plant_id").getValue(String.class);
+                if (plantId.equals(currentPlantId)) {
+                    // Ya asignado a esta planta (reintento)
+                    return Transaction.success(currentData);
+                }
+
+                Boolean isAvailable = currentData.child("is_available").getValue(Boolean.class);
+                if (isAvailable == null || !isAvailable
+                        || (currentPlantId != null && !currentPlantId.isEmpty())) {
+                    return Transaction.abort();
+                }
+
+                currentData.child("is_available").setValue(false);
+                currentData.child("current_plant_id").setValue(plantId);
+                return Transaction.success(currentData);
+            }
 
-        // Verificar que el dispositivo esté disponible
-        devicesRef.child(deviceId).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (!snapshot.exists()) {
+            public void onComplete(@Nullable DatabaseError error, boolean committed,
+                                   @Nullable DataSnapshot currentData) {
+                if (error != null) {
+                    AppLog.e(TAG, "Error al reclamar dispositivo: %s", error.getMessage());
+                    if (callback != null) {
+                        callback.onError(error.getMessage());
+                    }
+                    return;
+                }
+                if (currentData == null || !currentData.exists()) {
                     if (callback != null) {
                         callback.onError("El dispositivo no existe");
                     }
                     return;
                 }
-
-                Boolean isAvailable = snapshot.child("is_available").getValue(Boolean.class);
-                if (isAvailable == null || !isAvailable) {
+                if (!committed || !plantId.equals(currentData.child("current_plant_id").getValue(String.class))) {
                     if (callback != null) {
                         callback.onError("El dispositivo no está disponible");
                     }
                     return;
                 }
 
-                // Actualizar dispositivo
-                Map<String, Object> deviceUpdates = new HashMap<>();
-                deviceUpdates.put("is_available", false);
-                deviceUpdates.put("current_plant_id", String.valueOf(plantId));
-                deviceUpdates.put("last_seen", String.valueOf(System.currentTimeMillis()));
-
-                devicesRef.child(deviceId).updateChildren(deviceUpdates)
-                    .addOnSuccessListener(aVoid -> {
-                        Log.d(TAG, "Dispositivo actualizado exitosamente");
-
-                        // También actualizar la planta en Firebase (opcional, si la usas)
-                        updatePlantDevice(plantId, deviceId);
+                AppLog.d(TAG, "Dispositivo reclamado exitosamente");
 
+                // Planta y dispositivo en una sola escritura atómica
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("plants/" + plantId + "/device_id", deviceId);
+                updates.put("plants/" + plantId + "/is_connected", 1);
+                updates.put("devices/" + deviceId + "/assigned_at", ServerValue.TIMESTAMP);
+                rootRef.updateChildren(updates).addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
                         if (callback != null) {
                             callback.onSuccess();
                         }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error al actualizar dispositivo: " + e.getMessage());
-                        if (callback != null) {
-                            callback.onError(e.getMessage());
-                        }
-                    });
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Error al leer dispositivo: " + error.getMessage());
-                if (callback != null) {
-                    callback.onError(error.getMessage());
-                }
+                        return;
+                    }
+                    String message = task.getException() != null ? task.getException().getMessage() : "desconocido";
+                    AppLog.e(TAG, "Error al actualizar planta: %s", message);
+                    // La planta no quedó apuntando al dispositivo: liberarlo
+                    setClaim(deviceId, plantId, false);
+                    if (callback != null) {
+                        callback.onError(message);
+                    }
+                });
             }
         });
     }
 
     /**
-     * Desasignar una planta de un dispositivo ESP32
+     * Desasignar una planta de un dispositivo ESP32 (cualquier planta)
      * @param deviceId ID del dispositivo
      * @param callback Callback con resultado
      */
     public void unassignPlantFromDevice(String deviceId, UnassignmentCallback callback) {
-        Log.d(TAG, "Desasignando planta del dispositivo " + deviceId);
-
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("is_available", true);
-        updates.put("current_plant_id", "");
-
-        devicesRef.child(deviceId).updateChildren(updates)
-            .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "Planta desasignada exitosamente");
-                if (callback != null) {
-                    callback.onSuccess();
-                }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error al desasignar: " + e.getMessage());
-                if (callback != null) {
-                    callback.onError(e.getMessage());
-                }
-            });
-    }
-
-    /**
-     * Actualizar el deviceId de una planta en Firebase (opcional)
-     */
-    private void updatePlantDevice(String plantId, String deviceId) {
-        Map<String, Object> plantUpdates = new HashMap<>();
-        plantUpdates.put("device_id", deviceId);
-        plantUpdates.put("is_connected", true);
-
-        plantsRef.child(plantId).updateChildren(plantUpdates)
-            .addOnSuccessListener(aVoid -> Log.d(TAG, "Planta actualizada en Firebase"))
-            .addOnFailureListener(e -> Log.e(TAG, "Error al actualizar planta: " + e.getMessage()));
+        unassignPlantFromDevice(deviceId, null, callback);
     }
 
     /**
-     * Verificar si un dispositivo está online (última conexión < 5 minutos)
+     * Desasignar una planta de un dispositivo ESP32.
+     * Igual que la asignación: una transacción libera el dispositivo solo si
+     * sigue asignado a esa planta, y una escritura multi-ruta limpia la planta.
+     * Si el servidor rechaza esa escritura se vuelve a reclamar el dispositivo
+     * para la planta (si sigue libre) y se informa el error.
      * @param deviceId ID del dispositivo
+     * @param plantId Planta que se desasigna (null para liberar sin comprobar)
      * @param callback Callback con resultado
      */
-    public void isDeviceOnline(String deviceId, OnlineCheckCallback callback) {
-        devicesRef.child(deviceId).child("last_seen")
-            .addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    if (!snapshot.exists()) {
-                        if (callback != null) {
-                            callback.onResult(false);
-                        }
-                        return;
-                    }
+    public void unassignPlantFromDevice(String deviceId, @Nullable String plantId,
+                                        UnassignmentCallback callback) {
+        AppLog.d(TAG, "Desasignando planta del dispositivo %s", deviceId);
 
-                    try {
-                        String lastSeenStr = snapshot.getValue(String.class);
-                        long lastSeen = Long.parseLong(lastSeenStr);
-                        long now = System.currentTimeMillis();
-                        long fiveMinutes = 5 * 60 * 1000;
+        devicesRef.child(deviceId).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                if (currentData.getValue() == null) {
+                    return Transaction.success(currentData);
+                }
 
-                        boolean isOnline = (now - lastSeen) < fiveMinutes;
+                String currentPlantId = currentData.child("current_plant_id").getValue(String.class);
+                if (plantId != null && currentPlantId != null && !currentPlantId.isEmpty()
+                        && !plantId.equals(currentPlantId)) {
+                    // Otra planta ya reclamó el dispositivo: no liberarlo
+                    return Transaction.abort();
+                }
 
-                        if (callback != null) {
-                            callback.onResult(isOnline);
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error al verificar estado online: " + e.getMessage());
-                        if (callback != null) {
-                            callback.onResult(false);
-                        }
+                currentData.child("is_available").setValue(true);
+                currentData.child("current_plant_id").setValue("");
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(@Nullable DatabaseError error, boolean committed,
+                                   @Nullable DataSnapshot currentData) {
+                if (error != null) {
+                    AppLog.e(TAG, "Error al desasignar: %s", error.getMessage());
+                    if (callback != null) {
+                        callback.onError(error.getMessage());
                     }
+                    return;
                 }
 
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    Log.e(TAG, "Error al leer last_seen: " + error.getMessage());
+                if (plantId == null) {
+                    AppLog.d(TAG, "Dispositivo liberado");
                     if (callback != null) {
-                        callback.onResult(false);
+                        callback.onSuccess();
                     }
+                    return;
+                }
+
+                // La planta deja de apuntar al dispositivo aunque este ya tenga otra
+                boolean released = committed && currentData != null && currentData.exists();
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("plants/" + plantId + "/device_id", null);
+                updates.put("plants/" + plantId + "/is_connected", 0);
+                if (released) {
+                    updates.put("devices/" + deviceId + "/assigned_at", null);
+                }
+                rootRef.updateChildren(updates).addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
+                        AppLog.d(TAG, "Planta desasignada exitosamente");
+                        if (callback != null) {
+                            callback.onSuccess();
+                        }
+                        return;
+                    }
+                    String message = task.getException() != null ? task.getException().getMessage() : "desconocido";
+                    AppLog.e(TAG, "Error al actualizar planta: %s", message);
+                    // La planta sigue apuntando al dispositivo: devolverle el reclamo
+                    if (released) {
+                        setClaim(deviceId, plantId, true);
+                    }
+                    if (callback != null) {
+                        callback.onError(message);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Deshacer un reclamo o una liberación cuya escritura de la planta falló.
+     * Es una transacción: solo cambia el dispositivo si sigue en el estado
+     * que dejó la operación original (nadie más lo tomó entre medio).
+     * @param claimed true para reclamarlo de nuevo para la planta, false para liberarlo
+     */
+    private void setClaim(String deviceId, String plantId, boolean claimed) {
+        devicesRef.child(deviceId).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                if (currentData.getValue() == null) {
+                    return Transaction.success(currentData);
+                }
+
+                String currentPlantId = currentData.child("current_plant_id").getValue(String.class);
+                boolean free = currentPlantId == null || currentPlantId.isEmpty();
+                if (claimed ? !free : !plantId.equals(currentPlantId)) {
+                    return Transaction.abort();
+                }
+
+                currentData.child("is_available").setValue(!claimed);
+                currentData.child("current_plant_id").setValue(claimed ? plantId : "");
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(@Nullable DatabaseError error, boolean committed,
+                                   @Nullable DataSnapshot currentData) {
+                if (error != null) {
+                    AppLog.e(TAG, "Error al revertir dispositivo %s: %s", deviceId, error.getMessage());
+                } else if (!committed) {
+                    AppLog.w(TAG, "Dispositivo %s cambió antes de revertir", deviceId);
                 }
-            });
+            }
+        });
+    }
+
+    /**
+     * Verificar si un dispositivo está online.
+     * Si el servicio de presencia ya conoce el dispositivo responde sin leer
+     * Firebase; si no, lee last_seen una vez y lo compara con la hora del servidor.
+     * @param deviceId ID del dispositivo
+     * @param callback Callback con resultado
+     */
+    public void isDeviceOnline(String deviceId, OnlineCheckCallback callback) {
+        DevicePresenceManager presence = DevicePresenceManager.getInstance();
+        if (presence.getLastSeen(deviceId) > 0) {
+            if (callback != null) {
+                callback.onResult(presence.isOnline(deviceId));
+            }
+            return;
+        }
+
+        // get() consulta el servidor: la caché local podría tener un latido antiguo
+        devicesRef.child(deviceId).child("last_seen").get().addOnCompleteListener(task -> {
+            boolean online = false;
+            if (task.isSuccessful()) {
+                online = presence.isRecent(task.getResult().getValue());
+            } else {
+                AppLog.e(TAG, "Error al leer last_seen: %s",
+                        task.getException() != null ? task.getException().getMessage() : "desconocido");
+            }
+            if (callback != null) {
+                callback.onResult(online);
+            }
+        });
     }
 
     /**
@@ -0,0 +1,273 @@
+package com.devst.mimaseterointeligente.managers;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Presencia de los dispositivos ESP32 (online/offline) en memoria.
+ *
+ * Un único ChildEventListener sobre /devices recibe los latidos de todos los
+ * dispositivos y mantiene un mapa deviceId -> última conexión, así consultar
+ * si un dispositivo está online es O(1) y no requiere leer Firebase.
+ *
+ * La hora se toma del servidor: si last_seen es una marca de tiempo
+ * (ServerValue.TIMESTAMP, firmware actual) se usa directamente; si es el
+ * millis() del firmware antiguo se usa la hora de llegada del latido,
+ * corregida con .info/serverTimeOffset.
+ *
+ * Se usa solo desde el hilo principal. Escucha mientras haya listeners
+ * registrados.
+ */
+public class DevicePresenceManager {
+
+    private static final String TAG = "DevicePresence";
+    private static final long ONLINE_TIMEOUT_MS = 5 * 60 * 1000; // Sin latidos por 5 minutos = offline
+    private static final long CHECK_INTERVAL_MS = 30 * 1000; // Revisión de dispositivos que dejaron de latir
+    private static final long MIN_EPOCH_MS = 1_000_000_000_000L; // Menor a esto es millis() del firmware
+
+    private static DevicePresenceManager instance;
+
+    private final DatabaseReference devicesRef;
+    private final DatabaseReference offsetRef;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Presence> presence = new HashMap<>();
+    private final CopyOnWriteArraySet<PresenceListener> listeners = new CopyOnWriteArraySet<>();
+    private long serverTimeOffset = 0;
+    private boolean listening = false;
+
+    /**
+     * Cambio de estado de un dispositivo
+     */
+    public interface PresenceListener {
+        void onPresenceChanged(String deviceId, boolean online);
+    }
+
+    /**
+     * Estado conocido de un dispositivo
+     */
+    private static class Presence {
+        Object rawLastSeen; // Valor tal cual está en Firebase, para detectar latidos
+        long lastSeen;      // Hora del servidor del último latido (0 si se desconoce)
+        boolean online;
+    }
+
+    private DevicePresenceManager() {
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        devicesRef = database.getReference("devices");
+        offsetRef = database.getReference(".info/serverTimeOffset");
+    }
+
+    /**
+     * Obtener instancia singleton
+     */
+    public static synchronized DevicePresenceManager getInstance() {
+        if (instance == null) {
+            instance = new DevicePresenceManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Registrar un listener; el primero inicia la escucha en Firebase
+     */
+    public void addListener(PresenceListener listener) {
+        listeners.add(listener);
+        if (!listening) {
+            listening = true;
+            offsetRef.addValueEventListener(offsetListener);
+            devicesRef.addChildEventListener(devicesListener);
+            handler.postDelayed(checkRunnable, CHECK_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Quitar un listener; sin listeners se deja de escuchar
+     */
+    public void removeListener(PresenceListener listener) {
+        listeners.remove(listener);
+        if (listening && listeners.isEmpty()) {
+            listening = false;
+            offsetRef.removeEventListener(offsetListener);
+            devicesRef.removeEventListener(devicesListener);
+            handler.removeCallbacks(checkRunnable);
+            // Al volver a escuchar onChildAdded reconstruye el estado
+            presence.clear();
+        }
+    }
+
+    /**
+     * Indica si el dispositivo envió un latido en los últimos 5 minutos
+     */
+    public boolean isOnline(@Nullable String deviceId) {
+        if (deviceId == null) {
+            return false;
+        }
+        Presence state = presence.get(deviceId);
+        return state != null && state.online;
+    }
+
+    /**
+     * Hora del servidor del último latido conocido (0 si se desconoce)
+     */
+    public long getLastSeen(@Nullable String deviceId) {
+        Presence state = deviceId != null ? presence.get(deviceId) : null;
+        return state != null ? state.lastSeen : 0;
+    }
+
+    /**
+     * Hora actual estimada del servidor
+     */
+    public long getServerTime() {
+        return System.currentTimeMillis() + serverTimeOffset;
+    }
+
+    /**
+     * Evaluar un valor de last_seen leído una sola vez (sin latido observado).
+     * Solo es válido si el firmware guarda la hora del servidor.
+     */
+    public boolean isRecent(@Nullable Object rawLastSeen) {
+        long lastSeen = toEpoch(rawLastSeen);
+        return lastSeen > 0 && getServerTime() - lastSeen < ONLINE_TIMEOUT_MS;
+    }
+
+    private final ValueEventListener offsetListener = new ValueEventListener() {
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            Double offset = snapshot.getValue(Double.class);
+            serverTimeOffset = offset != null ? offset.longValue() : 0;
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            AppLog.e(TAG, "Error al leer serverTimeOffset: %s", error.getMessage());
+        }
+    };
+
+    private final ChildEventListener devicesListener = new ChildEventListener() {
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            Presence state = new Presence();
+            state.rawLastSeen = snapshot.child("last_seen").getValue();
+            // Un millis() del firmware antiguo no dice cuándo se escribió: offline hasta el próximo latido
+            state.lastSeen = toEpoch(state.rawLastSeen);
+            presence.put(snapshot.getKey(), state);
+            evaluate(snapshot.getKey(), state);
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            Presence state = presence.get(snapshot.getKey());
+            if (state == null) {
+                onChildAdded(snapshot, previousChildName);
+                return;
+            }
+
+            Object rawLastSeen = snapshot.child("last_seen").getValue();
+            if (Objects.equals(rawLastSeen, state.rawLastSeen)) {
+                // Cambió otro campo (ej: asignación), no es un latido
+                return;
+            }
+            state.rawLastSeen = rawLastSeen;
+            long value = parseLastSeen(rawLastSeen);
+            if (value >= MIN_EPOCH_MS) {
+                state.lastSeen = value;
+            } else if (value > 0) {
+                // millis() del firmware antiguo: el latido llegó ahora
+                state.lastSeen = getServerTime();
+            } else {
+                // "0" lo escribe markDeviceOffline
+                state.lastSeen = 0;
+            }
+            evaluate(snapshot.getKey(), state);
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            Presence state = presence.remove(snapshot.getKey());
+            if (state != null && state.online) {
+                notifyListeners(snapshot.getKey(), false);
+            }
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            AppLog.e(TAG, "Error al escuchar dispositivos: %s", error.getMessage());
+        }
+    };
+
+    /**
+     * Revisar periódicamente los dispositivos que dejaron de enviar latidos
+     */
+    private final Runnable checkRunnable = new Runnable() {
+        @Override
+        public void run() {
+            for (Map.Entry<String, Presence> entry : presence.entrySet()) {
+                evaluate(entry.getKey(), entry.getValue());
+            }
+            if (listening) {
+                handler.postDelayed(this, CHECK_INTERVAL_MS);
+            }
+        }
+    };
+
+    /**
+     * Recalcular el estado de un dispositivo y avisar si cambió
+     */
+    private void evaluate(String deviceId, Presence state) {
+        boolean online = state.lastSeen > 0 && getServerTime() - state.lastSeen < ONLINE_TIMEOUT_MS;
+        if (online != state.online) {
+            state.online = online;
+            notifyListeners(deviceId, online);
+        }
+    }
+
+    private void notifyListeners(String deviceId, boolean online) {
+        for (PresenceListener listener : listeners) {
+            listener.onPresenceChanged(deviceId, online);
+        }
+    }
+
+    /**
+     * Convertir last_seen a hora del servidor (0 si es millis() del firmware o inválido)
+     */
+    private static long toEpoch(@Nullable Object rawLastSeen) {
+        long value = parseLastSeen(rawLastSeen);
+        return value >= MIN_EPOCH_MS ? value : 0;
+    }
+
+    /**
+     * Leer last_seen como número (guardado como Long o como String); 0 si es inválido
+     */
+    private static long parseLastSeen(@Nullable Object rawLastSeen) {
+        if (rawLastSeen instanceof Number) {
+            return ((Number) rawLastSeen).longValue();
+        } else if (rawLastSeen instanceof String) {
+            try {
+                return Long.parseLong((String) rawLastSeen);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
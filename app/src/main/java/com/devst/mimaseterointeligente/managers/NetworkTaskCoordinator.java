@@ -0,0 +1,224 @@
+package com.devst.mimaseterointeligente.managers;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.EventLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coordinador de las tareas de red periódicas mientras la app está visible.
+ *
+ * Cada tarea registra su intervalo y una tolerancia: puede adelantarse hasta
+ * toleranceMs, pero nunca se atrasa, así los datos no quedan más viejos que
+ * con su propio temporizador. Al despertar se ejecutan juntas todas las
+ * tareas que ya están dentro de su ventana, y la radio se enciende una sola
+ * vez para todas.
+ *
+ * También se aprovecha cuando la radio ya está activa por otro motivo
+ * (OnNetworkActiveListener o una ejecución avisada con reportRun): las
+ * tareas dentro de su ventana se adelantan a ese momento.
+ *
+ * Tareas actuales: revisión de sensores y sincronización incremental
+ * mientras la app está visible (MaseteroApplication), el clima de la
+ * pantalla principal y las lecturas del dashboard. Solo se registran tareas
+ * que usan la red: cada ejecución cuenta como un despertar de la radio.
+ *
+ * Se usa solo desde el hilo principal. Escucha la red mientras haya tareas
+ * registradas.
+ */
+public class NetworkTaskCoordinator {
+
+    private static final String TAG = "NetworkCoordinator";
+    private static final long STATS_WINDOW_MS = 60 * 60 * 1000; // Estadísticas por hora
+
+    private static NetworkTaskCoordinator instance;
+
+    private final ConnectivityManager connectivityManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, ScheduledTask> tasks = new LinkedHashMap<>();
+    // Se conserva al quitar una tarea: al volver a registrarla no se repite antes de tiempo
+    private final Map<String, Long> lastRuns = new HashMap<>();
+    private boolean listeningNetwork = false;
+    private boolean running = false;
+
+    // Estadísticas de la hora en curso
+    private long statsWindowStart = SystemClock.elapsedRealtime();
+    private int wakeups = 0;
+    private int piggybacked = 0;
+    private int tasksRun = 0;
+
+    /**
+     * Tarea registrada con su ventana de ejecución
+     */
+    private static class ScheduledTask {
+        String name;
+        long intervalMs;
+        long toleranceMs;
+        Runnable task;
+        long nextDue; // elapsedRealtime en que vence
+    }
+
+    private NetworkTaskCoordinator(Context context) {
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    /**
+     * Obtener instancia singleton
+     */
+    public static synchronized NetworkTaskCoordinator getInstance(Context context) {
+        if (instance == null) {
+            instance = new NetworkTaskCoordinator(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Registrar una tarea periódica. La primera ejecución vence un intervalo
+     * después de la última conocida (o de ahora, si nunca se ejecutó).
+     * @param name Nombre único; registrar de nuevo reemplaza la tarea
+     * @param intervalMs Intervalo entre ejecuciones
+     * @param toleranceMs Cuánto puede adelantarse para agruparse con otras
+     * @param task Se ejecuta en el hilo principal; debe lanzar su trabajo de red en forma asíncrona
+     */
+    public void register(String name, long intervalMs, long toleranceMs, Runnable task) {
+        long now = SystemClock.elapsedRealtime();
+        Long lastRun = lastRuns.get(name);
+
+        ScheduledTask scheduled = new ScheduledTask();
+        scheduled.name = name;
+        scheduled.intervalMs = intervalMs;
+        scheduled.toleranceMs = Math.min(toleranceMs, intervalMs);
+        scheduled.task = task;
+        scheduled.nextDue = (lastRun != null ? lastRun : now) + intervalMs;
+        tasks.put(name, scheduled);
+
+        if (!listeningNetwork && connectivityManager != null) {
+            listeningNetwork = true;
+            connectivityManager.addDefaultNetworkActiveListener(networkActiveListener);
+        }
+
+        // Puede que ya esté dentro de su ventana
+        runDue(now, false);
+    }
+
+    /**
+     * Quitar una tarea; sin tareas se deja de escuchar la red
+     */
+    public void unregister(String name) {
+        tasks.remove(name);
+        if (tasks.isEmpty()) {
+            handler.removeCallbacks(wakeupRunnable);
+            if (listeningNetwork) {
+                listeningNetwork = false;
+                connectivityManager.removeDefaultNetworkActiveListener(networkActiveListener);
+            }
+        } else {
+            scheduleNextWakeup();
+        }
+    }
+
+    /**
+     * Avisar que la tarea se ejecutó por su cuenta (ej: al abrir la pantalla
+     * o al refrescar). Reinicia su intervalo y, como la radio quedó activa,
+     * adelanta las demás tareas que estén dentro de su ventana.
+     */
+    public void reportRun(String name) {
+        long now = SystemClock.elapsedRealtime();
+        lastRuns.put(name, now);
+        ScheduledTask scheduled = tasks.get(name);
+        if (scheduled != null) {
+            scheduled.nextDue = now + scheduled.intervalMs;
+        }
+        runDue(now, true);
+    }
+
+    /**
+     * Ejecutar todas las tareas que están dentro de su ventana
+     * @param piggyback true si la radio ya estaba activa por otro motivo
+     */
+    private void runDue(long now, boolean piggyback) {
+        if (running) {
+            // Una tarea avisó su ejecución mientras se recorre la lista
+            return;
+        }
+        running = true;
+
+        List<ScheduledTask> due = new ArrayList<>();
+        for (ScheduledTask scheduled : tasks.values()) {
+            if (now >= scheduled.nextDue - scheduled.toleranceMs) {
+                due.add(scheduled);
+            }
+        }
+
+        if (!due.isEmpty()) {
+            countWakeup(now, due.size(), piggyback);
+            for (ScheduledTask scheduled : due) {
+                scheduled.nextDue = now + scheduled.intervalMs;
+                lastRuns.put(scheduled.name, now);
+                try {
+                    scheduled.task.run();
+                } catch (Exception e) {
+                    AppLog.e(TAG, "Error en tarea %s: %s", scheduled.name, e.getMessage());
+                }
+            }
+        }
+
+        running = false;
+        scheduleNextWakeup();
+    }
+
+    /**
+     * Despertar cuando vence la primera tarea (el final de su ventana)
+     */
+    private void scheduleNextWakeup() {
+        handler.removeCallbacks(wakeupRunnable);
+        long next = Long.MAX_VALUE;
+        for (ScheduledTask scheduled : tasks.values()) {
+            next = Math.min(next, scheduled.nextDue);
+        }
+        if (next != Long.MAX_VALUE) {
+            handler.postDelayed(wakeupRunnable, Math.max(0, next - SystemClock.elapsedRealtime()));
+        }
+    }
+
+    private final Runnable wakeupRunnable = () -> runDue(SystemClock.elapsedRealtime(), false);
+
+    // Se puede llamar desde otro hilo: se pasa al principal
+    private final ConnectivityManager.OnNetworkActiveListener networkActiveListener =
+            () -> handler.post(() -> runDue(SystemClock.elapsedRealtime(), true));
+
+    /**
+     * Contar un despertar de la radio y registrar el total de cada hora
+     */
+    private void countWakeup(long now, int taskCount, boolean piggyback) {
+        if (now - statsWindowStart >= STATS_WINDOW_MS) {
+            AppLog.d(TAG, "Última hora: %d despertares propios, %d con la radio ya activa, %d tareas",
+                    wakeups, piggybacked, tasksRun);
+            statsWindowStart = now;
+            wakeups = 0;
+            piggybacked = 0;
+            tasksRun = 0;
+        }
+        if (piggyback) {
+            piggybacked++;
+            MetricsRegistry.increment("network.piggybacked");
+        } else {
+            wakeups++;
+            MetricsRegistry.increment("network.wakeups");
+        }
+        tasksRun += taskCount;
+        EventLog.write(EventLog.NETWORK_WAKEUP, taskCount, piggyback ? 1 : 0);
+        MetricsRegistry.add("network.tasks", taskCount);
+    }
+}
@@ -0,0 +1,261 @@
+package com.devst.mimaseterointeligente.managers;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.devst.mimaseterointeligente.api.ApiConfig;
+import com.devst.mimaseterointeligente.api.RetrofitClient;
+import com.devst.mimaseterointeligente.database.AsyncDatabaseHelper;
+import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.models.SensorData;
+import com.devst.mimaseterointeligente.models.WeatherResponse;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+import com.devst.mimaseterointeligente.utils.SessionManager;
+import com.devst.mimaseterointeligente.utils.Tracer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import retrofit2.Response;
+
+/**
+ * Preparación en paralelo de lo que necesita la primera pantalla.
+ *
+ * Mientras se muestra el splash, en hilos de fondo:
+ *
+ *   sesión ──┐
+ *   base de datos ──┴── plantas del usuario + última lectura
+ *   clientes HTTP ───── clima actual
+ *
+ * El splash continúa apenas están la base de datos, las plantas y los
+ * clientes HTTP, o al pasar ApiConfig.STARTUP_MAX_WAIT_MS. El clima depende
+ * de la red y no se espera: si llega a tiempo HomeFragment lo usa, si no,
+ * lo pide como siempre.
+ *
+ * Cada nodo se mide en MetricsRegistry ("startup.*") y como span de Tracer.
+ * "startup.ready" y "startup.home" son el tiempo desde el inicio del proceso
+ * hasta salir del splash y hasta mostrar las plantas (solo el primer
+ * arranque de cada proceso).
+ */
+public class StartupPrewarmer {
+
+    private static final String TAG = "StartupPrewarmer";
+    private static StartupPrewarmer instance;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor;
+    private final AtomicBoolean readyReported = new AtomicBoolean(false);
+    private final AtomicBoolean homeReported = new AtomicBoolean(false);
+
+    private CompletableFuture<Void> critical;
+
+    // Cachés listas para la primera pantalla (se entregan una sola vez)
+    private volatile PlantsSnapshot warmPlants;
+    private volatile WeatherResponse warmWeather;
+    private volatile long warmWeatherTime;
+
+    /**
+     * Plantas del usuario y la última lectura de cada una
+     */
+    public static class PlantsSnapshot {
+        public final int userId;
+        public final List<Plant> plants;
+        public final Map<Integer, SensorData> latestReadings;
+
+        PlantsSnapshot(int userId, List<Plant> plants, Map<Integer, SensorData> latestReadings) {
+            this.userId = userId;
+            this.plants = plants;
+            this.latestReadings = latestReadings;
+        }
+    }
+
+    private StartupPrewarmer(Context context) {
+        this.context = context;
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(3, runnable -> {
+            Thread thread = new Thread(runnable, "masetero-startup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Obtener instancia singleton
+     */
+    public static synchronized StartupPrewarmer getInstance(Context context) {
+        if (instance == null) {
+            instance = new StartupPrewarmer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Lanzar el grafo de inicio (solo la primera vez)
+     */
+    public synchronized void start() {
+        if (critical != null) return;
+
+        CompletableFuture<SessionManager> session = run("startup.session",
+                () -> new SessionManager(context));
+        CompletableFuture<DatabaseHelper> database = run("startup.database", () -> {
+            DatabaseHelper db = DatabaseHelper.getInstance(context);
+            db.getWritableDatabase(); // Crea o actualiza el esquema fuera del hilo principal
+            AsyncDatabaseHelper.getInstance(context);
+            return db;
+        });
+        CompletableFuture<Void> plants = session.thenAcceptBothAsync(database, this::loadPlants, executor);
+        CompletableFuture<Void> network = run("startup.network", () -> {
+            RetrofitClient.getArduinoApiService();
+            RetrofitClient.getWeatherApiService();
+            return null;
+        }).thenAccept(ignored -> { });
+
+        critical = CompletableFuture.allOf(database, plants, network);
+        network.thenRunAsync(this::loadWeather, executor);
+    }
+
+    /**
+     * Ejecutar un nodo del grafo midiendo su duración
+     */
+    private <T> CompletableFuture<T> run(String name, Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = MetricsRegistry.start();
+            try (Tracer.Span ignored = Tracer.begin(name)) {
+                return task.call();
+            } catch (Exception e) {
+                AppLog.e(TAG, "Error en %s: %s", name, e.getMessage());
+                return null;
+            } finally {
+                MetricsRegistry.recordSince(name, start);
+            }
+        }, executor);
+    }
+
+    private void loadPlants(SessionManager session, DatabaseHelper db) {
+        if (session == null || db == null || !session.isLoggedIn() || session.getUserId() == -1) {
+            return;
+        }
+        long start = MetricsRegistry.start();
+        try (Tracer.Span ignored = Tracer.begin("startup.plants")) {
+            int userId = session.getUserId();
+            warmPlants = new PlantsSnapshot(userId, db.getPlantsByUserId(userId),
+                    db.getLatestSensorDataByUser(userId));
+        } catch (Exception e) {
+            AppLog.e(TAG, "Error al precargar plantas: %s", e.getMessage());
+        } finally {
+            MetricsRegistry.recordSince("startup.plants", start);
+        }
+    }
+
+    private void loadWeather() {
+        if (!ApiConfig.isWeatherApiKeyConfigured()) return;
+
+        SharedPreferences prefs = context.getSharedPreferences("MaseteroPrefs", Context.MODE_PRIVATE);
+        double latitude = Double.parseDouble(prefs.getString("latitude",
+                String.valueOf(ApiConfig.DEFAULT_LATITUDE)));
+        double longitude = Double.parseDouble(prefs.getString("longitude",
+                String.valueOf(ApiConfig.DEFAULT_LONGITUDE)));
+
+        long start = MetricsRegistry.start();
+        try (Tracer.Span ignored = Tracer.begin("startup.weather")) {
+            Response<WeatherResponse> response = RetrofitClient.getWeatherApiService()
+                    .getCurrentWeatherByCoordinates(latitude, longitude, ApiConfig.WEATHER_API_KEY,
+                            ApiConfig.WEATHER_UNITS, ApiConfig.WEATHER_LANG)
+                    .execute();
+            if (response.isSuccessful() && response.body() != null) {
+                warmWeatherTime = SystemClock.elapsedRealtime();
+                warmWeather = response.body();
+            }
+        } catch (Exception e) {
+            AppLog.e(TAG, "Error al precargar clima: %s", e.getMessage());
+        } finally {
+            MetricsRegistry.recordSince("startup.weather", start);
+        }
+    }
+
+    /**
+     * Ejecutar onReady en el hilo principal cuando termine lo esencial del
+     * inicio o al pasar maxWaitMs, lo que ocurra primero. Llamar desde el
+     * hilo principal después de start().
+     */
+    public void whenReady(long maxWaitMs, Runnable onReady) {
+        AtomicBoolean done = new AtomicBoolean(false);
+        Runnable proceed = () -> {
+            if (done.compareAndSet(false, true)) {
+                if (readyReported.compareAndSet(false, true)) {
+                    recordSinceProcessStart("startup.ready");
+                }
+                onReady.run();
+            }
+        };
+        Runnable timeout = () -> {
+            if (!done.get()) {
+                AppLog.w(TAG, "Inicio no terminó en %d ms, continuando", maxWaitMs);
+                MetricsRegistry.increment("startup.timeouts");
+            }
+            proceed.run();
+        };
+        mainHandler.postDelayed(timeout, maxWaitMs);
+        critical.whenComplete((result, error) -> mainHandler.post(() -> {
+            mainHandler.removeCallbacks(timeout);
+            proceed.run();
+        }));
+    }
+
+    /**
+     * Plantas precargadas del usuario (null si no están listas o ya se usaron)
+     */
+    @Nullable
+    public PlantsSnapshot takePlants(int userId) {
+        PlantsSnapshot snapshot = warmPlants;
+        warmPlants = null;
+        return snapshot != null && snapshot.userId == userId ? snapshot : null;
+    }
+
+    /**
+     * Clima precargado si sigue vigente (null si no está listo o ya se usó)
+     */
+    @Nullable
+    public WeatherResponse takeWeather() {
+        WeatherResponse response = warmWeather;
+        warmWeather = null;
+        if (response == null
+                || SystemClock.elapsedRealtime() - warmWeatherTime > ApiConfig.WEATHER_UPDATE_INTERVAL) {
+            return null;
+        }
+        return response;
+    }
+
+    /**
+     * La pantalla principal ya muestra las plantas: registrar el tiempo de
+     * inicio completo (solo la primera vez)
+     */
+    public void reportHomeVisible() {
+        if (homeReported.compareAndSet(false, true)) {
+            long ms = recordSinceProcessStart("startup.home");
+            AppLog.i(TAG, "Pantalla principal lista en %d ms", ms);
+        }
+    }
+
+    private long recordSinceProcessStart(String name) {
+        long ms = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        MetricsRegistry.recordLatency(name, null, ms * 1_000_000);
+        MetricsRegistry.setGauge(name + ".ms", ms);
+        return ms;
+    }
+}
@@ -1,5 +1,7 @@
 package com.devst.mimaseterointeligente.models;
 
+import com.google.firebase.database.DataSnapshot;
+
 import java.io.Serializable;
 
 /**
@@ -29,6 +31,27 @@ public class Device implements Serializable {
         this.lastSeen = String.valueOf(System.currentTimeMillis());
     }
 
+    /**
+     * Crear un dispositivo desde su nodo en /devices/{deviceId}.
+     * El ESP32 escribe las claves en snake_case, por eso se leen una a una
+     * en vez de usar getValue(Device.class).
+     */
+    public static Device fromSnapshot(DataSnapshot snapshot) {
+        Device device = new Device();
+        device.deviceId = snapshot.hasChild("device_id")
+                ? String.valueOf(snapshot.child("device_id").getValue())
+                : snapshot.getKey();
+        device.deviceName = snapshot.child("device_name").getValue(String.class);
+        Boolean available = snapshot.child("is_available").getValue(Boolean.class);
+        device.isAvailable = available != null && available;
+        device.currentPlantId = snapshot.child("current_plant_id").getValue(String.class);
+        Object lastSeen = snapshot.child("last_seen").getValue();
+        device.lastSeen = lastSeen != null ? String.valueOf(lastSeen) : null;
+        device.ipAddress = snapshot.child("ip_address").getValue(String.class);
+        device.firmwareVersion = snapshot.child("firmware_version").getValue(String.class);
+        return device;
+    }
+
     // Getters y Setters
     public String getDeviceId() {
         return deviceId;
@@ -87,7 +110,9 @@ public class Device implements Serializable {
     }
 
     /**
-     * Verifica si el dispositivo está online (última conexión en los últimos 5 minutos)
+     * Verifica si el dispositivo está online (última conexión en los últimos 5 minutos).
+     * Usa el reloj local; en la UI se usa DevicePresenceManager, que corrige
+     * la diferencia con el servidor.
      */
     public boolean isOnline() {
         if (lastSeen == null) return false;
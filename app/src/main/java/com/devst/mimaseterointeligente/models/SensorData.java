@@ -1,5 +1,7 @@
 package com.devst.mimaseterointeligente.models;
 
+import com.google.firebase.database.DataSnapshot;
+
 import java.io.Serializable;
 
 public class SensorData implements Serializable {
@@ -39,6 +41,48 @@ public class SensorData implements Serializable {
         evaluateStatuses();
     }
 
+    /**
+     * Crear una lectura desde un registro de Firebase.
+     * El ESP32 guarda plant_id como texto y timestamp como número (hora del
+     * servidor); el respaldo de SQLite guarda ambos con sus tipos locales.
+     */
+    public static SensorData fromSnapshot(DataSnapshot snapshot) {
+        SensorData data = new SensorData();
+        data.id = (int) readLong(snapshot.child("id").getValue());
+        data.plantId = (int) readLong(snapshot.child("plant_id").getValue());
+        data.soilHumidity = readFloat(snapshot.child("soil_humidity").getValue());
+        data.temperature = readFloat(snapshot.child("temperature").getValue());
+        data.ambientHumidity = readFloat(snapshot.child("ambient_humidity").getValue());
+        data.uvLevel = readFloat(snapshot.child("uv_level").getValue());
+        data.waterLevel = readFloat(snapshot.child("water_level").getValue());
+        data.pestCount = (int) readLong(snapshot.child("pest_count").getValue());
+        Object timestamp = snapshot.child("timestamp").getValue();
+        if (timestamp != null) {
+            data.timestamp = String.valueOf(timestamp);
+        }
+        return data;
+    }
+
+    private static long readLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String && !((String) value).isEmpty()) {
+            return Long.parseLong((String) value);
+        }
+        return 0;
+    }
+
+    private static float readFloat(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).floatValue();
+        }
+        if (value instanceof String && !((String) value).isEmpty()) {
+            return Float.parseFloat((String) value);
+        }
+        return 0f;
+    }
+
     // Evaluar estados basados en los valores de los sensores
     public void evaluateStatuses() {
         // Evaluación de humedad del suelo
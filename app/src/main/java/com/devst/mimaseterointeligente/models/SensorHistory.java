@@ -0,0 +1,67 @@
+package com.devst.mimaseterointeligente.models;
+
+/**
+ * Historial de sensores de una planta en un rango de tiempo, ya reducido
+ * para graficar. Cada métrica se guarda en arreglos primitivos (sin un
+ * objeto por punto) y tiene sus propios timestamps, ya que el muestreo
+ * LTTB elige puntos distintos para cada serie.
+ */
+public class SensorHistory {
+
+    // Métricas disponibles (coinciden con las columnas de sensor_data)
+    public static final int METRIC_SOIL_HUMIDITY = 0;
+    public static final int METRIC_TEMPERATURE = 1;
+    public static final int METRIC_AMBIENT_HUMIDITY = 2;
+    public static final int METRIC_UV_LEVEL = 3;
+    public static final int METRIC_WATER_LEVEL = 4;
+    public static final int METRIC_COUNT = 5;
+
+    private final long fromMillis;
+    private final long toMillis;
+    private final Series[] series = new Series[METRIC_COUNT];
+
+    /**
+     * Serie de una métrica: timestamps (ms) y valores en paralelo
+     */
+    public static class Series {
+        public final long[] timestamps;
+        public final float[] values;
+        public final int size;
+
+        public Series(long[] timestamps, float[] values, int size) {
+            this.timestamps = timestamps;
+            this.values = values;
+            this.size = size;
+        }
+    }
+
+    public SensorHistory(long fromMillis, long toMillis) {
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    public long getFromMillis() {
+        return fromMillis;
+    }
+
+    public long getToMillis() {
+        return toMillis;
+    }
+
+    public Series getSeries(int metric) {
+        return series[metric];
+    }
+
+    public void setSeries(int metric, Series data) {
+        series[metric] = data;
+    }
+
+    public boolean isEmpty() {
+        for (Series s : series) {
+            if (s != null && s.size > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -23,6 +23,18 @@ public class User implements Serializable {
         this.password = password;
     }
 
+    // Constructor de copia (para editar sin tocar el original)
+    public User(User other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.email = other.email;
+        this.password = other.password;
+        this.profileImage = other.profileImage;
+        this.googleId = other.googleId;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     // ✅ Constructor eliminado (duplicado con 3 Strings)
     // public User(String name, String email, String googleId) { ... }
 
@@ -0,0 +1,226 @@
+package com.devst.mimaseterointeligente.services;
+
+import android.content.Context;
+
+import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.models.Alert;
+import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.EventLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+import com.devst.mimaseterointeligente.utils.TokenBucket;
+import com.devst.mimaseterointeligente.utils.Tracer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Publicación de notificaciones de alertas
+ *
+ * UBICACIÓN: app/src/main/java/com/devst/mimaseterointeligente/services/AlertNotifier.java
+ * PROPÓSITO: Procesar alertas y enviar notificaciones
+ *
+ * Solo se notifican las alertas creadas desde la ejecución anterior (marca
+ * de agua con el último id notificado). Cada planta tiene una notificación
+ * que se actualiza, agrupadas con un resumen, y un token bucket por planta
+ * limita cuántas veces se vuelve a publicar ante un problema persistente.
+ * Las plantas que el límite deja pendientes se guardan en sync_state junto
+ * con la marca de agua, así no se pierden si el proceso termina.
+ * Se llama desde SensorMonitorWorker al terminar cada ciclo de monitoreo,
+ * aunque el ciclo no haya creado alertas, para publicar las pendientes
+ * cuando el balde recupera fichas.
+ */
+public class AlertNotifier {
+
+    private static final String TAG = "AlertNotifier";
+    private static final String STATE_LAST_NOTIFIED = "alerts_last_notified_id"; // Marca de agua en sync_state
+    private static final String STATE_PENDING = "alerts_pending_plants"; // Plantas pospuestas, separadas por coma
+    private static final int MAX_LINES = 5; // Alertas listadas en cada notificación
+    private static final int BUCKET_CAPACITY = 3; // Notificaciones seguidas por planta
+    private static final long BUCKET_REFILL_MS = 10 * 60 * 1000; // Luego una cada 10 minutos
+
+    // Estado en memoria del proceso, protegido por notifyNewAlerts (synchronized).
+    // Si el proceso termina los baldes vuelven a empezar llenos.
+    private static final Map<Integer, TokenBucket> buckets = new HashMap<>();
+    private static final Set<Integer> notifiedPlants = new HashSet<>();
+
+    private AlertNotifier() {
+    }
+
+    /**
+     * Notificar las alertas creadas desde la ejecución anterior y las que
+     * quedaron pendientes por el límite de frecuencia.
+     * Consulta SQLite: llamar desde un hilo de fondo.
+     * @param readingIds Id de correlación de la lectura que generó las alertas de cada planta
+     */
+    public static synchronized void notifyNewAlerts(Context context, DatabaseHelper db,
+                                                    Map<Integer, String> readingIds) {
+        Set<Integer> pending = parseIds(db.getSyncState(STATE_PENDING));
+        AlertBatch batch;
+        try (Tracer.Span span = Tracer.begin("notify.collect")) {
+            batch = collectAlerts(db, pending);
+        }
+        if (batch.plants.isEmpty()) {
+            AppLog.d(TAG, "No hay alertas nuevas");
+            return;
+        }
+
+        NotificationHelper.createNotificationChannels(context);
+        notifyPlants(context, batch, pending, readingIds);
+        // La marca de agua y las pendientes se guardan juntas: una alerta
+        // pospuesta nunca queda solo detrás de la marca
+        db.setSyncState(STATE_PENDING, joinIds(pending));
+        db.setSyncState(STATE_LAST_NOTIFIED, String.valueOf(batch.watermark));
+    }
+
+    /**
+     * Leer el estado de las plantas con alertas nuevas o pendientes y la
+     * nueva marca de agua
+     */
+    private static AlertBatch collectAlerts(DatabaseHelper db, Set<Integer> pending) {
+        long watermark = parseLong(db.getSyncState(STATE_LAST_NOTIFIED));
+        if (watermark > db.getMaxAlertId()) {
+            // La tabla se vació y los ids volvieron a empezar
+            watermark = 0;
+        }
+
+        // Plantas con alertas nuevas más las que quedaron pendientes por el límite
+        List<Alert> newAlerts = db.getUnreadAlertsAfter(watermark);
+        Map<Integer, Boolean> plants = new LinkedHashMap<>();
+        for (Integer plantId : pending) {
+            plants.put(plantId, false);
+        }
+        for (Alert alert : newAlerts) {
+            plants.put(alert.getPlantId(), true);
+        }
+
+        AlertBatch batch = new AlertBatch();
+        for (Map.Entry<Integer, Boolean> entry : plants.entrySet()) {
+            PlantAlerts plantAlerts = new PlantAlerts();
+            plantAlerts.plantId = entry.getKey();
+            plantAlerts.hasNew = entry.getValue();
+            Plant plant = db.getPlantById(plantAlerts.plantId);
+            plantAlerts.plantName = plant != null ? plant.getName() : "Tu planta";
+            plantAlerts.recent = db.getUnreadAlertsForPlant(plantAlerts.plantId, MAX_LINES);
+            plantAlerts.unreadCount = db.getUnreadAlertsCountForPlant(plantAlerts.plantId);
+            batch.plants.add(plantAlerts);
+        }
+        batch.totalUnread = db.getUnreadAlertsCount();
+
+        if (!newAlerts.isEmpty()) {
+            watermark = newAlerts.get(newAlerts.size() - 1).getId();
+        }
+        batch.watermark = watermark;
+        return batch;
+    }
+
+    /**
+     * Mostrar o actualizar una notificación por planta, respetando el límite
+     * de frecuencia de cada una, y un único resumen para todo el lote.
+     * Deja en pending las plantas que el límite pospuso.
+     */
+    private static void notifyPlants(Context context, AlertBatch batch, Set<Integer> pending,
+                                     Map<Integer, String> readingIds) {
+        List<PlantAlerts> plants = batch.plants;
+        long now = System.currentTimeMillis();
+        int posted = 0;
+        for (PlantAlerts plantAlerts : plants) {
+            if (plantAlerts.unreadCount == 0) {
+                // Se leyeron mientras esperaban: quitar la notificación
+                pending.remove(plantAlerts.plantId);
+                notifiedPlants.remove(plantAlerts.plantId);
+                NotificationHelper.cancelPlantNotification(context, plantAlerts.plantId);
+                continue;
+            }
+
+            TokenBucket bucket = buckets.computeIfAbsent(plantAlerts.plantId,
+                    id -> new TokenBucket(BUCKET_CAPACITY, BUCKET_REFILL_MS, now));
+            if (!bucket.tryAcquire(now)) {
+                // Se mostrará con el estado actualizado cuando haya fichas
+                pending.add(plantAlerts.plantId);
+                EventLog.write(EventLog.NOTIFY_DEFERRED, plantAlerts.plantId);
+                MetricsRegistry.increment("notify.rate_limited");
+                continue;
+            }
+
+            pending.remove(plantAlerts.plantId);
+            // Solo suena si hay alertas nuevas; si no, actualiza la notificación en silencio
+            long start = MetricsRegistry.start();
+            // Sin id si la notificación estaba pospuesta desde un ciclo anterior
+            try (Tracer.Span span = Tracer.begin("notify.plant", readingIds.get(plantAlerts.plantId))) {
+                NotificationHelper.showPlantAlertsNotification(context, plantAlerts.plantId, plantAlerts.plantName,
+                        plantAlerts.recent, plantAlerts.unreadCount, !plantAlerts.hasNew);
+            }
+            MetricsRegistry.recordSince(MetricsRegistry.STAGE_NOTIFY, start);
+            EventLog.write(EventLog.NOTIFY_POSTED, plantAlerts.plantId, plantAlerts.unreadCount,
+                    plantAlerts.hasNew ? 0 : 1);
+            notifiedPlants.add(plantAlerts.plantId);
+            posted++;
+        }
+
+        if (posted > 0) {
+            NotificationHelper.showGroupSummary(context, notifiedPlants.size(), batch.totalUnread);
+        }
+
+        AppLog.d(TAG, "%d de %d plantas notificadas", posted, plants.size());
+    }
+
+    private static Set<Integer> parseIds(String value) {
+        Set<Integer> ids = new HashSet<>();
+        if (value == null || value.isEmpty()) {
+            return ids;
+        }
+        for (String id : value.split(",")) {
+            try {
+                ids.add(Integer.parseInt(id));
+            } catch (NumberFormatException e) {
+                AppLog.w(TAG, "Planta pendiente inválida: %s", id);
+            }
+        }
+        return ids;
+    }
+
+    private static String joinIds(Set<Integer> ids) {
+        StringBuilder value = new StringBuilder();
+        for (Integer id : ids) {
+            if (value.length() > 0) {
+                value.append(',');
+            }
+            value.append(id);
+        }
+        return value.toString();
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Plantas a notificar en una ejecución y total de alertas sin leer
+     */
+    private static class AlertBatch {
+        final List<PlantAlerts> plants = new ArrayList<>();
+        int totalUnread;
+        long watermark;
+    }
+
+    /**
+     * Estado de las alertas de una planta para su notificación
+     */
+    private static class PlantAlerts {
+        int plantId;
+        String plantName;
+        List<Alert> recent;
+        int unreadCount;
+        boolean hasNew;
+    }
+}
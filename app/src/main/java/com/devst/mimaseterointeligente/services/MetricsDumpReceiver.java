@@ -0,0 +1,71 @@
+package com.devst.mimaseterointeligente.services;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.EventLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+import com.devst.mimaseterointeligente.utils.Tracer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Volcado de métricas a Logcat desde adb:
+ *
+ *   adb shell am broadcast -n com.devst.mimaseterointeligente/.services.MetricsDumpReceiver
+ *   adb logcat -s Metrics
+ *
+ * Con "--ez reset true" las métricas se reinician después del volcado.
+ * Con "--ez trace true" además se exportan los spans de Tracer como JSON de
+ * Chrome trace; la ruta queda en el log (adb pull).
+ * Con "--ez events true" también se vuelca el buffer binario de EventLog.
+ * Solo el shell puede enviarlo (el receiver exige android.permission.DUMP).
+ */
+public class MetricsDumpReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "Metrics";
+    private static final String EXTRA_RESET = "reset";
+    private static final String EXTRA_TRACE = "trace";
+    private static final String EXTRA_EVENTS = "events";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        // Logcat corta las líneas largas: una entrada por línea
+        for (String line : MetricsRegistry.dump().split("\n")) {
+            AppLog.i(TAG, line);
+        }
+        if (intent.getBooleanExtra(EXTRA_EVENTS, false)) {
+            AppLog.i(TAG, "Eventos en memoria: %d", EventLog.size());
+            for (String line : EventLog.dump().split("\n")) {
+                AppLog.i(TAG, line);
+            }
+        }
+        if (intent.getBooleanExtra(EXTRA_TRACE, false)) {
+            exportTrace(context.getApplicationContext());
+        }
+        if (intent.getBooleanExtra(EXTRA_RESET, false)) {
+            MetricsRegistry.reset();
+            AppLog.i(TAG, "Métricas reiniciadas");
+        }
+    }
+
+    /**
+     * Escribir la traza fuera del hilo principal
+     */
+    private void exportTrace(Context context) {
+        PendingResult pending = goAsync();
+        new Thread(() -> {
+            try {
+                File file = Tracer.exportChromeTrace(context);
+                AppLog.i(TAG, "Traza exportada: %s", file.getAbsolutePath());
+            } catch (IOException e) {
+                AppLog.e(TAG, "Error al exportar traza: %s", e.getMessage());
+            } finally {
+                pending.finish();
+            }
+        }).start();
+    }
+}
@@ -13,6 +13,8 @@ import com.devst.mimaseterointeligente.R;
 import com.devst.mimaseterointeligente.activities.PlantDashboardActivity;
 import com.devst.mimaseterointeligente.models.Alert;
 
+import java.util.List;
+
 /**
  * Helper para gestión de notificaciones push
  *
@@ -31,6 +33,11 @@ public class NotificationHelper {
     private static final String CHANNEL_NAME_WARNING = "Advertencias";
     private static final String CHANNEL_NAME_INFO = "Información";
 
+    // Grupo de notificaciones de alertas (una por planta más un resumen)
+    private static final String GROUP_KEY_ALERTS = "masetero_alerts";
+    private static final int NOTIFICATION_ID_SUMMARY = 9999;
+    private static final int NOTIFICATION_ID_PLANT_BASE = 10000;
+
     // Descripciones
     private static final String CHANNEL_DESC_CRITICAL = "Notificaciones para problemas urgentes de tus plantas";
     private static final String CHANNEL_DESC_WARNING = "Advertencias sobre el estado de tus plantas";
@@ -76,88 +83,121 @@ public class NotificationHelper {
     }
 
     /**
-     * Mostrar notificación para una alerta
+     * Mostrar o actualizar la notificación de una planta.
+     * Cada planta tiene una sola notificación (id fijo por planta) que se
+     * reemplaza con el estado actual, dentro del grupo de alertas.
+     * @param recentAlerts Alertas no leídas más recientes (la primera es la última)
+     * @param unreadCount Total de alertas no leídas de la planta
+     * @param silent true para actualizar sin sonido ni vibración
      */
-    public static void showAlertNotification(Context context, Alert alert) {
+    public static void showPlantAlertsNotification(Context context, int plantId, String plantName,
+                                                   List<Alert> recentAlerts, int unreadCount, boolean silent) {
         NotificationManager manager =
                 (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
 
-        if (manager == null) return;
+        if (manager == null || recentAlerts.isEmpty()) return;
 
-        // Determinar canal según severidad
-        String channelId = getChannelIdForSeverity(alert.getSeverity());
+        Alert latest = recentAlerts.get(0);
+        String severity = getHighestSeverity(recentAlerts);
+        String title = unreadCount > 1
+                ? String.format("%s: %d alertas", plantName, unreadCount)
+                : plantName + ": " + latest.getTitle();
 
         // Crear intent para abrir el dashboard al tocar la notificación
         Intent intent = new Intent(context, PlantDashboardActivity.class);
-        intent.putExtra("plant_id", alert.getPlantId());
+        intent.putExtra("plant_id", plantId);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
 
         PendingIntent pendingIntent = PendingIntent.getActivity(
                 context,
-                alert.getId(),
+                plantId,
                 intent,
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
 
-        // Construir notificación
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, channelId)
-                .setSmallIcon(getIconForAlertType(alert.getAlertType()))
-                .setContentTitle(alert.getTitle())
-                .setContentText(alert.getMessage())
-                .setStyle(new NotificationCompat.BigTextStyle()
-                        .bigText(alert.getMessage()))
-                .setPriority(getPriorityForSeverity(alert.getSeverity()))
+        // Una línea por alerta reciente
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+                .setBigContentTitle(title);
+        for (Alert alert : recentAlerts) {
+            style.addLine(alert.getTitle() + ": " + alert.getMessage());
+        }
+        if (unreadCount > recentAlerts.size()) {
+            style.setSummaryText(String.format("+%d más", unreadCount - recentAlerts.size()));
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, getChannelIdForSeverity(severity))
+                .setSmallIcon(getIconForAlertType(latest.getAlertType()))
+                .setContentTitle(title)
+                .setContentText(latest.getMessage())
+                .setStyle(style)
+                .setNumber(unreadCount)
+                .setPriority(getPriorityForSeverity(severity))
                 .setContentIntent(pendingIntent)
                 .setAutoCancel(true)
-                .setColor(getColorForSeverity(alert.getSeverity()));
+                .setGroup(GROUP_KEY_ALERTS)
+                .setOnlyAlertOnce(silent)
+                .setColor(getColorForSeverity(severity));
 
         // Vibración para alertas críticas
-        if (alert.getSeverity().equals("CRITICAL")) {
+        if (!silent && severity.equals("CRITICAL")) {
             builder.setVibrate(new long[]{0, 500, 200, 500});
         }
 
-        // Mostrar notificación
-        manager.notify(alert.getId(), builder.build());
+        manager.notify(getPlantNotificationId(plantId), builder.build());
     }
 
     /**
-     * Mostrar notificación de resumen (múltiples alertas)
+     * Mostrar o actualizar la notificación de resumen del grupo de alertas.
+     * Solo suenan las notificaciones de cada planta, no el resumen.
      */
-    public static void showSummaryNotification(Context context, int criticalCount, int warningCount) {
+    public static void showGroupSummary(Context context, int plantCount, int unreadCount) {
         NotificationManager manager =
                 (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
 
         if (manager == null) return;
 
         String title = "Alertas de tus plantas";
-        String message;
-
-        if (criticalCount > 0 && warningCount > 0) {
-            message = String.format("%d alertas críticas y %d advertencias",
-                    criticalCount, warningCount);
-        } else if (criticalCount > 0) {
-            message = String.format("%d alertas críticas", criticalCount);
-        } else {
-            message = String.format("%d advertencias", warningCount);
-        }
+        String message = String.format("%d alertas sin leer en %d plantas", unreadCount, plantCount);
 
-        Intent intent = new Intent(context, PlantDashboardActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                context,
-                0,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID_CRITICAL)
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID_WARNING)
                 .setSmallIcon(android.R.drawable.ic_dialog_alert)
                 .setContentTitle(title)
                 .setContentText(message)
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                .setContentIntent(pendingIntent)
+                .setStyle(new NotificationCompat.InboxStyle().setSummaryText(message))
+                .setGroup(GROUP_KEY_ALERTS)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
+                .setOnlyAlertOnce(true)
                 .setAutoCancel(true);
 
-        manager.notify(9999, builder.build());
+        manager.notify(NOTIFICATION_ID_SUMMARY, builder.build());
+    }
+
+    /**
+     * Quitar la notificación de una planta (ya no tiene alertas sin leer)
+     */
+    public static void cancelPlantNotification(Context context, int plantId) {
+        cancelNotification(context, getPlantNotificationId(plantId));
+    }
+
+    private static int getPlantNotificationId(int plantId) {
+        return NOTIFICATION_ID_PLANT_BASE + plantId;
+    }
+
+    /**
+     * Severidad más alta de un grupo de alertas
+     */
+    private static String getHighestSeverity(List<Alert> alerts) {
+        String highest = "INFO";
+        for (Alert alert : alerts) {
+            if ("CRITICAL".equals(alert.getSeverity())) {
+                return "CRITICAL";
+            }
+            if ("WARNING".equals(alert.getSeverity())) {
+                highest = "WARNING";
+            }
+        }
+        return highest;
     }
 
     /**
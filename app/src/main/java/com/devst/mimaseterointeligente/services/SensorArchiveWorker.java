@@ -0,0 +1,60 @@
+package com.devst.mimaseterointeligente.services;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.devst.mimaseterointeligente.api.ApiConfig;
+import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+import com.devst.mimaseterointeligente.utils.Tracer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trabajo diario que archiva las lecturas antiguas de sensor_data en bloques
+ * comprimidos por planta y hora (DatabaseHelper.archiveSensorData).
+ *
+ * Cada llamada procesa un número acotado de horas; si quedan más, el
+ * trabajo se repite hasta terminar. La programación está en
+ * SensorMonitorScheduler.
+ */
+public class SensorArchiveWorker extends Worker {
+
+    private static final String TAG = "SensorArchive";
+
+    public SensorArchiveWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        DatabaseHelper db = DatabaseHelper.getInstance(getApplicationContext());
+        long before = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ApiConfig.SENSOR_ARCHIVE_AFTER_DAYS);
+        long start = MetricsRegistry.start();
+        int total = 0;
+
+        try (Tracer.Span span = Tracer.begin("archive.run")) {
+            int archived;
+            do {
+                archived = db.archiveSensorData(before);
+                total += archived;
+            } while (archived > 0 && !isStopped());
+        } catch (RuntimeException e) {
+            AppLog.e(TAG, "Error al archivar lecturas", e);
+            return Result.retry();
+        }
+
+        MetricsRegistry.recordThroughput("archive.rows", total, start);
+        long[] stats = db.getArchiveStats();
+        MetricsRegistry.setGauge("archive.blocks", stats[0]);
+        MetricsRegistry.setGauge("archive.points", stats[1]);
+        MetricsRegistry.setGauge("archive.bytes", stats[2]);
+        AppLog.i(TAG, "%d lecturas archivadas (archivo: %d bloques, %d bytes)", total, stats[0], stats[2]);
+        return Result.success();
+    }
+}
@@ -0,0 +1,106 @@
+package com.devst.mimaseterointeligente.services;
+
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.devst.mimaseterointeligente.api.ApiConfig;
+import com.devst.mimaseterointeligente.utils.AppLog;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Programación del monitoreo de sensores con WorkManager
+ *
+ * - Periódico: cada SENSOR_BACKGROUND_INTERVAL_MINUTES con red disponible.
+ *   WorkManager guarda la programación, así sobrevive a la muerte del
+ *   proceso y a los reinicios. La ventana flexible permite al sistema
+ *   ejecutarlo cuando ya despierta la radio para otras apps.
+ * - Inmediato: una revisión expedita mientras la app está visible (al abrir
+ *   la pantalla principal y en cada intervalo del dashboard de una planta);
+ *   si no queda cuota de trabajo expedito se ejecuta como trabajo normal.
+ *   Es la única vía de ingreso de lecturas, así no hay filas ni alertas
+ *   duplicadas.
+ * - Archivo: una vez al día, con batería suficiente, las lecturas antiguas
+ *   se comprimen en bloques (SensorArchiveWorker).
+ */
+public class SensorMonitorScheduler {
+
+    private static final String TAG = "SensorMonitorScheduler";
+    private static final String PERIODIC_WORK = "sensor_monitor_periodic";
+    private static final String CHECK_NOW_WORK = "sensor_monitor_now";
+    private static final String ARCHIVE_WORK = "sensor_archive_daily";
+
+    private SensorMonitorScheduler() {
+    }
+
+    /**
+     * Programar el monitoreo periódico. Se puede llamar en cada inicio de la
+     * app: si ya está programado se conserva su próxima ejecución (UPDATE)
+     */
+    public static void schedulePeriodic(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(SensorMonitorWorker.class,
+                ApiConfig.SENSOR_BACKGROUND_INTERVAL_MINUTES, TimeUnit.MINUTES,
+                ApiConfig.SENSOR_BACKGROUND_FLEX_MINUTES, TimeUnit.MINUTES)
+                .setConstraints(networkConstraints())
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                PERIODIC_WORK, ExistingPeriodicWorkPolicy.UPDATE, request);
+        AppLog.d(TAG, "Monitoreo programado cada %d minutos", ApiConfig.SENSOR_BACKGROUND_INTERVAL_MINUTES);
+    }
+
+    /**
+     * Programar el archivo diario de lecturas antiguas (se conserva si ya existe)
+     */
+    public static void scheduleArchive(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(SensorArchiveWorker.class,
+                1, TimeUnit.DAYS)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiresBatteryNotLow(true)
+                        .build())
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                ARCHIVE_WORK, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Revisar las plantas ahora; si ya hay una revisión en curso no se repite
+     */
+    public static void checkNow(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SensorMonitorWorker.class)
+                .setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST)
+                .setConstraints(networkConstraints())
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                CHECK_NOW_WORK, ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Estado de las revisiones inmediatas, para recargar la pantalla al terminar
+     */
+    public static LiveData<List<WorkInfo>> observeCheckNow(Context context) {
+        return WorkManager.getInstance(context).getWorkInfosForUniqueWorkLiveData(CHECK_NOW_WORK);
+    }
+
+    /**
+     * El Arduino está en la red local: sin red no tiene sentido ejecutar
+     */
+    private static Constraints networkConstraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+    }
+}
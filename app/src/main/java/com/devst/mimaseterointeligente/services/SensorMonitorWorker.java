@@ -0,0 +1,188 @@
+package com.devst.mimaseterointeligente.services;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.devst.mimaseterointeligente.api.RetrofitClient;
+import com.devst.mimaseterointeligente.database.DatabaseHelper;
+import com.devst.mimaseterointeligente.models.Alert;
+import com.devst.mimaseterointeligente.models.ArduinoResponse;
+import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.utils.AlertGenerator;
+import com.devst.mimaseterointeligente.utils.AppLog;
+import com.devst.mimaseterointeligente.utils.EventLog;
+import com.devst.mimaseterointeligente.utils.MetricsRegistry;
+import com.devst.mimaseterointeligente.utils.Tracer;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * Trabajo de monitoreo de sensores
+ *
+ * UBICACIÓN: app/src/main/java/com/devst/mimaseterointeligente/services/SensorMonitorWorker.java
+ * PROPÓSITO: Leer los sensores de las plantas conectadas y generar alertas
+ *
+ * WorkManager ejecuta doWork en un hilo de fondo, así la llamada al Arduino,
+ * las escrituras en SQLite y la evaluación de alertas son síncronas y no
+ * tocan el hilo principal. Las alertas de todas las plantas se notifican
+ * juntas al terminar la ejecución, junto con las que el límite de
+ * frecuencia dejó pendientes en ejecuciones anteriores. La programación está en
+ * SensorMonitorScheduler.
+ *
+ * Cada etapa se mide en MetricsRegistry, en total y por dispositivo, y
+ * queda en Tracer con el id de correlación de su lectura.
+ */
+public class SensorMonitorWorker extends Worker {
+
+    private static final String TAG = "SensorMonitor";
+    private static final String NO_DEVICE = "sin_dispositivo"; // Métricas de plantas sin dispositivo asignado
+
+    private final Gson gson = new Gson();
+
+    public SensorMonitorWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try (Tracer.Span cycle = Tracer.begin("monitor.cycle", Tracer.newCorrelationId("ciclo"))) {
+            return runCycle();
+        }
+    }
+
+    private Result runCycle() {
+        long cycleStart = MetricsRegistry.start();
+        DatabaseHelper db = DatabaseHelper.getInstance(getApplicationContext());
+
+        // Obtener todas las plantas conectadas al masetero
+        List<Plant> connectedPlants = db.getConnectedPlants();
+        if (connectedPlants.isEmpty()) {
+            AppLog.d(TAG, "No hay plantas conectadas al masetero");
+            AlertNotifier.notifyNewAlerts(getApplicationContext(), db, Collections.emptyMap());
+            MetricsRegistry.recordSince(MetricsRegistry.STAGE_CYCLE, cycleStart);
+            return Result.success();
+        }
+
+        AppLog.d(TAG, "Verificando %d planta(s) conectada(s)", connectedPlants.size());
+
+        // Lectura que generó alertas en cada planta, para unirla con su notificación
+        Map<Integer, String> readingIds = new HashMap<>();
+        for (Plant plant : connectedPlants) {
+            if (isStopped()) {
+                // El sistema canceló el trabajo: la próxima ejecución continúa
+                AppLog.i(TAG, "Monitoreo detenido por el sistema");
+                break;
+            }
+            String deviceId = plant.getDeviceId() != null ? plant.getDeviceId() : NO_DEVICE;
+            String cid = Tracer.newCorrelationId(deviceId);
+            Tracer.setCorrelationId(cid);
+            try (Tracer.Span reading = Tracer.begin("reading")) {
+                if (checkPlant(db, plant, deviceId, cid)) {
+                    readingIds.put(plant.getId(), cid);
+                }
+            } finally {
+                Tracer.setCorrelationId(null);
+            }
+        }
+
+        // Una sola pasada de notificaciones con las alertas de todas las plantas.
+        // Corre en cada ciclo para publicar las pospuestas por el límite.
+        AlertNotifier.notifyNewAlerts(getApplicationContext(), db, readingIds);
+
+        MetricsRegistry.recordSince(MetricsRegistry.STAGE_CYCLE, cycleStart);
+        MetricsRegistry.setGauge("monitor.plants", connectedPlants.size());
+        EventLog.write(EventLog.MONITOR_CYCLE, connectedPlants.size(), readingIds.size(),
+                (MetricsRegistry.start() - cycleStart) / 1_000_000);
+        return Result.success();
+    }
+
+    /**
+     * Leer los sensores de una planta, guardar la lectura y sus alertas
+     * @return true si se guardó alguna alerta
+     */
+    private boolean checkPlant(DatabaseHelper db, Plant plant, String deviceId, String cid) {
+        AppLog.d(TAG, "Obteniendo datos para planta %d (%s)", plant.getId(), cid);
+
+        // Consulta: ida y vuelta HTTP con el cuerpo completo descargado
+        String json;
+        long start = MetricsRegistry.start();
+        try (Tracer.Span span = Tracer.begin("arduino.poll")) {
+            Response<ResponseBody> response = RetrofitClient.getArduinoApiService().getSensorDataRaw(cid).execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                AppLog.e(TAG, "Error en respuesta para planta %d: %d", plant.getId(), response.code());
+                MetricsRegistry.increment("monitor.poll.errors");
+                EventLog.write(EventLog.READING_FAILED, plant.getId(), response.code());
+                return false;
+            }
+            try (ResponseBody body = response.body()) {
+                json = body.string();
+            }
+        } catch (IOException e) {
+            AppLog.e(TAG, "Error al obtener datos para planta %d: %s", plant.getId(), e.getMessage());
+            MetricsRegistry.increment("monitor.poll.errors");
+            EventLog.write(EventLog.READING_FAILED, plant.getId(), -1);
+            return false;
+        }
+        MetricsRegistry.recordSince(MetricsRegistry.STAGE_POLL, deviceId, start);
+
+        // Parseo del JSON
+        ArduinoResponse data;
+        start = MetricsRegistry.start();
+        try (Tracer.Span span = Tracer.begin("json.parse")) {
+            data = gson.fromJson(json, ArduinoResponse.class);
+        } catch (JsonParseException e) {
+            AppLog.e(TAG, "JSON inválido para planta %d: %s", plant.getId(), e.getMessage());
+            MetricsRegistry.increment("monitor.parse.errors");
+            return false;
+        }
+        MetricsRegistry.recordSince(MetricsRegistry.STAGE_PARSE, deviceId, start);
+
+        if (data == null || !data.isValid()) {
+            AppLog.w(TAG, "Datos inválidos para planta %d", plant.getId());
+            MetricsRegistry.increment("monitor.invalid");
+            return false;
+        }
+
+        // Guardar datos de sensores
+        start = MetricsRegistry.start();
+        long rowId = db.insertSensorData(data.toSensorData(plant.getId()));
+        if (rowId > 0) {
+            EventLog.write(EventLog.READING_SAVED, plant.getId(), rowId);
+        } else {
+            AppLog.e(TAG, "Error al guardar datos de sensores para planta ID: %d", plant.getId());
+        }
+        MetricsRegistry.recordSince(MetricsRegistry.STAGE_PERSIST, deviceId, start);
+
+        // Generar alertas
+        start = MetricsRegistry.start();
+        List<Alert> alerts = AlertGenerator.generateAlerts(plant, data);
+        MetricsRegistry.recordSince(MetricsRegistry.STAGE_EVALUATE, deviceId, start);
+
+        // Guardar alertas
+        boolean saved = false;
+        for (Alert alert : alerts) {
+            start = MetricsRegistry.start();
+            long alertId = db.createAlert(alert);
+            if (alertId > 0) {
+                EventLog.write(EventLog.ALERT_SAVED, plant.getId(), alertId);
+                saved = true;
+            }
+            MetricsRegistry.recordSince(MetricsRegistry.STAGE_ALERT, deviceId, start);
+        }
+        MetricsRegistry.add("monitor.alerts", alerts.size());
+        return saved;
+    }
+}
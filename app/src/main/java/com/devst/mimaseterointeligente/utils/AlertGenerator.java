@@ -44,6 +44,13 @@ public class AlertGenerator {
      * @return Lista de alertas generadas
      */
     public static List<Alert> generateAlerts(Plant plant, ArduinoResponse sensorData) {
+        // Span con el id de correlación de la lectura (si lo hay en el hilo)
+        try (Tracer.Span span = Tracer.begin("alerts.evaluate")) {
+            return evaluate(plant, sensorData);
+        }
+    }
+
+    private static List<Alert> evaluate(Plant plant, ArduinoResponse sensorData) {
         List<Alert> alerts = new ArrayList<>();
 
         if (plant == null || sensorData == null) {
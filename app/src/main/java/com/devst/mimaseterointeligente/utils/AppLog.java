@@ -0,0 +1,126 @@
+package com.devst.mimaseterointeligente.utils;
+
+import android.util.Log;
+
+import com.devst.mimaseterointeligente.BuildConfig;
+
+import java.util.Locale;
+
+/**
+ * Fachada de logging para las rutas que se ejecutan en cada lectura.
+ *
+ * Los mensajes se pasan como formato + argumentos y el texto solo se arma
+ * si el nivel está habilitado: un nivel deshabilitado no construye strings.
+ * Hay sobrecargas de 1 a 3 argumentos para no crear un arreglo varargs.
+ * En release el nivel mínimo es INFO: las llamadas a d() solo comparan el
+ * nivel y no arman el mensaje.
+ *
+ * Los eventos que interesa conservar van a EventLog (binario, en memoria)
+ * en vez de a Logcat.
+ */
+public final class AppLog {
+
+    public static final boolean DEBUG = BuildConfig.DEBUG;
+
+    private static volatile int minLevel = DEBUG ? Log.DEBUG : Log.INFO;
+
+    private AppLog() {
+    }
+
+    /**
+     * Cambiar el nivel mínimo (ej: Log.VERBOSE para diagnosticar en release)
+     */
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    // ==================== DEBUG ====================
+
+    public static void d(String tag, String msg) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, msg);
+        }
+    }
+
+    public static void d(String tag, String format, Object arg) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(Locale.US, format, arg));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(Locale.US, format, arg1, arg2));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(Locale.US, format, arg1, arg2, arg3));
+        }
+    }
+
+    // ==================== INFO ====================
+
+    public static void i(String tag, String msg) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(tag, msg);
+        }
+    }
+
+    public static void i(String tag, String format, Object arg) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(tag, String.format(Locale.US, format, arg));
+        }
+    }
+
+    public static void i(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(tag, String.format(Locale.US, format, arg1, arg2));
+        }
+    }
+
+    public static void i(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(tag, String.format(Locale.US, format, arg1, arg2, arg3));
+        }
+    }
+
+    // ==================== WARN / ERROR ====================
+
+    public static void w(String tag, String msg) {
+        if (isLoggable(Log.WARN)) {
+            Log.w(tag, msg);
+        }
+    }
+
+    public static void w(String tag, String format, Object arg) {
+        if (isLoggable(Log.WARN)) {
+            Log.w(tag, String.format(Locale.US, format, arg));
+        }
+    }
+
+    public static void e(String tag, String msg) {
+        Log.e(tag, msg);
+    }
+
+    public static void e(String tag, String format, Object arg) {
+        Log.e(tag, String.format(Locale.US, format, arg));
+    }
+
+    public static void e(String tag, String format, Object arg1, Object arg2) {
+        Log.e(tag, String.format(Locale.US, format, arg1, arg2));
+    }
+
+    public static void e(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        Log.e(tag, String.format(Locale.US, format, arg1, arg2, arg3));
+    }
+
+    public static void e(String tag, String msg, Throwable error) {
+        Log.e(tag, msg, error);
+    }
+}
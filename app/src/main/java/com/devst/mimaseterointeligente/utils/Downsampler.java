@@ -0,0 +1,89 @@
+package com.devst.mimaseterointeligente.utils;
+
+/**
+ * Reducción de series de tiempo para gráficos usando
+ * Largest-Triangle-Three-Buckets (LTTB).
+ *
+ * LTTB conserva la forma visual de la serie (picos y valles) eligiendo en
+ * cada bucket el punto que forma el triángulo de mayor área con el punto
+ * elegido anterior y el promedio del bucket siguiente.
+ * Trabaja solo con arreglos primitivos para no crear objetos por punto.
+ */
+public class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /**
+     * Reducir una serie a como máximo {@code threshold} puntos
+     * @param xs Timestamps de entrada (ordenados ascendentemente)
+     * @param ys Valores de entrada
+     * @param size Cantidad de puntos válidos en xs/ys
+     * @param threshold Máximo de puntos de salida
+     * @param outX Timestamps de salida (tamaño >= min(size, threshold))
+     * @param outY Valores de salida (tamaño >= min(size, threshold))
+     * @return Cantidad de puntos escritos en la salida
+     */
+    public static int lttb(long[] xs, float[] ys, int size, int threshold, long[] outX, float[] outY) {
+        threshold = Math.max(threshold, 3);
+        if (size <= threshold) {
+            // Nada que reducir: copiar tal cual
+            System.arraycopy(xs, 0, outX, 0, size);
+            System.arraycopy(ys, 0, outY, 0, size);
+            return size;
+        }
+
+        // El primer y el último punto siempre se conservan
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int out = 0;
+        int selected = 0;
+        outX[out] = xs[0];
+        outY[out] = ys[0];
+        out++;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Promedio del bucket siguiente (o el último punto)
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, size);
+            double avgX = 0;
+            double avgY = 0;
+            int nextCount = nextEnd - nextStart;
+            if (nextCount > 0) {
+                for (int i = nextStart; i < nextEnd; i++) {
+                    avgX += xs[i];
+                    avgY += ys[i];
+                }
+                avgX /= nextCount;
+                avgY /= nextCount;
+            } else {
+                avgX = xs[size - 1];
+                avgY = ys[size - 1];
+            }
+
+            // Punto del bucket actual con el triángulo de mayor área
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double ax = xs[selected];
+            double ay = ys[selected];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (ys[i] - ay) - (ax - xs[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            outX[out] = xs[maxIndex];
+            outY[out] = ys[maxIndex];
+            out++;
+            selected = maxIndex;
+        }
+
+        outX[out] = xs[size - 1];
+        outY[out] = ys[size - 1];
+        out++;
+        return out;
+    }
+}
@@ -0,0 +1,116 @@
+package com.devst.mimaseterointeligente.utils;
+
+import android.os.SystemClock;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Registro binario de eventos en un buffer circular en memoria.
+ *
+ * Cada evento ocupa RECORD_SIZE bytes fijos: hora (elapsedRealtime en
+ * nanosegundos), id del evento y hasta tres argumentos numéricos. Escribir
+ * no crea objetos ni strings; el texto se arma solo al volcar el buffer
+ * (MetricsDumpReceiver con "--ez events true"). Al llenarse se sobrescriben
+ * los eventos más antiguos.
+ */
+public final class EventLog {
+
+    // Ids de eventos (índice en NAMES y ARGS)
+    public static final int MONITOR_CYCLE = 1;    // plantas, plantas con alertas, ms
+    public static final int READING_SAVED = 2;    // planta, fila
+    public static final int READING_FAILED = 3;   // planta, código HTTP (-1 sin respuesta)
+    public static final int ALERT_SAVED = 4;      // planta, alerta
+    public static final int NOTIFY_POSTED = 5;    // planta, no leídas, silenciosa
+    public static final int NOTIFY_DEFERRED = 6;  // planta
+    public static final int NETWORK_WAKEUP = 7;   // tareas, radio ya activa
+    public static final int MIGRATION_PAGE = 8;   // registros, ms
+
+    private static final String[] NAMES = {
+            "?", "monitor.cycle", "reading.saved", "reading.failed", "alert.saved",
+            "notify.posted", "notify.deferred", "network.wakeup", "migration.page"
+    };
+    private static final String[][] ARGS = {
+            {}, {"plants", "alerting", "ms"}, {"plant", "row"}, {"plant", "http"}, {"plant", "alert"},
+            {"plant", "unread", "silent"}, {"plant"}, {"tasks", "piggyback"}, {"records", "ms"}
+    };
+
+    private static final int RECORD_SIZE = 8 + 4 + 3 * 8; // hora, id, argumentos
+    private static final int CAPACITY = 4096; // Eventos (~144 KB)
+
+    private static final ByteBuffer buffer = ByteBuffer.allocate(CAPACITY * RECORD_SIZE);
+    private static long written = 0;
+
+    private EventLog() {
+    }
+
+    public static void write(int event, long arg1) {
+        write(event, arg1, 0, 0);
+    }
+
+    public static void write(int event, long arg1, long arg2) {
+        write(event, arg1, arg2, 0);
+    }
+
+    public static synchronized void write(int event, long arg1, long arg2, long arg3) {
+        int offset = (int) (written % CAPACITY) * RECORD_SIZE;
+        buffer.putLong(offset, SystemClock.elapsedRealtimeNanos());
+        buffer.putInt(offset + 8, event);
+        buffer.putLong(offset + 12, arg1);
+        buffer.putLong(offset + 20, arg2);
+        buffer.putLong(offset + 28, arg3);
+        written++;
+    }
+
+    /**
+     * Cantidad de eventos guardados en el buffer
+     */
+    public static synchronized int size() {
+        return (int) Math.min(written, CAPACITY);
+    }
+
+    /**
+     * Borrar todos los eventos
+     */
+    public static synchronized void clear() {
+        written = 0;
+    }
+
+    /**
+     * Escribir los eventos en texto, del más antiguo al más reciente. La
+     * hora es relativa al evento más reciente (en segundos).
+     */
+    public static synchronized void dump(PrintWriter writer) {
+        int count = size();
+        long first = written - count;
+        long newest = count > 0
+                ? buffer.getLong((int) ((written - 1) % CAPACITY) * RECORD_SIZE)
+                : 0;
+        for (long i = first; i < written; i++) {
+            int offset = (int) (i % CAPACITY) * RECORD_SIZE;
+            long time = buffer.getLong(offset);
+            int event = buffer.getInt(offset + 8);
+            String name = event > 0 && event < NAMES.length ? NAMES[event] : "evento" + event;
+            String[] args = event > 0 && event < ARGS.length ? ARGS[event] : new String[0];
+
+            StringBuilder line = new StringBuilder(String.format(Locale.US, "%9.3f %-16s",
+                    (time - newest) / 1e9, name));
+            for (int a = 0; a < args.length; a++) {
+                line.append(' ').append(args[a]).append('=').append(buffer.getLong(offset + 12 + a * 8));
+            }
+            writer.println(line);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Eventos en texto (ver dump(PrintWriter))
+     */
+    public static String dump() {
+        StringWriter out = new StringWriter();
+        dump(new PrintWriter(out));
+        return out.toString();
+    }
+}
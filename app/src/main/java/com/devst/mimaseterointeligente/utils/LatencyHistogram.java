@@ -0,0 +1,105 @@
+package com.devst.mimaseterointeligente.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias con buckets log-lineales (estilo HDR).
+ *
+ * Los valores se guardan en microsegundos. Cada potencia de 2 se divide en
+ * SUB_BUCKETS buckets iguales, así el error relativo de un percentil es
+ * menor a 1/SUB_BUCKETS (~6%) en todo el rango, con memoria fija y
+ * registro sin bloqueos desde cualquier hilo.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; // 16 buckets por potencia de 2
+    private static final long MAX_VALUE_US = (1L << 32) - 1; // ~71 minutos; lo mayor se acumula en el último bucket
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE_US) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumUs = new AtomicLong();
+    private final AtomicLong maxUs = new AtomicLong();
+
+    /**
+     * Registrar una duración
+     * @param nanos Duración en nanosegundos
+     */
+    public void record(long nanos) {
+        long us = Math.max(0, Math.min(nanos / 1000, MAX_VALUE_US));
+        buckets.incrementAndGet(indexOf(us));
+        count.incrementAndGet();
+        sumUs.addAndGet(us);
+        long max;
+        do {
+            max = maxUs.get();
+        } while (us > max && !maxUs.compareAndSet(max, us));
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Promedio en milisegundos
+     */
+    public double getMeanMs() {
+        long n = count.get();
+        return n > 0 ? sumUs.get() / 1000.0 / n : 0;
+    }
+
+    /**
+     * Máximo registrado en milisegundos
+     */
+    public double getMaxMs() {
+        return maxUs.get() / 1000.0;
+    }
+
+    /**
+     * Percentil en milisegundos (punto medio de su bucket)
+     * @param percentile Entre 0 y 100
+     */
+    public double getPercentileMs(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                long low = lowerBound(i);
+                long width = lowerBound(i + 1) - low;
+                // Nunca informar más que el máximo real
+                return Math.min(low + width / 2.0, maxUs.get()) / 1000.0;
+            }
+        }
+        return getMaxMs();
+    }
+
+    /**
+     * Bucket de un valor: los primeros SUB_BUCKETS son exactos, luego cada
+     * potencia de 2 ocupa SUB_BUCKETS buckets
+     */
+    private static int indexOf(long us) {
+        if (us < SUB_BUCKETS) {
+            return (int) us;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(us) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((us >> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Menor valor que cae en un bucket
+     */
+    private static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+}
@@ -0,0 +1,148 @@
+package com.devst.mimaseterointeligente.utils;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro de métricas en memoria del proceso: contadores, gauges e
+ * histogramas de latencia.
+ *
+ * Las etapas del monitoreo (consulta → parseo → guardado → evaluación →
+ * alerta → notificación) se registran en total y por dispositivo, con el
+ * nombre "etapa[dispositivo]". Se consultan en MetricsActivity o con
+ * MetricsDumpReceiver (adb). Se pierden al terminar el proceso.
+ */
+public class MetricsRegistry {
+
+    // Etapas del monitoreo de sensores
+    public static final String STAGE_POLL = "monitor.poll";         // Ida y vuelta HTTP al Arduino
+    public static final String STAGE_PARSE = "monitor.parse";       // JSON -> ArduinoResponse
+    public static final String STAGE_PERSIST = "monitor.persist";   // insertSensorData
+    public static final String STAGE_EVALUATE = "monitor.evaluate"; // AlertGenerator
+    public static final String STAGE_ALERT = "monitor.alert";       // createAlert
+    public static final String STAGE_NOTIFY = "monitor.notify";     // Publicar notificaciones
+    public static final String STAGE_CYCLE = "monitor.cycle";       // Ejecución completa del worker
+
+    private static final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Marca de tiempo para medir una etapa con recordSince
+     */
+    public static long start() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Registrar la duración de una etapa desde start
+     */
+    public static void recordSince(String stage, long startNanos) {
+        recordLatency(stage, null, SystemClock.elapsedRealtimeNanos() - startNanos);
+    }
+
+    /**
+     * Registrar la duración de una etapa desde start, en total y para el dispositivo
+     */
+    public static void recordSince(String stage, @Nullable String deviceId, long startNanos) {
+        recordLatency(stage, deviceId, SystemClock.elapsedRealtimeNanos() - startNanos);
+    }
+
+    /**
+     * Registrar una latencia en total y, si se indica, para el dispositivo
+     */
+    public static void recordLatency(String stage, @Nullable String deviceId, long nanos) {
+        histogram(stage).record(nanos);
+        if (deviceId != null) {
+            histogram(stage + "[" + deviceId + "]").record(nanos);
+        }
+    }
+
+    /**
+     * Guardar en el gauge "name.records_per_s" el ritmo desde start
+     */
+    public static void recordThroughput(String name, long records, long startNanos) {
+        long elapsed = Math.max(1, SystemClock.elapsedRealtimeNanos() - startNanos);
+        setGauge(name + ".records_per_s", records * 1_000_000_000L / elapsed);
+    }
+
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    public static void add(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new AtomicLong()).addAndGet(delta);
+    }
+
+    public static void setGauge(String name, long value) {
+        gauges.computeIfAbsent(name, k -> new AtomicLong()).set(value);
+    }
+
+    public static long getCounter(String name) {
+        AtomicLong counter = counters.get(name);
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Borrar todas las métricas
+     */
+    public static void reset() {
+        counters.clear();
+        gauges.clear();
+        histograms.clear();
+    }
+
+    private static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Escribir todas las métricas en texto, ordenadas por nombre
+     */
+    public static void dump(PrintWriter writer) {
+        writer.println("== Latencias (ms) ==");
+        writer.println(String.format(Locale.US, "%-36s %7s %9s %9s %9s %9s",
+                "etapa", "n", "p50", "p99", "media", "max"));
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            writer.println(String.format(Locale.US, "%-36s %7d %9.1f %9.1f %9.1f %9.1f",
+                    entry.getKey(), histogram.getCount(),
+                    histogram.getPercentileMs(50), histogram.getPercentileMs(99),
+                    histogram.getMeanMs(), histogram.getMaxMs()));
+        }
+
+        writer.println();
+        writer.println("== Contadores ==");
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            writer.println(String.format(Locale.US, "%-36s %d", entry.getKey(), entry.getValue().get()));
+        }
+
+        writer.println();
+        writer.println("== Gauges ==");
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(gauges).entrySet()) {
+            writer.println(String.format(Locale.US, "%-36s %d", entry.getKey(), entry.getValue().get()));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Métricas en texto (ver dump(PrintWriter))
+     */
+    public static String dump() {
+        StringWriter out = new StringWriter();
+        dump(new PrintWriter(out));
+        return out.toString();
+    }
+}
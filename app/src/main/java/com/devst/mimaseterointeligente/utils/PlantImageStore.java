@@ -0,0 +1,292 @@
+package com.devst.mimaseterointeligente.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.devst.mimaseterointeligente.R;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Almacén de imágenes de plantas.
+ *
+ * Los originales se guardan en el almacenamiento interno con el hash SHA-256
+ * de su contenido como nombre, de modo que elegir dos veces la misma foto no
+ * duplica el archivo. Al guardar se generan dos variantes reducidas:
+ * - Miniatura para el ícono de la lista de plantas
+ * - Imagen principal para el dashboard y las pantallas de edición
+ *
+ * Todo el trabajo de disco y decodificación se hace en un hilo de fondo.
+ */
+public class PlantImageStore {
+
+    private static final String TAG = "PlantImageStore";
+
+    private static final String DIRECTORY = "plant_images";
+    private static final String ORIGINAL_SUFFIX = ".img";
+    private static final String THUMBNAIL_SUFFIX = "_thumb.jpg";
+    private static final String HERO_SUFFIX = "_hero.jpg";
+
+    // Lado mayor de la imagen principal (cubre las vistas a ancho completo)
+    private static final int HERO_MAX_SIZE_PX = 1080;
+    private static final int THUMBNAIL_QUALITY = 80;
+    private static final int HERO_QUALITY = 85;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "masetero-images");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Resultado de la importación entregado en el hilo principal
+     */
+    public interface Callback {
+        void onImageSaved(String originalPath);
+
+        void onError(Exception e);
+    }
+
+    private PlantImageStore() {
+    }
+
+    /**
+     * Importar una imagen (cámara o galería) en segundo plano
+     * @param context Contexto
+     * @param source URI de la imagen (content:// o file://)
+     * @param callback Callback en el hilo principal
+     */
+    public static void importImage(Context context, Uri source, Callback callback) {
+        Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            try {
+                String path = importImageSync(appContext, source);
+                mainHandler.post(() -> callback.onImageSaved(path));
+            } catch (Exception e) {
+                AppLog.e(TAG, "Error al importar imagen", e);
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    /**
+     * Copiar el original (deduplicado por contenido) y generar sus variantes.
+     * Debe llamarse fuera del hilo principal.
+     * @return Ruta absoluta del original
+     */
+    public static String importImageSync(Context context, Uri source) throws IOException {
+        File directory = getDirectory(context);
+        File tempFile = File.createTempFile("import_", ".tmp", directory);
+
+        String hash;
+        try {
+            hash = copyAndHash(context, source, tempFile);
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+
+        File original = new File(directory, hash + ORIGINAL_SUFFIX);
+        if (original.exists()) {
+            // Misma imagen ya guardada: descartar la copia
+            tempFile.delete();
+            AppLog.d(TAG, "importImage: imagen ya existente %s", original.getName());
+        } else if (!tempFile.renameTo(original)) {
+            tempFile.delete();
+            throw new IOException("No se pudo guardar la imagen original");
+        }
+
+        int thumbnailSize = context.getResources().getDimensionPixelSize(R.dimen.plant_thumbnail_size);
+        File thumbnail = new File(directory, hash + THUMBNAIL_SUFFIX);
+        if (!thumbnail.exists()) {
+            writeVariant(original, thumbnail, thumbnailSize, false, THUMBNAIL_QUALITY);
+        }
+        File hero = new File(directory, hash + HERO_SUFFIX);
+        if (!hero.exists()) {
+            writeVariant(original, hero, HERO_MAX_SIZE_PX, true, HERO_QUALITY);
+        }
+
+        return original.getAbsolutePath();
+    }
+
+    /**
+     * Fuente para Glide del ícono de la lista (miniatura si existe)
+     * @return File, Uri o null si la ruta no es válida
+     */
+    public static Object getThumbnailSource(String imageUrl) {
+        return resolveSource(imageUrl, THUMBNAIL_SUFFIX);
+    }
+
+    /**
+     * Fuente para Glide de la imagen principal (variante grande si existe)
+     * @return File, Uri o null si la ruta no es válida
+     */
+    public static Object getHeroSource(String imageUrl) {
+        return resolveSource(imageUrl, HERO_SUFFIX);
+    }
+
+    private static Object resolveSource(String imageUrl, String variantSuffix) {
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return null;
+        }
+
+        if (imageUrl.startsWith("/")) {
+            // Ruta local: usar la variante si la imagen está en el almacén
+            File file = new File(imageUrl);
+            String name = file.getName();
+            File parent = file.getParentFile();
+            if (parent != null && DIRECTORY.equals(parent.getName()) && name.endsWith(ORIGINAL_SUFFIX)) {
+                String hash = name.substring(0, name.length() - ORIGINAL_SUFFIX.length());
+                File variant = new File(parent, hash + variantSuffix);
+                if (variant.exists()) {
+                    return variant;
+                }
+            }
+            // Imágenes antiguas: Glide las reduce al tamaño indicado con override()
+            return file;
+        } else if (imageUrl.startsWith("file://") || imageUrl.startsWith("content://")) {
+            return Uri.parse(imageUrl);
+        }
+
+        // Formato desconocido
+        return null;
+    }
+
+    private static File getDirectory(Context context) throws IOException {
+        File directory = new File(context.getFilesDir(), DIRECTORY);
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear el directorio de imágenes");
+        }
+        return directory;
+    }
+
+    /**
+     * Copiar el contenido a un archivo calculando su SHA-256 en la misma pasada
+     */
+    private static String copyAndHash(Context context, Uri source, File destination) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 no disponible", e);
+        }
+
+        InputStream rawInput = context.getContentResolver().openInputStream(source);
+        if (rawInput == null) {
+            throw new IOException("No se pudo abrir la imagen de origen");
+        }
+
+        try (InputStream input = new DigestInputStream(rawInput, digest);
+             OutputStream output = new FileOutputStream(destination)) {
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = input.read(buffer)) != -1) {
+                output.write(buffer, 0, bytesRead);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Generar una variante JPEG reducida respetando la orientación EXIF
+     * @param targetSize Lado mayor (fitLongestSide) o lado menor objetivo en píxeles
+     */
+    private static void writeVariant(File original, File destination, int targetSize,
+                                     boolean fitLongestSide, int quality) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(original.getAbsolutePath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("El archivo no es una imagen válida");
+        }
+
+        int sourceSize = fitLongestSide
+                ? Math.max(bounds.outWidth, bounds.outHeight)
+                : Math.min(bounds.outWidth, bounds.outHeight);
+
+        // Decodificar directamente a una potencia de 2 cercana al tamaño objetivo
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 1;
+        while (sourceSize / (options.inSampleSize * 2) >= targetSize) {
+            options.inSampleSize *= 2;
+        }
+        Bitmap decoded = BitmapFactory.decodeFile(original.getAbsolutePath(), options);
+        if (decoded == null) {
+            throw new IOException("No se pudo decodificar la imagen");
+        }
+
+        int decodedSize = fitLongestSide
+                ? Math.max(decoded.getWidth(), decoded.getHeight())
+                : Math.min(decoded.getWidth(), decoded.getHeight());
+        float scale = Math.min(1f, (float) targetSize / decodedSize);
+
+        Matrix matrix = new Matrix();
+        matrix.postScale(scale, scale);
+        matrix.postRotate(getExifRotation(original));
+
+        Bitmap result = Bitmap.createBitmap(decoded, 0, 0,
+                decoded.getWidth(), decoded.getHeight(), matrix, true);
+
+        // Escribir en un temporal y renombrar para no dejar variantes a medias
+        File tempFile = new File(destination.getParentFile(), destination.getName() + ".tmp");
+        try (OutputStream output = new FileOutputStream(tempFile)) {
+            result.compress(Bitmap.CompressFormat.JPEG, quality, output);
+        } finally {
+            if (result != decoded) {
+                result.recycle();
+            }
+            decoded.recycle();
+        }
+
+        if (!tempFile.renameTo(destination)) {
+            tempFile.delete();
+            throw new IOException("No se pudo guardar la variante " + destination.getName());
+        }
+    }
+
+    private static int getExifRotation(File file) {
+        try {
+            ExifInterface exif = new ExifInterface(file.getAbsolutePath());
+            int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL);
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            AppLog.e(TAG, "No se pudo leer EXIF: %s", e.getMessage());
+            return 0;
+        }
+    }
+}
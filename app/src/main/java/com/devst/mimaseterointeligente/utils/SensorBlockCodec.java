@@ -0,0 +1,302 @@
+package com.devst.mimaseterointeligente.utils;
+
+import com.devst.mimaseterointeligente.models.SensorHistory;
+
+import java.util.Arrays;
+
+/**
+ * Compresión de lecturas de sensores al estilo Gorilla (Facebook, 2015)
+ * para los bloques archivados de sensor_data.
+ *
+ * Un bloque guarda las lecturas de una planta en orden de tiempo:
+ *
+ *   versión (8 bits) | cantidad (32 bits) | primer timestamp (64 bits) | lecturas...
+ *
+ * Por cada lectura se escribe el timestamp como delta-de-delta en ms:
+ *
+ *   '0'                    sin cambio en el intervalo
+ *   '10'   + 7 bits        [-64, 63]
+ *   '110'  + 10 bits       [-512, 511]
+ *   '1110' + 14 bits       [-8192, 8191]
+ *   '1111' + 32 bits       cualquier otro
+ *
+ * y luego cada columna (las métricas de SensorHistory y pest_count) como
+ * XOR con su valor anterior, sobre los 32 bits del float (o del entero):
+ *
+ *   '0'                                  mismo valor
+ *   '10' + bits significativos           cabe en la ventana de ceros anterior
+ *   '11' + 5 bits ceros a la izquierda
+ *        + 5 bits largo - 1 + bits       ventana nueva
+ *
+ * La primera lectura usa la misma codificación partiendo de un intervalo 0
+ * y valores 0. Los sensores cambian poco entre lecturas, así que la mayoría
+ * de las columnas ocupa 1 bit. Decodificar es secuencial y no crea objetos
+ * por lectura.
+ */
+public final class SensorBlockCodec {
+
+    public static final int VERSION = 1;
+    public static final int COLUMN_COUNT = SensorHistory.METRIC_COUNT + 1; // Métricas + pest_count
+
+    private SensorBlockCodec() {
+    }
+
+    /**
+     * Codificador de un bloque. Las lecturas deben agregarse en orden de tiempo.
+     */
+    public static final class Encoder {
+
+        private final BitWriter out = new BitWriter();
+        private final int[] previous = new int[COLUMN_COUNT];
+        private final int[] leading = new int[COLUMN_COUNT];
+        private final int[] trailing = new int[COLUMN_COUNT];
+        private long firstTime;
+        private long previousTime;
+        private long previousDelta;
+        private int count;
+
+        public Encoder() {
+            Arrays.fill(leading, -1);
+        }
+
+        /**
+         * Agregar una lectura
+         * @param metrics Valores en el orden de SensorHistory.METRIC_*
+         */
+        public void add(long timestamp, float[] metrics, int pestCount) {
+            if (count == 0) {
+                firstTime = timestamp;
+                previousTime = timestamp;
+            } else if (timestamp < previousTime) {
+                throw new IllegalArgumentException("Lecturas fuera de orden");
+            }
+            long delta = timestamp - previousTime;
+            writeDeltaOfDelta(delta - previousDelta);
+            previousDelta = delta;
+            previousTime = timestamp;
+
+            for (int column = 0; column < SensorHistory.METRIC_COUNT; column++) {
+                writeXor(column, Float.floatToIntBits(metrics[column]));
+            }
+            writeXor(SensorHistory.METRIC_COUNT, pestCount);
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Bytes del bloque (encabezado + lecturas)
+         */
+        public byte[] toByteArray() {
+            byte[] body = out.toByteArray();
+            byte[] block = new byte[13 + body.length];
+            block[0] = (byte) VERSION;
+            for (int i = 0; i < 4; i++) {
+                block[1 + i] = (byte) (count >>> (24 - 8 * i));
+            }
+            for (int i = 0; i < 8; i++) {
+                block[5 + i] = (byte) (firstTime >>> (56 - 8 * i));
+            }
+            System.arraycopy(body, 0, block, 13, body.length);
+            return block;
+        }
+
+        private void writeDeltaOfDelta(long dod) {
+            if (dod == 0) {
+                out.write(0, 1);
+            } else if (dod >= -64 && dod <= 63) {
+                out.write(0b10, 2);
+                out.write(dod, 7);
+            } else if (dod >= -512 && dod <= 511) {
+                out.write(0b110, 3);
+                out.write(dod, 10);
+            } else if (dod >= -8192 && dod <= 8191) {
+                out.write(0b1110, 4);
+                out.write(dod, 14);
+            } else {
+                out.write(0b1111, 4);
+                out.write(dod, 32);
+            }
+        }
+
+        private void writeXor(int column, int value) {
+            int xor = value ^ previous[column];
+            previous[column] = value;
+            if (xor == 0) {
+                out.write(0, 1);
+                return;
+            }
+            int lead = Integer.numberOfLeadingZeros(xor);
+            int trail = Integer.numberOfTrailingZeros(xor);
+            if (leading[column] >= 0 && lead >= leading[column] && trail >= trailing[column]) {
+                out.write(0b10, 2);
+                out.write(xor >>> trailing[column], 32 - leading[column] - trailing[column]);
+            } else {
+                int meaningful = 32 - lead - trail;
+                out.write(0b11, 2);
+                out.write(lead, 5);
+                out.write(meaningful - 1, 5);
+                out.write(xor >>> trail, meaningful);
+                leading[column] = lead;
+                trailing[column] = trail;
+            }
+        }
+    }
+
+    /**
+     * Lectura secuencial de un bloque: cada next() deja la lectura en
+     * timestamp, metrics y pestCount.
+     */
+    public static final class Decoder {
+
+        public long timestamp;
+        public final float[] metrics = new float[SensorHistory.METRIC_COUNT];
+        public int pestCount;
+
+        private final BitReader in;
+        private final int count;
+        private final int[] previous = new int[COLUMN_COUNT];
+        private final int[] leading = new int[COLUMN_COUNT];
+        private final int[] trailing = new int[COLUMN_COUNT];
+        private long delta;
+        private int read;
+
+        public Decoder(byte[] block) {
+            if (block.length < 13 || block[0] != VERSION) {
+                throw new IllegalArgumentException("Bloque de sensores inválido");
+            }
+            int n = 0;
+            for (int i = 0; i < 4; i++) {
+                n = (n << 8) | (block[1 + i] & 0xFF);
+            }
+            long first = 0;
+            for (int i = 0; i < 8; i++) {
+                first = (first << 8) | (block[5 + i] & 0xFF);
+            }
+            count = n;
+            timestamp = first;
+            in = new BitReader(block, 13);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Avanzar a la siguiente lectura
+         * @return false si no quedan lecturas
+         */
+        public boolean next() {
+            if (read >= count) return false;
+
+            delta += readDeltaOfDelta();
+            timestamp += delta;
+            for (int column = 0; column < SensorHistory.METRIC_COUNT; column++) {
+                metrics[column] = Float.intBitsToFloat(readXor(column));
+            }
+            pestCount = readXor(SensorHistory.METRIC_COUNT);
+            read++;
+            return true;
+        }
+
+        private long readDeltaOfDelta() {
+            if (in.readBit() == 0) return 0;
+            if (in.readBit() == 0) return in.readSigned(7);
+            if (in.readBit() == 0) return in.readSigned(10);
+            if (in.readBit() == 0) return in.readSigned(14);
+            return in.readSigned(32);
+        }
+
+        private int readXor(int column) {
+            if (in.readBit() == 0) {
+                return previous[column];
+            }
+            if (in.readBit() == 1) {
+                leading[column] = (int) in.read(5);
+                int meaningful = (int) in.read(5) + 1;
+                trailing[column] = 32 - leading[column] - meaningful;
+            }
+            int meaningful = 32 - leading[column] - trailing[column];
+            int xor = (int) in.read(meaningful) << trailing[column];
+            previous[column] ^= xor;
+            return previous[column];
+        }
+    }
+
+    /**
+     * Escritura de bits (del más significativo al menos significativo)
+     */
+    private static final class BitWriter {
+
+        private byte[] buffer = new byte[256];
+        private int bitPosition;
+
+        // Se escribe de a bytes: como máximo 5 iteraciones para 32 bits
+        void write(long value, int bits) {
+            while (bits > 0) {
+                int index = bitPosition >>> 3;
+                if (index == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int free = 8 - (bitPosition & 7);
+                int take = Math.min(free, bits);
+                int chunk = (int) (value >>> (bits - take)) & ((1 << take) - 1);
+                buffer[index] |= (byte) (chunk << (free - take));
+                bitPosition += take;
+                bits -= take;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (bitPosition + 7) >>> 3);
+        }
+    }
+
+    /**
+     * Lectura de bits en el mismo orden que BitWriter
+     */
+    private static final class BitReader {
+
+        private final byte[] buffer;
+        private long bitPosition;
+
+        BitReader(byte[] buffer, int offset) {
+            this.buffer = buffer;
+            this.bitPosition = (long) offset * 8;
+        }
+
+        int readBit() {
+            int index = (int) (bitPosition >>> 3);
+            if (index >= buffer.length) {
+                throw new IllegalArgumentException("Bloque de sensores truncado");
+            }
+            int bit = (buffer[index] >>> (7 - (int) (bitPosition & 7))) & 1;
+            bitPosition++;
+            return bit;
+        }
+
+        long read(int bits) {
+            long value = 0;
+            while (bits > 0) {
+                int index = (int) (bitPosition >>> 3);
+                if (index >= buffer.length) {
+                    throw new IllegalArgumentException("Bloque de sensores truncado");
+                }
+                int available = 8 - (int) (bitPosition & 7);
+                int take = Math.min(available, bits);
+                int chunk = ((buffer[index] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+                value = (value << take) | chunk;
+                bitPosition += take;
+                bits -= take;
+            }
+            return value;
+        }
+
+        long readSigned(int bits) {
+            long value = read(bits);
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+}
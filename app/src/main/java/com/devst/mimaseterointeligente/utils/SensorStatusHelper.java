@@ -2,6 +2,7 @@ package com.devst.mimaseterointeligente.utils;
 
 import com.devst.mimaseterointeligente.models.ArduinoResponse;
 import com.devst.mimaseterointeligente.models.Plant;
+import com.devst.mimaseterointeligente.models.SensorData;
 
 /**
  * Helper para evaluar el estado de los sensores
@@ -302,24 +303,43 @@ public class SensorStatusHelper {
      * Evaluar estado general de la planta
      */
     public static SensorStatus evaluateOverallStatus(Plant plant, ArduinoResponse data) {
+        return evaluateOverallStatus(plant, data.getSoilHumidity(), data.getTemperature(),
+                data.getAmbientHumidity(), data.getUvLevel(), data.getPestCount());
+    }
+
+    /**
+     * Evaluar estado general a partir de una lectura guardada en la base de datos
+     */
+    public static SensorStatus evaluateOverallStatus(Plant plant, SensorData data) {
+        return evaluateOverallStatus(plant, data.getSoilHumidity(), data.getTemperature(),
+                data.getAmbientHumidity(), data.getUvLevel(), data.getPestCount());
+    }
+
+    private static SensorStatus evaluateOverallStatus(Plant plant, float soilHumidity, float temperature,
+                                                      float ambientHumidity, float uvLevel, int pestCount) {
         int criticalCount = 0;
         int warningCount = 0;
 
         // Contar problemas
-        if (evaluateSoilHumidity(plant, data.getSoilHumidity()).isCritical()) criticalCount++;
-        else if (evaluateSoilHumidity(plant, data.getSoilHumidity()).isWarning()) warningCount++;
+        SensorStatus soil = evaluateSoilHumidity(plant, soilHumidity);
+        if (soil.isCritical()) criticalCount++;
+        else if (soil.isWarning()) warningCount++;
 
-        if (evaluateTemperature(plant, data.getTemperature()).isCritical()) criticalCount++;
-        else if (evaluateTemperature(plant, data.getTemperature()).isWarning()) warningCount++;
+        SensorStatus temp = evaluateTemperature(plant, temperature);
+        if (temp.isCritical()) criticalCount++;
+        else if (temp.isWarning()) warningCount++;
 
-        if (evaluateAmbientHumidity(plant, data.getAmbientHumidity()).isCritical()) criticalCount++;
-        else if (evaluateAmbientHumidity(plant, data.getAmbientHumidity()).isWarning()) warningCount++;
+        SensorStatus ambHum = evaluateAmbientHumidity(plant, ambientHumidity);
+        if (ambHum.isCritical()) criticalCount++;
+        else if (ambHum.isWarning()) warningCount++;
 
-        if (evaluateUvLevel(data.getUvLevel()).isCritical()) criticalCount++;
-        else if (evaluateUvLevel(data.getUvLevel()).isWarning()) warningCount++;
+        SensorStatus uv = evaluateUvLevel(uvLevel);
+        if (uv.isCritical()) criticalCount++;
+        else if (uv.isWarning()) warningCount++;
 
-        if (evaluatePests(data.getPestCount()).isCritical()) criticalCount++;
-        else if (evaluatePests(data.getPestCount()).isWarning()) warningCount++;
+        SensorStatus pests = evaluatePests(pestCount);
+        if (pests.isCritical()) criticalCount++;
+        else if (pests.isWarning()) warningCount++;
 
         // Determinar estado general
         if (criticalCount > 0) {
@@ -0,0 +1,46 @@
+package com.devst.mimaseterointeligente.utils;
+
+/**
+ * Limitador de frecuencia tipo token bucket.
+ *
+ * El balde empieza lleno con {@code capacity} fichas y recupera una cada
+ * {@code refillIntervalMs}. Cada acción consume una ficha; sin fichas la
+ * acción se rechaza. Permite ráfagas cortas y luego un ritmo sostenido
+ * máximo de una acción por intervalo.
+ */
+public class TokenBucket {
+
+    private final int capacity;
+    private final long refillIntervalMs;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(int capacity, long refillIntervalMs, long now) {
+        this.capacity = capacity;
+        this.refillIntervalMs = refillIntervalMs;
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    /**
+     * Consumir una ficha si hay disponible
+     * @param now Hora actual en milisegundos
+     * @return true si la acción está permitida
+     */
+    public synchronized boolean tryAcquire(long now) {
+        refill(now);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + (double) elapsed / refillIntervalMs);
+            lastRefill = now;
+        }
+    }
+}
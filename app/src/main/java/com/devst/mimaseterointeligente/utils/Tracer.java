@@ -0,0 +1,214 @@
+package com.devst.mimaseterointeligente.utils;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.JsonWriter;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spans livianos del procesamiento de lecturas.
+ *
+ * Cada span se escribe en android.os.Trace (visible en Perfetto/systrace) y
+ * en un buffer circular en memoria con las últimas BUFFER_SIZE entradas, que
+ * se exporta como JSON de Chrome trace (chrome://tracing o ui.perfetto.dev).
+ *
+ * Cada lectura lleva un id de correlación: SensorMonitorWorker lo fija en el
+ * hilo con setCorrelationId y los spans abiertos en ese hilo (DatabaseHelper,
+ * AlertGenerator) lo heredan, sin cambiar sus firmas. Así la consulta al
+ * Arduino, el insert, las alertas y la notificación de una lectura quedan
+ * unidos por el mismo "cid".
+ */
+public class Tracer {
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final int MAX_NAME_LENGTH = 127; // Límite de android.os.Trace
+
+    private static final ThreadLocal<String> correlationId = new ThreadLocal<>();
+    private static final AtomicInteger nextCookie = new AtomicInteger();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    // Buffer circular: se sobrescriben las entradas más antiguas
+    private static final SpanRecord[] buffer = new SpanRecord[BUFFER_SIZE];
+    private static int bufferNext = 0;
+    private static int bufferCount = 0;
+
+    private Tracer() {
+    }
+
+    /**
+     * Span abierto; se cierra con close() (usar try-with-resources)
+     */
+    public static final class Span implements AutoCloseable {
+        private final String name;
+        private final String cid;
+        private final int cookie;
+        private final long startNanos;
+        private boolean closed = false;
+
+        private Span(String name, @Nullable String cid) {
+            this.name = name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name;
+            this.cid = cid;
+            this.cookie = nextCookie.incrementAndGet();
+            this.startNanos = SystemClock.elapsedRealtimeNanos();
+            Trace.beginAsyncSection(this.name, cookie);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            Trace.endAsyncSection(name, cookie);
+            record(new SpanRecord(name, cid, startNanos,
+                    SystemClock.elapsedRealtimeNanos() - startNanos, Process.myTid()));
+        }
+    }
+
+    /**
+     * Entrada del buffer circular
+     */
+    private static final class SpanRecord {
+        final String name;
+        final String cid;
+        final long startNanos;
+        final long durationNanos;
+        final int tid;
+
+        SpanRecord(String name, String cid, long startNanos, long durationNanos, int tid) {
+            this.name = name;
+            this.cid = cid;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.tid = tid;
+        }
+    }
+
+    /**
+     * Nuevo id de correlación, ej: "ESP32_A1B2-17"
+     */
+    public static String newCorrelationId(String prefix) {
+        return prefix + "-" + nextId.incrementAndGet();
+    }
+
+    /**
+     * Fijar el id de correlación del hilo actual (null para quitarlo)
+     */
+    public static void setCorrelationId(@Nullable String cid) {
+        if (cid != null) {
+            correlationId.set(cid);
+        } else {
+            correlationId.remove();
+        }
+    }
+
+    @Nullable
+    public static String getCorrelationId() {
+        return correlationId.get();
+    }
+
+    /**
+     * Abrir un span con el id de correlación del hilo actual
+     */
+    public static Span begin(String name) {
+        return new Span(name, correlationId.get());
+    }
+
+    /**
+     * Abrir un span con un id de correlación explícito
+     */
+    public static Span begin(String name, @Nullable String cid) {
+        return new Span(name, cid);
+    }
+
+    private static synchronized void record(SpanRecord span) {
+        buffer[bufferNext] = span;
+        bufferNext = (bufferNext + 1) % BUFFER_SIZE;
+        bufferCount = Math.min(bufferCount + 1, BUFFER_SIZE);
+    }
+
+    /**
+     * Copia de los spans del buffer, del más antiguo al más reciente
+     */
+    private static synchronized List<SpanRecord> snapshot() {
+        List<SpanRecord> spans = new ArrayList<>(bufferCount);
+        int first = (bufferNext - bufferCount + BUFFER_SIZE) % BUFFER_SIZE;
+        for (int i = 0; i < bufferCount; i++) {
+            spans.add(buffer[(first + i) % BUFFER_SIZE]);
+        }
+        return spans;
+    }
+
+    /**
+     * Cantidad de spans guardados en el buffer
+     */
+    public static synchronized int size() {
+        return bufferCount;
+    }
+
+    /**
+     * Exportar el buffer a files/traces/trace-{fecha}.json en el almacenamiento
+     * externo de la app (adb pull sin permisos; el interno si no está montado).
+     * Llamar desde un hilo de fondo.
+     * @return Archivo escrito
+     */
+    public static File exportChromeTrace(Context context) throws IOException {
+        File base = context.getExternalFilesDir(null);
+        File dir = new File(base != null ? base : context.getFilesDir(), "traces");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("No se pudo crear " + dir);
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, "trace-" + stamp + ".json");
+        exportChromeTrace(file);
+        return file;
+    }
+
+    /**
+     * Exportar el buffer como JSON de Chrome trace (eventos completos "X",
+     * tiempos en microsegundos). Escribe en disco: llamar desde un hilo de fondo.
+     */
+    public static void exportChromeTrace(File file) throws IOException {
+        List<SpanRecord> spans = snapshot();
+        int pid = Process.myPid();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("displayTimeUnit").value("ms");
+            writer.name("traceEvents").beginArray();
+            for (SpanRecord span : spans) {
+                writer.beginObject();
+                writer.name("name").value(span.name);
+                writer.name("cat").value("masetero");
+                writer.name("ph").value("X");
+                writer.name("ts").value(span.startNanos / 1000);
+                writer.name("dur").value(span.durationNanos / 1000);
+                writer.name("pid").value(pid);
+                writer.name("tid").value(span.tid);
+                if (span.cid != null) {
+                    writer.name("args").beginObject();
+                    writer.name("cid").value(span.cid);
+                    writer.endObject();
+                }
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.devst.mimaseterointeligente.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.devst.mimaseterointeligente.models.SensorHistory;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Gráfico de línea liviano para el historial de un sensor.
+ * Dibuja directamente desde los arreglos primitivos de SensorHistory.Series;
+ * los Paint y el Path se reutilizan, por lo que onDraw no crea objetos
+ * por punto.
+ */
+public class SensorChartView extends View {
+
+    private static final int GRID_LINES = 3;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint gridPaint = new Paint();
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path linePath = new Path();
+    private final Path fillPath = new Path();
+
+    private long[] timestamps;
+    private float[] values;
+    private int size;
+    private long fromMillis;
+    private long toMillis;
+    private String unit = "";
+    private String emptyText = "Sin datos en este período";
+
+    // Etiquetas precalculadas al asignar la serie (no en onDraw)
+    private String maxLabel = "";
+    private String minLabel = "";
+    private String startLabel = "";
+    private String endLabel = "";
+    private float minValue;
+    private float maxValue;
+
+    public SensorChartView(Context context) {
+        this(context, null);
+    }
+
+    public SensorChartView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(2 * density);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
+
+        fillPaint.setStyle(Paint.Style.FILL);
+
+        gridPaint.setColor(Color.parseColor("#E0E0E0"));
+        gridPaint.setStrokeWidth(density);
+
+        labelPaint.setColor(Color.parseColor("#757575"));
+        labelPaint.setTextSize(11 * getResources().getDisplayMetrics().scaledDensity);
+
+        setLineColor(Color.parseColor("#2E7D32"));
+    }
+
+    /**
+     * Color de la línea; el relleno usa el mismo color con transparencia
+     */
+    public void setLineColor(int color) {
+        linePaint.setColor(color);
+        fillPaint.setColor(Color.argb(40, Color.red(color), Color.green(color), Color.blue(color)));
+        invalidate();
+    }
+
+    public void setEmptyText(String text) {
+        emptyText = text;
+        invalidate();
+    }
+
+    /**
+     * Asignar la serie a dibujar
+     * @param series Serie reducida (puede ser null)
+     * @param from Inicio del rango visible (ms)
+     * @param to Fin del rango visible (ms)
+     * @param unit Unidad para las etiquetas (ej: "%", "°C")
+     */
+    public void setSeries(@Nullable SensorHistory.Series series, long from, long to, String unit) {
+        this.timestamps = series != null ? series.timestamps : null;
+        this.values = series != null ? series.values : null;
+        this.size = series != null ? series.size : 0;
+        this.fromMillis = from;
+        this.toMillis = Math.max(to, from + 1);
+        this.unit = unit != null ? unit : "";
+
+        if (size > 0) {
+            minValue = values[0];
+            maxValue = values[0];
+            for (int i = 1; i < size; i++) {
+                minValue = Math.min(minValue, values[i]);
+                maxValue = Math.max(maxValue, values[i]);
+            }
+            if (maxValue - minValue < 1f) {
+                // Evitar una línea pegada al borde cuando la serie es casi constante
+                minValue -= 0.5f;
+                maxValue += 0.5f;
+            }
+            maxLabel = String.format(Locale.getDefault(), "%.1f%s", maxValue, this.unit);
+            minLabel = String.format(Locale.getDefault(), "%.1f%s", minValue, this.unit);
+
+            // Rangos de más de un día muestran fecha, los de un día solo la hora
+            String pattern = toMillis - fromMillis > 24L * 60 * 60 * 1000 ? "dd/MM" : "HH:mm";
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.getDefault());
+            startLabel = format.format(new Date(fromMillis));
+            endLabel = format.format(new Date(toMillis));
+        }
+
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float right = getWidth() - getPaddingRight();
+        float labelHeight = labelPaint.getTextSize() * 1.5f;
+        float bottom = getHeight() - getPaddingBottom() - labelHeight;
+        float width = right - left;
+        float height = bottom - top;
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        // Líneas guía horizontales
+        for (int i = 0; i <= GRID_LINES; i++) {
+            float y = top + height * i / GRID_LINES;
+            canvas.drawLine(left, y, right, y, gridPaint);
+        }
+
+        if (size == 0) {
+            float textWidth = labelPaint.measureText(emptyText);
+            canvas.drawText(emptyText, left + (width - textWidth) / 2, top + height / 2, labelPaint);
+            return;
+        }
+
+        float range = maxValue - minValue;
+        float timeRange = toMillis - fromMillis;
+
+        linePath.reset();
+        fillPath.reset();
+        float firstX = 0;
+        float lastX = 0;
+        for (int i = 0; i < size; i++) {
+            float x = left + width * (timestamps[i] - fromMillis) / timeRange;
+            float y = bottom - height * (values[i] - minValue) / range;
+            if (i == 0) {
+                linePath.moveTo(x, y);
+                fillPath.moveTo(x, bottom);
+                fillPath.lineTo(x, y);
+                firstX = x;
+            } else {
+                linePath.lineTo(x, y);
+                fillPath.lineTo(x, y);
+            }
+            lastX = x;
+        }
+        fillPath.lineTo(lastX, bottom);
+        fillPath.lineTo(firstX, bottom);
+        fillPath.close();
+
+        canvas.drawPath(fillPath, fillPaint);
+        canvas.drawPath(linePath, linePaint);
+
+        // Etiquetas de valores (máx arriba, mín abajo) y del rango de tiempo
+        canvas.drawText(maxLabel, left, top + labelPaint.getTextSize(), labelPaint);
+        canvas.drawText(minLabel, left, bottom - labelPaint.getTextSize() / 3, labelPaint);
+        float textY = bottom + labelPaint.getTextSize() * 1.2f;
+        canvas.drawText(startLabel, left, textY, labelPaint);
+        canvas.drawText(endLabel, right - labelPaint.measureText(endLabel), textY, labelPaint);
+    }
+}
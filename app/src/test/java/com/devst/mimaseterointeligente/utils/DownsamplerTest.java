@@ -0,0 +1,111 @@
+package com.devst.mimaseterointeligente.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas de la reducción LTTB
+ */
+public class DownsamplerTest {
+
+    @Test
+    public void smallSeries_isCopied() {
+        long[] xs = {1, 2, 3, 4};
+        float[] ys = {5f, 6f, 7f, 8f};
+        long[] outX = new long[4];
+        float[] outY = new float[4];
+
+        int count = Downsampler.lttb(xs, ys, 4, 10, outX, outY);
+
+        assertEquals(4, count);
+        assertArrayEquals(xs, outX);
+        assertArrayEquals(ys, outY, 0f);
+    }
+
+    @Test
+    public void emptySeries_returnsZero() {
+        assertEquals(0, Downsampler.lttb(new long[0], new float[0], 0, 100, new long[0], new float[0]));
+    }
+
+    @Test
+    public void thresholdBelowThree_keepsThreePoints() {
+        int size = 100;
+        long[] xs = new long[size];
+        float[] ys = new float[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = i;
+            ys[i] = i;
+        }
+        long[] outX = new long[3];
+        float[] outY = new float[3];
+
+        assertEquals(3, Downsampler.lttb(xs, ys, size, 1, outX, outY));
+        assertEquals(0, outX[0]);
+        assertEquals(size - 1, outX[2]);
+    }
+
+    @Test
+    public void reduce_keepsEndpointsAndOrder() {
+        int size = 1000;
+        long[] xs = new long[size];
+        float[] ys = new float[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = 1000L * i;
+            ys[i] = (float) Math.sin(i / 50.0);
+        }
+        int threshold = 50;
+        long[] outX = new long[threshold];
+        float[] outY = new float[threshold];
+
+        int count = Downsampler.lttb(xs, ys, size, threshold, outX, outY);
+
+        assertEquals(threshold, count);
+        assertEquals(xs[0], outX[0]);
+        assertEquals(xs[size - 1], outX[count - 1]);
+        for (int i = 1; i < count; i++) {
+            assertTrue("Salida fuera de orden en " + i, outX[i] > outX[i - 1]);
+            // Cada punto de salida es un punto real de la entrada
+            int index = Arrays.binarySearch(xs, outX[i]);
+            assertTrue(index >= 0);
+            assertEquals(ys[index], outY[i], 0f);
+        }
+    }
+
+    @Test
+    public void reduce_keepsSpike() {
+        int size = 500;
+        long[] xs = new long[size];
+        float[] ys = new float[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = i;
+            ys[i] = 20f;
+        }
+        ys[237] = 95f;
+        long[] outX = new long[20];
+        float[] outY = new float[20];
+
+        int count = Downsampler.lttb(xs, ys, size, 20, outX, outY);
+
+        boolean found = false;
+        for (int i = 0; i < count; i++) {
+            found |= outX[i] == 237 && outY[i] == 95f;
+        }
+        assertTrue("El pico debe conservarse", found);
+    }
+
+    @Test
+    public void sizeSmallerThanArrays_ignoresTail() {
+        long[] xs = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 99, 99};
+        float[] ys = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 99, 99};
+        long[] outX = new long[5];
+        float[] outY = new float[5];
+
+        int count = Downsampler.lttb(xs, ys, 10, 5, outX, outY);
+
+        assertEquals(5, count);
+        assertEquals(10, outX[count - 1]);
+    }
+}
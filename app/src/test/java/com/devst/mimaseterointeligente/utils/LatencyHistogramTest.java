@@ -0,0 +1,101 @@
+package com.devst.mimaseterointeligente.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del histograma de latencias
+ */
+public class LatencyHistogramTest {
+
+    private static final long MS = 1_000_000L; // Nanosegundos por ms
+
+    @Test
+    public void empty_reportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMs(), 0);
+        assertEquals(0, histogram.getMaxMs(), 0);
+        assertEquals(0, histogram.getPercentileMs(99), 0);
+    }
+
+    @Test
+    public void meanAndMax_areExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10 * MS);
+        histogram.record(20 * MS);
+        histogram.record(60 * MS);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(30, histogram.getMeanMs(), 1e-9);
+        assertEquals(60, histogram.getMaxMs(), 1e-9);
+    }
+
+    @Test
+    public void percentiles_withinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int ms = 1; ms <= 1000; ms++) {
+            histogram.record(ms * MS);
+        }
+
+        assertEquals(500, histogram.getPercentileMs(50), 500 / 16.0);
+        assertEquals(900, histogram.getPercentileMs(90), 900 / 16.0);
+        assertEquals(990, histogram.getPercentileMs(99), 990 / 16.0);
+        assertEquals(1000, histogram.getPercentileMs(100), 1000 / 16.0);
+    }
+
+    @Test
+    public void percentile_neverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000 * MS);
+
+        assertTrue(histogram.getPercentileMs(100) <= 1000);
+        assertTrue(histogram.getPercentileMs(50) <= 1000);
+    }
+
+    @Test
+    public void smallValues_areExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // Menos de 16 µs caen en buckets de un solo valor
+        for (int us = 0; us < 10; us++) {
+            histogram.record(us * 1000L);
+        }
+
+        assertEquals(0.009, histogram.getMaxMs(), 1e-12);
+        assertEquals(0.009, histogram.getPercentileMs(100), 1e-12);
+    }
+
+    @Test
+    public void outOfRangeValues_areClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5 * MS);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMs(50), 0.001);
+        assertEquals(((1L << 32) - 1) / 1000.0, histogram.getMaxMs(), 1e-9);
+        assertTrue(histogram.getPercentileMs(100) <= histogram.getMaxMs());
+    }
+
+    @Test
+    public void concurrentRecords_areCounted() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record((i % 100) * MS);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(99, histogram.getMaxMs(), 1e-9);
+    }
+}
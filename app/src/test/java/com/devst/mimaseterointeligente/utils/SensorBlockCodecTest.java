@@ -0,0 +1,171 @@
+package com.devst.mimaseterointeligente.utils;
+
+import com.devst.mimaseterointeligente.models.SensorHistory;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas de ida y vuelta del codec de bloques de sensores
+ */
+public class SensorBlockCodecTest {
+
+    private static final int M = SensorHistory.METRIC_COUNT;
+
+    @Test
+    public void roundTrip_variedDeltas() {
+        // Intervalos que ejercitan cada rango de delta-de-delta
+        long[] gaps = {0, 1000, 1000, 1050, 950, 1400, 600, 9000, 1000, 60000, 1000, 5_000_000L, 1000, 0, 0};
+        int n = gaps.length;
+        long[] timestamps = new long[n];
+        float[][] metrics = new float[n][M];
+        int[] pests = new int[n];
+        Random random = new Random(42);
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            time += gaps[i];
+            timestamps[i] = time;
+            for (int metric = 0; metric < M; metric++) {
+                metrics[i][metric] = 20f + random.nextFloat() * (metric + 1) * 10f;
+            }
+            pests[i] = random.nextInt(5);
+        }
+
+        assertRoundTrip(timestamps, metrics, pests);
+    }
+
+    @Test
+    public void roundTrip_specialFloats() {
+        float[][] metrics = {
+                {Float.NaN, -12.5f, 0f, -0f, Float.MAX_VALUE},
+                {Float.NaN, -12.5f, 0f, -0f, Float.MAX_VALUE},
+                {-1f, Float.NEGATIVE_INFINITY, Float.MIN_VALUE, 1e-30f, -Float.MAX_VALUE},
+                {42f, 42f, 42f, 42f, 42f},
+                {42f, 42f, 42f, 42f, 42f},
+        };
+        long[] timestamps = {1000, 2000, 3000, 4000, 5000};
+        int[] pests = {0, -3, Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+
+        assertRoundTrip(timestamps, metrics, pests);
+    }
+
+    @Test
+    public void identicalReadings_useOneBitPerColumn() {
+        SensorBlockCodec.Encoder encoder = new SensorBlockCodec.Encoder();
+        float[] values = {55.5f, 21.3f, 60f, 3f, 80f};
+        for (int i = 0; i < 100; i++) {
+            encoder.add(1000L * i, values, 1);
+        }
+        byte[] block = encoder.toByteArray();
+        // Después de las dos primeras lecturas, cada una ocupa 1 + COLUMN_COUNT bits
+        int steadyBits = 98 * (1 + SensorBlockCodec.COLUMN_COUNT);
+        assertTrue("Bloque demasiado grande: " + block.length, block.length < 13 + steadyBits / 8 + 64);
+
+        SensorBlockCodec.Decoder decoder = new SensorBlockCodec.Decoder(block);
+        int read = 0;
+        while (decoder.next()) {
+            assertEquals(1000L * read, decoder.timestamp);
+            assertArrayEquals(values, decoder.metrics, 0f);
+            assertEquals(1, decoder.pestCount);
+            read++;
+        }
+        assertEquals(100, read);
+    }
+
+    @Test
+    public void singlePointBlock() {
+        float[][] metrics = {{10f, 20f, 30f, 4f, 50f}};
+        assertRoundTrip(new long[]{1_700_000_123_456L}, metrics, new int[]{7});
+    }
+
+    @Test
+    public void emptyBlock_hasNoReadings() {
+        byte[] block = new SensorBlockCodec.Encoder().toByteArray();
+        SensorBlockCodec.Decoder decoder = new SensorBlockCodec.Decoder(block);
+        assertEquals(0, decoder.getCount());
+        assertFalse(decoder.next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outOfOrderReading_isRejected() {
+        SensorBlockCodec.Encoder encoder = new SensorBlockCodec.Encoder();
+        encoder.add(2000, new float[M], 0);
+        encoder.add(1000, new float[M], 0);
+    }
+
+    @Test
+    public void sameTimestamp_isAccepted() {
+        float[][] metrics = {{1f, 2f, 3f, 4f, 5f}, {6f, 7f, 8f, 9f, 10f}};
+        assertRoundTrip(new long[]{5000, 5000}, metrics, new int[]{0, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedHeader_isRejected() {
+        byte[] block = encode(new long[]{1000}, new float[][]{{1f, 2f, 3f, 4f, 5f}}, new int[]{0});
+        new SensorBlockCodec.Decoder(Arrays.copyOf(block, 12));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownVersion_isRejected() {
+        byte[] block = encode(new long[]{1000}, new float[][]{{1f, 2f, 3f, 4f, 5f}}, new int[]{0});
+        block[0] = (byte) (SensorBlockCodec.VERSION + 1);
+        new SensorBlockCodec.Decoder(block);
+    }
+
+    @Test
+    public void truncatedBody_failsWhileDecoding() {
+        int n = 50;
+        long[] timestamps = new long[n];
+        float[][] metrics = new float[n][M];
+        int[] pests = new int[n];
+        Random random = new Random(7);
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = 1000L * i + random.nextInt(500);
+            for (int metric = 0; metric < M; metric++) {
+                metrics[i][metric] = random.nextFloat() * 100f;
+            }
+        }
+        byte[] block = encode(timestamps, metrics, pests);
+        SensorBlockCodec.Decoder decoder = new SensorBlockCodec.Decoder(Arrays.copyOf(block, block.length / 2));
+
+        int read = 0;
+        try {
+            while (decoder.next()) {
+                read++;
+            }
+            fail("Se esperaba un error de bloque truncado");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(read < n);
+        }
+    }
+
+    private static byte[] encode(long[] timestamps, float[][] metrics, int[] pests) {
+        SensorBlockCodec.Encoder encoder = new SensorBlockCodec.Encoder();
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.add(timestamps[i], metrics[i], pests[i]);
+        }
+        assertEquals(timestamps.length, encoder.getCount());
+        return encoder.toByteArray();
+    }
+
+    private static void assertRoundTrip(long[] timestamps, float[][] metrics, int[] pests) {
+        SensorBlockCodec.Decoder decoder = new SensorBlockCodec.Decoder(encode(timestamps, metrics, pests));
+        assertEquals(timestamps.length, decoder.getCount());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertTrue(decoder.next());
+            assertEquals(timestamps[i], decoder.timestamp);
+            for (int metric = 0; metric < M; metric++) {
+                // Comparar bits: NaN y -0 deben conservarse exactos
+                assertEquals("lectura " + i + ", métrica " + metric,
+                        Float.floatToRawIntBits(metrics[i][metric]),
+                        Float.floatToRawIntBits(decoder.metrics[metric]));
+            }
+            assertEquals(pests[i], decoder.pestCount);
+        }
+        assertFalse(decoder.next());
+    }
+}
@@ -0,0 +1,65 @@
+package com.devst.mimaseterointeligente.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del limitador token bucket
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void startsFull_allowsBurst() {
+        TokenBucket bucket = new TokenBucket(3, 1000, 0);
+
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+    }
+
+    @Test
+    public void refill_oneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(1, 1000, 0);
+        assertTrue(bucket.tryAcquire(0));
+
+        assertFalse(bucket.tryAcquire(999));
+        assertTrue(bucket.tryAcquire(1000));
+        assertFalse(bucket.tryAcquire(1500));
+        assertTrue(bucket.tryAcquire(2000));
+    }
+
+    @Test
+    public void refill_neverExceedsCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 1000, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+
+        // Mucho tiempo sin uso: solo se recuperan 2 fichas
+        long later = 60 * 60 * 1000L;
+        assertTrue(bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later));
+        assertFalse(bucket.tryAcquire(later));
+    }
+
+    @Test
+    public void partialRefill_accumulates() {
+        TokenBucket bucket = new TokenBucket(1, 1000, 0);
+        assertTrue(bucket.tryAcquire(0));
+
+        // Dos medias fichas suman una
+        assertFalse(bucket.tryAcquire(500));
+        assertTrue(bucket.tryAcquire(1000));
+    }
+
+    @Test
+    public void clockGoingBackwards_doesNotRefill() {
+        TokenBucket bucket = new TokenBucket(1, 1000, 10_000);
+        assertTrue(bucket.tryAcquire(10_000));
+
+        assertFalse(bucket.tryAcquire(5_000));
+        assertFalse(bucket.tryAcquire(10_500));
+        assertTrue(bucket.tryAcquire(11_000));
+    }
+}